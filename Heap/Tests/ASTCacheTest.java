@@ -0,0 +1,98 @@
+import Main.ASTCache;
+import Main.JSONWriter;
+import Main.Parser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ASTCacheTest {
+
+    /** The fixtures in Tests/scripts, from either Tests or the project directory */
+    private static Path fixture(String name) {
+        Path scripts = Path.of("scripts");
+        return (Files.isDirectory(scripts) ? scripts : Path.of("Tests", "scripts")).resolve(name + ".heap");
+    }
+
+    /** The "// Script" section of a fixture, written out on its own */
+    private static Path script(Path directory, String name) throws IOException {
+        StringBuilder program = new StringBuilder();
+        boolean isProgram = false;
+        for (String line : Files.readAllLines(fixture(name))) {
+            if (line.startsWith("//")) {
+                isProgram = line.equals("// Script");
+            } else if (isProgram && !line.isEmpty()) {
+                program.append(line);
+            }
+        }
+        return Files.writeString(directory.resolve(name + ".heap"), program);
+    }
+
+    private static void roundTrip(String name) throws IOException {
+        Path directory = Files.createTempDirectory("astcache");
+        var cache = new ASTCache(directory.resolve("cache"));
+        Path script = script(directory, name);
+
+        assertNull(cache.cached(script));
+        Parser.Block parsed = cache.load(script);
+        Parser.Block read = cache.cached(script);
+
+        assertNotNull(read);
+        assertNotSame(parsed, read);
+        assertEquals(JSONWriter.toJSONString(parsed), JSONWriter.toJSONString(read));
+    }
+
+    @Test
+    void testAdd() throws IOException {
+        roundTrip("add");
+    }
+
+    @Test
+    void testBinaryOps() throws IOException {
+        roundTrip("binaryops");
+    }
+
+    @Test
+    void testComplexOps() throws IOException {
+        roundTrip("complexops");
+    }
+
+    @Test
+    void testIfStatements() throws IOException {
+        roundTrip("ifstatements");
+    }
+
+    @Test
+    void testOtherSchema() throws IOException {
+        Path directory = Files.createTempDirectory("astcache");
+        Path cacheDirectory = directory.resolve("cache");
+        var cache = new ASTCache(cacheDirectory);
+        Path script = script(directory, "add");
+        cache.load(script);
+
+        List<Path> entries;
+        try (var files = Files.list(cacheDirectory)) {
+            entries = files.toList();
+        }
+        assertEquals(1, entries.size());
+
+        /* The schema fingerprint follows the magic number and the version */
+        try (var channel = FileChannel.open(entries.get(0), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer schema = ByteBuffer.allocate(Integer.BYTES);
+            channel.read(schema, 8);
+            schema.putInt(0, schema.getInt(0) + 1);
+            channel.write(schema.rewind(), 8);
+        }
+        assertNull(cache.cached(script));
+
+        cache.load(script);
+        assertNotNull(cache.cached(script));
+    }
+}
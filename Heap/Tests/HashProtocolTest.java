@@ -0,0 +1,149 @@
+import Helpers.Scope;
+import Main.Compiler;
+import Main.Lexer;
+import Main.Parser;
+import Main.Resolver;
+import Main.VM;
+import Objects.Any;
+import Objects.Class;
+import Objects.Func;
+import Objects.HArrayList;
+import Objects.HLinkedList;
+import Objects.HMap;
+import Objects.Int;
+import Objects.Interface;
+import Objects.Range;
+import Objects.Real;
+import Objects.Str;
+import Objects.Var;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashProtocolTest {
+
+    /** Checks A and B are equal both ways round, and hash the same */
+    private static void assertSameValue(Any a, Any b) {
+        assertEquals(a, b);
+        assertEquals(b, a);
+        assertEquals(a.longHash(), b.longHash());
+        assertEquals(a.hashCode(), b.hashCode());
+    }
+
+    /** A Func written in Heap, made from SOURCE by compiled code, so it returns what its body does */
+    private static Func func(String source) {
+        var block = (Parser.Block) new Parser(new Lexer(new BufferedReader(new StringReader("return " + source + ";")))).parse();
+        new Resolver().resolve(block);
+        return (Func) VM.execute(new Compiler().compile(block), new Scope(null, Scope.Enclosing.MODULE));
+    }
+
+    /** An object with its own methods, the way a struct's instances have them */
+    private static Any object(Var name, Func method) {
+        Any object = new Any() {};
+        object.set(name, method);
+        return object;
+    }
+
+    @Test
+    void testInts() {
+        assertSameValue(Int.valueOf(5), Int.valueOf(BigInteger.valueOf(5)));
+        assertSameValue(Int.valueOf(-1L << 40), Int.valueOf(BigInteger.ONE.shiftLeft(40).negate()));
+
+        /* Demoted back to a long once it fits */
+        BigInteger big = BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE);
+        assertSameValue(Int.valueOf(Long.MAX_VALUE), Int.valueOf(big.subtract(BigInteger.ONE)));
+        assertNotEquals(Int.valueOf(Long.MAX_VALUE), Int.valueOf(big));
+    }
+
+    @Test
+    void testReals() {
+        assertSameValue(new Real(1.5), new Real(1.5));
+        assertSameValue(new Real(Double.NaN), new Real(Double.NaN));
+        assertNotEquals(new Real(0.0), new Real(-0.0));
+    }
+
+    @Test
+    void testLists() {
+        List<Any> items = List.of(Int.valueOf(0), Int.valueOf(1), Int.valueOf(2));
+        Any array = new HArrayList(items);
+        Any linked = new HLinkedList(new LinkedList<>(items));
+        assertSameValue(array, linked);
+        assertSameValue(array, new Range(0, 3, 1, false));
+        assertSameValue(linked, new Range(0, 3, 1, true));
+        assertNotEquals(array, new HArrayList(List.of(Int.valueOf(2), Int.valueOf(1), Int.valueOf(0))));
+    }
+
+    @Test
+    void testMaps() {
+        var forward = new HMap();
+        var backward = new HMap();
+        for (int i = 0; i < 10; i++) {
+            forward.set(Int.valueOf(i), new Str("v" + i));
+            backward.set(Int.valueOf(9 - i), new Str("v" + (9 - i)));
+        }
+        assertSameValue(forward, backward);
+
+        backward.set(Int.valueOf(0), new Str("w"));
+        assertNotEquals(forward, backward);
+    }
+
+    @Test
+    void testBuiltInFuncAsKey() {
+        Any add = Int.valueOf(1).get(Var.__add__);
+        var map = new HMap();
+        map.set(add, Int.valueOf(1));
+        assertEquals(Int.valueOf(1), map.index(add));
+    }
+
+    @Test
+    void testConstructsByIdentity() {
+        Func f = func("func(a, b) => true"), g = func("func(a, b) => true");
+        assertEquals(f, f);
+        assertNotEquals(f, g);
+
+        /* A class's __eq__ is for its instances, never called on the class itself */
+        var a = new Class("A", new Scope(null), List.of(), List.of());
+        var b = new Class("A", new Scope(null), List.of(), List.of());
+        a.scope().set(Var.__eq__, func("func(self, other) => true"));
+        assertNotEquals(a, b);
+        assertEquals(System.identityHashCode(a), a.longHash());
+
+        assertNotEquals(new Interface(null, new Scope(null)), new Interface(null, new Scope(null)));
+        assertNotEquals(new Interface("I", new Scope(null)), new Interface("I", new Scope(null)));
+    }
+
+    @Test
+    void testEqualsWithoutHash() {
+        Any object = object(Var.__eq__, func("func(self, other) => true"));
+        assertThrows(UnsupportedOperationException.class, object::longHash);
+        assertThrows(UnsupportedOperationException.class, () -> new HMap().set(object, Int.valueOf(1)));
+    }
+
+    @Test
+    void testEqualsAndHash() {
+        Any a = object(Var.__eq__, func("func(self, other) => true"));
+        a.set(Var.__hash__, func("func(self) => 7"));
+        Any b = object(Var.__hash__, func("func(self) => 7"));
+        b.set(Var.__eq__, func("func(self, other) => true"));
+        assertSameValue(a, b);
+    }
+
+    @Test
+    void testEqualsSymmetric() {
+        /* Only one of the two says how to compare them, so it's asked either way round */
+        Any equal = object(Var.__eq__, func("func(self, other) => true"));
+        Any plain = new Any() {};
+        assertEquals(equal, plain);
+        assertEquals(plain, equal);
+
+        Any unequal = object(Var.__eq__, func("func(self, other) => false"));
+        assertNotEquals(unequal, plain);
+        assertNotEquals(plain, unequal);
+    }
+}
@@ -0,0 +1,90 @@
+import Objects.Int;
+import Objects.Var;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntTest {
+
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+
+    @Test
+    void testPromotion() {
+        Int value = Int.valueOf(Byte.MAX_VALUE);
+        assertTrue(value.isByte());
+
+        value = value.increment();
+        assertTrue(value.isShort());
+        assertEquals(Byte.MAX_VALUE + 1, value.shortValue());
+
+        value = Int.valueOf(Short.MAX_VALUE).add(Int.valueOf(1));
+        assertTrue(value.isInt());
+        assertEquals(Short.MAX_VALUE + 1, value.intValue());
+
+        value = Int.valueOf(Integer.MAX_VALUE).add(Int.valueOf(1));
+        assertTrue(value.isLong());
+        assertEquals(Integer.MAX_VALUE + 1L, value.longValue());
+
+        value = Int.valueOf(Long.MAX_VALUE).add(Int.valueOf(1));
+        assertTrue(value.isBig());
+        assertEquals(LONG_MAX.add(BigInteger.ONE), value.bigValue());
+    }
+
+    @Test
+    void testDemotion() {
+        Int value = Int.valueOf(LONG_MAX.add(BigInteger.ONE)).decrement();
+        assertTrue(value.isLong());
+        assertEquals(Long.MAX_VALUE, value.longValue());
+
+        value = value.subtract(Int.valueOf(Long.MAX_VALUE - Integer.MAX_VALUE));
+        assertTrue(value.isInt());
+        assertEquals(Integer.MAX_VALUE, value.intValue());
+
+        value = value.subtract(Int.valueOf(Integer.MAX_VALUE - Short.MAX_VALUE));
+        assertTrue(value.isShort());
+
+        value = value.floorDivide(Int.valueOf(1000));
+        assertTrue(value.isByte());
+        assertEquals(32, value.byteValue());
+    }
+
+    @Test
+    void testLongOverflow() {
+        assertEquals(LONG_MAX.multiply(BigInteger.TWO),
+                Int.valueOf(Long.MAX_VALUE).multiply(Int.valueOf(2)).bigValue());
+        assertEquals(LONG_MIN.subtract(BigInteger.ONE),
+                Int.valueOf(Long.MIN_VALUE).subtract(Int.valueOf(1)).bigValue());
+        assertEquals(LONG_MIN.negate(), Int.valueOf(Long.MIN_VALUE).negate().bigValue());
+        assertEquals(LONG_MIN.negate(), ((Int) Int.valueOf(Long.MIN_VALUE).divide(Int.valueOf(-1))).bigValue());
+        assertEquals(BigInteger.TWO.pow(64), Int.valueOf(2).power(Int.valueOf(64)).bigValue());
+        assertEquals(BigInteger.ONE.shiftLeft(63), Int.valueOf(1).shiftLeft(Int.valueOf(63)).bigValue());
+    }
+
+    @Test
+    void testWidthsEqual() {
+        assertEquals(Int.valueOf(5), new Int(5L));
+        assertEquals(Int.valueOf(5), new Int(BigInteger.valueOf(5)));
+        assertEquals(Int.valueOf(5).hashCode(), new Int(BigInteger.valueOf(5)).hashCode());
+    }
+
+    @Test
+    void testNegativeShifts() {
+        assertEquals(Int.valueOf(2), Int.valueOf(8).shiftLeft(Int.valueOf(-2)));
+        assertEquals(Int.valueOf(32), Int.valueOf(8).shiftRight(Int.valueOf(-2)));
+        assertEquals(Int.valueOf(0), Int.valueOf(1).shiftLeft(Int.valueOf(Long.MIN_VALUE)));
+        assertEquals(Int.valueOf(-1), Int.valueOf(-5).shiftLeft(Int.valueOf(Long.MIN_VALUE)));
+        assertEquals(Int.valueOf(0), Int.valueOf(0).shiftRight(Int.valueOf(Long.MIN_VALUE)));
+        assertThrows(ArithmeticException.class, () -> Int.valueOf(1).shiftRight(Int.valueOf(Long.MIN_VALUE)));
+    }
+
+    @Test
+    void testImmutable() {
+        Int five = Int.valueOf(5);
+        assertThrows(UnsupportedOperationException.class, () -> five.set(new Var("tag", Int.type), Int.valueOf(1)));
+        assertTrue(five.sharesClassScope());
+        assertSame(five, Int.valueOf(5));
+    }
+}
@@ -0,0 +1,112 @@
+import Helpers.Scope;
+import Main.Interpreter;
+import Main.Lexer;
+import Main.ModuleLoader;
+import Main.Parser;
+import Objects.Any;
+import Objects.Bool;
+import Objects.Int;
+import Objects.Var;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InterpreterTest {
+
+    /** The value of the lone expression in PROGRAM */
+    private Any evaluate(String program) {
+        var ast = (Parser.Block) new Parser(new Lexer(new BufferedReader(new StringReader(program)))).parse();
+        return Interpreter.doExpression((Parser.Expression) ast.statements.get(0),
+                new Scope(null, Scope.Enclosing.MODULE));
+    }
+
+    @Test
+    void testMethodCall() {
+        assertEquals(Int.valueOf(4), evaluate("(1).__add__(3);"));
+    }
+
+    @Test
+    void testMethodCallWithoutArguments() {
+        assertEquals(Int.valueOf(2), evaluate("\"ab\".__size__();"));
+    }
+
+    @Test
+    void testMethodCallSiteCachesPerType() {
+        var ast = (Parser.Block) new Parser(new Lexer(new BufferedReader(new StringReader("x.__eq__(x);")))).parse();
+        var call = (Parser.Expression) ast.statements.get(0);
+        var scope = new Scope(null, Scope.Enclosing.MODULE);
+
+        scope.set(new Objects.Var("x", Any.type), Int.valueOf(3));
+        assertEquals(Bool.TRUE, Interpreter.doExpression(call, scope));
+        scope.set(new Objects.Var("x", Any.type), new Objects.Str("three"));
+        assertEquals(Bool.TRUE, Interpreter.doExpression(call, scope));
+    }
+
+    @Test
+    void testCallingNonFuncThrows() {
+        assertThrows(IllegalStateException.class, () -> evaluate("(3)(1);"));
+    }
+
+    /** The scope PROGRAM's top level variables end up in, when it's run as a module */
+    private Scope module(String program) throws IOException {
+        Path file = Files.writeString(Files.createTempDirectory("interpreter").resolve("module.heap"), program);
+        var loader = new ModuleLoader();
+        return loader.run(loader.load(List.of(file)));
+    }
+
+    @Test
+    void testScopeRestoredAfterBlock() throws IOException {
+        Scope scope = module("x = 3; if x == 3 => { a = 4; f = func(n) => n; f(a); } y = x;");
+        assertEquals(Int.valueOf(3), scope.get(new Var("y", Any.type), false));
+    }
+
+    @Test
+    void testIncrementAndDecrement() throws IOException {
+        Scope scope = module("i = 0; i++; j = 5; j--; a = 3; b = a++; c = ++a;");
+        assertEquals(Int.valueOf(1), scope.get(new Var("i", Any.type), false));
+        assertEquals(Int.valueOf(4), scope.get(new Var("j", Any.type), false));
+        assertEquals(Int.valueOf(3), scope.get(new Var("b", Any.type), false));
+        assertEquals(Int.valueOf(5), scope.get(new Var("c", Any.type), false));
+    }
+
+    @Test
+    void testLoopWithIncrement() throws IOException {
+        Scope scope = module("k = 0; loop n = 0 : n < 10 : n++ => { k += 2; }");
+        assertEquals(Int.valueOf(20), scope.get(new Var("k", Any.type), false));
+    }
+
+    @Test
+    void testFuncReturns() throws IOException {
+        Scope scope = module("f = func(n) => n + 1; y = f(7); " +
+                "g = func(n) => { if n > 0 => { return 1; } return 2; }; a = g(5); b = g(0);");
+        assertEquals(Int.valueOf(8), scope.get(new Var("y", Any.type), false));
+        assertEquals(Int.valueOf(1), scope.get(new Var("a", Any.type), false));
+        assertEquals(Int.valueOf(2), scope.get(new Var("b", Any.type), false));
+    }
+
+    @Test
+    void testBreakAndContinue() throws IOException {
+        Scope scope = module("k = 0; loop n = 0 : n < 10 : n++ => { " +
+                "if n == 5 => { break; } if n % 2 == 0 => { continue; } k += n; }");
+        assertEquals(Int.valueOf(4), scope.get(new Var("k", Any.type), false));
+    }
+
+    @Test
+    void testReturnFromLoop() throws IOException {
+        Scope scope = module("h = func(xs) => { loop e = xs :: => { if e > 2 => { return e; } } return 0; }; " +
+                "c = h([=> 9]);");
+        assertEquals(Int.valueOf(3), scope.get(new Var("c", Any.type), false));
+    }
+
+    @Test
+    void testRealsAreImmutable() {
+        assertThrows(UnsupportedOperationException.class, () -> module("r = 1.5; r.tag = 3;"));
+    }
+}
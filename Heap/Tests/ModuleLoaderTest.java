@@ -0,0 +1,59 @@
+import Helpers.Scope;
+import Main.ModuleLoader;
+import Objects.Any;
+import Objects.Int;
+import Objects.Var;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModuleLoaderTest {
+
+    /** Two modules, the first of which uses a name the second defines */
+    private List<Path> modules() throws IOException {
+        Path directory = Files.createTempDirectory("modules");
+        Path uses = Files.writeString(directory.resolve("uses.heap"), "y = x + 1;");
+        Path defines = Files.writeString(directory.resolve("defines.heap"), "x = 5;");
+        return List.of(uses, defines);
+    }
+
+    private static Any lookup(Scope scope, String name) {
+        return scope.get(new Var(name, Any.type), false);
+    }
+
+    @Test
+    void testLinkOrder() throws IOException {
+        List<ModuleLoader.Module> modules = new ModuleLoader().load(modules());
+        assertEquals("defines.heap", modules.get(0).path.getFileName().toString());
+        assertEquals("uses.heap", modules.get(1).path.getFileName().toString());
+    }
+
+    @Test
+    void testExportsOnInterpreter() throws IOException {
+        var loader = new ModuleLoader();
+        Scope scope = loader.run(loader.load(modules()));
+        assertEquals(Int.valueOf(5), lookup(scope, "x"));
+        assertEquals(Int.valueOf(6), lookup(scope, "y"));
+    }
+
+    @Test
+    void testExportsOnVM() throws IOException {
+        var loader = new ModuleLoader();
+        Scope scope = loader.runOnVM(loader.load(modules()));
+        assertEquals(Int.valueOf(5), lookup(scope, "x"));
+        assertEquals(Int.valueOf(6), lookup(scope, "y"));
+    }
+
+    @Test
+    void testPhaseTimings() throws IOException {
+        var loader = new ModuleLoader();
+        loader.runOnVM(loader.load(modules()));
+        assertEquals(List.of("parse", "optimize", "resolve", "load", "link", "compile", "run"),
+                List.copyOf(loader.timings().keySet()));
+    }
+}
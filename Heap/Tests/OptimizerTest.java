@@ -0,0 +1,182 @@
+import Helpers.Scope;
+import Main.Compiler;
+import Main.Interpreter;
+import Main.Lexer;
+import Main.Optimizer;
+import Main.Parser;
+import Main.Resolver;
+import Main.VM;
+import Objects.Any;
+import Objects.Int;
+import Objects.NULL;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimizerTest {
+
+    private static Parser.Block parse(String program) {
+        return (Parser.Block) new Parser(new Lexer(new BufferedReader(new StringReader(program)))).parse();
+    }
+
+    private static Parser.Block optimize(String program) {
+        Parser.Block block = parse(program);
+        new Optimizer().optimize(block);
+        return block;
+    }
+
+    private static Any value(Parser.Statement expression) {
+        return Interpreter.doExpression((Parser.Expression) expression, new Scope(null, Scope.Enclosing.MODULE));
+    }
+
+    /** Checks EXPRESSION folds to a literal of the value it has when it's run unoptimized */
+    private static void assertFolds(String expression) {
+        Any expected = value(parse(expression + ";").statements.get(0));
+        Parser.Statement folded = optimize(expression + ";").statements.get(0);
+
+        assertTrue(folded instanceof Parser.Literal, expression + " wasn't folded");
+        Any actual = value(folded);
+        assertEquals(expected.getClass(), actual.getClass(), expression);
+        assertEquals(expected, actual, expression);
+    }
+
+    /** Checks EXPRESSION, which fails or has no literal value when it's run, is left alone */
+    private static void assertUnfolded(String expression) {
+        Parser.Statement statement = optimize(expression + ";").statements.get(0);
+        assertTrue(statement instanceof Parser.Op, expression + " was folded");
+    }
+
+    @Test
+    void testFoldsInts() {
+        assertFolds("7 + 5");
+        assertFolds("2 * 3 - 10");
+        assertFolds("17 % 5");
+        assertFolds("1 << 40");
+        assertFolds("9223372036854775807 + 1");
+        assertFolds("~5");
+    }
+
+    @Test
+    void testReals() {
+        /* Reals have no operators at runtime yet, so there's nothing to fold them to */
+        assertSame(NULL.getInstance(), value(parse("1.5 + 2.25;").statements.get(0)));
+        assertUnfolded("1.5 + 2.25");
+        assertUnfolded("3 * 0.5");
+    }
+
+    @Test
+    void testFoldsStrings() {
+        assertFolds("\"heap\" + \"s\"");
+        assertFolds("\"a\" == \"a\"");
+        assertFolds("\"ab\" * 2");
+    }
+
+    @Test
+    void testFoldsBools() {
+        assertFolds("true and false");
+        assertFolds("!true");
+        assertFolds("3 < 4");
+    }
+
+    @Test
+    void testDivisionByZeroUnfolded() {
+        assertUnfolded("1 / 0");
+        assertUnfolded("1 % 0");
+    }
+
+    @Test
+    void testIfTrue() {
+        var block = optimize("if true => { x = 1; } else => { x = 2; }");
+        var anIf = (Parser.If) block.statements.get(0);
+        assertTrue(anIf.ifblocks.isEmpty());
+        var elseBlock = (Parser.Block) anIf.elseBlock;
+        var assignment = (Parser.Assignment) elseBlock.statements.get(0);
+        assertEquals("1", assignment.value.token.value());
+    }
+
+    @Test
+    void testIfFalse() {
+        var block = optimize("if false => { x = 1; } y = 2;");
+        assertEquals(1, block.statements.size());
+        assertTrue(block.statements.get(0) instanceof Parser.Assignment);
+
+        block = optimize("if false => { x = 1; } else if y => { x = 2; }");
+        var anIf = (Parser.If) block.statements.get(0);
+        assertEquals(1, anIf.ifblocks.size());
+        assertEquals("y", anIf.ifblocks.get(0).condition.token.value());
+    }
+
+    @Test
+    void testLeadingSwitchCasesDropped() {
+        var block = optimize("switch 2 => { case 1: x = 1; case 2: x = 2; case 3: x = 3; }");
+        var aSwitch = (Parser.Switch) block.statements.get(0);
+        assertEquals(2, aSwitch.cases.size());
+        assertEquals("2", aSwitch.cases.get(0).expression.token.value());
+        assertEquals("3", aSwitch.cases.get(1).expression.token.value());
+    }
+
+    /** The first Loop in the optimized PROGRAM */
+    private static Parser.Loop loop(String program) {
+        for (Parser.Statement statement : optimize(program).statements) {
+            if (statement instanceof Parser.Loop) {
+                return (Parser.Loop) statement;
+            }
+        }
+        throw new AssertionError("No loop in " + program);
+    }
+
+    /** Optimizes PROGRAM and runs it on the VM, to get what it returns */
+    private static Any run(String program) {
+        Parser.Block block = optimize(program);
+        new Resolver().resolve(block);
+        return VM.execute(new Compiler().compile(block), new Scope(null, Scope.Enclosing.MODULE));
+    }
+
+    @Test
+    void testHoistsInvariantOp() {
+        String program = "n = 4; d = 2; s = 0; loop i = 0 : i < 3 : i += 1 => { s += n / d; } return s;";
+        Parser.Loop loop = loop(program);
+        assertEquals(2, loop.initClauses.size());
+        assertEquals(Int.valueOf(6), run(program));
+    }
+
+    @Test
+    void testNothingHoistedAfterBreak() {
+        String program = "n = 4; d = 0; x = 1; loop i = 0 : i < 3 : i += 1 => { if d == 0 => break; x = n / d; } return x;";
+        for (Parser.Assignment clause : loop(program).initClauses) {
+            assertFalse(clause.value instanceof Parser.BinaryOp && clause.value.token.type() == Helpers.Token.TokenType.DIVIDE);
+            assertFalse(clause.value instanceof Parser.TernaryOp);
+        }
+        assertEquals(Int.valueOf(1), run(program));
+    }
+
+    @Test
+    void testTrappingHoistGuarded() {
+        String program = "n = 4; d = 0; loop i = 0 : i < 0 : i += 1 => { x = n / d; } return 1;";
+        Parser.Loop loop = loop(program);
+        assertEquals(2, loop.initClauses.size());
+        assertTrue(loop.initClauses.get(1).value instanceof Parser.TernaryOp);
+        assertEquals(Int.valueOf(1), run(program));
+    }
+
+    @Test
+    void testOperatorsOnUnknownValuesNotHoisted() {
+        /* Parameters could be objects whose operators do anything */
+        var func = (Parser.Func) ((Parser.Assignment) optimize(
+                "f = func(a, b) => { loop i = 0 : i < 3 : i += 1 => { y = a + b; } };").statements.get(0)).value;
+        var loop = (Parser.Loop) ((Parser.Block) func.operations).statements.get(0);
+        assertEquals(1, loop.initClauses.size());
+
+        /* As could a list's */
+        assertEquals(1, loop("xs = [1, 2]; loop i = 0 : i < 3 : i += 1 => { y = xs + xs; }").initClauses.size());
+    }
+
+    @Test
+    void testPureMethodsOnlyOnBuiltIns() {
+        assertEquals(2, loop("s = \"ab\"; loop i = 0 : i < 3 : i += 1 => { n = s.__size__(); }").initClauses.size());
+        assertEquals(1, loop("xs = [1, 2]; loop i = 0 : i < 3 : i += 1 => { n = xs.__size__(); }").initClauses.size());
+    }
+}
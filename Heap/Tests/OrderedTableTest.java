@@ -0,0 +1,149 @@
+import Objects.Any;
+import Objects.Int;
+import Objects.OrderedTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderedTableTest {
+
+    /** A key with whatever hash it's given, equal only to keys with the same id */
+    private static final class Key extends Any {
+        Key(int id, int hash) {
+            _id = id;
+            _hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o)._id == _id;
+        }
+
+        @Override
+        public int hashCode() {
+            return _hash;
+        }
+
+        private final int _id, _hash;
+    }
+
+    /** Checks every key in KEYS is at its position, and has the value put with it */
+    private static void assertHolds(OrderedTable table, List<? extends Any> keys) {
+        assertEquals(keys.size(), table.size());
+        assertEquals(keys, table.keys());
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(i, table.indexOf(keys.get(i)));
+            assertEquals(Int.valueOf(i), table.get(keys.get(i)));
+            assertEquals(Int.valueOf(i), table.value(i));
+        }
+    }
+
+    @Test
+    void testCollidingHashes() {
+        var table = new OrderedTable();
+        List<Key> keys = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            keys.add(new Key(i, 7));
+            table.put(keys.get(i), Int.valueOf(i));
+        }
+        assertHolds(table, keys);
+        assertNull(table.get(new Key(100, 7)));
+        assertEquals(-1, table.indexOf(new Key(100, 7)));
+    }
+
+    @Test
+    void testPerturbedProbing() {
+        /* The same low bits, so the same first slot, but different high ones */
+        var table = new OrderedTable();
+        List<Key> keys = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            keys.add(new Key(i, i << 10));
+            table.put(keys.get(i), Int.valueOf(i));
+        }
+        assertHolds(table, keys);
+        assertNull(table.get(new Key(200, 200 << 10)));
+    }
+
+    @Test
+    void testReplaceKeepsPosition() {
+        var table = new OrderedTable();
+        table.put(Int.valueOf(1), Int.valueOf(10));
+        table.put(Int.valueOf(2), Int.valueOf(20));
+        assertEquals(Int.valueOf(10), table.put(Int.valueOf(1), Int.valueOf(11)));
+        assertEquals(List.of(Int.valueOf(1), Int.valueOf(2)), table.keys());
+        assertEquals(List.of(Int.valueOf(11), Int.valueOf(20)), table.values());
+    }
+
+    @Test
+    void testReindexOnGrowth() {
+        var table = new OrderedTable(1);
+        List<Any> keys = new ArrayList<>();
+        List<Any> views = table.keys();
+        for (int i = 0; i < 1000; i++) {
+            keys.add(i % 2 == 0 ? Int.valueOf(i) : new Key(i, 3));
+            table.put(keys.get(i), Int.valueOf(i));
+            assertEquals(i + 1, views.size());
+        }
+        assertHolds(table, keys);
+    }
+
+    @Test
+    void testPutAtPosition() {
+        var table = new OrderedTable(2);
+        List<Any> keys = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            keys.add(new Key(i, i & 1));
+            table.put(keys.get(i), null);
+        }
+
+        /* At the front, in the middle, and at the end, growing the table as it goes */
+        keys.add(0, new Key(10, 0));
+        table.put(0, keys.get(0), null);
+        keys.add(3, new Key(11, 1));
+        table.put(3, keys.get(3), null);
+        keys.add(keys.size(), new Key(12, 0));
+        table.put(keys.size() - 1, keys.get(keys.size() - 1), null);
+        for (int i = 0; i < 20; i++) {
+            keys.add(1, new Key(20 + i, i));
+            table.put(1, keys.get(1), null);
+        }
+
+        for (int i = 0; i < keys.size(); i++) {
+            table.put(keys.get(i), Int.valueOf(i));
+        }
+        assertHolds(table, keys);
+    }
+
+    @Test
+    void testPutAtPositionReplaces() {
+        var table = new OrderedTable();
+        table.put(Int.valueOf(1), Int.valueOf(10));
+        table.put(Int.valueOf(2), Int.valueOf(20));
+        assertEquals(Int.valueOf(20), table.put(0, Int.valueOf(2), Int.valueOf(21)));
+        assertEquals(List.of(Int.valueOf(1), Int.valueOf(2)), table.keys());
+        assertEquals(Int.valueOf(21), table.get(Int.valueOf(2)));
+    }
+
+    @Test
+    void testBounds() {
+        var table = new OrderedTable(16);
+        table.put(Int.valueOf(1), Int.valueOf(10));
+
+        /* There is room past the last entry, but nothing in it */
+        assertThrows(IndexOutOfBoundsException.class, () -> table.key(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> table.value(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> table.key(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> table.value(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> table.keys().get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> table.put(2, Int.valueOf(2), null));
+        assertThrows(IndexOutOfBoundsException.class, () -> table.put(-1, Int.valueOf(2), null));
+        assertEquals(1, table.size());
+
+        table.put(1, Int.valueOf(2), Int.valueOf(20));
+        assertEquals(Int.valueOf(2), table.key(1));
+        assertEquals(Int.valueOf(20), table.value(1));
+    }
+}
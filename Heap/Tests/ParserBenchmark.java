@@ -0,0 +1,91 @@
+import Helpers.Token;
+import Main.Lexer;
+import Main.Parser;
+
+/**
+ * Times lexing and parsing of a large generated script, the way machine-generated
+ * Heap code tends to look: many statements, long operator chains, and lots of
+ * containers and calls. Run with the number of statements to generate, and
+ * optionally the number of timed rounds (after as many untimed warm-up rounds).
+ */
+class ParserBenchmark {
+
+    public static void main(String[] args) {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        char[] script = generate(statements).toCharArray();
+        int tokens = countTokens(script);
+        System.out.printf("%d statements, %d chars, %d tokens%n", statements, script.length, tokens);
+
+        /* Each phase is warmed up and timed on its own, so one doesn't skew how the
+         * JIT compiles the other */
+        long lexing = 0;
+        for (int i = 0; i < rounds * 2; i++) {
+            long time = lex(script);
+            lexing += i < rounds ? 0 : time;
+        }
+        report("lex", lexing / rounds, tokens);
+
+        long parsing = 0;
+        for (int i = 0; i < rounds * 2; i++) {
+            long time = parse(script);
+            parsing += i < rounds ? 0 : time;
+        }
+        report("lex + parse", parsing / rounds, tokens);
+    }
+
+    /** A script of STATEMENTS statements, cycling through a few shapes of statement */
+    static String generate(int statements) {
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < statements; i++) {
+            switch (i % 4) {
+                case 0:
+                    script.append("value").append(i).append(" = ");
+                    for (int j = 0; j < 16; j++) {
+                        script.append("a").append(j).append(j % 3 == 0 ? " * " : " + ");
+                    }
+                    script.append("(b - c) ** 2 == d && e || !f;");
+                    break;
+                case 1:
+                    script.append("items").append(i).append(" = [1, 2.5, \"three\", x.y, f(4, 5), -6];");
+                    break;
+                case 2:
+                    script.append("call").append(i).append(" = object.method(first, second[0], third.fourth) ?? fallback;");
+                    break;
+                default:
+                    script.append("total += count").append(i).append(" << 2 | mask >> 1;");
+            }
+        }
+        return script.toString();
+    }
+
+    static int countTokens(char[] script) {
+        Lexer lexer = new Lexer(script);
+        int tokens = 0;
+        while (lexer.next().type() != Token.TokenType.EOF) {
+            tokens++;
+        }
+        return tokens;
+    }
+
+    /** Nanoseconds taken to lex all of SCRIPT */
+    static long lex(char[] script) {
+        long start = System.nanoTime();
+        Lexer lexer = new Lexer(script);
+        while (lexer.next().type() != Token.TokenType.EOF) { }
+        return System.nanoTime() - start;
+    }
+
+    /** Nanoseconds taken to lex and parse all of SCRIPT */
+    static long parse(char[] script) {
+        long start = System.nanoTime();
+        new Parser(new Lexer(script)).parse();
+        return System.nanoTime() - start;
+    }
+
+    static void report(String phase, long nanos, int tokens) {
+        System.out.printf("%-12s %8.2f ms  %6.2f M tokens/s%n",
+                phase, nanos / 1e6, tokens / (nanos / 1e3));
+    }
+}
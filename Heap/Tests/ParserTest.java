@@ -1,3 +1,4 @@
+import Main.JSONWriter;
 import Main.Lexer;
 import Main.Parser;
 import org.json.simple.*;
@@ -50,9 +51,11 @@ class ParserTest {
             String expectedJSONString = results.toString().replaceAll("\\s","");
             JSONObject expectedJSON = (JSONObject) JSONValue.parse(expectedJSONString);
 
-            JSONObject actualJSON = parser.parse().toJSON();
+            Parser.ASTNode ast = parser.parse();
+            JSONObject actualJSON = ast.toJSON();
 
             assertEquals(expectedJSON, actualJSON);
+            assertEquals(expectedJSON, JSONValue.parse(JSONWriter.toJSONString(ast)));
 
         } catch (FileNotFoundException fnfe) {
             fail("File not found error");
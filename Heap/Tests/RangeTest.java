@@ -0,0 +1,121 @@
+import Helpers.Scope;
+import Main.Interpreter;
+import Main.Lexer;
+import Main.ModuleLoader;
+import Main.Parser;
+import Objects.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RangeTest {
+
+    private static List<Long> values(Iterable<Any> items) {
+        List<Long> values = new ArrayList<>();
+        for (Any item : items) {
+            values.add(((Int) item).forceLong());
+        }
+        return values;
+    }
+
+    @Test
+    void testGetAndSize() {
+        Range range = new Range(2, 11, 3, false);
+        assertEquals(3, range.size());
+        assertEquals(Int.valueOf(2), range.get(0));
+        assertEquals(Int.valueOf(8), range.get(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> range.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> range.get(-1));
+        assertFalse(range.isMaterialized());
+    }
+
+    @Test
+    void testEmpty() {
+        assertEquals(0, new Range(5, 5, 1, false).size());
+        assertEquals(0, new Range(5, 0, 1, false).size());
+        assertEquals(0, new Range(0, 5, -1, false).size());
+        assertThrows(IllegalArgumentException.class, () -> new Range(0, 5, 0, false));
+    }
+
+    @Test
+    void testIteration() {
+        Range range = new Range(0, 5, 1, false);
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L), values(range));
+        assertFalse(range.isMaterialized());
+    }
+
+    @Test
+    void testNegativeStep() {
+        Range range = new Range(10, 0, -3, false);
+        assertEquals(4, range.size());
+        assertEquals(List.of(10L, 7L, 4L, 1L), values(range));
+        assertEquals(Int.valueOf(1), range.get(3));
+    }
+
+    @Test
+    void testMaterializeOnMutation() {
+        Range range = new Range(0, 3, 1, false);
+        range.list().add(Int.valueOf(99));
+        assertTrue(range.isMaterialized());
+        assertTrue(range.list() instanceof PackedList);
+        assertEquals(4, range.size());
+        assertEquals(List.of(0L, 1L, 2L, 99L), values(range));
+
+        Range linked = new Range(3, 0, -1, true);
+        linked.list().remove(0);
+        assertTrue(linked.list() instanceof LinkedList);
+        assertEquals(List.of(2L, 1L), values(linked));
+        assertEquals(HLinkedList.type, linked.type());
+    }
+
+    @Test
+    void testParsedRange() {
+        var ast = (Parser.Block) new Parser(new Lexer(new BufferedReader(new StringReader("[=> 5];")))).parse();
+        Any range = Interpreter.doExpression((Parser.Expression) ast.statements.get(0),
+                new Scope(null, Scope.Enclosing.MODULE));
+        assertTrue(range instanceof Range);
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L), values((Range) range));
+
+        ast = (Parser.Block) new Parser(new Lexer(new BufferedReader(new StringReader("-[10 => 0 : -5];")))).parse();
+        range = Interpreter.doExpression((Parser.Expression) ast.statements.get(0),
+                new Scope(null, Scope.Enclosing.MODULE));
+        assertEquals(List.of(10L, 5L), values((Range) range));
+    }
+
+    @Test
+    void testNonIntBound() {
+        var ast = (Parser.Block) new Parser(new Lexer(new BufferedReader(new StringReader("[=> \"5\"];")))).parse();
+        assertThrows(IllegalArgumentException.class, () -> Interpreter.doExpression(
+                (Parser.Expression) ast.statements.get(0), new Scope(null, Scope.Enclosing.MODULE)));
+    }
+
+    @Test
+    void testReadsDoNotMaterialize() {
+        Range left = new Range(0, 3, 1, false);
+        Range right = new Range(3, 5, 1, false);
+        left.add(right);
+        new HArrayList(new ArrayList<>(List.of(Int.valueOf(7)))).add(left);
+        assertFalse(left.isMaterialized());
+        assertFalse(right.isMaterialized());
+    }
+
+    @Test
+    void testForEachLoop() throws IOException {
+        Path file = Files.writeString(Files.createTempDirectory("range").resolve("module.heap"),
+                "r = [=> 5]; z = 0; loop e = r :: => { z += e; }");
+        var loader = new ModuleLoader();
+        Scope scope = loader.run(loader.load(List.of(file)));
+
+        assertEquals(Int.valueOf(10), scope.get(new Var("z", Any.type), false));
+        assertFalse(((Range) scope.get(new Var("r", Any.type), false)).isMaterialized());
+    }
+}
@@ -0,0 +1,96 @@
+import Helpers.Scope;
+import Main.Bytecode;
+import Main.Compiler;
+import Main.Lexer;
+import Main.Optimizer;
+import Main.Parser;
+import Main.Resolver;
+import Main.VM;
+import Objects.Any;
+import Objects.Int;
+import Objects.Range;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VMTest {
+
+    /** Compiles PROGRAM the way VM.run does, and runs it to get what it returns */
+    private Any run(String program) {
+        var ast = (Parser.Block) new Parser(new Lexer(new BufferedReader(new StringReader(program)))).parse();
+        new Optimizer().optimize(ast);
+        new Resolver().resolve(ast);
+        Bytecode bytecode = new Compiler().compile(ast);
+        return VM.execute(bytecode, new Scope(null, Scope.Enclosing.MODULE));
+    }
+
+    @Test
+    void testExpressionFunc() {
+        assertEquals(Int.valueOf(7), run("f = func(n) => n; return f(7);"));
+    }
+
+    @Test
+    void testBlockFunc() {
+        assertEquals(Int.valueOf(8), run("f = func(n) => { return n + 1; }; return f(7);"));
+    }
+
+    @Test
+    void testClosure() {
+        assertEquals(Int.valueOf(10), run("x = 3; f = func(n) => n + x; return f(7);"));
+    }
+
+    @Test
+    void testNestedCalls() {
+        assertEquals(Int.valueOf(9), run("inc = func(n) => n + 1; twice = func(n) => inc(inc(n)); return twice(7);"));
+    }
+
+    @Test
+    void testMethodCall() {
+        assertEquals(Int.valueOf(4), run("return (1).__add__(3);"));
+        assertEquals(Int.valueOf(2), run("s = \"ab\"; return s.__size__();"));
+    }
+
+    @Test
+    void testRange() {
+        Any range = run("xs = [=> 5]; return xs;");
+        assertTrue(range instanceof Range);
+        assertEquals(5, ((Range) range).size());
+    }
+
+    @Test
+    void testForEach() {
+        assertEquals(Int.valueOf(10), run("s = 0; loop e = [=> 5] :: => { s += e; } return s;"));
+        assertEquals(Int.valueOf(6), run("s = 0; loop e = [1, 2, 3] :: => s += e; return s;"));
+        assertEquals(Int.valueOf(4), run("s = 0; loop e = [=> 10] :: => { " +
+                "if e == 5 => { break; } if e % 2 == 0 => { continue; } s += e; } return s;"));
+
+        Any range = run("r = [=> 5]; loop e = r :: => { } return r;");
+        assertFalse(((Range) range).isMaterialized());
+    }
+
+    @Test
+    void testIncrementAndDecrement() {
+        assertEquals(Int.valueOf(1), run("i = 0; i++; return i;"));
+        assertEquals(Int.valueOf(4), run("j = 5; j--; return j;"));
+        assertEquals(Int.valueOf(35), run("a = 3; b = a++; c = ++a; return b * 10 + c;"));
+    }
+
+    @Test
+    void testLoopWithIncrement() {
+        assertEquals(Int.valueOf(20), run("k = 0; loop n = 0 : n < 10 : n++ => { k += 2; } return k;"));
+    }
+
+    @Test
+    void testCallingNonFuncThrows() {
+        assertThrows(IllegalStateException.class, () -> run("x = 3; return x(1);"));
+    }
+
+    @Test
+    void testBreakOutsideLoopThrows() {
+        assertThrows(IllegalStateException.class, () -> run("break;"));
+        assertThrows(IllegalStateException.class, () -> run("continue;"));
+    }
+}
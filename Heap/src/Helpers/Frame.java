@@ -0,0 +1,49 @@
+package Helpers;
+
+import Objects.*;
+
+/**
+ * A Scope whose variables have already been resolved (see Main.Resolver) to
+ * fixed slots, so reading or writing one is an array index rather than a hash
+ * lookup and a walk up the parent chain. Names the resolver could not place
+ * still fall back to the hashed Scope underneath.
+ */
+public class Frame extends Scope {
+    public Frame(Scope parent, int size, Enclosing enclosing) {
+        super(parent, enclosing);
+        _slots = new Any[size];
+    }
+
+    /**
+     * Gets the object held in a slot of this frame or one of its ancestors
+     * @param depth How many frames up from this one the slot lives
+     * @param slot Index of the slot in that frame
+     * @return The object in the slot, or null if it was never set
+     */
+    public Any get(int depth, int slot) {
+        return frame(depth)._slots[slot];
+    }
+
+    /**
+     * Sets the object held in a slot of this frame or one of its ancestors
+     * @param depth How many frames up from this one the slot lives
+     * @param slot Index of the slot in that frame
+     * @param object The object to put in the slot
+     */
+    public void set(int depth, int slot, Any object) {
+        frame(depth)._slots[slot] = object;
+    }
+
+    public int size() { return _slots.length; }
+
+    /** Walks DEPTH frames up the parent chain */
+    private Frame frame(int depth) {
+        Scope scope = this;
+        for (int i = 0; i < depth; i++) {
+            scope = scope.parent();
+        }
+        return (Frame) scope;
+    }
+
+    private Any[] _slots;
+}
@@ -0,0 +1,87 @@
+package Helpers;
+
+import java.util.Arrays;
+
+/**
+ * Recognizes reserved words. The words are compiled into a DFA whose whole
+ * transition table is packed into a single int array: each state is a row of
+ * WIDTH ints, the first holding the token type the state accepts (its ordinal
+ * plus one, or 0 if it accepts none) and the rest holding the next state for
+ * each of 'a' to 'z'. State 0 is dead, and any other char leads straight to it,
+ * so no char of an identifier can index outside of the table.
+ */
+public class KeywordRecognizer {
+
+    KeywordRecognizer(Iterable<Token.TokenType> keywords) {
+        _table = new int[WIDTH * 16];
+        _states = START + 1;
+        for (Token.TokenType keyword : keywords) {
+            insert(keyword);
+        }
+        _table = Arrays.copyOf(_table, _states * WIDTH);
+    }
+
+    /**
+     * The reserved word spelled by the chars of TEXT from START up to END
+     * @return The word's token type, or null if the chars aren't a reserved word
+     */
+    public Token.TokenType classify(char[] text, int start, int end) {
+        int state = START;
+        for (int i = start; i < end; i++) {
+            int symbol = text[i] - 'a';
+            if (symbol < 0 || symbol >= LETTERS) {
+                return null;
+            }
+            state = _table[state * WIDTH + 1 + symbol];
+            if (state == DEAD) {
+                return null;
+            }
+        }
+        int accepted = _table[state * WIDTH];
+        return accepted == 0 ? null : TYPES[accepted - 1];
+    }
+
+    /** The reserved word WORD, or null if it isn't one */
+    public Token.TokenType classify(String word) {
+        return classify(word.toCharArray(), 0, word.length());
+    }
+
+    /** Number of states in the DFA, including the dead state */
+    public int states() {
+        return _states;
+    }
+
+    /** Adds the states that spell out KEYWORD's value */
+    private void insert(Token.TokenType keyword) {
+        String word = keyword.value();
+        int state = START;
+        for (int i = 0; i < word.length(); i++) {
+            int symbol = word.charAt(i) - 'a';
+            if (symbol < 0 || symbol >= LETTERS) {
+                throw new IllegalArgumentException("Reserved word " + word + " isn't all lowercase letters");
+            }
+            int next = _table[state * WIDTH + 1 + symbol];
+            if (next == DEAD) {
+                next = addState();
+                _table[state * WIDTH + 1 + symbol] = next;
+            }
+            state = next;
+        }
+        _table[state * WIDTH] = keyword.ordinal() + 1;
+    }
+
+    private int addState() {
+        if ((_states + 1) * WIDTH > _table.length) {
+            _table = Arrays.copyOf(_table, _table.length * 2);
+        }
+        return _states++;
+    }
+
+    private static final Token.TokenType[] TYPES = Token.TokenType.values();
+
+    private static final int LETTERS = 26, WIDTH = LETTERS + 1;
+    private static final int DEAD = 0, START = 1;
+
+    private int[] _table;
+    private int _states;
+}
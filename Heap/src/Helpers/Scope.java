@@ -7,27 +7,40 @@ import java.util.Map;
 
 public class Scope {
     public Scope(Scope parents, Enclosing enclosing) {
-        _scope = new HashMap<>();
         _parent = parents;
         _enclosing = enclosing;
     }
 
-    public boolean has(Var var) { return _scope.containsKey(var); }
+    public Scope(Scope parents) {
+        this(parents, Enclosing.INNER);
+    }
+
+    public boolean has(Var var) { return _scope != null && _scope.containsKey(var); }
 
     public boolean has(Var var, Type type) {
-        return _scope.containsKey(var) && type.isType(var.type());
+        return has(var) && type.isType(var.type());
     }
 
     public void set(Var var, Any object) {
+        /* The map is only created once something is set by name, since most
+         * scopes are Frames whose variables live in slots instead */
+        if (_scope == null) {
+            _scope = new HashMap<>();
+        }
         _scope.put(var, object);
+        if (isConstruct() && _enclosing != Enclosing.FUNC) {
+            _classVersion++;
+        }
     }
 
     public void set(Scope scope) {
-        scope._scope.entrySet().forEach(v -> set((Var) v, v.getValue()));
+        if (scope._scope != null) {
+            scope._scope.forEach(this::set);
+        }
     }
 
     public Any get(Var name, boolean thisScope) {
-        Any object = _scope.get(name);
+        Any object = _scope == null ? null : _scope.get(name);
         if (object == null && !thisScope && _parent != null) {
             return _parent.get(name, thisScope);
         }
@@ -53,10 +66,18 @@ public class Scope {
 
     public Enclosing enclosing() { return _enclosing; }
 
+    public Scope parent() { return _parent; }
+
+    /** Changes every time something is set in a class, interface or other
+     * construct's scope, so that cached method lookups know to start over */
+    public static int classVersion() { return _classVersion; }
+
     private Enclosing _enclosing;
     private Scope _parent;
     private Map<Var, Any> _scope;
 
+    private static int _classVersion;
+
     public enum Enclosing {
         MODULE, INNER,
         IF, ELSE, LOOP, TRY, CATCH,
@@ -0,0 +1,73 @@
+package Helpers;
+
+import java.util.Arrays;
+
+/**
+ * The names seen while lexing a unit of source. Every occurrence of the same name
+ * shares a single VAR Token, so a name is only turned into an object the first
+ * time it is seen. Names are looked up straight from the lexer's char array, by
+ * open addressing, without copying them out first.
+ */
+public class SymbolTable {
+    public SymbolTable() {
+        _tokens = new Token[INITIAL_CAPACITY];
+        _hashes = new int[INITIAL_CAPACITY];
+    }
+
+    /** The VAR token for the name in TEXT from START up to END */
+    public Token intern(char[] text, int start, int end) {
+        int hash = hash(text, start, end);
+        int mask = _tokens.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            Token token = _tokens[i];
+            if (token == null) {
+                token = new Token(Token.TokenType.VAR, text, start, end);
+                _tokens[i] = token;
+                _hashes[i] = hash;
+                if (++_size * 2 > _tokens.length) {
+                    grow();
+                }
+                return token;
+            } else if (_hashes[i] == hash && token.matches(text, start, end)) {
+                return token;
+            }
+        }
+    }
+
+    /** Number of distinct names in the table */
+    public int size() {
+        return _size;
+    }
+
+    private static int hash(char[] text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private void grow() {
+        Token[] tokens = _tokens;
+        int[] hashes = _hashes;
+        _tokens = new Token[tokens.length * 2];
+        _hashes = new int[tokens.length * 2];
+        int mask = _tokens.length - 1;
+        for (int j = 0; j < tokens.length; j++) {
+            if (tokens[j] != null) {
+                int i = hashes[j] & mask;
+                while (_tokens[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                _tokens[i] = tokens[j];
+                _hashes[i] = hashes[j];
+            }
+        }
+    }
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Token[] _tokens;
+    private int[] _hashes;
+    private int _size;
+}
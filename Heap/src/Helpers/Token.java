@@ -1,9 +1,28 @@
 package Helpers;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 public class Token {
 
+    /**
+     * The shared token for TYPE, which must be a type whose tokens always have the
+     * same value (anything but a name or a literal)
+     */
+    public static Token of(TokenType type) {
+        Token token = _flyweights[type.ordinal()];
+        if (token == null) {
+            throw new IllegalArgumentException(type + " tokens don't have a fixed value");
+        }
+        return token;
+    }
+
+    /** Whether tokens of TYPE always have the same value */
+    public static boolean isFixed(TokenType type) {
+        return type != TokenType.VAR && type != TokenType.INT_VAL &&
+                type != TokenType.REAL_VAL && type != TokenType.STR_VAL;
+    }
+
     public Token(String value, TokenType type) {
         _value = value;
         _type = type;
@@ -14,9 +33,20 @@ public class Token {
         _type = type;
     }
 
+    /**
+     * A token whose value is the chars of SOURCE from START up to END. They are
+     * only copied out into a String the first time the value is asked for.
+     */
+    public Token(TokenType type, char[] source, int start, int end) {
+        _type = type;
+        _source = source;
+        _offset = start;
+        _length = end - start;
+    }
+
     @Override
     public String toString() {
-        if (_value.equals(_type._value)) {
+        if (value().equals(_type._value)) {
             return _type.toString();
         } else {
             return String.format("%s(%s)", _type.toString(), _value);
@@ -28,123 +58,68 @@ public class Token {
         if (this == o) return true;
         if (!(o instanceof Token)) return false;
         var token = (Token) o;
-        return _type == token._type &&
-                Objects.equals(_value, token._value);
+        if (_type != token._type) return false;
+        return isFixed(_type) || Objects.equals(value(), token.value());
+    }
+
+    /** Whether the token's value is the chars of TEXT from START up to END */
+    boolean matches(char[] text, int start, int end) {
+        if (_source != null) {
+            return Arrays.equals(_source, _offset, _offset + _length, text, start, end);
+        }
+        return _value.contentEquals(java.nio.CharBuffer.wrap(text, start, end - start));
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(_type, _value);
+        return Objects.hash(_type, value());
+    }
+
+    public String value() {
+        if (_value == null && _source != null) {
+            _value = new String(_source, _offset, _length);
+        }
+        return _value;
     }
 
-    public String value() { return _value; }
+    /** Where the token's text starts in the source, or -1 if it wasn't lexed from any */
+    public int offset() { return _source == null ? -1 : _offset; }
+
+    /** How many chars of the source the token's text takes up */
+    public int length() { return _source == null ? _value.length() : _length; }
 
     public TokenType type() { return _type; }
 
     /**
      * Helper functions to get all categories token is in
      * */
-    public boolean isLiteral()      { return _type._groups.contains(LIT); }
-    public boolean isReserved()     { return _type._groups.contains(RSD); }
-    public boolean isOperator()     { return _type._groups.contains(OPR); }
-    public boolean isModifier()     { return _type._groups.contains(MDF); }
-    public boolean isType()         { return _type._groups.contains(TYP); }
-    public boolean isConstruct()    { return _type._groups.contains(CNS); }
-    public boolean isDirect()       { return _type._groups.contains(DIR); }
-    public boolean isContainer()    { return _type._groups.contains(CNT); }
-    public boolean isAssignment()   { return _type._groups.contains(ASN); }
+    public boolean isLiteral()      { return LITERALS.contains(_type); }
+    public boolean isReserved()     { return RESERVED.contains(_type); }
+    public boolean isOperator()     { return OPERATORS.contains(_type); }
+    public boolean isModifier()     { return MODIFIERS.contains(_type); }
+    public boolean isType()         { return TYPES.contains(_type); }
+    public boolean isConstruct()    { return CONSTRUCTS.contains(_type); }
+    public boolean isDirect()       { return DIRECTS.contains(_type); }
+    public boolean isContainer()    { return CONTAINERS.contains(_type); }
+    public boolean isAssignment()   { return ASSIGNMENTS.contains(_type); }
     public boolean isVar()          { return _type == TokenType.VAR; }
 
-    /**
-     * Precedence of different operators by their token type (lower number means
-     * higher precedence)
-     * */
-    public static Map<TokenType, Integer> operatorPrecedence = new HashMap<>() {{
-        /* Accesses */
-        put(TokenType.ARR_TYPE,         0);
-        put(TokenType.PAR_OPEN,         0);
-        put(TokenType.PERIOD,           0);
-        put(TokenType.OPT_CHAIN,        0);
-
-        /* Referencing */
-        put(TokenType.POINT,            1);
-
-        /* Stepwise */
-        put(TokenType.INCREMENT,        2);
-        put(TokenType.DECREMENT,        2);
-
-        /* Inverting */
-        put(TokenType.L_NOT,            3);
-        put(TokenType.B_NOT,            3);
-
-        /* Rounding and Exponentiative */
-        put(TokenType.ROUND,            4);
-        put(TokenType.EXP,              4);
-
-        /* Multiplicative */
-        put(TokenType.MULTIPLY,         5);
-        put(TokenType.DIVIDE,           5);
-        put(TokenType.MOD,              5);
-        put(TokenType.FLOOR,            5);
-
-        /* Additive and concatenative */
-        put(TokenType.ADD,              6);
-        put(TokenType.SUBTRACT,         6);
-
-        /* Shift */
-        put(TokenType.SHIFT_LEFT,       7);
-        put(TokenType.SHIFT_RIGHT,      7);
-
-        /* Relational */
-        put(TokenType.GREATER_THAN,     8);
-        put(TokenType.LESS_THAN,        8);
-        put(TokenType.GREATER_THAN_EQ,  8);
-        put(TokenType.LESS_THAN_EQ,     8);
-
-        /* Equality */
-        put(TokenType.EQUAL,            9);
-        put(TokenType.NOT_EQUAL,        9);
-        put(TokenType.CAST_EQUAL,       9);
-        put(TokenType.CAST_NOT_EQUAL,   9);
-
-        /* Bitwise boolean operators */
-        put(TokenType.B_AND,            10);
-        put(TokenType.B_OR,             11);
-        put(TokenType.B_XOR,            12);
-
-        /* Logical boolean operators */
-        put(TokenType.L_AND,            13);
-        put(TokenType.L_OR,             14);
-        put(TokenType.L_XOR,            15);
-
-        /* Ternary operators */
-        put(TokenType.TERNARY,          16);
-
-        /* Null Coalescence */
-        put(TokenType.NULL_COALESCE,    17);
-
-        /* Pipeline */
-        put(TokenType.PIPELINE,         18);
-        
-        /* Assignment */
-        put(TokenType.ADD_EQ,           19);
-        put(TokenType.SUBTRACT_EQ,      19);
-        put(TokenType.MULTIPLY_EQ,      19);
-        put(TokenType.DIVIDE_EQ,        19);
-        put(TokenType.MOD_EQ,           19);
-        put(TokenType.FLOOR_EQ,         19);
-        put(TokenType.ROUND_EQ,         19);
-        put(TokenType.EXP_EQ,           19);
-        put(TokenType.L_AND_EQ,         19);
-        put(TokenType.L_OR_EQ,          19);
-        put(TokenType.L_XOR_EQ,         19);
-        put(TokenType.B_AND_EQ,         19);
-        put(TokenType.B_OR_EQ,          19);
-        put(TokenType.B_XOR_EQ,         19);
-    }};
+    /** The shared tokens of each fixed type, indexed by the type's ordinal */
+    private static final Token[] _flyweights = new Token[TokenType.values().length];
+
+    static {
+        for (TokenType type : TokenType.values()) {
+            if (isFixed(type)) {
+                _flyweights[type.ordinal()] = new Token(type);
+            }
+        }
+    }
 
     private TokenType _type;
     private String _value;
+    /** The text the token was lexed from, if its value hasn't been copied out of it yet */
+    private char[] _source;
+    private int _offset, _length;
 
     /** The usage type of a token for the AST */
     private static final String
@@ -158,6 +133,28 @@ public class Token {
             CNT = "CONTAINER",
             ASN = "ASSIGNMENT";
 
+    /** The token types in each group, so finding a token's groups is a bit test */
+    private static final EnumSet<TokenType>
+            LITERALS = group(LIT),
+            RESERVED = group(RSD),
+            OPERATORS = group(OPR),
+            MODIFIERS = group(MDF),
+            TYPES = group(TYP),
+            CONSTRUCTS = group(CNS),
+            DIRECTS = group(DIR),
+            CONTAINERS = group(CNT),
+            ASSIGNMENTS = group(ASN);
+
+    private static EnumSet<TokenType> group(String group) {
+        EnumSet<TokenType> types = EnumSet.noneOf(TokenType.class);
+        for (TokenType type : TokenType.values()) {
+            if (type._groups.contains(group)) {
+                types.add(type);
+            }
+        }
+        return types;
+    }
+
     /**
      * The type of this token
      */
@@ -216,7 +213,7 @@ public class Token {
 
         STR_BOUND("\"|\'"),
 
-        INT("int", RSD, TYP), REAL(RSD, TYP), CHAR("char", RSD, TYP), BOOL("bool", RSD, TYP),
+        INT("int", RSD, TYP), REAL("real", RSD, TYP), CHAR("char", RSD, TYP), BOOL("bool", RSD, TYP),
         STR("str", RSD, TYP), NULL("null", RSD, TYP, LIT), ANY("any", RSD, TYP),
         ATOM("atom", RSD, TYP), CONTAINER("contain", RSD, TYP),
 
@@ -224,7 +221,7 @@ public class Token {
         CASE("case", RSD, DIR), DEFAULT("default", RSD, DIR), SELECT("select", RSD, DIR),
         TRY("try", RSD, DIR), CATCH("catch", RSD, DIR),
 
-        PRINT("print", RSD), SIZE("size", RSD), HASH("hash"), LOOP("loop", RSD),
+        PRINT("print", RSD), SIZE("size", RSD), HASH("hash"), LOOP("loop", RSD, DIR),
 
         FUNC("func", RSD, CNS, TYP), CLASS("class", RSD, CNS, TYP), ENUM("enum", RSD, CNS, TYP),
         INTERFACE("interface", RSD, CNS, TYP), STRUCT("struct", RSD, CNS, TYP),
@@ -235,7 +232,7 @@ public class Token {
         STATIC("static", RSD, MDF), PUBLIC("public", RSD, MDF),
         PRIVATE("private", RSD, MDF), PROPERTY("property", RSD, MDF),
         ABSTRACT("abstract", RSD, MDF), MODULE("module", RSD, MDF),
-        FINAL("final", RSD, MDF),
+        FINAL("final", RSD, MDF), PURE("pure", RSD, MDF),
 
         BREAK("break", RSD), CONTINUE("continue", RSD), PASS("pass"),
         
@@ -263,13 +260,82 @@ public class Token {
             return _groups;
         }
 
-        public static TokenTypeTrie reserved = new TokenTypeTrie() {{
-            for (TokenType tokenType : TokenType.values()) {
-                if (tokenType._groups.contains(RSD)) {
-                    insert(tokenType);
-                }
+        public static final KeywordRecognizer reserved = new KeywordRecognizer(
+                Arrays.stream(TokenType.values()).filter(type -> type._groups.contains(RSD)).collect(Collectors.toList()));
+
+        /**
+         * Precedence of the operator when it is between two operands (lower number
+         * means higher precedence). Anything that isn't given one is LOOSEST.
+         * */
+        public int precedence() {
+            return _precedence;
+        }
+
+        public static final int LOOSEST = Integer.MAX_VALUE;
+
+        private int _precedence = LOOSEST;
+
+        private static void precedence(int precedence, TokenType... tokenTypes) {
+            for (TokenType tokenType : tokenTypes) {
+                tokenType._precedence = precedence;
             }
-        }};
+        }
+
+        static {
+            /* Accesses */
+            precedence(0, ARR_TYPE, PAR_OPEN, PERIOD, OPT_CHAIN);
+
+            /* Referencing */
+            precedence(1, POINT);
+
+            /* Stepwise */
+            precedence(2, INCREMENT, DECREMENT);
+
+            /* Inverting */
+            precedence(3, L_NOT, B_NOT);
+
+            /* Rounding and Exponentiative */
+            precedence(4, ROUND, EXP);
+
+            /* Multiplicative */
+            precedence(5, MULTIPLY, DIVIDE, MOD, FLOOR);
+
+            /* Additive and concatenative */
+            precedence(6, ADD, SUBTRACT);
+
+            /* Shift */
+            precedence(7, SHIFT_LEFT, SHIFT_RIGHT);
+
+            /* Relational */
+            precedence(8, GREATER_THAN, LESS_THAN, GREATER_THAN_EQ, LESS_THAN_EQ);
+
+            /* Equality */
+            precedence(9, EQUAL, NOT_EQUAL, CAST_EQUAL, CAST_NOT_EQUAL);
+
+            /* Bitwise boolean operators */
+            precedence(10, B_AND);
+            precedence(11, B_OR);
+            precedence(12, B_XOR);
+
+            /* Logical boolean operators */
+            precedence(13, L_AND);
+            precedence(14, L_OR);
+            precedence(15, L_XOR);
+
+            /* Ternary operators */
+            precedence(16, TERNARY);
+
+            /* Null Coalescence */
+            precedence(17, NULL_COALESCE);
+
+            /* Pipeline */
+            precedence(18, PIPELINE);
+
+            /* Assignment */
+            precedence(19, ADD_EQ, SUBTRACT_EQ, MULTIPLY_EQ, DIVIDE_EQ, MOD_EQ, FLOOR_EQ,
+                    ROUND_EQ, EXP_EQ, L_AND_EQ, L_OR_EQ, L_XOR_EQ, B_AND_EQ, B_OR_EQ, B_XOR_EQ,
+                    SHIFT_RIGHT_EQ, SHIFT_LEFT_EQ);
+        }
     }
 
 }
@@ -0,0 +1,970 @@
+package Main;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import Helpers.*;
+
+/**
+ * Keeps parsed ASTs on disk, so that a script whose source hasn't changed since
+ * it was last run starts without being lexed or parsed again. Each entry is
+ * named by the SHA-256 hash of the source it was parsed from, and is read back
+ * by memory-mapping it.
+ *
+ * Entries are a compact binary encoding of the Parser.ASTNode tree, written
+ * depth first: every node is a tag saying what kind of node it is, followed by
+ * its fields. Tokens are their type's ordinal, followed by their value if the
+ * type doesn't have a fixed one, and every distinct string is only written out
+ * the first time it appears, and referred to by its index after that.
+ *
+ * Entries hold the AST as the Parser made it, so the Resolver still has to be
+ * run over it. Each starts with a fingerprint of everything the encoding is
+ * numbered by, so an entry written before any of it changed is parsed again.
+ */
+public class ASTCache {
+    public ASTCache(Path directory) {
+        _directory = directory;
+    }
+
+    /** Where entries are kept unless told otherwise: the heap.cache.dir property,
+     * or .heap/cache in the user's home directory */
+    public static Path defaultDirectory() {
+        String directory = System.getProperty("heap.cache.dir");
+        return directory != null ? Paths.get(directory) :
+                Paths.get(System.getProperty("user.home"), ".heap", "cache");
+    }
+
+    /**
+     * The AST of the source in FILE, read from the cache if the same source has
+     * been parsed before, and otherwise parsed and then added to the cache
+     */
+    public Parser.Block load(Path file) throws IOException {
+        byte[] source = Files.readAllBytes(file);
+        Parser.Block cached = cached(source);
+        if (cached != null) {
+            return cached;
+        }
+
+        Path entry = _directory.resolve(key(source) + SUFFIX);
+        CharBuffer chars = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(source));
+        var ast = (Parser.Block) new Parser(new Lexer(chars.array(), chars.limit())).parse();
+        write(entry, ast);
+        return ast;
+    }
+
+    /** The AST cached for the source in FILE, or null if it has no usable entry */
+    public Parser.Block cached(Path file) throws IOException {
+        return cached(Files.readAllBytes(file));
+    }
+
+    private Parser.Block cached(byte[] source) {
+        Path entry = _directory.resolve(key(source) + SUFFIX);
+        if (Files.isRegularFile(entry)) {
+            try {
+                return read(entry);
+            } catch (IOException | RuntimeException e) {
+                /* A damaged or outdated entry is parsed again and replaced */
+            }
+        }
+        return null;
+    }
+
+    /** The name of the entry for SOURCE: the hex SHA-256 hash of its bytes */
+    static String key(byte[] source) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(source);
+            StringBuilder key = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /** Reads the AST in ENTRY, by memory-mapping it */
+    static Parser.Block read(Path entry) throws IOException {
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != SCHEMA) {
+                throw new IOException("Not an AST cache entry: " + entry);
+            }
+            return (Parser.Block) new Reader(buffer).node();
+        }
+    }
+
+    /**
+     * Writes AST to ENTRY. It is written to a temporary file first and then moved
+     * into place, so that a reader never sees a half written entry. The cache is
+     * only an optimization, so failing to write it is not an error.
+     */
+    static void write(Path entry, Parser.Block ast) {
+        try {
+            Files.createDirectories(entry.getParent());
+            Path temporary = Files.createTempFile(entry.getParent(), entry.getFileName().toString(), ".tmp");
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(SCHEMA);
+                new Writer(out).node(ast);
+            }
+            Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | UncheckedIOException e) {
+            /* Parsed again next time */
+        }
+    }
+
+
+    /** **************************** Writing **************************** **/
+
+    /** Writes nodes by visiting them. Visiting can't throw IOExceptions, so they are
+     * wrapped in UncheckedIOExceptions. */
+    private static final class Writer implements ASTVisitor<Void> {
+        Writer(DataOutputStream out) {
+            _out = out;
+            _strings = new HashMap<>();
+        }
+
+        void node(Parser.ASTNode node) {
+            if (node == null) {
+                tag(NULL);
+            } else {
+                node.accept(this);
+            }
+        }
+
+        @Override
+        public Void visitBlock(Parser.Block block) {
+            tag(BLOCK);
+            list(block.statements);
+            return null;
+        }
+
+        @Override
+        public Void visitAssignment(Parser.Assignment assignment) {
+            tag(ASSIGNMENT);
+            node(assignment.var);
+            node(assignment.value);
+            bool(assignment.cast);
+            return null;
+        }
+
+        @Override
+        public Void visitDeclare(Parser.Declare declare) {
+            tag(DECLARE);
+            list(declare.modifiers);
+            node(declare.var);
+            list(declare.type);
+            return null;
+        }
+
+        @Override
+        public Void visitNoOp(Parser.NoOp noOp) {
+            return tag(NO_OP);
+        }
+
+        @Override
+        public Void visitContinue(Parser.Continue aContinue) {
+            return tag(CONTINUE);
+        }
+
+        @Override
+        public Void visitBreak(Parser.Break aBreak) {
+            return tag(BREAK);
+        }
+
+        @Override
+        public Void visitPass(Parser.Pass pass) {
+            return tag(PASS);
+        }
+
+        @Override
+        public Void visitReturn(Parser.Return aReturn) {
+            tag(RETURN);
+            node(aReturn.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitDefer(Parser.Defer defer) {
+            tag(DEFER);
+            node(defer.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitVar(Parser.Var var) {
+            tag(VAR);
+            token(var.token);
+            return null;
+        }
+
+        @Override
+        public Void visitType(Parser.Type type) {
+            tag(TYPE);
+            token(type.token);
+            bool(type.isPointer);
+            return null;
+        }
+
+        @Override
+        public Void visitContainerType(Parser.ContainerType type) {
+            tag(CONTAINER_TYPE);
+            bool(type.isPointer);
+            write(type.container.ordinal());
+            list(type.types);
+            return null;
+        }
+
+        @Override
+        public Void visitModifier(Parser.Modifier modifier) {
+            tag(MODIFIER);
+            token(modifier.token);
+            return null;
+        }
+
+        @Override
+        public Void visitParamDefs(Parser.ParamDefs paramDefs) {
+            tag(PARAM_DEFS);
+            list(paramDefs.parameters);
+            return null;
+        }
+
+        @Override
+        public Void visitParams(Parser.Params params) {
+            tag(PARAMS);
+            list(params.parameters);
+            return null;
+        }
+
+        @Override
+        public Void visitFunc(Parser.Func func) {
+            tag(FUNC);
+            node(func.paramDefs);
+            node(func.operations);
+            return null;
+        }
+
+        @Override
+        public Void visitClass(Parser.Class aClass) {
+            return construct(CLASS, aClass);
+        }
+
+        @Override
+        public Void visitStruct(Parser.Struct struct) {
+            return construct(STRUCT, struct);
+        }
+
+        private Void construct(int tag, Parser.Class aClass) {
+            tag(tag);
+            list(aClass.superClasses);
+            list(aClass.interfaces);
+            node(aClass.block);
+            return null;
+        }
+
+        @Override
+        public Void visitInterface(Parser.Interface anInterface) {
+            tag(INTERFACE);
+            list(anInterface.interfaces);
+            node(anInterface.block);
+            return null;
+        }
+
+        @Override
+        public Void visitEnum(Parser.Enum anEnum) {
+            tag(ENUM);
+            list(anEnum.instances);
+            list(anEnum.superClasses);
+            list(anEnum.interfaces);
+            node(anEnum.block);
+            return null;
+        }
+
+        @Override
+        public Void visitLoop(Parser.Loop loop) {
+            tag(LOOP);
+            list(loop.initClauses);
+            list(loop.breakClauses);
+            list(loop.loopClauses);
+            body(loop.block);
+            body(loop.elseBlock);
+            return null;
+        }
+
+        @Override
+        public Void visitIf(Parser.If anIf) {
+            tag(IF);
+            list(anIf.ifblocks);
+            body(anIf.elseBlock);
+            return null;
+        }
+
+        @Override
+        public Void visitIfBlock(Parser.IfBlock ifBlock) {
+            tag(IF_BLOCK);
+            node(ifBlock.condition);
+            body(ifBlock.block);
+            return null;
+        }
+
+        @Override
+        public Void visitSwitch(Parser.Switch aSwitch) {
+            tag(SWITCH);
+            node(aSwitch.expression);
+            list(aSwitch.cases);
+            body(aSwitch.defaultBlock);
+            body(aSwitch.elseBlock);
+            return null;
+        }
+
+        @Override
+        public Void visitCase(Parser.Case aCase) {
+            tag(CASE);
+            node(aCase.expression);
+            body(aCase.block);
+            return null;
+        }
+
+        @Override
+        public Void visitTry(Parser.Try aTry) {
+            tag(TRY);
+            body(aTry.block);
+            list(aTry.catchBlocks);
+            body(aTry.elseBlock);
+            return null;
+        }
+
+        @Override
+        public Void visitCatch(Parser.Catch aCatch) {
+            tag(CATCH);
+            node(aCatch.exception);
+            body(aCatch.block);
+            return null;
+        }
+
+        @Override
+        public Void visitCall(Parser.Call call) {
+            tag(CALL);
+            node(call.params);
+            node(call.value);
+            return null;
+        }
+
+        @Override
+        public Void visitArrayList(Parser.HArrayList list) {
+            tag(ARRAY_LIST);
+            list(list.items);
+            return null;
+        }
+
+        @Override
+        public Void visitLinkedList(Parser.HLinkedList list) {
+            tag(LINKED_LIST);
+            list(list.items);
+            return null;
+        }
+
+        @Override
+        public Void visitSet(Parser.HSet set) {
+            tag(SET);
+            list(set.items);
+            return null;
+        }
+
+        @Override
+        public Void visitValueMap(Parser.HValueMap map) {
+            return map(VALUE_MAP, map);
+        }
+
+        @Override
+        public Void visitObjectMap(Parser.HObjectMap map) {
+            return map(OBJECT_MAP, map);
+        }
+
+        private Void map(int tag, Parser.HMap map) {
+            tag(tag);
+            writeInt(map.items.size());
+            for (var item : map.items.entrySet()) {
+                node(item.getKey());
+                node(item.getValue());
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitDirectedGraph(Parser.HDirectedGraph graph) {
+            return graph(DIRECTED_GRAPH, graph);
+        }
+
+        @Override
+        public Void visitUndirectedGraph(Parser.HUndirectedGraph graph) {
+            return graph(UNDIRECTED_GRAPH, graph);
+        }
+
+        /** Edges are only ever in a graph of their own kind, so they go without tags */
+        private Void graph(int tag, Parser.HGraph graph) {
+            tag(tag);
+            list(graph.nodes);
+            writeInt(graph.edges.size());
+            for (Parser.HGraph.HEdge edge : graph.edges) {
+                edge.accept(this);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitEdge(Parser.HGraph.HEdge edge) {
+            node(edge.first);
+            node(edge.second);
+            return null;
+        }
+
+        @Override
+        public Void visitDirectedEdge(Parser.HDirectedGraph.HDirectedEdge edge) {
+            visitEdge(edge);
+            bool(edge.doubleEdge);
+            return null;
+        }
+
+        @Override
+        public Void visitUnaryOp(Parser.UnaryOp op) {
+            tag(UNARY_OP);
+            node(op.child);
+            token(op.token);
+            write(op.meta == null ? -1 : op.meta.ordinal());
+            return null;
+        }
+
+        @Override
+        public Void visitBinaryOp(Parser.BinaryOp op) {
+            return binary(BINARY_OP, op);
+        }
+
+        @Override
+        public Void visitSetOp(Parser.SetOp op) {
+            return binary(SET_OP, op);
+        }
+
+        private Void binary(int tag, Parser.BinaryOp op) {
+            tag(tag);
+            node(op.left);
+            node(op.right);
+            token(op.token);
+            return null;
+        }
+
+        @Override
+        public Void visitIndex(Parser.Index op) {
+            tag(INDEX);
+            node(op.var());
+            node(op.index());
+            return null;
+        }
+
+        @Override
+        public Void visitGet(Parser.Get op) {
+            tag(GET);
+            node(op.var());
+            node(op.property());
+            bool(op.optChain);
+            return null;
+        }
+
+        @Override
+        public Void visitTernaryOp(Parser.TernaryOp op) {
+            tag(TERNARY_OP);
+            node(op.left);
+            node(op.center);
+            node(op.right);
+            token(op.token);
+            return null;
+        }
+
+        @Override
+        public Void visitArrayListRange(Parser.ArrayListRange range) {
+            return range(ARRAY_LIST_RANGE, range);
+        }
+
+        @Override
+        public Void visitLinkedListRange(Parser.LinkedListRange range) {
+            return range(LINKED_LIST_RANGE, range);
+        }
+
+        private Void range(int tag, Parser.Range range) {
+            tag(tag);
+            node(range.start());
+            node(range.stop());
+            node(range.step());
+            return null;
+        }
+
+        @Override
+        public Void visitQuaternaryOp(Parser.QuaternaryOp op) {
+            tag(QUATERNARY_OP);
+            node(op.left);
+            node(op.centerLeft);
+            node(op.centerRight);
+            node(op.right);
+            token(op.token);
+            return null;
+        }
+
+        @Override
+        public Void visitSlice(Parser.Slice slice) {
+            tag(SLICE);
+            node(slice.var());
+            node(slice.start());
+            node(slice.stop());
+            node(slice.step());
+            return null;
+        }
+
+        @Override
+        public Void visitIntLiteral(Parser.IntLiteral literal) {
+            return literal(INT_LITERAL, literal);
+        }
+
+        @Override
+        public Void visitRealLiteral(Parser.RealLiteral literal) {
+            return literal(REAL_LITERAL, literal);
+        }
+
+        @Override
+        public Void visitStringLiteral(Parser.StringLiteral literal) {
+            return literal(STRING_LITERAL, literal);
+        }
+
+        @Override
+        public Void visitBooleanLiteral(Parser.BooleanLiteral literal) {
+            return literal(BOOLEAN_LITERAL, literal);
+        }
+
+        @Override
+        public Void visitNullLiteral(Parser.NullLiteral literal) {
+            return literal(NULL_LITERAL, literal);
+        }
+
+        private Void literal(int tag, Parser.Literal literal) {
+            tag(tag);
+            token(literal.token);
+            return null;
+        }
+
+        private void body(Parser.DirectBody body) {
+            node((Parser.ASTNode) body);
+        }
+
+        /** Writes NODES, or -1 for a null list */
+        private void list(List<? extends Parser.ASTNode> nodes) {
+            if (nodes == null) {
+                writeInt(-1);
+                return;
+            }
+            writeInt(nodes.size());
+            for (Parser.ASTNode node : nodes) {
+                node(node);
+            }
+        }
+
+        private void token(Token token) {
+            try {
+                if (token == null) {
+                    _out.writeShort(-1);
+                    return;
+                }
+                _out.writeShort(token.type().ordinal());
+                if (!Token.isFixed(token.type())) {
+                    string(token.value());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /** Writes the index of an already written string, or -1 and then the string itself */
+        private void string(String string) throws IOException {
+            Integer index = _strings.get(string);
+            if (index != null) {
+                _out.writeInt(index);
+                return;
+            }
+            _strings.put(string, _strings.size());
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            _out.writeInt(-1);
+            _out.writeInt(bytes.length);
+            _out.write(bytes);
+        }
+
+        private Void tag(int tag) {
+            write(tag);
+            return null;
+        }
+
+        private void bool(boolean value) {
+            write(value ? 1 : 0);
+        }
+
+        /** Writes the low byte of VALUE */
+        private void write(int value) {
+            try {
+                _out.writeByte(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeInt(int value) {
+            try {
+                _out.writeInt(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private final DataOutputStream _out;
+        private final Map<String, Integer> _strings;
+    }
+
+
+    /** **************************** Reading **************************** **/
+
+    private static final class Reader {
+        Reader(ByteBuffer buffer) {
+            _buffer = buffer;
+            _strings = new ArrayList<>();
+        }
+
+        Parser.ASTNode node() {
+            int tag = _buffer.get();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case BLOCK:
+                    return new Parser.Block(list());
+                case ASSIGNMENT: {
+                    Parser.ASTNode var = node();
+                    return new Parser.Assignment(var, expression(), bool());
+                }
+                case DECLARE: {
+                    List<Parser.Modifier> modifiers = list();
+                    Parser.Var var = (Parser.Var) node();
+                    return new Parser.Declare(modifiers, var, list());
+                }
+                case NO_OP:
+                    return Parser.noop;
+                case CONTINUE:
+                    return new Parser.Continue();
+                case BREAK:
+                    return new Parser.Break();
+                case PASS:
+                    return new Parser.Pass();
+                case RETURN:
+                    return new Parser.Return(expression());
+                case DEFER:
+                    return new Parser.Defer(expression());
+                case VAR:
+                    return new Parser.Var(token());
+                case TYPE: {
+                    Token token = token();
+                    return new Parser.Type(token, bool());
+                }
+                case CONTAINER_TYPE: {
+                    boolean isPointer = bool();
+                    var container = Parser.ContainerType.Container.values()[_buffer.get()];
+                    return new Parser.ContainerType(isPointer, container, list());
+                }
+                case MODIFIER:
+                    return new Parser.Modifier(token());
+                case PARAM_DEFS:
+                    return new Parser.ParamDefs(list());
+                case PARAMS:
+                    return new Parser.Params(list());
+                case FUNC: {
+                    var paramDefs = (Parser.ParamDefs) node();
+                    return new Parser.Func(paramDefs, node());
+                }
+                case CLASS:
+                case STRUCT: {
+                    List<Parser.Var> superClasses = list();
+                    List<Parser.Var> interfaces = list();
+                    var block = (Parser.Block) node();
+                    return tag == CLASS ? new Parser.Class(superClasses, interfaces, block) :
+                            new Parser.Struct(superClasses, interfaces, block);
+                }
+                case INTERFACE: {
+                    List<Parser.Var> interfaces = list();
+                    return new Parser.Interface(interfaces, (Parser.Block) node());
+                }
+                case ENUM: {
+                    List<Parser.Call> instances = list();
+                    List<Parser.Var> superClasses = list();
+                    List<Parser.Var> interfaces = list();
+                    return new Parser.Enum(instances, superClasses, interfaces, (Parser.Block) node());
+                }
+                case LOOP: {
+                    List<Parser.Assignment> initClauses = list();
+                    List<Parser.Expression> breakClauses = list();
+                    List<Parser.Expression> loopClauses = list();
+                    Parser.DirectBody block = body();
+                    return new Parser.Loop(initClauses, breakClauses, loopClauses, block, body());
+                }
+                case IF: {
+                    List<Parser.IfBlock> ifBlocks = list();
+                    return new Parser.If(ifBlocks, body());
+                }
+                case IF_BLOCK: {
+                    Parser.Expression condition = expression();
+                    return new Parser.IfBlock(condition, body());
+                }
+                case SWITCH: {
+                    Parser.Expression expression = expression();
+                    List<Parser.Case> cases = list();
+                    Parser.DirectBody defaultBlock = body();
+                    return new Parser.Switch(expression, cases, defaultBlock, body());
+                }
+                case CASE: {
+                    Parser.Expression expression = expression();
+                    return new Parser.Case(expression, body());
+                }
+                case TRY: {
+                    Parser.DirectBody block = body();
+                    List<Parser.Catch> catches = list();
+                    return new Parser.Try(block, catches, body());
+                }
+                case CATCH: {
+                    var exception = (Parser.Declare) node();
+                    return new Parser.Catch(exception, body());
+                }
+                case CALL: {
+                    var params = (Parser.Params) node();
+                    return new Parser.Call(params, expression());
+                }
+                case ARRAY_LIST:
+                    return new Parser.HArrayList(list());
+                case LINKED_LIST:
+                    return new Parser.HLinkedList(list());
+                case SET:
+                    return new Parser.HSet(list());
+                case VALUE_MAP:
+                    return new Parser.HValueMap(map());
+                case OBJECT_MAP:
+                    return new Parser.HObjectMap(map());
+                case DIRECTED_GRAPH: {
+                    List<Parser.Expression> nodes = list();
+                    List<Parser.HDirectedGraph.HDirectedEdge> edges = new ArrayList<>();
+                    for (int i = _buffer.getInt(); i > 0; i--) {
+                        Parser.Expression first = expression();
+                        Parser.Expression second = expression();
+                        edges.add(new Parser.HDirectedGraph.HDirectedEdge(first, second, bool()));
+                    }
+                    return new Parser.HDirectedGraph(nodes, edges);
+                }
+                case UNDIRECTED_GRAPH: {
+                    List<Parser.Expression> nodes = list();
+                    List<Parser.HGraph.HEdge> edges = new ArrayList<>();
+                    for (int i = _buffer.getInt(); i > 0; i--) {
+                        Parser.Expression first = expression();
+                        edges.add(new Parser.HGraph.HEdge(first, expression()));
+                    }
+                    return new Parser.HUndirectedGraph(nodes, edges);
+                }
+                case UNARY_OP: {
+                    Parser.Expression child = expression();
+                    Token token = token();
+                    int meta = _buffer.get();
+                    return meta < 0 ? new Parser.UnaryOp(child, token) :
+                            new Parser.UnaryOp(child, token, Parser.Meta.values()[meta]);
+                }
+                case BINARY_OP:
+                case SET_OP: {
+                    Parser.Expression left = expression();
+                    Parser.Expression right = expression();
+                    return tag == BINARY_OP ? new Parser.BinaryOp(left, right, token()) :
+                            new Parser.SetOp(left, right, token());
+                }
+                case INDEX: {
+                    Parser.Expression var = expression();
+                    return new Parser.Index(var, expression());
+                }
+                case GET: {
+                    Parser.Expression var = expression();
+                    Parser.Expression property = expression();
+                    return new Parser.Get(var, property, bool());
+                }
+                case TERNARY_OP: {
+                    Parser.Expression left = expression();
+                    Parser.Expression center = expression();
+                    Parser.Expression right = expression();
+                    return new Parser.TernaryOp(left, center, right, token());
+                }
+                case ARRAY_LIST_RANGE:
+                case LINKED_LIST_RANGE: {
+                    Parser.Expression start = expression();
+                    Parser.Expression stop = expression();
+                    Parser.Expression step = expression();
+                    return tag == ARRAY_LIST_RANGE ? new Parser.ArrayListRange(start, stop, step) :
+                            new Parser.LinkedListRange(start, stop, step);
+                }
+                case QUATERNARY_OP: {
+                    Parser.Expression left = expression();
+                    Parser.Expression centerLeft = expression();
+                    Parser.Expression centerRight = expression();
+                    Parser.Expression right = expression();
+                    return new Parser.QuaternaryOp(left, centerLeft, centerRight, right, token());
+                }
+                case SLICE: {
+                    Parser.Expression var = expression();
+                    Parser.Expression start = expression();
+                    Parser.Expression stop = expression();
+                    return new Parser.Slice(var, start, stop, expression());
+                }
+                case INT_LITERAL:
+                    return new Parser.IntLiteral(token());
+                case REAL_LITERAL:
+                    return new Parser.RealLiteral(token());
+                case STRING_LITERAL:
+                    return new Parser.StringLiteral(token());
+                case BOOLEAN_LITERAL:
+                    return new Parser.BooleanLiteral(token());
+                case NULL_LITERAL:
+                    return new Parser.NullLiteral(token());
+                default:
+                    throw new IllegalStateException("Unknown AST cache tag " + tag);
+            }
+        }
+
+        private Parser.Expression expression() {
+            return (Parser.Expression) node();
+        }
+
+        private Parser.DirectBody body() {
+            return (Parser.DirectBody) node();
+        }
+
+        /** Reads a list of nodes, which is null if it was written as null */
+        @SuppressWarnings("unchecked")
+        private <T extends Parser.ASTNode> List<T> list() {
+            int size = _buffer.getInt();
+            if (size < 0) {
+                return null;
+            }
+            List<T> nodes = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                nodes.add((T) node());
+            }
+            return nodes;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <K extends Parser.Expression> Map<K, Parser.Expression> map() {
+            int size = _buffer.getInt();
+            Map<K, Parser.Expression> items = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                K key = (K) node();
+                items.put(key, expression());
+            }
+            return items;
+        }
+
+        private Token token() {
+            int ordinal = _buffer.getShort();
+            if (ordinal < 0) {
+                return null;
+            }
+            Token.TokenType type = TYPES[ordinal];
+            return Token.isFixed(type) ? Token.of(type) : new Token(string(), type);
+        }
+
+        private String string() {
+            int index = _buffer.getInt();
+            if (index >= 0) {
+                return _strings.get(index);
+            }
+            byte[] bytes = new byte[_buffer.getInt()];
+            _buffer.get(bytes);
+            String string = new String(bytes, StandardCharsets.UTF_8);
+            _strings.add(string);
+            return string;
+        }
+
+        private boolean bool() {
+            return _buffer.get() != 0;
+        }
+
+        private final ByteBuffer _buffer;
+        private final List<String> _strings;
+    }
+
+
+    /** Tags for each kind of node */
+    private static final int
+            NULL = 0, BLOCK = 1, ASSIGNMENT = 2, DECLARE = 3, NO_OP = 4, CONTINUE = 5, BREAK = 6,
+            PASS = 7, RETURN = 8, DEFER = 9, VAR = 10, TYPE = 11, CONTAINER_TYPE = 12, MODIFIER = 13,
+            PARAM_DEFS = 14, PARAMS = 15, FUNC = 16, CLASS = 17, STRUCT = 18, INTERFACE = 19,
+            ENUM = 20, LOOP = 21, IF = 22, IF_BLOCK = 23, SWITCH = 24, CASE = 25, TRY = 26,
+            CATCH = 27, CALL = 28, ARRAY_LIST = 29, LINKED_LIST = 30, VALUE_MAP = 31,
+            OBJECT_MAP = 32, SET = 33, DIRECTED_GRAPH = 34, UNDIRECTED_GRAPH = 35, UNARY_OP = 36,
+            BINARY_OP = 37, SET_OP = 38, INDEX = 39, GET = 40, TERNARY_OP = 41,
+            ARRAY_LIST_RANGE = 42, LINKED_LIST_RANGE = 43, QUATERNARY_OP = 44, SLICE = 45,
+            INT_LITERAL = 46, REAL_LITERAL = 47, STRING_LITERAL = 48, BOOLEAN_LITERAL = 49,
+            NULL_LITERAL = 50;
+
+    /** "HAST", at the start of every entry */
+    private static final int MAGIC = 0x48415354;
+    /** Changes whenever the encoding does, so that older entries are parsed again */
+    private static final int VERSION = 2;
+    private static final String SUFFIX = ".ast";
+
+    private static final Token.TokenType[] TYPES = Token.TokenType.values();
+
+    /** The int constants that aren't tags */
+    private static final Set<String> HEADER = Set.of("MAGIC", "VERSION", "SCHEMA");
+
+    /** A hash of what entries are numbered by: the token types and whether they have
+     * fixed values, the container kinds and metas, and the tags. Unlike VERSION it
+     * doesn't have to be remembered to be changed. */
+    private static final int SCHEMA = schema();
+
+    private static int schema() {
+        StringBuilder schema = new StringBuilder();
+        for (Token.TokenType type : TYPES) {
+            schema.append(type).append(Token.isFixed(type) ? "!" : "").append(',');
+        }
+        schema.append(Arrays.toString(Parser.ContainerType.Container.values()));
+        schema.append(Arrays.toString(Parser.Meta.values()));
+
+        var tags = new TreeMap<String, Integer>();
+        for (Field field : ASTCache.class.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (field.getType() == int.class && Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers)
+                    && !HEADER.contains(field.getName())) {
+                try {
+                    tags.put(field.getName(), field.getInt(null));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return schema.append(tags).toString().hashCode();
+    }
+
+    private final Path _directory;
+}
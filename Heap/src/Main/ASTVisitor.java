@@ -0,0 +1,87 @@
+package Main;
+
+/**
+ * An operation over the AST, with a method for every kind of node. A node is
+ * visited by calling its accept(visitor), which calls straight back into the
+ * visitor's method for that node's class, so picking what to do with a node is
+ * a single virtual call rather than a chain of instanceof checks.
+ *
+ * @param <R> What visiting a node gives back
+ */
+public interface ASTVisitor<R> {
+
+    /** **************************** Statements **************************** **/
+
+    R visitBlock(Parser.Block block);
+    R visitAssignment(Parser.Assignment assignment);
+    R visitDeclare(Parser.Declare declare);
+    R visitNoOp(Parser.NoOp noOp);
+    R visitContinue(Parser.Continue aContinue);
+    R visitBreak(Parser.Break aBreak);
+    R visitPass(Parser.Pass pass);
+    R visitReturn(Parser.Return aReturn);
+    R visitDefer(Parser.Defer defer);
+    R visitVar(Parser.Var var);
+    R visitType(Parser.Type type);
+    R visitContainerType(Parser.ContainerType containerType);
+    R visitModifier(Parser.Modifier modifier);
+    R visitParamDefs(Parser.ParamDefs paramDefs);
+    R visitParams(Parser.Params params);
+
+
+    /** **************************** Constructs **************************** **/
+
+    R visitFunc(Parser.Func func);
+    R visitClass(Parser.Class aClass);
+    R visitStruct(Parser.Struct struct);
+    R visitInterface(Parser.Interface anInterface);
+    R visitEnum(Parser.Enum anEnum);
+
+
+    /** **************************** Directs **************************** **/
+
+    R visitLoop(Parser.Loop loop);
+    R visitIf(Parser.If anIf);
+    R visitIfBlock(Parser.IfBlock ifBlock);
+    R visitSwitch(Parser.Switch aSwitch);
+    R visitCase(Parser.Case aCase);
+    R visitTry(Parser.Try aTry);
+    R visitCatch(Parser.Catch aCatch);
+    R visitCall(Parser.Call call);
+
+
+    /** **************************** Containers **************************** **/
+
+    R visitArrayList(Parser.HArrayList list);
+    R visitLinkedList(Parser.HLinkedList list);
+    R visitValueMap(Parser.HValueMap map);
+    R visitObjectMap(Parser.HObjectMap map);
+    R visitSet(Parser.HSet set);
+    R visitDirectedGraph(Parser.HDirectedGraph graph);
+    R visitUndirectedGraph(Parser.HUndirectedGraph graph);
+    R visitEdge(Parser.HGraph.HEdge edge);
+    R visitDirectedEdge(Parser.HDirectedGraph.HDirectedEdge edge);
+
+
+    /** **************************** Operations **************************** **/
+
+    R visitUnaryOp(Parser.UnaryOp op);
+    R visitBinaryOp(Parser.BinaryOp op);
+    R visitSetOp(Parser.SetOp op);
+    R visitIndex(Parser.Index op);
+    R visitGet(Parser.Get op);
+    R visitTernaryOp(Parser.TernaryOp op);
+    R visitArrayListRange(Parser.ArrayListRange range);
+    R visitLinkedListRange(Parser.LinkedListRange range);
+    R visitQuaternaryOp(Parser.QuaternaryOp op);
+    R visitSlice(Parser.Slice slice);
+
+
+    /** **************************** Literals **************************** **/
+
+    R visitIntLiteral(Parser.IntLiteral literal);
+    R visitRealLiteral(Parser.RealLiteral literal);
+    R visitStringLiteral(Parser.StringLiteral literal);
+    R visitBooleanLiteral(Parser.BooleanLiteral literal);
+    R visitNullLiteral(Parser.NullLiteral literal);
+}
@@ -0,0 +1,105 @@
+package Main;
+
+/**
+ * A compiled unit of Heap code, produced by the Compiler and run by the VM.
+ *
+ * Instructions are packed into a single int array, each one an opcode followed
+ * by a fixed number of operands. Operands are register numbers (r), indexes into
+ * the constant pool (k), frame depths and slots (see Main.Resolver), or jump
+ * targets, which are indexes into the instruction array.
+ */
+public final class Bytecode {
+
+    public static final int
+            HALT = 0,           // HALT                         stop, returning null
+            MOVE = 1,           // MOVE dst src                 r[dst] = r[src]
+            CONST = 2,          // CONST dst k                  r[dst] = constants[k]
+            LOAD = 3,           // LOAD dst depth slot          r[dst] = frame slot
+            STORE = 4,          // STORE src depth slot         frame slot = r[src]
+            LOAD_NAME = 5,      // LOAD_NAME dst k              r[dst] = scope lookup of Var constants[k]
+            STORE_NAME = 6,     // STORE_NAME src k             scope set of Var constants[k] = r[src]
+            UNARY = 7,          // UNARY dst k a                r[dst] = r[a].method(), cached by InlineCache constants[k]
+            BINARY = 8,         // BINARY dst k a b             r[dst] = r[a].method(r[b]), cached by InlineCache constants[k]
+            GET = 9,            // GET dst obj k                r[dst] = r[obj].get(constants[k])
+            SET = 10,           // SET obj k src                r[obj].set(constants[k], r[src])
+            INDEX = 11,         // INDEX dst obj index          r[dst] = r[obj][r[index]]
+            CALL = 12,          // CALL dst f first count       r[dst] = r[f](r[first] ... r[first + count - 1])
+            LIST = 13,          // LIST dst first count         r[dst] = [r[first] ... r[first + count - 1]]
+            LINKED_LIST = 14,   // LINKED_LIST dst first count  r[dst] = -[r[first] ... r[first + count - 1]]
+            RANGE = 15,         // RANGE dst start stop step    r[dst] = [r[start] => r[stop] : r[step]]
+            LINKED_RANGE = 16,  // LINKED_RANGE dst start stop step
+            FUNC = 17,          // FUNC dst k                   r[dst] = function compiled into constants[k]
+            JUMP = 18,          // JUMP target                  pc = target
+            JUMP_FALSE = 19,    // JUMP_FALSE src target        if r[src] is falsy, pc = target
+            PUSH_FRAME = 20,    // PUSH_FRAME size              enter a new Frame with SIZE slots
+            POP_FRAME = 21,     // POP_FRAME                    leave the current Frame
+            RETURN = 22,        // RETURN src                   stop, returning r[src]
+            EVAL = 23,          // EVAL dst k                   r[dst] = tree-walk expression constants[k]
+            EXEC = 24,          // EXEC k                       tree-walk statement constants[k]
+            INVOKE = 25,        // INVOKE dst k first count     r[dst] = r[first].method(r[first] ... r[first + count - 1]),
+                                //                              cached by InlineCache constants[k]
+            NEXT = 26;          // NEXT dst list index done other
+                                //                              if r[list] isn't an HList, pc = other; if r[index] is
+                                //                              past its end, pc = done; else r[dst] = r[list][r[index]++]
+
+    /** Names of the opcodes, indexed by opcode, for disassembly */
+    private static final String[] NAMES = {
+            "HALT", "MOVE", "CONST", "LOAD", "STORE", "LOAD_NAME", "STORE_NAME", "UNARY",
+            "BINARY", "GET", "SET", "INDEX", "CALL", "LIST", "LINKED_LIST", "RANGE",
+            "LINKED_RANGE", "FUNC", "JUMP", "JUMP_FALSE", "PUSH_FRAME", "POP_FRAME",
+            "RETURN", "EVAL", "EXEC", "INVOKE", "NEXT"
+    };
+
+    /** Number of operands following each opcode, indexed by opcode */
+    private static final int[] OPERANDS = {
+            0, 2, 2, 3, 3, 2, 2, 3,
+            4, 3, 3, 3, 4, 3, 3, 4,
+            4, 2, 1, 2, 1, 0,
+            1, 2, 1, 4, 5
+    };
+
+    Bytecode(int[] code, Object[] constants, int registers) {
+        this.code = code;
+        this.constants = constants;
+        this.registers = registers;
+    }
+
+    /** A function definition along with its compiled body, as a FUNC instruction's constant */
+    public static final class Function {
+        Function(Parser.Func definition, Bytecode body) {
+            this.definition = definition;
+            this.body = body;
+        }
+
+        public final Parser.Func definition;
+        public final Bytecode body;
+    }
+
+    /** Number of operands that follow OPCODE */
+    static int operands(int opcode) {
+        return OPERANDS[opcode];
+    }
+
+    /** A human readable listing of the instructions, one per line */
+    public String disassemble() {
+        StringBuilder listing = new StringBuilder();
+        int pc = 0;
+        while (pc < code.length) {
+            int opcode = code[pc];
+            listing.append(String.format("%4d  %-12s", pc, NAMES[opcode]));
+            for (int i = 1; i <= OPERANDS[opcode]; i++) {
+                listing.append(' ').append(code[pc + i]);
+            }
+            listing.append('\n');
+            pc += OPERANDS[opcode] + 1;
+        }
+        return listing.toString();
+    }
+
+    /** The packed instruction stream */
+    final int[] code;
+    /** Literal objects, Var names, InlineCaches and AST nodes referred to by instructions */
+    final Object[] constants;
+    /** Size of the register file needed to run the code */
+    final int registers;
+}
@@ -0,0 +1,710 @@
+package Main;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import Objects.*;
+
+/**
+ * Lowers a resolved AST (see Main.Resolver) into Bytecode for the VM.
+ *
+ * Variables stay in the same Frames the tree-walking Interpreter uses, so that
+ * functions created by compiled code can still close over them, while every
+ * intermediate value lives in a register. Registers are handed out like a
+ * stack: each expression gets the next free one and gives back any it used for
+ * its operands once it is done.
+ *
+ * Anything the compiler doesn't lower itself is stored in the constant pool and
+ * handed to the Interpreter at runtime through EVAL or EXEC.
+ *
+ * Nodes are compiled by visiting them (see ASTVisitor); an expression is
+ * visited with the register its value goes in set in _dst.
+ */
+public class Compiler implements ASTVisitor<Void> {
+
+    public Compiler() {
+        _code = new int[64];
+        _constants = new ArrayList<>();
+        _loops = new ArrayDeque<>();
+        _defers = new ArrayDeque<>();
+    }
+
+    /** Entry method into the Compiler - compiles the program's outermost Block */
+    public Bytecode compile(Parser.Block block) {
+        compileBlock(block);
+        emit(Bytecode.HALT);
+        return finish();
+    }
+
+    /**
+     * Compiles the outermost Block of a module, to be run in a Frame the caller
+     * makes for it and keeps, so its top level variables can be exported (see VM.doModule)
+     */
+    public Bytecode compileModule(Parser.Block block) {
+        compileStatements(block);
+        emit(Bytecode.HALT);
+        return finish();
+    }
+
+    /**
+     * Compiles the body of FUNC into Bytecode of its own, which each call runs
+     * in the Frame holding its parameters (see Objects.Func)
+     */
+    static Bytecode compileFunction(Parser.Func func) {
+        var compiler = new Compiler();
+        if (func.operations instanceof Parser.Block) {
+            compiler.compileBlock((Parser.Block) func.operations);
+        } else {
+            /* A lone expression still gets a (slotless) Frame, which the Resolver counted */
+            compiler.pushFrame(0);
+            int value = compiler.register();
+            compiler.compileExpression((Parser.Expression) func.operations, value);
+            compiler.emit(Bytecode.RETURN, value);
+        }
+        compiler.emit(Bytecode.HALT);
+        return compiler.finish();
+    }
+
+    private Bytecode finish() {
+        return new Bytecode(Arrays.copyOf(_code, _size), _constants.toArray(), _maxRegisters);
+    }
+
+
+    /** **************************** Emitting **************************** **/
+
+    private int emit(int... instruction) {
+        if (_size + instruction.length > _code.length) {
+            _code = Arrays.copyOf(_code, Math.max(_code.length * 2, _size + instruction.length));
+        }
+        int start = _size;
+        System.arraycopy(instruction, 0, _code, _size, instruction.length);
+        _size += instruction.length;
+        return start;
+    }
+
+    /** Emits a jump with its target left blank, returning where to patch it */
+    private int emitJump(int opcode, int... operands) {
+        int[] instruction = new int[operands.length + 2];
+        instruction[0] = opcode;
+        System.arraycopy(operands, 0, instruction, 1, operands.length);
+        return emit(instruction) + instruction.length - 1;
+    }
+
+    /** Points the jump target at INDEX to the next instruction */
+    private void patch(int index) {
+        _code[index] = _size;
+    }
+
+    private int constant(Object object) {
+        _constants.add(object);
+        return _constants.size() - 1;
+    }
+
+    /** Takes the next free register */
+    private int register() {
+        int register = _nextRegister++;
+        _maxRegisters = Math.max(_maxRegisters, _nextRegister);
+        return register;
+    }
+
+    /** Takes COUNT consecutive free registers, returning the first */
+    private int registers(int count) {
+        int first = _nextRegister;
+        _nextRegister += count;
+        _maxRegisters = Math.max(_maxRegisters, _nextRegister);
+        return first;
+    }
+
+    private void pushFrame(int size) {
+        emit(Bytecode.PUSH_FRAME, size);
+        _frameDepth++;
+    }
+
+    private void popFrame() {
+        emit(Bytecode.POP_FRAME);
+        _frameDepth--;
+    }
+
+
+    /** **************************** Statements **************************** **/
+
+    private void compileBlock(Parser.Block block) {
+        pushFrame(block.frameSize);
+        compileStatements(block);
+        popFrame();
+    }
+
+    /** Compiles the statements of BLOCK into the current Frame, then its defers */
+    private void compileStatements(Parser.Block block) {
+        _defers.push(new ArrayList<>());
+
+        for (Parser.Statement statement : block.statements) {
+            if (statement instanceof Parser.Defer) {
+                _defers.peek().add(((Parser.Defer) statement).expression);
+            } else {
+                compileStatement(statement);
+            }
+        }
+
+        compileDefers(_defers.pop());
+    }
+
+    private void compileDefers(List<Parser.Expression> defers) {
+        for (Parser.Expression expression : defers) {
+            int mark = _nextRegister;
+            compileExpression(expression, register());
+            _nextRegister = mark;
+        }
+    }
+
+    private void compileDirectBody(Parser.DirectBody directBody) {
+        if (directBody != null) {
+            compileStatement((Parser.ASTNode) directBody);
+        }
+    }
+
+    /** Compiles STATEMENT; an expression statement leaves its value in a register of its own */
+    private void compileStatement(Parser.ASTNode statement) {
+        int mark = _nextRegister;
+        int dst = _dst;
+        _dst = statement instanceof Parser.Expression ? register() : -1;
+        statement.accept(this);
+        _dst = dst;
+        _nextRegister = mark;
+    }
+
+    @Override
+    public Void visitBlock(Parser.Block block) {
+        compileBlock(block);
+        return null;
+    }
+
+    @Override
+    public Void visitAssignment(Parser.Assignment assignment) {
+        Parser.ASTNode target = assignment.var instanceof Parser.Declare ?
+                ((Parser.Declare) assignment.var).var : assignment.var;
+
+        if (isTarget(target)) {
+            int value = register();
+            compileExpression(assignment.value, value);
+            compileBind(target, value);
+        } else {
+            emit(Bytecode.EXEC, constant(assignment));
+        }
+        return null;
+    }
+
+    /** Whether TARGET, the left side of an assignment with any Declare taken off, can be compiled */
+    private static boolean isTarget(Parser.ASTNode target) {
+        return target instanceof Parser.Var || target instanceof Parser.Get;
+    }
+
+    /** Gives the value in register VALUE to TARGET, which isTarget */
+    private void compileBind(Parser.ASTNode target, int value) {
+        if (target instanceof Parser.Var) {
+            compileStore((Parser.Var) target, value);
+        } else {
+            Parser.Get get = (Parser.Get) target;
+            int object = register();
+            compileExpression(get.var(), object);
+            emit(Bytecode.SET, object, constant(name((Parser.Var) get.property())), value);
+        }
+    }
+
+    private void compileStore(Parser.Var var, int register) {
+        if (var.slot >= 0) {
+            emit(Bytecode.STORE, register, var.depth, var.slot);
+        } else {
+            emit(Bytecode.STORE_NAME, register, constant(name(var)));
+        }
+    }
+
+    @Override
+    public Void visitReturn(Parser.Return aReturn) {
+        int value = register();
+        compileExpression(aReturn.expression, value);
+        for (List<Parser.Expression> defers : _defers) {
+            compileDefers(defers);
+        }
+        emit(Bytecode.RETURN, value);
+        return null;
+    }
+
+    @Override
+    public Void visitBreak(Parser.Break aBreak) {
+        compileLoopExit(true);
+        return null;
+    }
+
+    @Override
+    public Void visitContinue(Parser.Continue aContinue) {
+        compileLoopExit(false);
+        return null;
+    }
+
+    @Override
+    public Void visitPass(Parser.Pass pass) {
+        /* Nothing to do */
+        return null;
+    }
+
+    /* Statements the compiler doesn't lower are run by the Interpreter */
+
+    @Override
+    public Void visitDefer(Parser.Defer defer) {
+        return exec(defer);
+    }
+
+    @Override
+    public Void visitSwitch(Parser.Switch aSwitch) {
+        return exec(aSwitch);
+    }
+
+    @Override
+    public Void visitTry(Parser.Try aTry) {
+        return exec(aTry);
+    }
+
+    private Void exec(Parser.Statement statement) {
+        emit(Bytecode.EXEC, constant(statement));
+        return null;
+    }
+
+    /* Parts of other nodes, which those nodes compile themselves */
+
+    @Override
+    public Void visitDeclare(Parser.Declare declare) { throw partOfAnother(declare); }
+
+    @Override
+    public Void visitType(Parser.Type type) { throw partOfAnother(type); }
+
+    @Override
+    public Void visitContainerType(Parser.ContainerType containerType) { throw partOfAnother(containerType); }
+
+    @Override
+    public Void visitModifier(Parser.Modifier modifier) { throw partOfAnother(modifier); }
+
+    @Override
+    public Void visitParamDefs(Parser.ParamDefs paramDefs) { throw partOfAnother(paramDefs); }
+
+    @Override
+    public Void visitParams(Parser.Params params) { throw partOfAnother(params); }
+
+    @Override
+    public Void visitIfBlock(Parser.IfBlock ifBlock) { throw partOfAnother(ifBlock); }
+
+    @Override
+    public Void visitCase(Parser.Case aCase) { throw partOfAnother(aCase); }
+
+    @Override
+    public Void visitCatch(Parser.Catch aCatch) { throw partOfAnother(aCatch); }
+
+    @Override
+    public Void visitEdge(Parser.HGraph.HEdge edge) { throw partOfAnother(edge); }
+
+    @Override
+    public Void visitDirectedEdge(Parser.HDirectedGraph.HDirectedEdge edge) { throw partOfAnother(edge); }
+
+    private static IllegalStateException partOfAnother(Parser.ASTNode node) {
+        return new IllegalStateException(node.getClass().getSimpleName() + " nodes can't be compiled on their own");
+    }
+
+
+    /** **************************** Directs **************************** **/
+
+    /** Jump targets waiting on the end of the loop they are in */
+    private static class LoopLabels {
+        final int frameDepth;
+        final List<Integer> breaks = new ArrayList<>();
+        final List<Integer> continues = new ArrayList<>();
+
+        LoopLabels(int frameDepth) {
+            this.frameDepth = frameDepth;
+        }
+    }
+
+    @Override
+    public Void visitLoop(Parser.Loop loop) {
+        if (loop.isForEach()) {
+            compileForEach(loop);
+            return null;
+        }
+        pushFrame(loop.frameSize);
+        for (Parser.Assignment clause : loop.initClauses) {
+            compileStatement(clause);
+        }
+
+        LoopLabels labels = new LoopLabels(_frameDepth);
+        _loops.push(labels);
+
+        int top = _size;
+        if (loop.breakClauses != null) {
+            for (Parser.Expression clause : loop.breakClauses) {
+                int mark = _nextRegister;
+                int condition = register();
+                compileExpression(clause, condition);
+                labels.breaks.add(emitJump(Bytecode.JUMP_FALSE, condition));
+                _nextRegister = mark;
+            }
+        }
+
+        compileDirectBody(loop.block);
+
+        labels.continues.forEach(this::patch);
+        for (Parser.Expression clause : loop.loopClauses) {
+            int mark = _nextRegister;
+            compileExpression(clause, register());
+            _nextRegister = mark;
+        }
+        emit(Bytecode.JUMP, top);
+
+        _loops.pop();
+        labels.breaks.forEach(this::patch);
+        popFrame();
+        return null;
+    }
+
+    /**
+     * A for each loop, which keeps the list its first init clause gives and an
+     * index into it in registers of their own, and steps through the list with
+     * NEXT. As in Interpreter.visitLoop, anything but a list is given to the
+     * variable once, and NEXT then runs the block over and over like any other loop.
+     */
+    private void compileForEach(Parser.Loop loop) {
+        Parser.Assignment elements = loop.initClauses.get(0);
+        Parser.ASTNode target = elements.var instanceof Parser.Declare ?
+                ((Parser.Declare) elements.var).var : elements.var;
+        if (!isTarget(target)) {
+            emit(Bytecode.EXEC, constant(loop));
+            return;
+        }
+
+        pushFrame(loop.frameSize);
+        int list = register(), index = register(), element = register();
+        compileExpression(elements.value, list);
+        compileBind(target, list);
+        for (Parser.Assignment clause : loop.initClauses.subList(1, loop.initClauses.size())) {
+            compileStatement(clause);
+        }
+        emit(Bytecode.CONST, index, constant(Int.valueOf(0)));
+
+        LoopLabels labels = new LoopLabels(_frameDepth);
+        _loops.push(labels);
+
+        int top = _size;
+        int other = emitJump(Bytecode.NEXT, element, list, index, 0);
+        labels.breaks.add(other - 1);
+        compileBind(target, element);
+        patch(other);
+
+        compileDirectBody(loop.block);
+
+        labels.continues.forEach(this::patch);
+        emit(Bytecode.JUMP, top);
+
+        _loops.pop();
+        labels.breaks.forEach(this::patch);
+        popFrame();
+    }
+
+    /** Leaves the frames entered since the innermost loop started, then jumps out of or back to it */
+    private void compileLoopExit(boolean isBreak) {
+        LoopLabels labels = _loops.peek();
+        if (labels == null) {
+            throw new IllegalStateException((isBreak ? "break" : "continue") + " outside of a loop");
+        }
+        for (int i = _frameDepth; i > labels.frameDepth; i--) {
+            emit(Bytecode.POP_FRAME);
+        }
+        (isBreak ? labels.breaks : labels.continues).add(emitJump(Bytecode.JUMP));
+    }
+
+    @Override
+    public Void visitIf(Parser.If anIf) {
+        List<Integer> ends = new ArrayList<>();
+        for (Parser.IfBlock ifBlock : anIf.ifblocks) {
+            int mark = _nextRegister;
+            int condition = register();
+            compileExpression(ifBlock.condition, condition);
+            int next = emitJump(Bytecode.JUMP_FALSE, condition);
+            _nextRegister = mark;
+
+            compileDirectBody(ifBlock.block);
+            ends.add(emitJump(Bytecode.JUMP));
+            patch(next);
+        }
+
+        if (anIf.elseBlock != null) {
+            compileDirectBody(anIf.elseBlock);
+        }
+        ends.forEach(this::patch);
+        return null;
+    }
+
+
+    /** **************************** Expressions **************************** **/
+
+    /** Compiles EXPRESSION so that its value ends up in register DST */
+    private void compileExpression(Parser.Expression expression, int dst) {
+        int mark = _nextRegister;
+        int outer = _dst;
+        _dst = dst;
+        expression.accept(this);
+        _dst = outer;
+        _nextRegister = mark;
+    }
+
+    @Override
+    public Void visitVar(Parser.Var var) {
+        if (var.slot >= 0) {
+            emit(Bytecode.LOAD, _dst, var.depth, var.slot);
+        } else {
+            emit(Bytecode.LOAD_NAME, _dst, constant(name(var)));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitArrayListRange(Parser.ArrayListRange range) {
+        compileRange(range, Bytecode.RANGE);
+        return null;
+    }
+
+    @Override
+    public Void visitLinkedListRange(Parser.LinkedListRange range) {
+        compileRange(range, Bytecode.LINKED_RANGE);
+        return null;
+    }
+
+    @Override
+    public Void visitArrayList(Parser.HArrayList list) {
+        compileItems(Bytecode.LIST, list.items);
+        return null;
+    }
+
+    @Override
+    public Void visitLinkedList(Parser.HLinkedList list) {
+        compileItems(Bytecode.LINKED_LIST, list.items);
+        return null;
+    }
+
+    @Override
+    public Void visitSetOp(Parser.SetOp op) {
+        compileSetOp(op, _dst);
+        return null;
+    }
+
+    @Override
+    public Void visitIndex(Parser.Index index) {
+        int dst = _dst;
+        int object = register(), key = register();
+        compileExpression(index.var(), object);
+        compileExpression(index.index(), key);
+        emit(Bytecode.INDEX, dst, object, key);
+        return null;
+    }
+
+    @Override
+    public Void visitGet(Parser.Get get) {
+        if (!(get.property() instanceof Parser.Var)) {
+            return eval(get);
+        }
+        int dst = _dst;
+        int object = register();
+        compileExpression(get.var(), object);
+        emit(Bytecode.GET, dst, object, constant(name((Parser.Var) get.property())));
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryOp(Parser.UnaryOp op) {
+        int dst = _dst;
+        if (op.isStep() && op.child instanceof Parser.Var) {
+            compileStep(op, dst);
+            return null;
+        }
+        int child = register();
+        compileExpression(op.child, child);
+        emit(Bytecode.UNARY, dst, constant(new InlineCache(Interpreter.operation(op.token))), child);
+        return null;
+    }
+
+    /** ++ or -- on a variable, which stores its result back in the variable, like compileSetOp */
+    private void compileStep(Parser.UnaryOp op, int dst) {
+        Parser.Var var = (Parser.Var) op.child;
+        /* x++ gives the value x had before, so that is what is left in DST */
+        int child = op.isPostfix() ? dst : register();
+        int result = op.isPostfix() ? register() : dst;
+        compileExpression(var, child);
+        emit(Bytecode.UNARY, result, constant(new InlineCache(Interpreter.operation(op.token))), child);
+        compileStore(var, result);
+    }
+
+    @Override
+    public Void visitBinaryOp(Parser.BinaryOp op) {
+        int dst = _dst;
+        if (op.token.isAssignment()) {
+            compileSetOp(op, dst);
+            return null;
+        }
+        int left = register(), right = register();
+        compileExpression(op.left, left);
+        compileExpression(op.right, right);
+        emit(Bytecode.BINARY, dst, constant(new InlineCache(Interpreter.operation(op.token))), left, right);
+        return null;
+    }
+
+    /** A method call (obj.method(...)) is an INVOKE, with the receiver as its first argument */
+    @Override
+    public Void visitCall(Parser.Call call) {
+        int dst = _dst;
+        List<Parser.Expression> parameters = call.params.parameters;
+        if (call.value instanceof Parser.Get && ((Parser.Get) call.value).property() instanceof Parser.Var) {
+            Parser.Get get = (Parser.Get) call.value;
+            int first = registers(parameters.size() + 1);
+            compileExpression(get.var(), first);
+            for (int i = 0; i < parameters.size(); i++) {
+                compileExpression(parameters.get(i), first + 1 + i);
+            }
+            var cache = new InlineCache(name((Parser.Var) get.property()));
+            emit(Bytecode.INVOKE, dst, constant(cache), first, parameters.size() + 1);
+            return null;
+        }
+
+        int function = register();
+        compileExpression(call.value, function);
+
+        int first = registers(parameters.size());
+        for (int i = 0; i < parameters.size(); i++) {
+            compileExpression(parameters.get(i), first + i);
+        }
+        emit(Bytecode.CALL, dst, function, first, parameters.size());
+        return null;
+    }
+
+    /** The body is compiled now; the Func itself is made each time the definition is run, in the scope it closes over */
+    @Override
+    public Void visitFunc(Parser.Func func) {
+        emit(Bytecode.FUNC, _dst, constant(new Bytecode.Function(func, compileFunction(func))));
+        return null;
+    }
+
+    /* Literals don't touch the scope, so they can be made once, now */
+
+    @Override
+    public Void visitIntLiteral(Parser.IntLiteral literal) { return literal(literal); }
+
+    @Override
+    public Void visitRealLiteral(Parser.RealLiteral literal) { return literal(literal); }
+
+    @Override
+    public Void visitStringLiteral(Parser.StringLiteral literal) { return literal(literal); }
+
+    @Override
+    public Void visitBooleanLiteral(Parser.BooleanLiteral literal) { return literal(literal); }
+
+    @Override
+    public Void visitNullLiteral(Parser.NullLiteral literal) { return literal(literal); }
+
+    private Void literal(Parser.Literal literal) {
+        emit(Bytecode.CONST, _dst, constant(Interpreter.doExpression(literal, null)));
+        return null;
+    }
+
+    /* Expressions the compiler doesn't lower are evaluated by the Interpreter */
+
+    @Override
+    public Void visitNoOp(Parser.NoOp noOp) { return eval(noOp); }
+
+    @Override
+    public Void visitTernaryOp(Parser.TernaryOp op) { return eval(op); }
+
+    @Override
+    public Void visitQuaternaryOp(Parser.QuaternaryOp op) { return eval(op); }
+
+    @Override
+    public Void visitSlice(Parser.Slice slice) { return eval(slice); }
+
+    @Override
+    public Void visitSet(Parser.HSet set) { return eval(set); }
+
+    @Override
+    public Void visitValueMap(Parser.HValueMap map) { return eval(map); }
+
+    @Override
+    public Void visitObjectMap(Parser.HObjectMap map) { return eval(map); }
+
+    @Override
+    public Void visitDirectedGraph(Parser.HDirectedGraph graph) { return eval(graph); }
+
+    @Override
+    public Void visitUndirectedGraph(Parser.HUndirectedGraph graph) { return eval(graph); }
+
+    @Override
+    public Void visitClass(Parser.Class aClass) { return eval(aClass); }
+
+    @Override
+    public Void visitStruct(Parser.Struct struct) { return eval(struct); }
+
+    @Override
+    public Void visitInterface(Parser.Interface anInterface) { return eval(anInterface); }
+
+    @Override
+    public Void visitEnum(Parser.Enum anEnum) { return eval(anEnum); }
+
+    private Void eval(Parser.Expression expression) {
+        emit(Bytecode.EVAL, _dst, constant(expression));
+        return null;
+    }
+
+    private void compileSetOp(Parser.BinaryOp op, int dst) {
+        if (!(op.left instanceof Parser.Var)) {
+            emit(Bytecode.EVAL, dst, constant(op));
+            return;
+        }
+
+        Parser.Var var = (Parser.Var) op.left;
+        int left = register(), right = register();
+        compileExpression(var, left);
+        compileExpression(op.right, right);
+        emit(Bytecode.BINARY, dst, constant(new InlineCache(Interpreter.operation(op.token))), left, right);
+        compileStore(var, dst);
+    }
+
+    private void compileItems(int opcode, List<Parser.Expression> items) {
+        int dst = _dst;
+        int first = registers(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            compileExpression(items.get(i), first + i);
+        }
+        emit(opcode, dst, first, items.size());
+    }
+
+    private void compileRange(Parser.Range range, int opcode) {
+        int dst = _dst;
+        int start = register(), stop = register(), step = register();
+        compileExpression(range.start(), start);
+        compileExpression(range.stop(), stop);
+        compileExpression(range.step(), step);
+        emit(opcode, dst, start, stop, step);
+    }
+
+    /** The key a variable that couldn't be resolved is stored under in its scope */
+    private static Var name(Parser.Var var) {
+        return new Var(var.value, Any.type);
+    }
+
+
+    private int[] _code;
+    private int _size;
+    private List<Object> _constants;
+    private int _nextRegister, _maxRegisters;
+    private int _frameDepth;
+    /** The register the expression being visited leaves its value in */
+    private int _dst;
+    private Deque<LoopLabels> _loops;
+    private Deque<List<Parser.Expression>> _defers;
+}
@@ -0,0 +1,82 @@
+package Main;
+
+import Helpers.*;
+import Objects.*;
+
+/**
+ * Remembers, at a single call or operator site, which method was found for
+ * each Type of receiver the site has seen, so calling the same method on the
+ * same type again skips the lookup through the scope chain.
+ *
+ * A site caches up to LIMIT types; past that it is megamorphic and stops
+ * adding entries. Receivers whose lookups don't go through the scope shared
+ * by their type (anything with attributes set on the instance itself) are
+ * never cached. Every entry is dropped once a class scope changes, which
+ * Scope tracks with a version counter.
+ */
+final class InlineCache {
+
+    InlineCache(Var method) {
+        _method = method;
+        _types = new Type[LIMIT];
+        _methods = new Any[LIMIT];
+        _version = Scope.classVersion();
+    }
+
+    /**
+     * Calls the method on RECEIVER, the way Any.callMethod does
+     * @param receiver The object the method is looked up on
+     * @param scope The scope of the call
+     * @param args The arguments, starting with the receiver itself
+     * @return The result of the method, or NULL if it isn't callable
+     */
+    Any call(Any receiver, Scope scope, Any... args) {
+        if (!receiver.sharesClassScope()) {
+            return receiver.callMethod(_method, false, scope, args);
+        }
+
+        Any method = lookup(receiver);
+        if (!(method instanceof Func)) {
+            /* Any.callMethod gives NULL for a property that isn't a method, so this does too */
+            return NULL.getInstance();
+        }
+        return ((Func) method).call(args);
+    }
+
+    /** The method RECEIVER has, found in the cache if its type has been seen before */
+    Any lookup(Any receiver) {
+        if (!receiver.sharesClassScope()) {
+            return receiver.get(_method);
+        }
+
+        int version = Scope.classVersion();
+        if (version != _version) {
+            _version = version;
+            _size = 0;
+        }
+
+        Type type = receiver.type();
+        for (int i = 0; i < _size; i++) {
+            if (_types[i] == type) {
+                return _methods[i];
+            }
+        }
+
+        Any method = receiver.get(_method);
+        if (_size < LIMIT) {
+            _types[_size] = type;
+            _methods[_size] = method;
+            _size++;
+        }
+        return method;
+    }
+
+    /** Number of receiver types a site caches before it is megamorphic */
+    private static final int LIMIT = 4;
+
+    private final Var _method;
+    private final Type[] _types;
+    private final Any[] _methods;
+    private int _size;
+    private int _version;
+}
@@ -12,288 +12,665 @@ import Objects.Class;
 /**
  * The main interpreter, which takes in a AST and runs through it, consuming
  * the nodes in a depth-first process.
+ *
+ * An Interpreter visits nodes (see ASTVisitor) to find their values in its
+ * current scope. Each thread has a single Interpreter, which is moved into the
+ * Frame of each Block or Loop it runs and back out again afterwards, rather
+ * than a new one being made for every run.
  */
-public class Interpreter {
+public class Interpreter implements ASTVisitor<Any> {
     public static void run(BufferedReader text) {
         var parser = new Parser(new Lexer(text));
-        var ast = parser.parse();
-        doBlock((Parser.Block) ast, new Scope(null));
+        var ast = (Parser.Block) parser.parse();
+        new Optimizer().optimize(ast);
+        new Resolver().resolve(ast);
+        doBlock(ast, new Scope(null, Scope.Enclosing.MODULE));
     }
 
+    /**
+     * Runs BLOCK, the body of a function or program, in SCOPE
+     * @return The value it returned, or NULL if it didn't
+     */
     public static Any doBlock(Parser.Block block, Scope scope) {
-        var newScope = new Scope(scope);
-        var deferExpressions = new LinkedList<Parser.Expression>();
-
-        for (Parser.Statement statement : block.statements) {
-            if (statement instanceof Parser.Defer) {
-                deferExpressions.add(((Parser.Defer) statement).expression);
-            } else {
-                doStatement(statement, newScope);
-                if (statement instanceof Parser.Return) {
-                    break;
+        return INTERPRETER.get().runBody(block, new Frame(scope, block.frameSize, Scope.Enclosing.INNER));
+    }
+
+    /**
+     * Runs the outermost Block of a module in SCOPE
+     * @return The Frame holding the module's top level variables, so that they
+     * can be linked into the modules loaded after it (see ModuleLoader)
+     */
+    static Frame doModule(Parser.Block block, Scope scope) {
+        var frame = new Frame(scope, block.frameSize, Scope.Enclosing.INNER);
+        INTERPRETER.get().runBody(block, frame);
+        return frame;
+    }
+
+    public static void doDirectBody(Parser.DirectBody directBody, Scope scope) {
+        INTERPRETER.get().runIn(scope, (Parser.ASTNode) directBody);
+    }
+
+    static Any doStatement(Parser.Statement statement, Scope scope) {
+        return INTERPRETER.get().runIn(scope, statement);
+    }
+
+    public static Any doExpression(Parser.Expression expression, Scope scope) {
+        return INTERPRETER.get().runIn(scope, expression);
+    }
+
+    private Interpreter() {}
+
+    /**
+     * Runs BLOCK in NEWSCOPE as the body of a function or module, which a return
+     * stops but a break or continue can't get out of
+     * @return The value it returned, or NULL if it didn't
+     */
+    private Any runBody(Parser.Block block, Frame newScope) {
+        /* A call made while a Block is returning, from an expression it defers, leaves that return alone */
+        Completion completion = _completion;
+        Any returned = _returned;
+        _completion = Completion.NORMAL;
+        try {
+            runBlock(block, newScope);
+            if (_completion == Completion.BREAK || _completion == Completion.CONTINUE) {
+                throw new IllegalStateException(_completion.name().toLowerCase() + " outside of a loop");
+            }
+            return _completion == Completion.RETURN ? _returned : NULL.getInstance();
+        } finally {
+            _completion = completion;
+            _returned = returned;
+        }
+    }
+
+    /**
+     * Runs the statements of BLOCK in NEWSCOPE, until one of them returns, breaks
+     * or continues, and then the expressions it defers
+     */
+    private void runBlock(Parser.Block block, Frame newScope) {
+        Scope outer = _scope;
+        _scope = newScope;
+        try {
+            List<Parser.Expression> deferExpressions = null;
+
+            for (Parser.Statement statement : block.statements) {
+                if (statement instanceof Parser.Defer) {
+                    if (deferExpressions == null) {
+                        deferExpressions = new ArrayList<>();
+                    }
+                    deferExpressions.add(((Parser.Defer) statement).expression);
+                } else {
+                    statement.accept(this);
+                    if (_completion != Completion.NORMAL) {
+                        break;
+                    }
                 }
             }
+
+            if (deferExpressions != null) {
+                for (Parser.Expression expression : deferExpressions) {
+                    expression.accept(this);
+                }
+            }
+        } finally {
+            _scope = outer;
         }
+    }
 
-        for (Parser.Expression expression : deferExpressions) {
-            doExpression(expression, newScope);
+    /** The value of NODE in SCOPE, after which this Interpreter goes back to its own scope */
+    private Any runIn(Scope scope, Parser.ASTNode node) {
+        Scope outer = _scope;
+        _scope = scope;
+        try {
+            return node.accept(this);
+        } finally {
+            _scope = outer;
         }
+    }
+
+    /** The value of NODE, in this Interpreter's scope */
+    private Any run(Parser.ASTNode node) {
+        return node.accept(this);
+    }
+
+
+    /** **************************** Statements **************************** **/
 
+    @Override
+    public Any visitBlock(Parser.Block block) {
+        runBlock(block, new Frame(_scope, block.frameSize, Scope.Enclosing.INNER));
         return NULL.getInstance();
     }
 
-    public static void doDirectBody(Parser.DirectBody directBody, Scope scope) {
-        if (directBody instanceof Parser.Block)
-            doBlock((Parser.Block) directBody, scope);
-        else
-            doStatement((Parser.Statement) directBody, scope);
+    @Override
+    public Any visitAssignment(Parser.Assignment assignment) {
+        bind(assignment.var, run(assignment.value));
+        return NULL.getInstance();
     }
 
-    private static Any doStatement(Parser.Statement statement, Scope scope) {
-        if (statement instanceof Parser.Assignment) {
-            doAssignment((Parser.Assignment) statement, scope);
+    /** Gives VALUE to TARGET, the left side of an assignment */
+    private void bind(Parser.ASTNode target, Any value) {
+        if (target instanceof Parser.Declare) {
+            doDeclare((Parser.Declare) target, value, _scope);
+        } else if (target instanceof Parser.Var) {
+            assign((Parser.Var) target, value, _scope);
+        } else if (target instanceof Parser.Get) {
+            Parser.Get get = (Parser.Get) target;
+            run(get.var()).set(doVar((Parser.Var) get.property(), _scope), value);
         }
+    }
+
+    /** Declared types aren't checked yet; a list's element type is only used to pick its storage */
+    private static void doDeclare(Parser.Declare declare, Any value, Scope scope) {
+        if (value instanceof HArrayList) {
+            expectElements((HArrayList) value, declare.type);
+        }
+        assign(declare.var, value, scope);
+    }
+
+    /** Passes the element type of a declaration like ints<[int]> on to the list it's given */
+    private static void expectElements(HArrayList list, List<Parser.Type> types) {
+        if (types.size() != 1 || !(types.get(0) instanceof Parser.ContainerType)) {
+            return;
+        }
+        Parser.ContainerType type = (Parser.ContainerType) types.get(0);
+        if (type.container != Parser.ContainerType.Container.LIST || type.types.size() != 1 ||
+                type.types.get(0).token == null) {
+            return;
+        }
+
+        switch (type.types.get(0).token.type()) {
+            case INT:
+                list.expect(Int.type);
+                break;
+            case REAL:
+                list.expect(Real.type);
+                break;
+        }
+    }
+
+    @Override
+    public Any visitReturn(Parser.Return aReturn) {
+        _returned = aReturn.expression == null ? NULL.getInstance() : run(aReturn.expression);
+        _completion = Completion.RETURN;
+        return _returned;
+    }
+
+    /** Deferred expressions are run by the Block they are in, once it's done */
+    @Override
+    public Any visitDefer(Parser.Defer defer) {
         return NULL.getInstance();
     }
 
-    private static void doAssignment(Parser.Assignment assignment, Scope scope) {
+    @Override
+    public Any visitContinue(Parser.Continue aContinue) {
+        _completion = Completion.CONTINUE;
+        return NULL.getInstance();
+    }
 
+    @Override
+    public Any visitBreak(Parser.Break aBreak) {
+        _completion = Completion.BREAK;
+        return NULL.getInstance();
     }
 
-    private static void doDeclare(Parser.Declare declare, Scope scope) {
+    @Override
+    public Any visitPass(Parser.Pass pass) {
+        return NULL.getInstance();
+    }
+
+    @Override
+    public Any visitNoOp(Parser.NoOp noOp) {
+        return NULL.getInstance();
+    }
 
+    @Override
+    public Any visitVar(Parser.Var var) {
+        return lookup(var, _scope);
     }
 
     private static Var doVar(Parser.Var var, Scope scope) {
-        return null;
+        return new Var(var.value, Any.type);
+    }
+
+    /**
+     * Gets the value of a variable, straight from its Frame slot if the Resolver
+     * placed it, otherwise by name up the scope chain
+     */
+    private static Any lookup(Parser.Var var, Scope scope) {
+        Any object;
+        if (var.slot >= 0 && scope instanceof Frame) {
+            object = ((Frame) scope).get(var.depth, var.slot);
+        } else {
+            object = scope.get(doVar(var, scope), false);
+        }
+        return object == null ? NULL.getInstance() : object;
     }
 
-    public static Any doExpression(Parser.Expression expression, Scope scope) {
-        return null;
+    /** Sets the value of a variable, into its Frame slot if the Resolver placed it */
+    private static void assign(Parser.Var var, Any value, Scope scope) {
+        if (var.slot >= 0 && scope instanceof Frame) {
+            ((Frame) scope).set(var.depth, var.slot, value);
+        } else {
+            scope.set(doVar(var, scope), value);
+        }
     }
 
-    private static Any doCall(Parser.Call call, Scope scope) {
-        return null;
+    /**
+     * A method call (obj.method(...)) passes the receiver as the first argument,
+     * and finds the method through the call site's InlineCache
+     */
+    @Override
+    public Any visitCall(Parser.Call call) {
+        if (call.value instanceof Parser.Get && ((Parser.Get) call.value).property() instanceof Parser.Var) {
+            Parser.Get get = (Parser.Get) call.value;
+            Any receiver = run(get.var());
+            if (call.cache == null) {
+                call.cache = new InlineCache(doVar((Parser.Var) get.property(), _scope));
+            }
+            Any[] arguments = arguments(call, 1);
+            arguments[0] = receiver;
+            return call.cache.call(receiver, _scope, arguments);
+        }
+
+        Any value = run(call.value);
+        if (!(value instanceof Func)) {
+            throw new IllegalStateException(value.type().name() + " is not callable");
+        }
+        return ((Func) value).call(arguments(call, 0));
+    }
+
+    /** The values of CALL's parameters, after FIRST slots left free at the front */
+    private Any[] arguments(Parser.Call call, int first) {
+        List<Parser.Expression> parameters = call.params.parameters;
+        Any[] arguments = new Any[first + parameters.size()];
+        for (int i = 0; i < parameters.size(); i++) {
+            arguments[first + i] = run(parameters.get(i));
+        }
+        return arguments;
+    }
+
+    /* Parts of other nodes, which those nodes run themselves */
+
+    @Override
+    public Any visitDeclare(Parser.Declare declare) {
+        throw partOfAnother(declare);
+    }
+
+    @Override
+    public Any visitType(Parser.Type type) {
+        throw partOfAnother(type);
+    }
+
+    @Override
+    public Any visitContainerType(Parser.ContainerType containerType) {
+        throw partOfAnother(containerType);
+    }
+
+    @Override
+    public Any visitModifier(Parser.Modifier modifier) {
+        throw partOfAnother(modifier);
+    }
+
+    @Override
+    public Any visitParamDefs(Parser.ParamDefs paramDefs) {
+        throw partOfAnother(paramDefs);
+    }
+
+    @Override
+    public Any visitParams(Parser.Params params) {
+        throw partOfAnother(params);
+    }
+
+    @Override
+    public Any visitIfBlock(Parser.IfBlock ifBlock) {
+        throw partOfAnother(ifBlock);
+    }
+
+    @Override
+    public Any visitCase(Parser.Case aCase) {
+        throw partOfAnother(aCase);
+    }
+
+    @Override
+    public Any visitCatch(Parser.Catch aCatch) {
+        throw partOfAnother(aCatch);
+    }
+
+    @Override
+    public Any visitEdge(Parser.HGraph.HEdge edge) {
+        throw partOfAnother(edge);
+    }
+
+    @Override
+    public Any visitDirectedEdge(Parser.HDirectedGraph.HDirectedEdge edge) {
+        throw partOfAnother(edge);
+    }
+
+    private static IllegalStateException partOfAnother(Parser.ASTNode node) {
+        return new IllegalStateException(node.getClass().getSimpleName() + " nodes can't be run on their own");
     }
 
     /** **************************** Directs **************************** **/
 
-    private static void doLoop(Parser.Loop loop, Scope scope) {
-        Scope loopScope = new Scope(scope);
-        for (Parser.Assignment clause : loop.initClauses) {
-            doAssignment(clause, loopScope);
-        }
+    @Override
+    public Any visitLoop(Parser.Loop loop) {
+        Scope outer = _scope;
+        _scope = new Frame(outer, loop.frameSize, Scope.Enclosing.LOOP);
+        try {
+            List<Parser.Assignment> initClauses = loop.initClauses;
+            if (loop.isForEach()) {
+                Parser.Assignment elements = initClauses.get(0);
+                initClauses = initClauses.subList(1, initClauses.size());
+                Any value = run(elements.value);
+                /* Anything but a list is given to the variable once, and the loop runs like any other */
+                if (value instanceof HList) {
+                    doForEach(loop, elements.var, (HList) value, initClauses);
+                    return NULL.getInstance();
+                }
+                bind(elements.var, value);
+            }
 
-        while (true) {
-            for (Parser.Expression clause : loop.breakClauses) {
-                if (!Bool.isTrue(doExpression(clause, loopScope)))
-                    break;
+            for (Parser.Assignment clause : initClauses) {
+                run(clause);
             }
-            doDirectBody(loop.block, loopScope);
-            for (Parser.Expression clause : loop.loopClauses) {
-                doExpression(clause, loopScope);
+
+            while (doBreakClauses(loop) && runLoopBlock(loop)) {
+                for (Parser.Expression clause : loop.loopClauses) {
+                    run(clause);
+                }
             }
+        } finally {
+            _scope = outer;
         }
 
 //        doDirectBody(loop.elseBlock, loopScope);
+        return NULL.getInstance();
     }
 
+    /**
+     * Runs the block of LOOP once for each element of LIST, after the rest of its
+     * INITCLAUSES. The elements are read through HList's iterator, so a Range
+     * never has to store them.
+     */
+    private void doForEach(Parser.Loop loop, Parser.ASTNode target, HList list,
+                           List<Parser.Assignment> initClauses) {
+        for (Parser.Assignment clause : initClauses) {
+            run(clause);
+        }
+        for (Any element : list) {
+            bind(target, element);
+            if (!runLoopBlock(loop)) {
+                break;
+            }
+        }
+    }
 
-    /** **************************** Containers **************************** **/
+    /**
+     * Runs the block of LOOP once
+     * @return Whether the loop goes on, rather than having been broken out of or returned from
+     */
+    private boolean runLoopBlock(Parser.Loop loop) {
+        run((Parser.ASTNode) loop.block);
+        switch (_completion) {
+            case BREAK:
+                _completion = Completion.NORMAL;
+                return false;
+            case CONTINUE:
+                _completion = Completion.NORMAL;
+                return true;
+            case RETURN:
+                return false;
+            default:
+                return true;
+        }
+    }
 
-    private static Container doContainer(Parser.ContainerCreation container, Scope scope) {
-        if (container instanceof Parser.HArrayList) {
-            return doArrayList((Parser.HArrayList) container, scope);
-        } else if (container instanceof Parser.HLinkedList) {
-            return doLinkedList((Parser.HLinkedList) container, scope);
-        } else if (container instanceof Parser.ArrayListRange) {
-            return doArrayListRange((Parser.ArrayListRange) container, scope);
-        } else if (container instanceof Parser.LinkedListRange) {
-            return doLinkedListRange((Parser.LinkedListRange) container, scope);
+    /** Whether every break clause of the loop still holds */
+    private boolean doBreakClauses(Parser.Loop loop) {
+        if (loop.breakClauses == null)
+            return true;
+        for (Parser.Expression clause : loop.breakClauses) {
+            if (!Bool.isTrue(run(clause)))
+                return false;
         }
-        return null;
+        return true;
+    }
+
+    @Override
+    public Any visitIf(Parser.If anIf) {
+        for (Parser.IfBlock ifBlock : anIf.ifblocks) {
+            if (Bool.isTrue(run(ifBlock.condition))) {
+                run((Parser.ASTNode) ifBlock.block);
+                return NULL.getInstance();
+            }
+        }
+        if (anIf.elseBlock != null)
+            run((Parser.ASTNode) anIf.elseBlock);
+        return NULL.getInstance();
+    }
+
+    @Override
+    public Any visitSwitch(Parser.Switch aSwitch) {
+        return NULL.getInstance();
     }
 
-    private static HArrayList doArrayList(Parser.HArrayList list, Scope scope) {
-        ArrayList<Any> arraylist = new ArrayList<>();
+    @Override
+    public Any visitTry(Parser.Try aTry) {
+        return NULL.getInstance();
+    }
+
+
+    /** **************************** Containers **************************** **/
+
+    @Override
+    public Any visitArrayList(Parser.HArrayList list) {
+        PackedList arraylist = new PackedList(list.items.size());
         for (Parser.Expression e : list.items)
-            arraylist.add(doExpression(e, scope));
+            arraylist.add(run(e));
         return new HArrayList(arraylist);
     }
 
-    private static HLinkedList doLinkedList(Parser.HLinkedList list, Scope scope) {
+    @Override
+    public Any visitLinkedList(Parser.HLinkedList list) {
         LinkedList<Any> linkedlist = new LinkedList<>();
         for (Parser.Expression e : list.items)
-            linkedlist.add(doExpression(e, scope));
+            linkedlist.add(run(e));
         return new HLinkedList(linkedlist);
     }
 
-    private static HArrayList doArrayListRange(Parser.ArrayListRange range, Scope scope) {
-        int start = ((Int) doExpression(range.start(), scope)).forceInt();
-        int stop = ((Int) doExpression(range.stop(), scope)).forceInt();
-        int step = ((Int) doExpression(range.step(), scope)).forceInt();
-
-        ArrayList<Any> arraylist = new ArrayList<>();
-        for (int i = start; i < stop; i += step) {
-            arraylist.add(new Int(i));
-        }
-
-        // TODO: catch errors for infinite loops, start/stop/step not being ints, etc
-        return new HArrayList(arraylist);
+    @Override
+    public Any visitArrayListRange(Parser.ArrayListRange range) {
+        return arrayListRange(run(range.start()), run(range.stop()), run(range.step()));
     }
 
-    private static HLinkedList doLinkedListRange(Parser.LinkedListRange range, Scope scope) {
-        int start = ((Int) doExpression(range.start(), scope)).forceInt();
-        int stop = ((Int) doExpression(range.stop(), scope)).forceInt();
-        int step = ((Int) doExpression(range.step(), scope)).forceInt();
+    @Override
+    public Any visitLinkedListRange(Parser.LinkedListRange range) {
+        return linkedListRange(run(range.start()), run(range.stop()), run(range.step()));
+    }
 
-        LinkedList<Any> linkedlist = new LinkedList<>();
-        for (int i = start; i < stop; i += step) {
-            linkedlist.add(new Int(i));
-        }
+    /** A lazy range standing in for an HArrayList; its elements aren't made until it's changed */
+    static Range arrayListRange(Any start, Any stop, Any step) {
+        return new Range(bound(start, 0), bound(stop, 0), bound(step, 1), false);
+    }
 
-        // TODO: catch errors for infinite loops, start/stop/step not being ints, etc
-        return new HLinkedList(linkedlist);
+    /** A lazy range standing in for an HLinkedList; its elements aren't made until it's changed */
+    static Range linkedListRange(Any start, Any stop, Any step) {
+        return new Range(bound(start, 0), bound(stop, 0), bound(step, 1), true);
     }
 
-    private static HMap doMap(Parser.HMap map, Scope scope) {
-        if (map instanceof Parser.HValueMap) {
-            return doValueMap((Parser.HValueMap) map, scope);
-        } else if (map instanceof Parser.HObjectMap) {
-            return doObjectMap((Parser.HObjectMap) map, scope);
+    /** A bound of a range, or OTHERWISE if it was left out (and so is NULL) */
+    private static long bound(Any value, long otherwise) {
+        if (value.isNull()) {
+            return otherwise;
         }
-        return null;
+        if (!(value instanceof Int)) {
+            throw new IllegalArgumentException("Range bounds must be INT, not " + value.type().name());
+        }
+        return ((Int) value).forceLong();
     }
 
-    private static HMap doObjectMap(Parser.HObjectMap map, Scope scope) {
+    @Override
+    public Any visitObjectMap(Parser.HObjectMap map) {
         return null;
     }
 
-    private static HValueMap doValueMap(Parser.HValueMap map, Scope scope) {
+    @Override
+    public Any visitValueMap(Parser.HValueMap map) {
         return null;
     }
 
+    @Override
+    public Any visitSet(Parser.HSet set) {
+        return NULL.getInstance();
+    }
 
-    /** **************************** Constructs **************************** **/
+    @Override
+    public Any visitDirectedGraph(Parser.HDirectedGraph graph) {
+        return NULL.getInstance();
+    }
 
-    private static Construct doConstruct(Parser.Construct construct, Scope scope) {
-        if (construct instanceof Parser.Func) {
-            return doFunc((Parser.Func) construct, scope);
-        } else if (construct instanceof Parser.Class) {
-            return doClass((Parser.Class) construct, scope);
-        }
-        return null;
+    @Override
+    public Any visitUndirectedGraph(Parser.HUndirectedGraph graph) {
+        return NULL.getInstance();
     }
 
-    private static Func doFunc(Parser.Func _func, Scope scope) {
-        return new Func(_func, scope);
+
+    /** **************************** Constructs **************************** **/
+
+    @Override
+    public Any visitFunc(Parser.Func _func) {
+        return new Func(_func, _scope);
     }
 
-    private static Class doClass(Parser.Class _class, Scope scope) {
+    @Override
+    public Any visitClass(Parser.Class _class) {
         List<Interface> interfaces = new ArrayList<Interface>();
         _class.interfaces.forEach(v -> {
             var var = new Var(v.value, Interface.type);
-            assert scope.has(var);
-            interfaces.add((Interface) scope.get(var, false));
+            assert _scope.has(var);
+            interfaces.add((Interface) _scope.get(var, false));
         });
 
         List<Class> superClasses = new ArrayList<>();
         _class.superClasses.forEach(v -> {
             var var = new Var(v.value, Class.type);
-            assert scope.has(var);
-            superClasses.add((Class) scope.get(var, false));
+            assert _scope.has(var);
+            superClasses.add((Class) _scope.get(var, false));
         });
 
-        Scope classScope = new Scope(scope);
-        doBlock(_class.block, scope);
+        Scope classScope = new Scope(_scope);
+        visitBlock(_class.block);
 
         return new Class(null, classScope, superClasses, interfaces);
     }
 
-    private static void doStruct(Parser.Struct _struct, Scope scope) {
-
+    @Override
+    public Any visitStruct(Parser.Struct _struct) {
+        return visitClass(_struct);
     }
 
-    private static void doInterface(Parser.Interface _interface, Scope scope) {
-
+    @Override
+    public Any visitInterface(Parser.Interface _interface) {
+        return NULL.getInstance();
     }
 
-    private static void doEnum(Parser.Enum _enum, Scope scope) {
-
+    @Override
+    public Any visitEnum(Parser.Enum _enum) {
+        return NULL.getInstance();
     }
 
 
     /** **************************** Operations **************************** **/
 
-    private static void doOperation(Parser.Op op, Scope scope) {
-        if (op instanceof Parser.SetOp) {
-            doSetOp((Parser.SetOp) op, scope);
-        } else if (op instanceof Parser.Index) {
-            doIndex((Parser.Index) op, scope);
-        } else if (op instanceof Parser.Get) {
-            doGet((Parser.Get) op, scope);
-        } else if (op instanceof Parser.Range) {
-            doRange((Parser.Range) op, scope);
-        } else if (op instanceof Parser.Slice) {
-            doSlice((Parser.Slice) op, scope);
+    @Override
+    public Any visitUnaryOp(Parser.UnaryOp unaryOp) {
+        Any child = run(unaryOp.child);
+        Any result = node(unaryOp).execute(unaryOp, _scope, child, null);
+        if (unaryOp.isStep() && unaryOp.child instanceof Parser.Var) {
+            assign((Parser.Var) unaryOp.child, result, _scope);
+            return unaryOp.isPostfix() ? child : result;
         }
+        return result;
+    }
 
-        if (op instanceof Parser.UnaryOp) {
-            Parser.UnaryOp unaryOp = (Parser.UnaryOp) op;
-            Any child = doExpression(unaryOp.child, scope);
-
-            child.callMethod(_operations.get(unaryOp.token), false, scope, child);
+    @Override
+    public Any visitBinaryOp(Parser.BinaryOp binaryOp) {
+        if (binaryOp.token.isAssignment()) {
+            return doSetOp(binaryOp);
+        }
+        Any left = run(binaryOp.left);
+        Any right = run(binaryOp.right);
+        return node(binaryOp).execute(binaryOp, _scope, left, right);
+    }
 
-        } else if (op instanceof Parser.BinaryOp) {
-            Parser.BinaryOp binaryOp = (Parser.BinaryOp) op;
-            Any left = doExpression(binaryOp.left, scope);
-            Any right = doExpression(binaryOp.right, scope);
+    @Override
+    public Any visitSetOp(Parser.SetOp op) {
+        return doSetOp(op);
+    }
 
-            left.callMethod(_operations.get(binaryOp.token), false, scope, left, right);
+    /** The node that runs OP, created the first time OP is run */
+    private static OperatorNode node(Parser.Op op) {
+        if (op.node == null) {
+            op.node = OperatorNode.create(_operations.get(op.token));
         }
+        return op.node;
     }
 
-    private static Any doSetOp(Parser.SetOp op, Scope scope) {
-        Var left;
-        try {
-            left = (Var) doExpression(op.left, scope);
-            Any right = doExpression(op.right, scope);
-            Any result = left.callMethod(_operations.get(op.token), false, scope, left, right);
-
-            scope.set(left, result);
-            return result;
-        } catch(ClassCastException cce) {
+    private Any doSetOp(Parser.BinaryOp op) {
+        if (!(op.left instanceof Parser.Var)) {
             // TODO throw error
             return NULL.getInstance();
         }
+
+        Parser.Var var = (Parser.Var) op.left;
+        Any left = lookup(var, _scope);
+        Any right = run(op.right);
+        Any result = node(op).execute(op, _scope, left, right);
+
+        assign(var, result, _scope);
+        return result;
     }
 
-    private static Any doIndex(Parser.Index op, Scope scope) {
-        Any var = doExpression(op.var(), scope);
+    @Override
+    public Any visitIndex(Parser.Index op) {
+        Any var = run(op.var());
         assert var instanceof Var || var instanceof Str || var instanceof Container;
         assert var.get(Var.__index__) != null;
 
-        Any index = doExpression(op.index(), scope);
-        return ((Func) var.get(Var.__index__)).call(index);
+        Any index = run(op.index());
+        return ((Func) var.get(Var.__index__)).call(var, index);
     }
 
-    private static Any doGet(Parser.Get op, Scope scope) {
-        Any var = doExpression(op.var(), scope);
-        assert var instanceof Var || var instanceof Str;
-        Any property = doExpression(op.property(), scope);
-        assert property instanceof Var;
-        return var.get((Var) property);
+    @Override
+    public Any visitGet(Parser.Get op) {
+        Any var = run(op.var());
+        assert op.property() instanceof Parser.Var;
+        Any property = var.get(doVar((Parser.Var) op.property(), _scope));
+        return property == null ? NULL.getInstance() : property;
     }
 
-    private static void doRange(Parser.Range op, Scope scope) {
-
+    @Override
+    public Any visitTernaryOp(Parser.TernaryOp op) {
+        /* Only the side that is picked is run */
+        return Bool.isTrue(run(op.left)) ? run(op.center) : run(op.right);
     }
 
-    private static void doSlice(Parser.Slice op, Scope scope) {
+    @Override
+    public Any visitQuaternaryOp(Parser.QuaternaryOp op) {
+        return NULL.getInstance();
+    }
 
+    @Override
+    public Any visitSlice(Parser.Slice op) {
+        return NULL.getInstance();
     }
 
 
+    /** The method an operator token calls on its (left) operand */
+    static Var operation(Token token) {
+        return _operations.get(token);
+    }
+
     private static final Map<Token, Var> _operations = new HashMap<>() {{
         put(Parser.values.get("ADD"), Var.__add__);
         put(Parser.values.get("ADD_EQ"), Var.__add__);
@@ -344,24 +721,40 @@ public class Interpreter {
 
     /** **************************** Literals **************************** **/
 
-    private static Int doIntLiteral(Parser.IntLiteral intLiteral) {
-        return new Int(intLiteral);
+    @Override
+    public Any visitIntLiteral(Parser.IntLiteral intLiteral) {
+        return Int.valueOf(intLiteral);
     }
 
-    private static Str doStringLiteral(Parser.StringLiteral stringLiteral) {
+    @Override
+    public Any visitStringLiteral(Parser.StringLiteral stringLiteral) {
         return new Str(stringLiteral);
     }
 
-    private static Real doRealLiteral(Parser.RealLiteral realLiteral) {
+    @Override
+    public Any visitRealLiteral(Parser.RealLiteral realLiteral) {
         return new Real(realLiteral);
     }
 
-    private static Bool doBoolLiteral(Parser.BooleanLiteral booleanLiteral) {
-        return new Bool(Boolean.parseBoolean(booleanLiteral.token.value()));
+    @Override
+    public Any visitBooleanLiteral(Parser.BooleanLiteral booleanLiteral) {
+        return Bool.valueOf(Boolean.parseBoolean(booleanLiteral.token.value()));
     }
 
-    private static NULL doNullLiteral(Parser.RealLiteral realLiteral) {
+    @Override
+    public Any visitNullLiteral(Parser.NullLiteral nullLiteral) {
         return NULL.getInstance();
     }
 
-}
\ No newline at end of file
+
+    /** Each thread's Interpreter */
+    private static final ThreadLocal<Interpreter> INTERPRETER = ThreadLocal.withInitial(Interpreter::new);
+
+    /** How the statement last run finished, which stops the Blocks and Loops it is in unless it's NORMAL */
+    private enum Completion { NORMAL, BREAK, CONTINUE, RETURN }
+
+    private Scope _scope;
+    private Completion _completion = Completion.NORMAL;
+    /** The value being returned, while _completion is RETURN */
+    private Any _returned;
+}
@@ -0,0 +1,574 @@
+package Main;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes an AST as JSON, straight to a stream as it walks the tree. The JSON is
+ * the same as the ASTNode.toJSON() of each node would give, but no JSONObject
+ * or JSONArray is ever built, so dumping the AST of a large program takes no
+ * more memory than the depth of its tree. Each node is written by visiting it
+ * (see ASTVisitor).
+ */
+public class JSONWriter implements ASTVisitor<Void> {
+    public JSONWriter(Writer out) {
+        _out = out;
+    }
+
+    /** Writes to OUT as UTF-8 */
+    public JSONWriter(OutputStream out) {
+        this(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+    }
+
+    /** The JSON for NODE, as a string */
+    public static String toJSONString(Parser.ASTNode node) {
+        StringWriter out = new StringWriter();
+        try {
+            new JSONWriter(out).write(node);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /** Writes NODE and everything under it, then flushes the stream */
+    public void write(Parser.ASTNode node) throws IOException {
+        try {
+            node(node);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        _out.flush();
+    }
+
+
+    /** **************************** Nodes **************************** **/
+
+    /* Visiting can't throw IOExceptions, so they are wrapped in UncheckedIOExceptions
+     * until they get back to write() */
+
+    private void node(Parser.ASTNode node) {
+        if (node == null) {
+            raw("null");
+        } else {
+            node.accept(this);
+        }
+    }
+
+    @Override
+    public Void visitBlock(Parser.Block block) {
+        begin("Block", null);
+        list("statements", block.statements);
+        return end();
+    }
+
+    @Override
+    public Void visitAssignment(Parser.Assignment assignment) {
+        begin("Assignment", assignment);
+        field("var", assignment.var);
+        field("value", assignment.value);
+        return end();
+    }
+
+    @Override
+    public Void visitDeclare(Parser.Declare declare) {
+        begin("Declare", null);
+        list("modifiers", declare.modifiers);
+        field("var", declare.var);
+        list("types", declare.type);
+        return end();
+    }
+
+    @Override
+    public Void visitNoOp(Parser.NoOp noOp) {
+        begin("NoOp", null);
+        return end();
+    }
+
+    @Override
+    public Void visitContinue(Parser.Continue aContinue) {
+        begin("Continue", aContinue);
+        return end();
+    }
+
+    @Override
+    public Void visitBreak(Parser.Break aBreak) {
+        begin("Break", aBreak);
+        return end();
+    }
+
+    @Override
+    public Void visitPass(Parser.Pass pass) {
+        begin("Pass", pass);
+        return end();
+    }
+
+    @Override
+    public Void visitReturn(Parser.Return aReturn) {
+        begin("Return", aReturn);
+        field("expression", aReturn.expression);
+        return end();
+    }
+
+    @Override
+    public Void visitDefer(Parser.Defer defer) {
+        begin("Defer", defer);
+        field("expression", defer.expression);
+        return end();
+    }
+
+    @Override
+    public Void visitVar(Parser.Var var) {
+        begin("Var", var);
+        field("value", var.value);
+        return end();
+    }
+
+    @Override
+    public Void visitType(Parser.Type type) {
+        begin("Type", type);
+        name("isPointer");
+        raw(String.valueOf(type.isPointer));
+        return end();
+    }
+
+    @Override
+    public Void visitContainerType(Parser.ContainerType type) {
+        begin("ContainerType", type);
+        field("container", type.container.toString());
+        list("types", type.types);
+        return end();
+    }
+
+    @Override
+    public Void visitModifier(Parser.Modifier modifier) {
+        begin("Modifer", modifier);
+        return end();
+    }
+
+    @Override
+    public Void visitParamDefs(Parser.ParamDefs paramDefs) {
+        begin("ParamDefs", paramDefs);
+        list("parameters", paramDefs.parameters);
+        return end();
+    }
+
+    @Override
+    public Void visitParams(Parser.Params params) {
+        begin("Params", params);
+        list("parameters", params.parameters);
+        return end();
+    }
+
+    @Override
+    public Void visitFunc(Parser.Func func) {
+        begin("Func", func);
+        field("paramDefs", func.paramDefs);
+        field("operations", func.operations);
+        return end();
+    }
+
+    @Override
+    public Void visitClass(Parser.Class aClass) {
+        return construct("Class", aClass);
+    }
+
+    @Override
+    public Void visitStruct(Parser.Struct struct) {
+        return construct("Struct", struct);
+    }
+
+    private Void construct(String type, Parser.Class aClass) {
+        begin(type, aClass);
+        list("superClasses", aClass.superClasses);
+        list("interfaces", aClass.interfaces);
+        field("block", aClass.block);
+        return end();
+    }
+
+    @Override
+    public Void visitInterface(Parser.Interface anInterface) {
+        begin("Interface", anInterface);
+        list("interfaces", anInterface.interfaces);
+        field("block", anInterface.block);
+        return end();
+    }
+
+    @Override
+    public Void visitEnum(Parser.Enum anEnum) {
+        begin("Enum", anEnum);
+        list("instances", anEnum.instances);
+        list("superClasses", anEnum.superClasses);
+        list("interfaces", anEnum.interfaces);
+        field("block", anEnum.block);
+        return end();
+    }
+
+    @Override
+    public Void visitLoop(Parser.Loop loop) {
+        begin("Loop", loop);
+        list("initClauses", loop.initClauses);
+        list("breakClauses", loop.breakClauses);
+        list("loopClauses", loop.loopClauses);
+        field("block", (Parser.ASTNode) loop.block);
+        field("elseBlock", (Parser.ASTNode) loop.elseBlock);
+        return end();
+    }
+
+    @Override
+    public Void visitIf(Parser.If anIf) {
+        begin("If", anIf);
+        list("ifBlocks", anIf.ifblocks);
+        field("elseBlock", (Parser.ASTNode) anIf.elseBlock);
+        return end();
+    }
+
+    @Override
+    public Void visitIfBlock(Parser.IfBlock ifBlock) {
+        begin("IfBlock", ifBlock);
+        field("condition", ifBlock.condition);
+        field("block", (Parser.ASTNode) ifBlock.block);
+        return end();
+    }
+
+    @Override
+    public Void visitSwitch(Parser.Switch aSwitch) {
+        begin("Switch", aSwitch);
+        list("cases", aSwitch.cases);
+        field("defaultBlock", (Parser.ASTNode) aSwitch.defaultBlock);
+        return end();
+    }
+
+    @Override
+    public Void visitCase(Parser.Case aCase) {
+        begin("Case", aCase);
+        field("expression", aCase.expression);
+        field("block", (Parser.ASTNode) aCase.block);
+        return end();
+    }
+
+    @Override
+    public Void visitTry(Parser.Try aTry) {
+        begin("Try", aTry);
+        field("block", (Parser.ASTNode) aTry.block);
+        list("catchBlocks", aTry.catchBlocks);
+        return end();
+    }
+
+    @Override
+    public Void visitCatch(Parser.Catch aCatch) {
+        begin("Catch", aCatch);
+        field("exception", aCatch.exception);
+        field("block", (Parser.ASTNode) aCatch.block);
+        return end();
+    }
+
+    @Override
+    public Void visitCall(Parser.Call call) {
+        begin("Call", call);
+        field("params", call.params);
+        field("value", call.value);
+        return end();
+    }
+
+    @Override
+    public Void visitArrayList(Parser.HArrayList list) {
+        begin("HArrayList", list);
+        list("items", list.items);
+        return end();
+    }
+
+    @Override
+    public Void visitLinkedList(Parser.HLinkedList list) {
+        begin("HLinkedList", list);
+        list("items", list.items);
+        return end();
+    }
+
+    @Override
+    public Void visitSet(Parser.HSet set) {
+        begin("HSet", set);
+        list("items", set.items);
+        return end();
+    }
+
+    @Override
+    public Void visitValueMap(Parser.HValueMap map) {
+        return map("HValueMap", map);
+    }
+
+    @Override
+    public Void visitObjectMap(Parser.HObjectMap map) {
+        return map("HObjectMap", map);
+    }
+
+    private Void map(String type, Parser.HMap map) {
+        begin(type, map);
+        name("items");
+        /* Each item is a [key, value] pair */
+        raw("[");
+        boolean first = true;
+        for (Map.Entry<? extends Parser.Expression, Parser.Expression> item : map.items.entrySet()) {
+            if (!first) {
+                raw(",");
+            }
+            first = false;
+            raw("[");
+            node(item.getKey());
+            raw(",");
+            node(item.getValue());
+            raw("]");
+        }
+        raw("]");
+        return end();
+    }
+
+    @Override
+    public Void visitDirectedGraph(Parser.HDirectedGraph graph) {
+        return graph("HDirectedGraph", graph);
+    }
+
+    @Override
+    public Void visitUndirectedGraph(Parser.HUndirectedGraph graph) {
+        return graph("HUndirectedGraph", graph);
+    }
+
+    private Void graph(String type, Parser.HGraph graph) {
+        begin(type, graph);
+        list("nodes", graph.nodes);
+        list("edges", graph.edges);
+        return end();
+    }
+
+    @Override
+    public Void visitEdge(Parser.HGraph.HEdge edge) {
+        begin("HEdge", edge);
+        field("first", edge.first);
+        field("second", edge.second);
+        return end();
+    }
+
+    /** Directed edges call themselves HDirectedGraph in toJSON(), so they do here too */
+    @Override
+    public Void visitDirectedEdge(Parser.HDirectedGraph.HDirectedEdge edge) {
+        begin("HDirectedGraph", edge);
+        field("first", edge.first);
+        field("second", edge.second);
+        name("doubleEdge");
+        raw(String.valueOf(edge.doubleEdge));
+        return end();
+    }
+
+    @Override
+    public Void visitUnaryOp(Parser.UnaryOp op) {
+        begin("UnaryOp", op);
+        field("child", op.child);
+        field("meta", op.meta == null ? null : op.meta.toString());
+        return end();
+    }
+
+    @Override
+    public Void visitBinaryOp(Parser.BinaryOp op) {
+        begin("BinaryOp", op);
+        field("right", op.right);
+        field("left", op.left);
+        return end();
+    }
+
+    @Override
+    public Void visitSetOp(Parser.SetOp op) {
+        begin("SetOp", op);
+        field("var", op.right);
+        field("value", op.left);
+        return end();
+    }
+
+    @Override
+    public Void visitIndex(Parser.Index op) {
+        begin("Index", op);
+        field("var", op.var());
+        field("index", op.index());
+        return end();
+    }
+
+    @Override
+    public Void visitGet(Parser.Get op) {
+        begin("Get", op);
+        field("var", op.var());
+        field("property", op.property());
+        return end();
+    }
+
+    @Override
+    public Void visitTernaryOp(Parser.TernaryOp op) {
+        begin("TernaryOp", op);
+        field("left", op.left);
+        field("center", op.center);
+        /* toJSON() gives the left child as the right one as well */
+        field("right", op.left);
+        return end();
+    }
+
+    @Override
+    public Void visitArrayListRange(Parser.ArrayListRange range) {
+        return range("ArrayListRange", range);
+    }
+
+    @Override
+    public Void visitLinkedListRange(Parser.LinkedListRange range) {
+        return range("LinkedListRange", range);
+    }
+
+    private Void range(String type, Parser.Range range) {
+        begin(type, range);
+        field("start", range.start());
+        field("stop", range.stop());
+        field("step", range.step());
+        return end();
+    }
+
+    @Override
+    public Void visitQuaternaryOp(Parser.QuaternaryOp op) {
+        begin("QuaternaryOp", op);
+        field("left", op.left);
+        field("centerLeft", op.centerLeft);
+        field("centerRight", op.centerRight);
+        field("right", op.right);
+        return end();
+    }
+
+    @Override
+    public Void visitSlice(Parser.Slice slice) {
+        begin("Slice", slice);
+        field("var", slice.var());
+        field("start", slice.start());
+        field("stop", slice.stop());
+        field("step", slice.step());
+        return end();
+    }
+
+    @Override
+    public Void visitIntLiteral(Parser.IntLiteral literal) {
+        return literal("IntLiteral", literal);
+    }
+
+    @Override
+    public Void visitRealLiteral(Parser.RealLiteral literal) {
+        return literal("RealLiteral", literal);
+    }
+
+    @Override
+    public Void visitStringLiteral(Parser.StringLiteral literal) {
+        return literal("StringLiteral", literal);
+    }
+
+    @Override
+    public Void visitBooleanLiteral(Parser.BooleanLiteral literal) {
+        return literal("BooleanLiteral", literal);
+    }
+
+    @Override
+    public Void visitNullLiteral(Parser.NullLiteral literal) {
+        begin("NullLiteral", literal);
+        return end();
+    }
+
+    private Void literal(String type, Parser.Literal literal) {
+        begin(type, literal);
+        field("value", literal.token.value());
+        return end();
+    }
+
+
+    /** **************************** Output **************************** **/
+
+    /** Opens the object for a node of TYPE, written with NODE's token (or a null token if NODE is null) */
+    private void begin(String type, Parser.ASTNode node) {
+        raw("{\"type\":");
+        string(type);
+        raw(",\"token\":");
+        if (node == null || node.token == null) {
+            raw("null");
+        } else {
+            string(node.token.toString());
+        }
+    }
+
+    private Void end() {
+        raw("}");
+        return null;
+    }
+
+    private void name(String name) {
+        raw(",");
+        string(name);
+        raw(":");
+    }
+
+    private void field(String name, Parser.ASTNode value) {
+        name(name);
+        node(value);
+    }
+
+    private void field(String name, String value) {
+        name(name);
+        if (value == null) {
+            raw("null");
+        } else {
+            string(value);
+        }
+    }
+
+    private void list(String name, List<? extends Parser.ASTNode> nodes) {
+        name(name);
+        if (nodes == null) {
+            raw("null");
+            return;
+        }
+        raw("[");
+        for (int i = 0; i < nodes.size(); i++) {
+            if (i > 0) {
+                raw(",");
+            }
+            node(nodes.get(i));
+        }
+        raw("]");
+    }
+
+    /** Writes STRING quoted, escaped the same way as JSONValue.escape */
+    private void string(String string) {
+        StringBuilder quoted = new StringBuilder(string.length() + 2).append('"');
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            switch (c) {
+                case '"': quoted.append("\\\""); break;
+                case '\\': quoted.append("\\\\"); break;
+                case '/': quoted.append("\\/"); break;
+                case '\b': quoted.append("\\b"); break;
+                case '\f': quoted.append("\\f"); break;
+                case '\n': quoted.append("\\n"); break;
+                case '\r': quoted.append("\\r"); break;
+                case '\t': quoted.append("\\t"); break;
+                default:
+                    if (c <= '\u001F' || (c >= '\u007F' && c <= '\u009F') || (c >= '\u2000' && c <= '\u20FF')) {
+                        quoted.append(String.format("\\u%04X", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        raw(quoted.append('"').toString());
+    }
+
+    private void raw(String text) {
+        try {
+            _out.write(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private final Writer _out;
+}
@@ -1,147 +1,158 @@
 package Main;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.util.ArrayDeque;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 import Helpers.*;
 
 
+/**
+ * Splits Heap source into Tokens. The whole source is held in a char array and
+ * read through an index into it, so looking ahead is just reading further along
+ * the array, and tokens that carry text (names and literals) point back into the
+ * array rather than copying it out.
+ */
 public class Lexer {
-    public Lexer(BufferedReader text) {
+    public Lexer(Reader text) {
+        this(drain(text));
+    }
+
+    public Lexer(CharSequence text) {
+        this(text.toString().toCharArray());
+    }
+
+    public Lexer(char[] text) {
+        this(text, text.length);
+    }
+
+    /** Lexes the first LENGTH chars of TEXT */
+    public Lexer(char[] text, int length) {
+        this(text, length, new SymbolTable());
+    }
+
+    /** Lexes the first LENGTH chars of TEXT, interning names into SYMBOLS */
+    public Lexer(char[] text, int length, SymbolTable symbols) {
+        _symbols = symbols;
         _text = text;
-        _peekChars = new ArrayDeque();
-        _EOF = false;
-        advance();
+        _length = length;
+        _position = 0;
+        _current = charAt(0);
+    }
+
+    /** Lexes the UTF-8 file at PATH, which is memory-mapped rather than read */
+    public static Lexer of(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            CharBuffer chars = StandardCharsets.UTF_8.decode(
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            return new Lexer(chars.array(), chars.limit());
+        }
+    }
+
+    /** Reads all of TEXT into a char array, in bulk */
+    private static char[] drain(Reader text) {
+        char[] buffer = new char[8192];
+        int length = 0;
+        try {
+            int read;
+            while ((read = text.read(buffer, length, buffer.length - length)) != -1) {
+                length += read;
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+            }
+        } catch (IOException io) {
+            /* Lex whatever was read before the error */
+        }
+        return Arrays.copyOf(buffer, length);
     }
 
     /** Whether there are no more tokens in the file */
-    public boolean isEmpty() { return _EOF; }
+    public boolean isEmpty() { return _position >= _length; }
+
+    /** The char at INDEX of the text, or EOF past the end of it */
+    private char charAt(int index) {
+        return index < _length ? _text[index] : EOF;
+    }
 
-    /** Advances pointer in the filestream by one step
+    /** Advances pointer in the text by one step
      * */
     private char advance() {
-        try {
-            if (!_peekChars.isEmpty())
-                _current = (char) _peekChars.poll();
-            else
-                _current = (char) _text.read();
-            if (_current == '\uFFFF')
-                _EOF = true;
-            return _current;
-        } catch (IOException io) {
-            _EOF = true;
-        } return EMPTY;
+        _current = charAt(++_position);
+        return _current;
     }
 
-    /** Advances pointer in the filestream by NUM steps
+    /** Advances pointer in the text by NUM steps
      * */
     private char advance(int num) {
-        try {
-            while(num > 0) {
-                if (!_peekChars.isEmpty())
-                    _current = (char) _peekChars.poll();
-                else
-                    _current = (char) _text.read();
-                num--;
-            }
-            return _current;
-        } catch (IOException io) {
-            _EOF = true;
-        } return EMPTY;
+        _position += num;
+        _current = charAt(_position);
+        return _current;
     }
 
-    /** Allows for peeking ahead one char in the filestram
+    /** Allows for peeking ahead one char in the text
      * */
     private char peek() {
-        try {
-            if (!_peekChars.isEmpty()) {
-                return (char) _peekChars.peek();
-            }
-            char ch = (char) _text.read();
-            _peekChars.offer(ch);
-            return ch;
-        } catch (IOException io) {
-            return EMPTY;
-        }
+        return charAt(_position + 1);
     }
 
-    /** Allows for peeking ahead NUM chars in the filestream
+    /** Allows for peeking ahead NUM chars in the text
      * */
     private char peek(int num) {
-        try {
-            char ch = EMPTY;
-            while(num > 0) {
-                if (!_peekChars.isEmpty())
-                    ch = (char) _peekChars.peek();
-                else {
-                    ch = (char) _text.read();
-                    _peekChars.offer(ch);
-                }
-                num--;
-            }
-            return ch;
-        } catch (IOException io) {
-            return EMPTY;
-        }
+        return charAt(_position + num);
+    }
+
+    /** A token of TYPE for the text from START up to the current position */
+    private Token span(Token.TokenType type, int start) {
+        return new Token(type, _text, start, _position);
     }
 
     private Token getString(char type) {
-        StringBuilder string = new StringBuilder();
+        int start = _position + 1;
         advance();
-        while (_current != type) {
-            string.append(_current);
+        while (_current != type && !isEmpty()) {
             advance();
         }
+        Token string = span(Token.TokenType.STR_VAL, start);
         advance();
-        return new Token(string.toString(), Token.TokenType.STR_VAL);
+        return string;
     }
 
     private Token getNumber() {
-        StringBuilder number = new StringBuilder();
+        int start = _position;
         if (_current == '-') {
-            number.append('-');
             advance();
-
         }
         Token.TokenType type = Token.TokenType.INT_VAL;
         while (Character.isDigit(_current) || _current == '.') {
             if (peek() == '.') {
                 type = Token.TokenType.REAL_VAL;
             }
-            number.append(_current);
             advance();
         }
-        return new Token(number.toString(), type);
+        return span(type, start);
     }
 
     private Token getIdentifier() {
-        StringBuilder id = new StringBuilder();
-        TokenTypeTrie.TrieNode node = Token.TokenType.reserved.root();
-
-        /* Keep advancing through the text, adding each character to the
-        * final string, and checking to see if the string is still in the
-        * reserved words trie. If it isn't, only add to the final string.
-        */
+        int start = _position;
         while(Character.isAlphabetic(_current) ||
                 Character.isDigit(_current) ||
                 _current == '_') {
-            if (node != null) {
-                node = node.getChild(_current);
-            }
-            id.append(_current);
             advance();
         }
 
-        /* If the string of characters is still in the reserved words trie
-        * and the final character has a token associated with it, return
-        * that token
-        * */
-        if (node != null && node.tokenType() != null) {
-            return new Token(node.tokenType());
+        /* If the characters are a reserved word, return its token */
+        Token.TokenType reserved = Token.TokenType.reserved.classify(_text, start, _position);
+        if (reserved != null) {
+            return Token.of(reserved);
         }
-        /* Else, return the string as a variable token */
-        return new Token(id.toString(), Token.TokenType.VAR);
+        /* Else, return the characters as a variable token */
+        return _symbols.intern(_text, start, _position);
     }
 
     private void skipWhitespace() {
@@ -150,15 +161,17 @@ public class Lexer {
 
     private void skipComment(char type) {
         if (type == '*') {
-            while (advance() != type && peek() != '/') {}
+            while (advance() != type && peek() != '/' && !isEmpty()) {}
         } else if (type == '/') {
-            while (advance() != '\n') {}
+            while (advance() != '\n' && !isEmpty()) {}
         }
     }
 
 
     public Token next() {
-        if (_current == ' ') {
+        if (isEmpty()) {
+            return Token.of(Token.TokenType.EOF);
+        } else if (_current == ' ') {
             skipWhitespace();
             return next();
         } else if (_current == '"' || _current == '\'') {
@@ -169,21 +182,21 @@ public class Lexer {
             return getIdentifier();
         } else if (_current == '-' && peek() == '[') {
             advance(2);
-            return new Token(Token.TokenType.L_ARR_OPEN);
+            return Token.of(Token.TokenType.L_ARR_OPEN);
         } else if (_current == '{') {
             if (peek() == '>') {
                 if (peek(2) == '<' && peek(3) == '}'){
                     advance(4);
-                    return new Token(Token.TokenType.SET_TYPE);
+                    return Token.of(Token.TokenType.SET_TYPE);
                 }
                 advance(2);
-                return new Token(Token.TokenType.SET_OPEN);
+                return Token.of(Token.TokenType.SET_OPEN);
             } else if (peek() == '}') {
                 advance(2);
-                return new Token(Token.TokenType.MAP_TYPE);
+                return Token.of(Token.TokenType.MAP_TYPE);
             }
             advance();
-            return new Token(Token.TokenType.SCOPE_OPEN);
+            return Token.of(Token.TokenType.SCOPE_OPEN);
         } else if (_current == '/') {
             if (peek() == '*') {
                 skipComment('*');
@@ -193,233 +206,238 @@ public class Lexer {
                 return next();
             } else if (peek() == '=') {
                 advance(2);
-                return new Token(Token.TokenType.DIVIDE_EQ);
+                return Token.of(Token.TokenType.DIVIDE_EQ);
             }
             advance();
-            return new Token(Token.TokenType.DIVIDE);
+            return Token.of(Token.TokenType.DIVIDE);
         } else if (_current == '=') {
             if (peek() == '=') {
                 advance(2);
-                return new Token(Token.TokenType.EQUAL);
+                return Token.of(Token.TokenType.EQUAL);
             } else if (peek() == '>') {
                 advance(2);
-                return new Token(Token.TokenType.DIRECT);
+                return Token.of(Token.TokenType.DIRECT);
             }
             advance();
-            return new Token(Token.TokenType.ASSIGN);
+            return Token.of(Token.TokenType.ASSIGN);
         } else if (_current == ':') {
             if (peek() == '=') {
                 if (peek(2) == '=') {
                     advance(3);
-                    return new Token(Token.TokenType.CAST_EQUAL);
+                    return Token.of(Token.TokenType.CAST_EQUAL);
                 }
                 advance(2);
-                return new Token(Token.TokenType.CAST_ASSIGN);
+                return Token.of(Token.TokenType.CAST_ASSIGN);
             } else if (peek() == '!' && peek(2) == '=') {
                 advance(3);
-                return new Token(Token.TokenType.CAST_NOT_EQUAL);
+                return Token.of(Token.TokenType.CAST_NOT_EQUAL);
             }
             advance();
-            return new Token(Token.TokenType.COLON);
+            return Token.of(Token.TokenType.COLON);
         } else if (_current == '&') {
             if (peek() == '&') {
                 if (peek() == '=') {
                     advance(3);
-                    return new Token(Token.TokenType.L_AND_EQ);
+                    return Token.of(Token.TokenType.L_AND_EQ);
                 }
                 advance(2);
-                return new Token(Token.TokenType.L_AND);
+                return Token.of(Token.TokenType.L_AND);
             } else if (peek() == '=') {
                 advance(2);
-                return new Token(Token.TokenType.B_AND_EQ);
+                return Token.of(Token.TokenType.B_AND_EQ);
             }
             advance();
-            return new Token(Token.TokenType.B_AND);
+            return Token.of(Token.TokenType.B_AND);
         } else if (_current == '|') {
             if (peek() == '|') {
                 if (peek() == '=') {
                     advance(3);
-                    return new Token(Token.TokenType.L_OR_EQ);
+                    return Token.of(Token.TokenType.L_OR_EQ);
                 }
                 advance(2);
-                return new Token(Token.TokenType.L_OR);
+                return Token.of(Token.TokenType.L_OR);
             } else if (peek() == '=') {
                 advance(2);
-                return new Token(Token.TokenType.B_OR_EQ);
+                return Token.of(Token.TokenType.B_OR_EQ);
             } else if (peek() == '>') {
                 advance(2);
-                return new Token(Token.TokenType.PIPELINE);
+                return Token.of(Token.TokenType.PIPELINE);
             }
             advance();
-            return new Token(Token.TokenType.B_OR);
+            return Token.of(Token.TokenType.B_OR);
         } else if (_current == '^') {
             if (peek() == '^') {
                 if (peek() == '=') {
                     advance(3);
-                    return new Token(Token.TokenType.L_XOR_EQ);
+                    return Token.of(Token.TokenType.L_XOR_EQ);
                 }
                 advance(2);
-                return new Token(Token.TokenType.L_XOR);
+                return Token.of(Token.TokenType.L_XOR);
             } else if (peek() == '=') {
                 advance(2);
-                return new Token(Token.TokenType.B_XOR_EQ);
+                return Token.of(Token.TokenType.B_XOR_EQ);
             }
             advance();
-            return new Token(Token.TokenType.B_XOR);
+            return Token.of(Token.TokenType.B_XOR);
         } else if (_current == '!') {
             if (peek() == '=') {
                 advance(2);
-                return new Token(Token.TokenType.NOT_EQUAL);
+                return Token.of(Token.TokenType.NOT_EQUAL);
             }
             advance();
-            return new Token(Token.TokenType.L_NOT);
+            return Token.of(Token.TokenType.L_NOT);
         } else if (_current == '<') {
             if (peek() == '<') {
                 advance(2);
-                return new Token(Token.TokenType.SHIFT_LEFT);
+                return Token.of(Token.TokenType.SHIFT_LEFT);
             } else if (peek() == '=') {
                 advance(2);
-                return new Token(Token.TokenType.LESS_THAN_EQ);
+                return Token.of(Token.TokenType.LESS_THAN_EQ);
             } else if (peek() == '}') {
                 advance(2);
-                return new Token(Token.TokenType.SET_CLOSE);
+                return Token.of(Token.TokenType.SET_CLOSE);
             } else if (peek() == '-') {
                 if (peek(2) == '*') {
                     advance(3);
-                    return new Token(Token.TokenType.DIR_CLOSE);
+                    return Token.of(Token.TokenType.DIR_CLOSE);
                 } else if (peek() == '>') {
                     advance(3);
-                    return new Token(Token.TokenType.DIR_2_EDGE);
+                    return Token.of(Token.TokenType.DIR_2_EDGE);
                 }
             }
             advance();
-            return new Token(Token.TokenType.LESS_THAN);
+            return Token.of(Token.TokenType.LESS_THAN);
         } else if (_current == '*') {
             if (peek() == '*') {
                 advance(2);
-                return new Token(Token.TokenType.EXP);
+                return Token.of(Token.TokenType.EXP);
             } else if (peek() == '-') {
                 if (peek(2) == '>') {
                     if (peek(3) == '*') {
                         advance(4);
-                        return new Token(Token.TokenType.DIR_TYPE);
+                        return Token.of(Token.TokenType.DIR_TYPE);
                     }
                     advance(3);
-                    return new Token(Token.TokenType.DIR_OPEN);
+                    return Token.of(Token.TokenType.DIR_OPEN);
                 } else if (peek(2) == '*') {
                     advance(3);
-                    return new Token(Token.TokenType.UNDIR_TYPE);
+                    return Token.of(Token.TokenType.UNDIR_TYPE);
                 }
                 advance(2);
-                return new Token(Token.TokenType.UNDIR_OPEN);
+                return Token.of(Token.TokenType.UNDIR_OPEN);
             } else if (peek() == '=') {
                 advance(2);
-                return new Token(Token.TokenType.MULTIPLY_EQ);
+                return Token.of(Token.TokenType.MULTIPLY_EQ);
             }
             advance();
-            return new Token(Token.TokenType.MULTIPLY);
+            return Token.of(Token.TokenType.MULTIPLY);
         } else if (_current == '-') {
             if (peek() == '*') {
                 advance(2);
-                return new Token(Token.TokenType.UNDIR_CLOSE);
+                return Token.of(Token.TokenType.UNDIR_CLOSE);
             } else if (peek() == '-') {
                 advance(2);
-                return new Token(Token.TokenType.DECREMENT);
+                return Token.of(Token.TokenType.DECREMENT);
             } else if (peek() == '[') {
                 advance(2);
-                return new Token(Token.TokenType.L_ARR_OPEN);
+                return Token.of(Token.TokenType.L_ARR_OPEN);
             } else if (peek() == '>') {
                 advance(2);
-                return new Token(Token.TokenType.DIR_EDGE);
+                return Token.of(Token.TokenType.DIR_EDGE);
             } else if (peek() == '/') {
                 if (peek() == '=') {
                     advance(3);
-                    return new Token(Token.TokenType.FLOOR_EQ);
+                    return Token.of(Token.TokenType.FLOOR_EQ);
                 }
                 advance(2);
-                return new Token(Token.TokenType.FLOOR);
+                return Token.of(Token.TokenType.FLOOR);
             } else if (peek() == '=') {
                 advance(2);
-                return new Token(Token.TokenType.SUBTRACT_EQ);
+                return Token.of(Token.TokenType.SUBTRACT_EQ);
             } else if (Character.isDigit(peek())) {
                 return getNumber();
             }
             advance();
-            return new Token(Token.TokenType.SUBTRACT);
+            return Token.of(Token.TokenType.SUBTRACT);
         } else if (_current == '[') {
             if (peek() == ']') {
                 advance(2);
-                return new Token(Token.TokenType.ARR_TYPE);
+                return Token.of(Token.TokenType.ARR_TYPE);
             }
             advance();
-            return new Token(Token.TokenType.ARR_OPEN);
+            return Token.of(Token.TokenType.ARR_OPEN);
         } else if (_current == '+') {
             if (peek() == '+') {
                 advance(2);
-                return new Token(Token.TokenType.INCREMENT);
+                return Token.of(Token.TokenType.INCREMENT);
             } else if (peek() == '=') {
                 advance(2);
-                return new Token(Token.TokenType.ADD_EQ);
+                return Token.of(Token.TokenType.ADD_EQ);
             }
             advance();
-            return new Token(Token.TokenType.ADD);
+            return Token.of(Token.TokenType.ADD);
         } else if (_current == '>') {
             if (peek() == '>') {
                 advance(2);
-                 return new Token(Token.TokenType.SHIFT_RIGHT);
+                 return Token.of(Token.TokenType.SHIFT_RIGHT);
             } else if (peek() == '=') {
                 advance(2);
-                return new Token(Token.TokenType.GREATER_THAN_EQ);
+                return Token.of(Token.TokenType.GREATER_THAN_EQ);
             }
             advance();
-            return new Token(Token.TokenType.GREATER_THAN);
+            return Token.of(Token.TokenType.GREATER_THAN);
         } else if (_current == '%') {
             if (peek() == '=') {
                 advance(2);
-                return new Token(Token.TokenType.MOD_EQ);
+                return Token.of(Token.TokenType.MOD_EQ);
             }
             advance();
-            return new Token(Token.TokenType.MOD);
+            return Token.of(Token.TokenType.MOD);
         } else if (_current == '.') {
             if (Character.isDigit(peek())) {
                 return getNumber();
             }
             advance();
-            return new Token(Token.TokenType.PERIOD);
+            return Token.of(Token.TokenType.PERIOD);
         } else if (_current == '?') {
             if (peek() == '?') {
                 advance(2);
-                return new Token(Token.TokenType.NULL_COALESCE);
+                return Token.of(Token.TokenType.NULL_COALESCE);
             } else if (peek() == '.') {
                 advance(2);
-                return new Token(Token.TokenType.OPT_CHAIN);
+                return Token.of(Token.TokenType.OPT_CHAIN);
             }
             advance();
-            return new Token(Token.TokenType.TERNARY);
+            return Token.of(Token.TokenType.TERNARY);
         }
 
 
         switch(_current) {
-            case ',': advance(); return new Token(Token.TokenType.COMMA);
-            case ';': advance(); return new Token(Token.TokenType.EOL);
-            case '`': advance(); return new Token(Token.TokenType.ROUND);
-            case ']': advance(); return new Token(Token.TokenType.ARR_CLOSE);
-            case '}': advance(); return new Token(Token.TokenType.SCOPE_CLOSE);
-            case '(': advance(); return new Token(Token.TokenType.PAR_OPEN);
-            case ')': advance(); return new Token(Token.TokenType.PAR_CLOSE);
-            case '~': advance(); return new Token(Token.TokenType.B_NOT);
-            case '@': advance(); return new Token(Token.TokenType.ANNOTATION);
-            case '#': advance(); return new Token(Token.TokenType.TOTAL_REF);
-            case '&': advance(); return new Token(Token.TokenType.DEREF);
+            case ',': advance(); return Token.of(Token.TokenType.COMMA);
+            case ';': advance(); return Token.of(Token.TokenType.EOL);
+            case '`': advance(); return Token.of(Token.TokenType.ROUND);
+            case ']': advance(); return Token.of(Token.TokenType.ARR_CLOSE);
+            case '}': advance(); return Token.of(Token.TokenType.SCOPE_CLOSE);
+            case '(': advance(); return Token.of(Token.TokenType.PAR_OPEN);
+            case ')': advance(); return Token.of(Token.TokenType.PAR_CLOSE);
+            case '~': advance(); return Token.of(Token.TokenType.B_NOT);
+            case '@': advance(); return Token.of(Token.TokenType.ANNOTATION);
+            case '#': advance(); return Token.of(Token.TokenType.TOTAL_REF);
+            case '&': advance(); return Token.of(Token.TokenType.DEREF);
             default:
                 System.out.println("Error: Syntax");
                 return null;
         }
     }
 
-    private static char EMPTY = ' ';
-    private boolean _EOF;
+    private static final char EMPTY = ' ';
+    /** What the lexer sees past the end of the text */
+    private static final char EOF = '\uFFFF';
+
+    /** The names lexed so far, so each one gets a single shared token */
+    private final SymbolTable _symbols;
+    private final char[] _text;
+    private final int _length;
+    private int _position;
     private char _current;
-    private ArrayDeque _peekChars;
-    private BufferedReader _text;
 }
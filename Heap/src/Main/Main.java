@@ -1,18 +1,64 @@
 package Main;
 
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Main {
+    /**
+     * Runs a Heap program: heap [--vm] [--time] [--no-cache] [--ast] file...
+     * Each file is a module. They are lexed and parsed in parallel, and run in
+     * the order of the names they define and use (see ModuleLoader).
+     * With --vm, the modules are compiled to Bytecode and run on the VM rather
+     * than by walking the AST with the Interpreter.
+     * With --time, how long each phase of startup took is printed at the end.
+     * Parsed modules are cached on disk (see ASTCache), unless --no-cache is given.
+     * With --ast, the AST of each module is written to stdout as JSON instead of
+     * being run.
+     */
     public static void main(String[] args) {
-        Interpreter _interpreter;
+        boolean useVM = false;
+        boolean time = false;
+        boolean cache = true;
+        boolean ast = false;
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--vm")) {
+                useVM = true;
+            } else if (arg.equals("--time")) {
+                time = true;
+            } else if (arg.equals("--no-cache")) {
+                cache = false;
+            } else if (arg.equals("--ast")) {
+                ast = true;
+            } else {
+                files.add(Paths.get(arg));
+            }
+        }
+
+        ModuleLoader loader = new ModuleLoader(cache ? new ASTCache(ASTCache.defaultDirectory()) : null);
         try {
-            BufferedReader _programText = new BufferedReader(new FileReader(args[0]));
-            Interpreter.run(_programText);
-        } catch(FileNotFoundException fnfe) {
+            List<ModuleLoader.Module> modules = loader.load(files);
+            if (ast) {
+                JSONWriter writer = new JSONWriter(System.out);
+                for (ModuleLoader.Module module : modules) {
+                    writer.write(module.ast);
+                    System.out.println();
+                }
+            } else if (useVM) {
+                loader.runOnVM(modules);
+            } else {
+                loader.run(modules);
+            }
+        } catch(IOException io) {
             // Throw File Not Found exception
             return;
         }
+
+        if (time) {
+            System.err.print(loader.report());
+        }
     }
 }
@@ -0,0 +1,244 @@
+package Main;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import Helpers.*;
+import Objects.*;
+
+/**
+ * Loads a program made up of several Heap modules (source files).
+ *
+ * Modules don't depend on each other until they are linked, so each one is
+ * lexed, parsed, optimized and resolved on its own task in a ForkJoinPool. Once all of them
+ * are loaded, they are ordered so that a module comes after every module that
+ * defines a name it uses (modules that depend on each other in a cycle keep the
+ * order they were given in), then run one after another. The top level variables
+ * of each module are linked into the scope shared by all of them once it has run,
+ * so the modules after it can look them up by name.
+ *
+ * Given an ASTCache, a module whose source hasn't changed since it was last
+ * loaded is read from the cache rather than lexed and parsed again.
+ *
+ * How long each phase took is kept, for reporting startup time. The phases each
+ * module goes through on its own (parse, optimize, resolve) are summed over the
+ * modules, so with several threads they can add up to more than the load did.
+ */
+public class ModuleLoader {
+    public ModuleLoader() {
+        this(ForkJoinPool.commonPool(), null);
+    }
+
+    public ModuleLoader(ASTCache cache) {
+        this(ForkJoinPool.commonPool(), cache);
+    }
+
+    /** @param cache Where parsed modules are kept between runs, or null to always parse them */
+    public ModuleLoader(ForkJoinPool pool, ASTCache cache) {
+        _pool = pool;
+        _cache = cache;
+        _timings = new LinkedHashMap<>();
+    }
+
+    /** A source file, lexed, parsed and resolved */
+    public static final class Module {
+        Module(Path path, Parser.Block ast, Set<String> defines, Set<String> uses) {
+            this.path = path;
+            this.ast = ast;
+            this.defines = defines;
+            this.uses = uses;
+        }
+
+        @Override
+        public String toString() {
+            return path.toString();
+        }
+
+        public final Path path;
+        public final Parser.Block ast;
+        /** Names assigned at the top level of the module */
+        public final Set<String> defines;
+        /** Names the module reads but doesn't define */
+        public final Set<String> uses;
+    }
+
+    /**
+     * Lexes, parses and resolves every file in PATHS concurrently
+     * @return The modules, in the order they should be run in
+     */
+    public List<Module> load(List<Path> paths) throws IOException {
+        long start = System.nanoTime();
+        List<ForkJoinTask<Module>> tasks = new ArrayList<>();
+        for (Path path : paths) {
+            tasks.add(_pool.submit(() -> load(path)));
+        }
+
+        List<Module> modules = new ArrayList<>();
+        try {
+            for (ForkJoinTask<Module> task : tasks) {
+                modules.add(task.join());
+            }
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+        time("load", start);
+
+        start = System.nanoTime();
+        modules = link(modules);
+        time("link", start);
+        return modules;
+    }
+
+    /** Runs MODULES in order with the Interpreter, in a scope shared between them */
+    public Scope run(List<Module> modules) {
+        long start = System.nanoTime();
+        Scope scope = new Scope(null, Scope.Enclosing.MODULE);
+        for (Module module : modules) {
+            export(module, Interpreter.doModule(module.ast, scope), scope);
+        }
+        time("run", start);
+        return scope;
+    }
+
+    /** Runs MODULES in order on the VM, in a scope shared between them */
+    public Scope runOnVM(List<Module> modules) {
+        long start = System.nanoTime();
+        List<Bytecode> compiled = new ArrayList<>();
+        for (Module module : modules) {
+            compiled.add(new Compiler().compileModule(module.ast));
+        }
+        time("compile", start);
+
+        start = System.nanoTime();
+        Scope scope = new Scope(null, Scope.Enclosing.MODULE);
+        for (int i = 0; i < modules.size(); i++) {
+            Module module = modules.get(i);
+            export(module, VM.doModule(compiled.get(i), module.ast.frameSize, scope), scope);
+        }
+        time("run", start);
+        return scope;
+    }
+
+    /** Milliseconds taken by each phase run so far, in the order they ran */
+    public synchronized Map<String, Double> timings() {
+        return new LinkedHashMap<>(_timings);
+    }
+
+    /** A line per phase run so far, with how long it took */
+    public synchronized String report() {
+        StringBuilder report = new StringBuilder();
+        _timings.forEach((phase, millis) ->
+                report.append(String.format("%-8s %8.2f ms%n", phase, millis)));
+        return report.toString();
+    }
+
+
+    /** **************************** Phases **************************** **/
+
+    /**
+     * Lexes, parses (or reads from the cache), optimizes and resolves the file at PATH,
+     * timing each phase. Runs on a pool thread. The parser pulls tokens from the lexer
+     * as it goes, so lexing is timed as part of parsing.
+     */
+    private Module load(Path path) throws IOException {
+        long start = System.nanoTime();
+        Parser.Block ast = _cache != null ? _cache.load(path) :
+                (Parser.Block) new Parser(Lexer.of(path)).parse();
+        time("parse", start);
+
+        start = System.nanoTime();
+        new Optimizer().optimize(ast);
+        time("optimize", start);
+
+        start = System.nanoTime();
+        Resolver resolver = new Resolver();
+        resolver.resolve(ast);
+        time("resolve", start);
+
+        Set<String> defines = new HashSet<>();
+        for (Parser.Statement statement : ast.statements) {
+            Parser.Var var = topLevelVar(statement);
+            if (var != null) {
+                defines.add(var.value);
+            }
+        }
+        Set<String> uses = new HashSet<>(resolver.free());
+        uses.removeAll(defines);
+        return new Module(path, ast, defines, uses);
+    }
+
+    /**
+     * Orders MODULES so each comes after the modules defining the names it uses.
+     * Where more than one module defines a name, the first of them is used.
+     */
+    private static List<Module> link(List<Module> modules) {
+        Map<String, Module> definers = new HashMap<>();
+        for (Module module : modules) {
+            for (String name : module.defines) {
+                definers.putIfAbsent(name, module);
+            }
+        }
+
+        List<Module> ordered = new ArrayList<>();
+        Set<Module> visited = new HashSet<>();
+        for (Module module : modules) {
+            visit(module, definers, visited, ordered);
+        }
+        return ordered;
+    }
+
+    /** Adds MODULE to ORDERED after its dependencies, depth first */
+    private static void visit(Module module, Map<String, Module> definers,
+                              Set<Module> visited, List<Module> ordered) {
+        if (!visited.add(module)) {
+            return;
+        }
+        for (String name : module.uses) {
+            Module definer = definers.get(name);
+            if (definer != null && definer != module) {
+                visit(definer, definers, visited, ordered);
+            }
+        }
+        ordered.add(module);
+    }
+
+    /** Copies the top level variables of MODULE out of its FRAME into SCOPE */
+    private static void export(Module module, Frame frame, Scope scope) {
+        for (Parser.Statement statement : module.ast.statements) {
+            Parser.Var var = topLevelVar(statement);
+            if (var != null && var.depth == 0 && var.slot >= 0) {
+                Any value = frame.get(0, var.slot);
+                if (value != null) {
+                    scope.set(new Var(var.value, Any.type), value);
+                }
+            }
+        }
+    }
+
+    /** The variable a top level STATEMENT assigns to, if it assigns to one */
+    private static Parser.Var topLevelVar(Parser.Statement statement) {
+        if (!(statement instanceof Parser.Assignment)) {
+            return null;
+        }
+        Parser.ASTNode var = ((Parser.Assignment) statement).var;
+        if (var instanceof Parser.Declare) {
+            return ((Parser.Declare) var).var;
+        }
+        return var instanceof Parser.Var ? (Parser.Var) var : null;
+    }
+
+    /** Adds the time since START to PHASE. Called from the pool threads loading modules, hence synchronized. */
+    private synchronized void time(String phase, long start) {
+        _timings.merge(phase, (System.nanoTime() - start) / 1e6, Double::sum);
+    }
+
+    private final ForkJoinPool _pool;
+    private final ASTCache _cache;
+    private final Map<String, Double> _timings;
+}
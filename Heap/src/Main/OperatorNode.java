@@ -0,0 +1,228 @@
+package Main;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import Helpers.*;
+import Objects.*;
+
+/**
+ * The executable part of an operator in the AST. Every Parser.UnaryOp and
+ * Parser.BinaryOp starts out with an Uninitialized node, which looks at the
+ * operands it is first run with and rewrites itself into a node specialized
+ * for them (Int with Int, Str with Str, HList with HList). A specialized node
+ * calls the Java method for the operation directly, skipping the scope lookup
+ * of the method's Func and the boxing of arguments into an array.
+ *
+ * Each specialized node guards on the types of its operands. If an operation
+ * is ever run with operands of another type, it deoptimizes for good into a
+ * Generic node, which looks the method up on the left operand through an
+ * InlineCache.
+ */
+abstract class OperatorNode {
+
+    OperatorNode(Var method) {
+        this.method = method;
+    }
+
+    /** A fresh node for an operator that calls METHOD */
+    static OperatorNode create(Var method) {
+        return new Uninitialized(method);
+    }
+
+    /**
+     * Runs the operation
+     * @param site The operator this node belongs to, which it may rewrite
+     * @param scope The scope the operation is run in
+     * @param left The left (or only) operand
+     * @param right The right operand, or null if the operator is unary
+     * @return The result of the operation
+     */
+    abstract Any execute(Parser.Op site, Scope scope, Any left, Any right);
+
+    /** Replaces this node at SITE with NODE, and runs NODE instead */
+    Any rewrite(OperatorNode node, Parser.Op site, Scope scope, Any left, Any right) {
+        site.node = node;
+        return node.execute(site, scope, left, right);
+    }
+
+    /** Gives up on specializing SITE */
+    Any deoptimize(Parser.Op site, Scope scope, Any left, Any right) {
+        return rewrite(new Generic(method), site, scope, left, right);
+    }
+
+    /** The name of the method the operator calls */
+    final Var method;
+
+
+    /** **************************** Nodes **************************** **/
+
+    /** Not yet run, so it doesn't know what to specialize to */
+    private static final class Uninitialized extends OperatorNode {
+        Uninitialized(Var method) {
+            super(method);
+        }
+
+        @Override
+        Any execute(Parser.Op site, Scope scope, Any left, Any right) {
+            return rewrite(specialize(left, right), site, scope, left, right);
+        }
+
+        private OperatorNode specialize(Any left, Any right) {
+            if (right == null) {
+                if (left instanceof Int && _intUnary.containsKey(method)) {
+                    return new IntUnary(method, _intUnary.get(method));
+                }
+            } else if (left instanceof Int && right instanceof Int && _intBinary.containsKey(method)) {
+                return new IntBinary(method, _intBinary.get(method));
+            } else if (left instanceof Str && right instanceof Str && _strBinary.containsKey(method)) {
+                return new StrBinary(method, _strBinary.get(method));
+            } else if (left instanceof HList && right instanceof HList && _listBinary.containsKey(method)) {
+                return new ListBinary(method, _listBinary.get(method));
+            }
+            return new Generic(method);
+        }
+    }
+
+    /** An operation on a single Int */
+    private static final class IntUnary extends OperatorNode {
+        IntUnary(Var method, Function<Int, Any> operation) {
+            super(method);
+            _operation = operation;
+        }
+
+        @Override
+        Any execute(Parser.Op site, Scope scope, Any left, Any right) {
+            if (left instanceof Int && right == null) {
+                return _operation.apply((Int) left);
+            }
+            return deoptimize(site, scope, left, right);
+        }
+
+        private final Function<Int, Any> _operation;
+    }
+
+    /** An operation between two Ints */
+    private static final class IntBinary extends OperatorNode {
+        IntBinary(Var method, BiFunction<Int, Int, Any> operation) {
+            super(method);
+            _operation = operation;
+        }
+
+        @Override
+        Any execute(Parser.Op site, Scope scope, Any left, Any right) {
+            if (left instanceof Int && right instanceof Int) {
+                return _operation.apply((Int) left, (Int) right);
+            }
+            return deoptimize(site, scope, left, right);
+        }
+
+        private final BiFunction<Int, Int, Any> _operation;
+    }
+
+    /** An operation between two Strs */
+    private static final class StrBinary extends OperatorNode {
+        StrBinary(Var method, BiFunction<Str, Str, Any> operation) {
+            super(method);
+            _operation = operation;
+        }
+
+        @Override
+        Any execute(Parser.Op site, Scope scope, Any left, Any right) {
+            if (left instanceof Str && right instanceof Str) {
+                return _operation.apply((Str) left, (Str) right);
+            }
+            return deoptimize(site, scope, left, right);
+        }
+
+        private final BiFunction<Str, Str, Any> _operation;
+    }
+
+    /** An operation between two HLists */
+    private static final class ListBinary extends OperatorNode {
+        ListBinary(Var method, BiFunction<HList, HList, Any> operation) {
+            super(method);
+            _operation = operation;
+        }
+
+        @Override
+        Any execute(Parser.Op site, Scope scope, Any left, Any right) {
+            if (left instanceof HList && right instanceof HList) {
+                return _operation.apply((HList) left, (HList) right);
+            }
+            return deoptimize(site, scope, left, right);
+        }
+
+        private final BiFunction<HList, HList, Any> _operation;
+    }
+
+    /** Calls the operator's method on the left operand, caching it by the operand's Type */
+    private static final class Generic extends OperatorNode {
+        Generic(Var method) {
+            super(method);
+            _cache = new InlineCache(method);
+        }
+
+        @Override
+        Any execute(Parser.Op site, Scope scope, Any left, Any right) {
+            if (right == null) {
+                return _cache.call(left, scope, left);
+            }
+            return _cache.call(left, scope, left, right);
+        }
+
+        private final InlineCache _cache;
+    }
+
+
+    /** **************************** Specializations **************************** **/
+
+    private static final Map<Var, Function<Int, Any>> _intUnary = new HashMap<>() {{
+        put(Var.__round__, Int::round);
+        put(Var.__bitnot__, Int::bitNot);
+        put(Var.__incr__, Int::increment);
+        put(Var.__decr__, Int::decrement);
+        put(Var.__neg__, Int::negate);
+    }};
+
+    private static final Map<Var, BiFunction<Int, Int, Any>> _intBinary = new HashMap<>() {{
+        put(Var.__add__, Int::add);
+        put(Var.__sub__, Int::subtract);
+        put(Var.__mul__, Int::multiply);
+        put(Var.__div__, Int::divide);
+        put(Var.__mod__, Int::mod);
+        put(Var.__pow__, Int::power);
+        put(Var.__floordiv__, Int::floorDivide);
+        put(Var.__round__, Int::round);
+        put(Var.__bitand__, Int::bitAnd);
+        put(Var.__bitor__, Int::bitOr);
+        put(Var.__bitxor__, Int::bitXor);
+        put(Var.__rshift__, Int::shiftRight);
+        put(Var.__lshift__, Int::shiftLeft);
+        put(Var.__less__, Int::lessThan);
+        put(Var.__greater, Int::greaterThan);
+        put(Var.__lesseq__, Int::lessThanOrEqualTo);
+        put(Var.__greatereq__, Int::greaterThanOrEqualTo);
+        put(Var.__eq__, Int::equal);
+    }};
+
+    private static final Map<Var, BiFunction<Str, Str, Any>> _strBinary = new HashMap<>() {{
+        put(Var.__add__, Str::add);
+        put(Var.__less__, Str::lessThan);
+        put(Var.__greater, Str::greaterThan);
+        put(Var.__lesseq__, Str::lessThanOrEqualTo);
+        put(Var.__greatereq__, Str::greaterThanOrEqualTo);
+        put(Var.__eq__, Str::equal);
+    }};
+
+    private static final Map<Var, BiFunction<HList, HList, Any>> _listBinary = new HashMap<>() {{
+        put(Var.__add__, HList::add);
+        put(Var.__less__, HList::lessThan);
+        put(Var.__greater, HList::greaterThan);
+        put(Var.__lesseq__, HList::lessThanOrEqualTo);
+        put(Var.__greatereq__, HList::greaterThanOrEqualTo);
+        put(Var.__eq__, HList::equal);
+    }};
+}
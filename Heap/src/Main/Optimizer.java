@@ -0,0 +1,1175 @@
+package Main;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import Helpers.*;
+import Objects.*;
+
+/**
+ * A pass over the AST, run after parsing and before the Resolver, that does at
+ * load time the work that would come out the same on every run:
+ *
+ * Constant folding - a UnaryOp or BinaryOp whose operands are all Int, Real,
+ * String or Boolean literals (once folded themselves) is run once, and replaced
+ * by a literal of its result. The operation is run by the Interpreter, so it
+ * means exactly what it would have meant at runtime; an operation that fails
+ * (1 / 0), or gives back something that isn't one of those literals, is left
+ * where it is to fail or run as it would have.
+ *
+ * Dead branch elimination - an IfBlock whose condition folds to a literal that
+ * is false is dropped, and one whose condition is true becomes the If's else,
+ * dropping everything after it. An If left with nothing to run is removed from
+ * its Block. Switch cases are checked in order and can fall through, so only the
+ * leading cases that can't equal a literal switch expression are dropped.
+ *
+ * Loop invariant code motion - an operation or call in a Loop whose value can't
+ * change from one iteration to the next is worked out once, by an init clause
+ * added to the loop, and read from the variable it is put in on every iteration.
+ * Only what is run on every iteration is moved: the break and loop clauses, and
+ * the statements directly in the loop's block (not those in an If inside it) up
+ * to the first that can break, continue or return. Operators are only known not
+ * to change anything when their operands are ints, reals, strings or bools, so
+ * an operation is only moved if its operands always are (see Kind), and a loop
+ * with any other operation in it moves nothing. Likewise a call can only be moved
+ * if it is to a func declared @pure, or to one of the built-in methods that never
+ * change anything (PURE_METHODS) on one of those values; a loop making any other
+ * call moves nothing, as that call could change any variable. Loops are moved out
+ * of once the whole program has been folded, as that's when every value given to
+ * a name is known. A moved expression that could raise an error (see canTrap) is
+ * only run if the loop's break clauses let it go round at least once.
+ *
+ * Every visit gives back the node to put in the visited node's place, which is
+ * the node itself unless it was folded away.
+ */
+public class Optimizer implements ASTVisitor<Parser.ASTNode> {
+
+    public Optimizer() {
+        _loops = new ArrayDeque<>();
+        _pure = new HashSet<>();
+        _finished = new ArrayList<>();
+        _escaping = Collections.newSetFromMap(new IdentityHashMap<>());
+        _assigned = new HashMap<>();
+        _untyped = new HashSet<>();
+        _kinds = new HashMap<>();
+    }
+
+    /** Entry method into the Optimizer - optimizes the program's outermost Block in place */
+    public void optimize(Parser.Block block) {
+        block.accept(this);
+        inferKinds();
+        /* Inner loops finish first, so what they move out can be moved further by the loops around them */
+        for (LoopInfo info : _finished) {
+            if (!isImpure(info)) {
+                hoist(info.loop, info);
+            }
+        }
+        _finished.clear();
+    }
+
+    /** The types of literal that operations are folded over */
+    private static final EnumSet<Token.TokenType> CONSTANTS = EnumSet.of(
+            Token.TokenType.INT_VAL, Token.TokenType.REAL_VAL, Token.TokenType.STR_VAL,
+            Token.TokenType.TRUE, Token.TokenType.FALSE);
+
+    /** Whether EXPRESSION is a literal an operation can be folded over */
+    private static boolean isConstant(Parser.Expression expression) {
+        return expression instanceof Parser.Literal && CONSTANTS.contains(expression.token.type());
+    }
+
+    /**
+     * Runs OP, whose operands are all constants, and gives back its result as a
+     * literal. Returns OP itself if it can't be folded.
+     */
+    private static Parser.Expression evaluate(Parser.Op op) {
+        Any value;
+        try {
+            value = Interpreter.doExpression(op, new Scope(null, Scope.Enclosing.MODULE));
+        } catch (RuntimeException e) {
+            /* Leave it to fail at runtime, where it would have */
+            return op;
+        } finally {
+            op.node = null;
+        }
+
+        Parser.Expression literal = literal(value);
+        return literal != null ? literal : op;
+    }
+
+    /** The literal for VALUE, or null if it has none */
+    private static Parser.Expression literal(Any value) {
+        if (value instanceof Int) {
+            return new Parser.IntLiteral(new Token(((Int) value).string().value(), Token.TokenType.INT_VAL));
+        } else if (value instanceof Real) {
+            return new Parser.RealLiteral(new Token(Double.toString(((Real) value).value()), Token.TokenType.REAL_VAL));
+        } else if (value instanceof Str) {
+            return new Parser.StringLiteral(new Token(((Str) value).value(), Token.TokenType.STR_VAL));
+        } else if (value instanceof Bool) {
+            return new Parser.BooleanLiteral(Token.of(((Bool) value).value() ? Token.TokenType.TRUE : Token.TokenType.FALSE));
+        }
+        return null;
+    }
+
+    /**
+     * Whether CONDITION is always true or always false
+     * @return The truth of CONDITION, or null if it isn't known until runtime
+     */
+    private static Boolean truth(Parser.Expression condition) {
+        if (!isConstant(condition)) {
+            return null;
+        }
+        try {
+            return Bool.isTrue(Interpreter.doExpression(condition, null));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** Optimizes NODE, if there is one */
+    private Parser.ASTNode fold(Parser.ASTNode node) {
+        return node == null ? null : node.accept(this);
+    }
+
+    private Parser.Expression fold(Parser.Expression expression) {
+        return (Parser.Expression) fold((Parser.ASTNode) expression);
+    }
+
+    /** Optimizes each of NODES, replacing those that were folded into something else */
+    @SuppressWarnings("unchecked")
+    private <T extends Parser.ASTNode> void fold(Parser.ASTNode owner, List<T> nodes) {
+        if (nodes == null) {
+            return;
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            T node = nodes.get(i);
+            T folded = (T) fold(node);
+            if (folded != node) {
+                nodes.set(i, folded);
+                owner.setParent(folded);
+            }
+        }
+    }
+
+
+    /** **************************** Statements **************************** **/
+
+    @Override
+    public Parser.ASTNode visitBlock(Parser.Block block) {
+        List<Parser.Statement> statements = new ArrayList<>(block.statements.size());
+        for (Parser.Statement statement : block.statements) {
+            int escapes = _escapes;
+            Parser.Statement folded = (Parser.Statement) fold(statement);
+            if (folded instanceof Parser.NoOp) {
+                continue;
+            }
+            if (_escapes != escapes) {
+                _escaping.add(folded);
+            }
+            if (folded != statement) {
+                block.setParent(folded);
+            }
+            statements.add(folded);
+        }
+        block.statements = statements;
+        return block;
+    }
+
+    @Override
+    public Parser.ASTNode visitAssignment(Parser.Assignment assignment) {
+        written(assignment.var);
+        Parser.Var defined = target(assignment.var);
+        if (defined != null) {
+            assigned(defined, assignment.value);
+            if (isPure(assignment.var)) {
+                _pure.add(defined.value);
+            } else {
+                _pure.remove(defined.value);
+            }
+        }
+
+        Parser.Expression value = fold(assignment.value);
+        if (value != assignment.value) {
+            assignment.value = value;
+            assignment.setParent(value);
+        }
+        /* An index being assigned to may have one to fold */
+        Parser.ASTNode var = fold(assignment.var);
+        if (var != assignment.var) {
+            assignment.var = var;
+            assignment.setParent(var);
+        }
+        return assignment;
+    }
+
+    @Override
+    public Parser.ASTNode visitReturn(Parser.Return aReturn) {
+        _escapes++;
+        Parser.Expression expression = fold(aReturn.expression);
+        if (expression != aReturn.expression) {
+            aReturn.expression = expression;
+            aReturn.setParent(expression);
+        }
+        return aReturn;
+    }
+
+    @Override
+    public Parser.ASTNode visitDefer(Parser.Defer defer) {
+        Parser.Expression expression = fold(defer.expression);
+        if (expression != defer.expression) {
+            defer.expression = expression;
+            defer.setParent(expression);
+        }
+        return defer;
+    }
+
+    @Override
+    public Parser.ASTNode visitParamDefs(Parser.ParamDefs paramDefs) {
+        fold(paramDefs, paramDefs.parameters);
+        return paramDefs;
+    }
+
+    @Override
+    public Parser.ASTNode visitParams(Parser.Params params) {
+        fold(params, params.parameters);
+        return params;
+    }
+
+    /* Nothing in these can be folded */
+
+    @Override
+    public Parser.ASTNode visitNoOp(Parser.NoOp noOp) { return noOp; }
+
+    @Override
+    public Parser.ASTNode visitContinue(Parser.Continue aContinue) {
+        _escapes++;
+        return aContinue;
+    }
+
+    @Override
+    public Parser.ASTNode visitBreak(Parser.Break aBreak) {
+        _escapes++;
+        return aBreak;
+    }
+
+    @Override
+    public Parser.ASTNode visitPass(Parser.Pass pass) { return pass; }
+
+    @Override
+    public Parser.ASTNode visitDeclare(Parser.Declare declare) { return declare; }
+
+    @Override
+    public Parser.ASTNode visitVar(Parser.Var var) { return var; }
+
+    @Override
+    public Parser.ASTNode visitType(Parser.Type type) { return type; }
+
+    @Override
+    public Parser.ASTNode visitContainerType(Parser.ContainerType containerType) { return containerType; }
+
+    @Override
+    public Parser.ASTNode visitModifier(Parser.Modifier modifier) { return modifier; }
+
+
+    /** **************************** Constructs **************************** **/
+
+    @Override
+    public Parser.ASTNode visitFunc(Parser.Func func) {
+        /* A parameter's default is only what it's given when the caller gives nothing */
+        for (Parser.Assignment parameter : func.paramDefs.parameters) {
+            Parser.Var var = target(parameter.var);
+            if (var != null) {
+                _untyped.add(var.value);
+            }
+        }
+        fold(func.paramDefs);
+        Parser.ASTNode operations = fold(func.operations);
+        if (operations != func.operations) {
+            func.operations = operations;
+            func.setParent(operations);
+        }
+        return func;
+    }
+
+    @Override
+    public Parser.ASTNode visitClass(Parser.Class aClass) {
+        fold(aClass.block);
+        return aClass;
+    }
+
+    @Override
+    public Parser.ASTNode visitStruct(Parser.Struct struct) {
+        return visitClass(struct);
+    }
+
+    @Override
+    public Parser.ASTNode visitInterface(Parser.Interface anInterface) {
+        fold(anInterface.block);
+        return anInterface;
+    }
+
+    @Override
+    public Parser.ASTNode visitEnum(Parser.Enum anEnum) {
+        fold(anEnum, anEnum.instances);
+        fold(anEnum.block);
+        return anEnum;
+    }
+
+
+    /** **************************** Directs **************************** **/
+
+    @Override
+    public Parser.ASTNode visitLoop(Parser.Loop loop) {
+        LoopInfo info = new LoopInfo(loop, List.copyOf(_loops));
+        _loops.push(info);
+        fold(loop, loop.initClauses);
+        fold(loop, loop.breakClauses);
+        fold(loop, loop.loopClauses);
+        int escapes = _escapes;
+        loop.block = foldBody(loop, loop.block);
+        info.escapes = _escapes != escapes;
+        _loops.pop();
+
+        _finished.add(info);
+        loop.elseBlock = foldBody(loop, loop.elseBlock);
+        return loop;
+    }
+
+    @Override
+    public Parser.ASTNode visitIf(Parser.If anIf) {
+        List<Parser.IfBlock> live = new ArrayList<>(anIf.ifblocks.size());
+        Parser.DirectBody elseBlock = anIf.elseBlock;
+        for (Parser.IfBlock ifBlock : anIf.ifblocks) {
+            fold(ifBlock);
+            Boolean known = truth(ifBlock.condition);
+            if (known == null) {
+                live.add(ifBlock);
+            } else if (known) {
+                /* Nothing after it can run, and it runs whenever the ones before it don't */
+                elseBlock = ifBlock.block;
+                break;
+            }
+        }
+        if (elseBlock == anIf.elseBlock) {
+            elseBlock = (Parser.DirectBody) fold((Parser.ASTNode) elseBlock);
+        }
+
+        if (live.isEmpty() && (elseBlock == null || elseBlock instanceof Parser.NoOp)) {
+            return Parser.noop;
+        }
+        anIf.ifblocks = live;
+        anIf.elseBlock = elseBlock;
+        if (elseBlock != null) {
+            anIf.setParent((Parser.ASTNode) elseBlock);
+        }
+        return anIf;
+    }
+
+    @Override
+    public Parser.ASTNode visitIfBlock(Parser.IfBlock ifBlock) {
+        Parser.Expression condition = fold(ifBlock.condition);
+        if (condition != ifBlock.condition) {
+            ifBlock.condition = condition;
+            ifBlock.setParent(condition);
+        }
+        ifBlock.block = foldBody(ifBlock, ifBlock.block);
+        return ifBlock;
+    }
+
+    @Override
+    public Parser.ASTNode visitSwitch(Parser.Switch aSwitch) {
+        Parser.Expression expression = fold(aSwitch.expression);
+        if (expression != aSwitch.expression) {
+            aSwitch.expression = expression;
+            aSwitch.setParent(expression);
+        }
+        fold(aSwitch, aSwitch.cases);
+        aSwitch.defaultBlock = foldBody(aSwitch, aSwitch.defaultBlock);
+        aSwitch.elseBlock = foldBody(aSwitch, aSwitch.elseBlock);
+
+        /* A case that can't match can still be fallen into from the one before it */
+        int dead = 0;
+        while (dead < aSwitch.cases.size() && !canMatch(expression, aSwitch.cases.get(dead).expression)) {
+            dead++;
+        }
+        if (dead > 0) {
+            aSwitch.cases = new ArrayList<>(aSwitch.cases.subList(dead, aSwitch.cases.size()));
+        }
+        return aSwitch;
+    }
+
+    /** Whether a switch on EXPRESSION could take the case for CASE */
+    private static boolean canMatch(Parser.Expression expression, Parser.Expression aCase) {
+        if (!isConstant(expression) || !isConstant(aCase)) {
+            return true;
+        }
+        Boolean equal = truth(evaluate(new Parser.BinaryOp(expression, aCase, Parser.values.get("EQUAL"))));
+        return equal == null || equal;
+    }
+
+    @Override
+    public Parser.ASTNode visitCase(Parser.Case aCase) {
+        Parser.Expression expression = fold(aCase.expression);
+        if (expression != aCase.expression) {
+            aCase.expression = expression;
+            aCase.setParent(expression);
+        }
+        aCase.block = foldBody(aCase, aCase.block);
+        return aCase;
+    }
+
+    @Override
+    public Parser.ASTNode visitTry(Parser.Try aTry) {
+        aTry.block = foldBody(aTry, aTry.block);
+        fold(aTry, aTry.catchBlocks);
+        aTry.elseBlock = foldBody(aTry, aTry.elseBlock);
+        return aTry;
+    }
+
+    @Override
+    public Parser.ASTNode visitCatch(Parser.Catch aCatch) {
+        written(aCatch.exception);
+        Parser.Var exception = target(aCatch.exception);
+        if (exception != null) {
+            _untyped.add(exception.value);
+        }
+        aCatch.block = foldBody(aCatch, aCatch.block);
+        return aCatch;
+    }
+
+    @Override
+    public Parser.ASTNode visitCall(Parser.Call call) {
+        if (!isPureCall(call)) {
+            _loops.forEach(loop -> loop.impure = true);
+        } else if (call.value instanceof Parser.Get) {
+            /* Whether it's on a value it can't change isn't known until every value is */
+            _loops.forEach(loop -> loop.methods.add(call));
+        }
+        Parser.Expression value = fold(call.value);
+        if (value != call.value) {
+            call.value = value;
+            call.setParent(value);
+        }
+        fold(call.params);
+        return call;
+    }
+
+    /** Optimizes BODY, which belongs to OWNER, and gives back what should replace it */
+    private Parser.DirectBody foldBody(Parser.ASTNode owner, Parser.DirectBody body) {
+        Parser.DirectBody folded = (Parser.DirectBody) fold((Parser.ASTNode) body);
+        if (folded != body) {
+            owner.setParent((Parser.ASTNode) folded);
+        }
+        return folded;
+    }
+
+
+    /** **************************** Containers **************************** **/
+
+    @Override
+    public Parser.ASTNode visitArrayList(Parser.HArrayList list) {
+        fold(list, list.items);
+        return list;
+    }
+
+    @Override
+    public Parser.ASTNode visitLinkedList(Parser.HLinkedList list) {
+        fold(list, list.items);
+        return list;
+    }
+
+    @Override
+    public Parser.ASTNode visitSet(Parser.HSet set) {
+        fold(set, set.items);
+        return set;
+    }
+
+    /** Keys are left alone, as folding one could merge it with another */
+    @Override
+    public Parser.ASTNode visitValueMap(Parser.HValueMap map) {
+        foldValues(map, map.items);
+        return map;
+    }
+
+    @Override
+    public Parser.ASTNode visitObjectMap(Parser.HObjectMap map) {
+        foldValues(map, map.items);
+        return map;
+    }
+
+    private <K> void foldValues(Parser.ASTNode owner, Map<K, Parser.Expression> items) {
+        for (Map.Entry<K, Parser.Expression> item : items.entrySet()) {
+            Parser.Expression folded = fold(item.getValue());
+            if (folded != item.getValue()) {
+                item.setValue(folded);
+                owner.setParent(folded);
+            }
+        }
+    }
+
+    @Override
+    public Parser.ASTNode visitDirectedGraph(Parser.HDirectedGraph graph) {
+        fold(graph, graph.nodes);
+        fold(graph, graph.edges);
+        return graph;
+    }
+
+    @Override
+    public Parser.ASTNode visitUndirectedGraph(Parser.HUndirectedGraph graph) {
+        fold(graph, graph.nodes);
+        fold(graph, graph.edges);
+        return graph;
+    }
+
+    @Override
+    public Parser.ASTNode visitEdge(Parser.HGraph.HEdge edge) {
+        Parser.ASTNode first = fold(edge.first), second = fold(edge.second);
+        if (first != edge.first) {
+            edge.first = first;
+            edge.setParent(first);
+        }
+        if (second != edge.second) {
+            edge.second = second;
+            edge.setParent(second);
+        }
+        return edge;
+    }
+
+    @Override
+    public Parser.ASTNode visitDirectedEdge(Parser.HDirectedGraph.HDirectedEdge edge) {
+        return visitEdge(edge);
+    }
+
+
+    /** **************************** Operations **************************** **/
+
+    @Override
+    public Parser.ASTNode visitUnaryOp(Parser.UnaryOp op) {
+        if (op.token.type() == Token.TokenType.INCREMENT || op.token.type() == Token.TokenType.DECREMENT) {
+            written(op.child);
+            assigned(target(op.child), op);
+        }
+        operated(op);
+        Parser.Expression child = fold(op.child);
+        if (child != op.child) {
+            op.setChild(child);
+        }
+        return isConstant(op.child) ? evaluate(op) : op;
+    }
+
+    @Override
+    public Parser.ASTNode visitBinaryOp(Parser.BinaryOp op) {
+        operated(op);
+        foldOperands(op);
+        if (op.token.isAssignment()) {
+            written(op.left);
+            assigned(target(op.left), op);
+            return op;
+        }
+        if (!isConstant(op.left) || !isConstant(op.right)) {
+            return op;
+        }
+        return evaluate(op);
+    }
+
+    private void foldOperands(Parser.BinaryOp op) {
+        Parser.Expression left = fold(op.left), right = fold(op.right);
+        if (left != op.left) {
+            op.setLeft(left);
+        }
+        if (right != op.right) {
+            op.setRight(right);
+        }
+    }
+
+    /** The variable being set is left alone */
+    @Override
+    public Parser.ASTNode visitSetOp(Parser.SetOp op) {
+        written(op.left);
+        operated(op);
+        Parser.Var var = target(op.left);
+        if (var != null) {
+            _untyped.add(var.value);
+        }
+        Parser.Expression right = fold(op.right);
+        if (right != op.right) {
+            op.setRight(right);
+        }
+        return op;
+    }
+
+    @Override
+    public Parser.ASTNode visitIndex(Parser.Index op) {
+        operated(op);
+        foldOperands(op);
+        return op;
+    }
+
+    /** The property is a name on the object, not an expression */
+    @Override
+    public Parser.ASTNode visitGet(Parser.Get op) {
+        Parser.Expression var = fold(op.var());
+        if (var != op.var()) {
+            op.setLeft(var);
+        }
+        return op;
+    }
+
+    @Override
+    public Parser.ASTNode visitTernaryOp(Parser.TernaryOp op) {
+        Parser.Expression left = fold(op.left), center = fold(op.center), right = fold(op.right);
+        if (left != op.left) {
+            op.setLeft(left);
+        }
+        if (center != op.center) {
+            op.setCenter(center);
+        }
+        if (right != op.right) {
+            op.setRight(right);
+        }
+        return op;
+    }
+
+    @Override
+    public Parser.ASTNode visitArrayListRange(Parser.ArrayListRange range) {
+        return visitTernaryOp(range);
+    }
+
+    @Override
+    public Parser.ASTNode visitLinkedListRange(Parser.LinkedListRange range) {
+        return visitTernaryOp(range);
+    }
+
+    @Override
+    public Parser.ASTNode visitQuaternaryOp(Parser.QuaternaryOp op) {
+        Parser.Expression left = fold(op.left), centerLeft = fold(op.centerLeft),
+                centerRight = fold(op.centerRight), right = fold(op.right);
+        if (left != op.left) {
+            op.setLeft(left);
+        }
+        if (centerLeft != op.centerLeft) {
+            op.setCenterLeft(centerLeft);
+        }
+        if (centerRight != op.centerRight) {
+            op.setCenterRight(centerRight);
+        }
+        if (right != op.right) {
+            op.setRight(right);
+        }
+        return op;
+    }
+
+    @Override
+    public Parser.ASTNode visitSlice(Parser.Slice slice) {
+        return visitQuaternaryOp(slice);
+    }
+
+
+    /** **************************** Loops **************************** **/
+
+    /** Methods of the built-in Objects that only look at the object they are called on */
+    private static final Set<String> PURE_METHODS = Set.of(
+            Var.__size__.name(), Var.__str__.name(), Var.__hash__.name(), Var.__bool__.name(),
+            Var.__eq__.name(), Var.__less__.name(), Var.__greater.name(), Var.__lesseq__.name(),
+            Var.__greatereq__.name(), Var.digest.name());
+
+    /** What each of PURE_METHODS gives back */
+    private static final Map<String, Kind> METHOD_KINDS = Map.of(
+            Var.__size__.name(), Kind.INT, Var.__str__.name(), Kind.STR, Var.__hash__.name(), Kind.INT,
+            Var.__bool__.name(), Kind.BOOL, Var.__eq__.name(), Kind.BOOL, Var.__less__.name(), Kind.BOOL,
+            Var.__greater.name(), Kind.BOOL, Var.__lesseq__.name(), Kind.BOOL,
+            Var.__greatereq__.name(), Kind.BOOL);
+
+    /** Operators that give a bool whatever their operands are */
+    private static final EnumSet<Token.TokenType> PREDICATES = EnumSet.of(
+            Token.TokenType.EQUAL, Token.TokenType.NOT_EQUAL, Token.TokenType.LESS_THAN,
+            Token.TokenType.GREATER_THAN, Token.TokenType.LESS_THAN_EQ, Token.TokenType.GREATER_THAN_EQ,
+            Token.TokenType.L_AND, Token.TokenType.L_OR, Token.TokenType.L_NOT, Token.TokenType.L_XOR,
+            Token.TokenType.L_AND_EQ, Token.TokenType.L_OR_EQ, Token.TokenType.L_XOR_EQ);
+
+    /** Operators that can raise an error on ints (dividing by zero, or a negative power) */
+    private static final EnumSet<Token.TokenType> TRAPS = EnumSet.of(
+            Token.TokenType.DIVIDE, Token.TokenType.MOD, Token.TokenType.FLOOR, Token.TokenType.EXP,
+            Token.TokenType.DIVIDE_EQ, Token.TokenType.MOD_EQ, Token.TokenType.FLOOR_EQ, Token.TokenType.EXP_EQ);
+
+    /**
+     * The built-in value a name or expression always has, if it's one of those whose
+     * operators and PURE_METHODS can't change anything. PENDING is a name whose
+     * values haven't all been looked at yet, which takes the kind of the others.
+     */
+    private enum Kind { INT, REAL, STR, BOOL, PENDING }
+
+    /** What a Loop being optimized does, gathered while its parts are visited */
+    private static final class LoopInfo {
+        LoopInfo(Parser.Loop loop, List<LoopInfo> outer) {
+            this.loop = loop;
+            this.outer = outer;
+        }
+
+        final Parser.Loop loop;
+        /** The loops around this one, innermost first */
+        final List<LoopInfo> outer;
+        /** Names assigned to anywhere in the loop */
+        final Set<String> written = new HashSet<>();
+        /** Every operation in the loop, which it's impure unless all of them are on built-in values */
+        final List<Parser.Op> ops = new ArrayList<>();
+        /** Calls in the loop to PURE_METHODS, which are only pure on built-in values */
+        final List<Parser.Call> methods = new ArrayList<>();
+        /** Whether the loop changes what is inside an object, by assigning to an index or property of it */
+        boolean mutates;
+        /** Whether the loop calls anything that isn't known to be pure */
+        boolean impure;
+        /** Whether anything in the loop's block can break, continue or return */
+        boolean escapes;
+    }
+
+    /** Notes VALUE as one of the values given to VAR, if it is a variable */
+    private void assigned(Parser.Var var, Parser.Expression value) {
+        if (var != null) {
+            _assigned.computeIfAbsent(var.value, name -> new ArrayList<>()).add(value);
+        }
+    }
+
+    /** Notes, for every loop OP is in, that it is run */
+    private void operated(Parser.Op op) {
+        for (LoopInfo loop : _loops) {
+            loop.ops.add(op);
+        }
+    }
+
+    /**
+     * Works out the Kind of every name that is only ever given values of one Kind,
+     * starting from every name being PENDING and narrowing them until none change
+     */
+    private void inferKinds() {
+        for (String name : _assigned.keySet()) {
+            if (!_untyped.contains(name)) {
+                _kinds.put(name, Kind.PENDING);
+            }
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<String, List<Parser.Expression>> values : _assigned.entrySet()) {
+                Kind current = _kinds.get(values.getKey());
+                if (current == null) {
+                    continue;
+                }
+                Kind kind = Kind.PENDING;
+                for (Parser.Expression value : values.getValue()) {
+                    kind = meet(kind, kind(value));
+                }
+                if (kind != current) {
+                    changed = true;
+                    if (kind == null) {
+                        _kinds.remove(values.getKey());
+                    } else {
+                        _kinds.put(values.getKey(), kind);
+                    }
+                }
+            }
+        }
+        _kinds.values().removeIf(kind -> kind == Kind.PENDING);
+    }
+
+    /** The Kind a name given values of kinds FIRST and SECOND has, or null if they disagree */
+    private static Kind meet(Kind first, Kind second) {
+        if (first == Kind.PENDING) {
+            return second;
+        }
+        return second == Kind.PENDING || first == second ? first : null;
+    }
+
+    /** The Kind EXPRESSION always gives, or null if it could give anything else */
+    private Kind kind(Parser.Expression expression) {
+        if (expression instanceof Parser.Literal) {
+            switch (expression.token.type()) {
+                case INT_VAL: return Kind.INT;
+                case REAL_VAL: return Kind.REAL;
+                case STR_VAL: return Kind.STR;
+                case TRUE: case FALSE: return Kind.BOOL;
+                default: return null;
+            }
+        } else if (expression instanceof Parser.Var) {
+            return _kinds.get(((Parser.Var) expression).value);
+        } else if (expression instanceof Parser.UnaryOp) {
+            Kind child = kind(((Parser.UnaryOp) expression).child);
+            return child != null && PREDICATES.contains(expression.token.type()) ? Kind.BOOL : child;
+        } else if (expression.getClass() == Parser.BinaryOp.class) {
+            Parser.BinaryOp op = (Parser.BinaryOp) expression;
+            Kind left = kind(op.left), right = kind(op.right);
+            if (left == null || right == null) {
+                return null;
+            }
+            return PREDICATES.contains(op.token.type()) ? Kind.BOOL : meet(left, right);
+        } else if (expression instanceof Parser.Call && isMethodOnBuiltIn((Parser.Call) expression)) {
+            return METHOD_KINDS.get(((Parser.Var) ((Parser.Get) ((Parser.Call) expression).value).property()).value);
+        }
+        return null;
+    }
+
+    /** Whether EXPRESSION is always an int, real, string or bool */
+    private boolean isBuiltIn(Parser.Expression expression) {
+        Kind kind = kind(expression);
+        return kind != null && kind != Kind.PENDING;
+    }
+
+    /** Whether CALL is to one of PURE_METHODS, on a built-in value and with built-in arguments */
+    private boolean isMethodOnBuiltIn(Parser.Call call) {
+        if (!(call.value instanceof Parser.Get) || !isPureCall(call) ||
+                !isBuiltIn(((Parser.Get) call.value).var())) {
+            return false;
+        }
+        for (Parser.Expression parameter : call.params.parameters) {
+            if (!isBuiltIn(parameter)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Whether OP only runs the operators of built-in values */
+    private boolean isBuiltInOp(Parser.Op op) {
+        if (op instanceof Parser.UnaryOp) {
+            return isBuiltIn(((Parser.UnaryOp) op).child);
+        } else if (op instanceof Parser.Get) {
+            /* Reading a property runs nothing */
+            return true;
+        } else if (op instanceof Parser.BinaryOp) {
+            Parser.BinaryOp binaryOp = (Parser.BinaryOp) op;
+            return isBuiltIn(binaryOp.left) && isBuiltIn(binaryOp.right);
+        }
+        return false;
+    }
+
+    /** Whether the loop INFO describes could change something other than the variables it assigns */
+    private boolean isImpure(LoopInfo info) {
+        if (info.impure) {
+            return true;
+        }
+        for (Parser.Call call : info.methods) {
+            if (!isMethodOnBuiltIn(call)) {
+                return true;
+            }
+        }
+        for (Parser.Op op : info.ops) {
+            if (!isBuiltInOp(op)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Whether running EXPRESSION, which is invariant, could raise an error */
+    private boolean canTrap(Parser.Expression expression) {
+        if (expression instanceof Parser.Call) {
+            return true;
+        } else if (expression instanceof Parser.UnaryOp) {
+            return canTrap(((Parser.UnaryOp) expression).child);
+        } else if (expression instanceof Parser.BinaryOp) {
+            Parser.BinaryOp op = (Parser.BinaryOp) expression;
+            /* The operators of one kind of value can't take another */
+            return TRAPS.contains(op.token.type()) || kind(op.left) != kind(op.right) ||
+                    canTrap(op.left) || canTrap(op.right);
+        }
+        return false;
+    }
+
+    /** Notes, for every loop TARGET is in, that it is assigned to */
+    private void written(Parser.ASTNode target) {
+        Parser.Var var = root(target);
+        boolean contents = !(target instanceof Parser.Var) && !(target instanceof Parser.Declare);
+        for (LoopInfo loop : _loops) {
+            if (var != null) {
+                loop.written.add(var.value);
+            }
+            loop.mutates |= contents;
+        }
+    }
+
+    /** The variable TARGET assigns to, if it assigns to one directly */
+    private static Parser.Var target(Parser.ASTNode target) {
+        if (target instanceof Parser.Declare) {
+            return ((Parser.Declare) target).var;
+        }
+        return target instanceof Parser.Var ? (Parser.Var) target : null;
+    }
+
+    /** The variable holding the object TARGET is part of, e.g. a for a[i].b */
+    private static Parser.Var root(Parser.ASTNode target) {
+        while (target instanceof Parser.Index || target instanceof Parser.Get) {
+            target = ((Parser.BinaryOp) target).left;
+        }
+        return target(target);
+    }
+
+    /** Whether TARGET is declared @pure */
+    private static boolean isPure(Parser.ASTNode target) {
+        if (!(target instanceof Parser.Declare)) {
+            return false;
+        }
+        for (Parser.Modifier modifier : ((Parser.Declare) target).modifiers) {
+            if (modifier.token.type() == Token.TokenType.PURE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Whether CALL is to something that changes nothing */
+    private boolean isPureCall(Parser.Call call) {
+        if (call.value instanceof Parser.Var) {
+            return _pure.contains(((Parser.Var) call.value).value);
+        }
+        if (call.value instanceof Parser.Get) {
+            Parser.Expression property = ((Parser.Get) call.value).property();
+            return property instanceof Parser.Var && PURE_METHODS.contains(((Parser.Var) property).value);
+        }
+        return false;
+    }
+
+    /** Whether EXPRESSION has the same value on every iteration of the loop INFO describes */
+    private boolean isInvariant(Parser.Expression expression, LoopInfo info) {
+        if (expression instanceof Parser.Literal) {
+            return true;
+        } else if (expression instanceof Parser.Var) {
+            return !info.written.contains(((Parser.Var) expression).value);
+        } else if (expression instanceof Parser.UnaryOp) {
+            Parser.UnaryOp op = (Parser.UnaryOp) expression;
+            return isBuiltInOp(op) && isInvariant(op.child, info);
+        } else if (expression.getClass() == Parser.BinaryOp.class) {
+            Parser.BinaryOp op = (Parser.BinaryOp) expression;
+            return !op.token.isAssignment() && isBuiltInOp(op) &&
+                    isInvariant(op.left, info) && isInvariant(op.right, info);
+        } else if (expression instanceof Parser.Call) {
+            Parser.Call call = (Parser.Call) expression;
+            for (Parser.Expression parameter : call.params.parameters) {
+                if (!isInvariant(parameter, info)) {
+                    return false;
+                }
+            }
+            if (call.value instanceof Parser.Var) {
+                return isInvariant(call.value, info) && isPureCall(call);
+            }
+            /* A built-in method gives something else once the object it's called on has changed */
+            return call.value instanceof Parser.Get && isMethodOnBuiltIn(call) && !info.mutates &&
+                    isInvariant(((Parser.Get) call.value).var(), info);
+        }
+        return false;
+    }
+
+    /**
+     * Moves what doesn't change between iterations of LOOP into its init clauses.
+     * Each part of the loop is guarded by the break clauses that are checked before
+     * it is first run: none for the first break clause, and all of them for the
+     * loop clauses and block.
+     */
+    private void hoist(Parser.Loop loop, LoopInfo info) {
+        List<Parser.Expression> breakClauses = loop.breakClauses == null ? List.of() : loop.breakClauses;
+        for (int i = 0; i < breakClauses.size(); i++) {
+            Parser.Expression clause = breakClauses.get(i);
+            Parser.Expression hoisted = hoist(loop, info, breakClauses.subList(0, i), clause);
+            if (hoisted != clause) {
+                breakClauses.set(i, hoisted);
+                loop.setParent(hoisted);
+            }
+        }
+
+        /* Neither the loop clauses nor anything after a break are sure to be run */
+        if (!info.escapes) {
+            for (int i = 0; i < loop.loopClauses.size(); i++) {
+                Parser.Expression clause = loop.loopClauses.get(i);
+                Parser.Expression hoisted = hoist(loop, info, breakClauses, clause);
+                if (hoisted != clause) {
+                    loop.loopClauses.set(i, hoisted);
+                    loop.setParent(hoisted);
+                }
+            }
+        }
+        if (loop.block instanceof Parser.Block) {
+            Parser.Block block = (Parser.Block) loop.block;
+            for (Parser.Statement statement : block.statements) {
+                hoistStatement(loop, info, breakClauses, statement);
+                if (_escaping.contains(statement)) {
+                    break;
+                }
+            }
+        } else {
+            hoistStatement(loop, info, breakClauses, (Parser.Statement) loop.block);
+        }
+    }
+
+    /** Moves what doesn't change out of STATEMENT, which runs on every iteration of LOOP */
+    private void hoistStatement(Parser.Loop loop, LoopInfo info, List<Parser.Expression> guard,
+                                Parser.Statement statement) {
+        if (statement instanceof Parser.Assignment) {
+            Parser.Assignment assignment = (Parser.Assignment) statement;
+            Parser.Expression value = hoist(loop, info, guard, assignment.value);
+            if (value != assignment.value) {
+                assignment.value = value;
+                assignment.setParent(value);
+            }
+        } else if (statement instanceof Parser.Loop) {
+            /* The init clauses of a loop inside it run every time it's reached */
+            for (Parser.Assignment clause : ((Parser.Loop) statement).initClauses) {
+                hoistStatement(loop, info, guard, clause);
+            }
+        } else if (statement instanceof Parser.If) {
+            /* Only the first condition is sure to be checked */
+            List<Parser.IfBlock> ifblocks = ((Parser.If) statement).ifblocks;
+            if (!ifblocks.isEmpty()) {
+                Parser.IfBlock first = ifblocks.get(0);
+                Parser.Expression condition = hoist(loop, info, guard, first.condition);
+                if (condition != first.condition) {
+                    first.condition = condition;
+                    first.setParent(condition);
+                }
+            }
+        } else if (statement instanceof Parser.Expression) {
+            hoistOperands(loop, info, guard, (Parser.Expression) statement);
+        }
+    }
+
+    /**
+     * Moves EXPRESSION into the init clauses of LOOP if it doesn't change between
+     * iterations, or else the largest parts of it that don't
+     * @return What to put in EXPRESSION's place
+     */
+    private Parser.Expression hoist(Parser.Loop loop, LoopInfo info, List<Parser.Expression> guard,
+                                    Parser.Expression expression) {
+        if (expression == null) {
+            return null;
+        }
+        /* A for each loop's block can run no times, with no condition to guard what could raise an error */
+        if (isInvariant(expression, info) && !(loop.isForEach() && canTrap(expression))) {
+            /* Literals and variables are no quicker to read from another variable */
+            boolean work = expression instanceof Parser.Op || expression instanceof Parser.Call;
+            return work ? hoisted(loop, info, guard, expression) : expression;
+        }
+        hoistOperands(loop, info, guard, expression);
+        return expression;
+    }
+
+    /** Moves what doesn't change out of the operands of EXPRESSION */
+    private void hoistOperands(Parser.Loop loop, LoopInfo info, List<Parser.Expression> guard,
+                               Parser.Expression expression) {
+        if (expression instanceof Parser.UnaryOp) {
+            Parser.UnaryOp op = (Parser.UnaryOp) expression;
+            Parser.Expression child = hoist(loop, info, guard, op.child);
+            if (child != op.child) {
+                op.setChild(child);
+            }
+        } else if (expression instanceof Parser.Get) {
+            /* The property is a name on the object, not an expression */
+            Parser.Get op = (Parser.Get) expression;
+            Parser.Expression var = hoist(loop, info, guard, op.var());
+            if (var != op.var()) {
+                op.setLeft(var);
+            }
+        } else if (expression instanceof Parser.BinaryOp) {
+            Parser.BinaryOp op = (Parser.BinaryOp) expression;
+            /* The left of an assignment is what is being set */
+            if (!op.token.isAssignment()) {
+                Parser.Expression left = hoist(loop, info, guard, op.left);
+                if (left != op.left) {
+                    op.setLeft(left);
+                }
+            }
+            Parser.Expression right = hoist(loop, info, guard, op.right);
+            if (right != op.right) {
+                op.setRight(right);
+            }
+        } else if (expression instanceof Parser.Call) {
+            Parser.Params params = ((Parser.Call) expression).params;
+            List<Parser.Expression> parameters = params.parameters;
+            for (int i = 0; i < parameters.size(); i++) {
+                Parser.Expression parameter = parameters.get(i);
+                Parser.Expression hoisted = hoist(loop, info, guard, parameter);
+                if (hoisted != parameter) {
+                    parameters.set(i, hoisted);
+                    params.setParent(hoisted);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds an init clause to LOOP that puts the value of EXPRESSION in a new
+     * variable, named so that it can't clash with any the program could name. If
+     * EXPRESSION could raise an error, it is only run if every condition in GUARD
+     * holds, as c1 ? (c2 ? expression : null) : null.
+     * @return A read of the variable, to put in EXPRESSION's place
+     */
+    private Parser.Var hoisted(Parser.Loop loop, LoopInfo info, List<Parser.Expression> guard,
+                               Parser.Expression expression) {
+        String name = "$" + _hoisted++;
+        Kind kind = kind(expression);
+        Parser.Expression value = expression;
+        if (canTrap(expression)) {
+            for (int i = guard.size() - 1; i >= 0; i--) {
+                value = new Parser.TernaryOp(guard.get(i), value,
+                        new Parser.NullLiteral(Parser.values.get("NULL")), Parser.values.get("TERNARY"));
+            }
+        }
+        if (value == expression && kind != null) {
+            _kinds.put(name, kind);
+        }
+
+        Parser.Assignment clause = new Parser.Assignment(
+                new Parser.Var(new Token(name, Token.TokenType.VAR)), value, false);
+        loop.initClauses.add(clause);
+        loop.setParent(clause);
+        /* The clause is part of any loop around this one */
+        for (LoopInfo outer : info.outer) {
+            outer.written.add(name);
+        }
+        return new Parser.Var(new Token(name, Token.TokenType.VAR));
+    }
+
+
+    /** **************************** Literals **************************** **/
+
+    @Override
+    public Parser.ASTNode visitIntLiteral(Parser.IntLiteral literal) { return literal; }
+
+    @Override
+    public Parser.ASTNode visitRealLiteral(Parser.RealLiteral literal) { return literal; }
+
+    @Override
+    public Parser.ASTNode visitStringLiteral(Parser.StringLiteral literal) { return literal; }
+
+    @Override
+    public Parser.ASTNode visitBooleanLiteral(Parser.BooleanLiteral literal) { return literal; }
+
+    @Override
+    public Parser.ASTNode visitNullLiteral(Parser.NullLiteral literal) { return literal; }
+
+
+    /** The loops around the node being visited, innermost first */
+    private final Deque<LoopInfo> _loops;
+    /** Loops that have been folded, in the order they were finished, waiting to be moved out of */
+    private final List<LoopInfo> _finished;
+    /** Statements that can break, continue or return */
+    private final Set<Parser.Statement> _escaping;
+    /** Number of breaks, continues and returns visited so far */
+    private int _escapes;
+    /** The values given to each name, by assignments and operators like += */
+    private final Map<String, List<Parser.Expression>> _assigned;
+    /** Names given values the Optimizer can't see, like a func's parameters */
+    private final Set<String> _untyped;
+    /** The Kind of each name that only ever has values of one, once they are inferred */
+    private final Map<String, Kind> _kinds;
+    /** Names of the funcs declared @pure so far */
+    private final Set<String> _pure;
+    /** Number of variables made so far to hold hoisted expressions */
+    private int _hoisted;
+}
@@ -28,7 +28,7 @@ public class Parser {
 
     /** Entry method into Main.Parser - considers program as Block and parses it */
     public ASTNode parse() {
-        return parseBlock();
+        return parseBlock(NONE);
     }
 
     /** Peeks the next token from the Lexer stream */
@@ -51,42 +51,39 @@ public class Parser {
     private void eat(Token token) {
         if (!peekTokens().isEmpty()) {
             current((Token) peekTokens().poll());
-        } else if (token.equals(current())) {
+        } else if (token.type() == current().type()) {
             current(_lexer.next());
         } else {
             System.out.println("Unknown token");
         }
     }
 
-    private void eat(Token[] tokens) {
-        for (Token token : tokens) {
-            if (!peekTokens().isEmpty()) {
-                current((Token) peekTokens().poll());
-                return;
-            } else if (token.equals(current())) {
-                current(_lexer.next());
-                return;
-            }
-        }
-        System.out.println("Unknown token");
-    }
-
-    private void eat(String name) {
-        if (values.get(name).equals(current())) {
+    /**
+     * Consumes a token from the lexer, if _current is of TYPE
+     * @param type The token type expected
+     */
+    private void eat(Token.TokenType type) {
+        if (!peekTokens().isEmpty()) {
+            current((Token) peekTokens().poll());
+        } else if (current().type() == type) {
             current(_lexer.next());
         } else {
             System.out.println("Unknown token");
         }
     }
 
-    private void eat(String[] names) {
-        for (String name : names) {
-            if (values.get(name).equals(current())) {
-                current(_lexer.next());
-                return;
-            }
+    /**
+     * Consumes a token from the lexer, if _current is any of TYPES
+     * @param types The token types expected
+     */
+    private void eat(EnumSet<Token.TokenType> types) {
+        if (!peekTokens().isEmpty()) {
+            current((Token) peekTokens().poll());
+        } else if (currentIs(types)) {
+            current(_lexer.next());
+        } else {
+            System.out.println("Unknown token");
         }
-        System.out.println("Unknown token");
     }
 
     private Token current() {
@@ -100,21 +97,21 @@ public class Parser {
     private ArrayDeque peekTokens() { return _peekTokens; }
 
     /**
-     * Checks if _current is a token type by the token name
-     * @param names List of token string names to check
-     * @return If _current is any of the passed in token names
+     * Checks if _current is a token type
+     * @param type The token type to check
+     * @return If _current is of TYPE
      */
-    private boolean currentIs(String... names) {
-        return Arrays.stream(names).anyMatch(name -> current().equals(values.get(name)));
+    private boolean currentIs(Token.TokenType type) {
+        return current().type() == type;
     }
 
     /**
-     * Check if _current is a token type by passing in the token itself
-     * @param tokens List of tokens to check _current against
-     * @return Whether _current is any of the passed in tokens
+     * Checks if _current is any of a set of token types
+     * @param types The token types to check _current against
+     * @return Whether _current is any of TYPES
      */
-    private boolean currentIs(Token... tokens) {
-        return Arrays.stream(tokens).anyMatch(token -> current().equals(token));
+    private boolean currentIs(EnumSet<Token.TokenType> types) {
+        return types.contains(current().type());
     }
 
 
@@ -122,13 +119,55 @@ public class Parser {
      * creation of unnecessary tokens. */
     public static final Map<String, Token> values = new HashMap<>() {{
         for (Token.TokenType type : Token.TokenType.values()) {
-            if (type != Token.TokenType.VAR && type != Token.TokenType.INT_VAL &&
-                    type != Token.TokenType.STR_VAL &&  type != Token.TokenType.REAL_VAL) {
-                put(type.toString(), new Token(type));
+            if (Token.isFixed(type)) {
+                put(type.toString(), Token.of(type));
             }
         }
     }};
 
+    /** The token types that end or decide between parts of the grammar. Checking the
+     * current token against one is a single bit test. */
+    private static final EnumSet<Token.TokenType>
+            NONE = EnumSet.noneOf(Token.TokenType.class),
+            STATEMENT_END = EnumSet.of(Token.TokenType.EOL),
+            COMMA_END = EnumSet.of(Token.TokenType.COMMA),
+            COLON_END = EnumSet.of(Token.TokenType.COLON),
+            PAREN_END = EnumSet.of(Token.TokenType.PAR_CLOSE),
+            ARRAY_END = EnumSet.of(Token.TokenType.ARR_CLOSE),
+            SCOPE_END = EnumSet.of(Token.TokenType.SCOPE_CLOSE),
+            CASE_END = EnumSet.of(Token.TokenType.CASE, Token.TokenType.DEFAULT),
+            ARGUMENT_END = EnumSet.of(Token.TokenType.COMMA, Token.TokenType.PAR_CLOSE),
+            INDEX_END = EnumSet.of(Token.TokenType.ARR_CLOSE, Token.TokenType.COLON),
+            INHERITANCE_END = EnumSet.of(Token.TokenType.COLON, Token.TokenType.PAR_CLOSE),
+            LOOP_INIT_END = EnumSet.of(Token.TokenType.COLON, Token.TokenType.COMMA, Token.TokenType.PAR_CLOSE),
+            LOOP_BREAK_END = EnumSet.of(Token.TokenType.COMMA, Token.TokenType.COLON),
+            LOOP_CLAUSE_END = EnumSet.of(Token.TokenType.COMMA, Token.TokenType.DIRECT),
+            LIST_START_END = EnumSet.of(Token.TokenType.COMMA, Token.TokenType.ARR_CLOSE, Token.TokenType.DIRECT),
+            LIST_ITEM_END = EnumSet.of(Token.TokenType.COMMA, Token.TokenType.ARR_CLOSE),
+            SET_ITEM_END = EnumSet.of(Token.TokenType.COMMA, Token.TokenType.SET_CLOSE),
+            MAP_VALUE_END = EnumSet.of(Token.TokenType.COMMA, Token.TokenType.SCOPE_CLOSE),
+            EDGE_START_END = EnumSet.of(Token.TokenType.DIR_EDGE, Token.TokenType.DIR_2_EDGE),
+            DIR_EDGE_END = EnumSet.of(Token.TokenType.COMMA, Token.TokenType.DIR_CLOSE),
+            UNDIR_EDGE_END = EnumSet.of(Token.TokenType.COMMA, Token.TokenType.UNDIR_CLOSE),
+            /* Tokens that can follow a prefix-operated term */
+            AFTER_TERM = EnumSet.of(Token.TokenType.ARR_OPEN, Token.TokenType.PERIOD, Token.TokenType.PAR_OPEN),
+            ASSIGNS = EnumSet.of(Token.TokenType.ASSIGN, Token.TokenType.CAST_ASSIGN),
+            /* Operators that go between two operands */
+            INFIX = EnumSet.of(Token.TokenType.TERNARY),
+            CONTAINER_OPENS = EnumSet.of(Token.TokenType.ARR_OPEN, Token.TokenType.SCOPE_OPEN,
+                    Token.TokenType.SET_OPEN, Token.TokenType.UNDIR_OPEN, Token.TokenType.DIR_OPEN),
+            CONTAINER_TYPES = EnumSet.of(Token.TokenType.ARR_TYPE, Token.TokenType.L_ARR_TYPE,
+                    Token.TokenType.UNDIR_TYPE, Token.TokenType.DIR_TYPE, Token.TokenType.MAP_TYPE,
+                    Token.TokenType.SET_TYPE);
+
+    static {
+        for (Token.TokenType type : Token.TokenType.values()) {
+            if (Token.isFixed(type) && Token.of(type).isOperator()) {
+                INFIX.add(type);
+            }
+        }
+    }
+
     private Lexer _lexer;
     private Token _current;
     private ArrayDeque _peekTokens;
@@ -136,76 +175,74 @@ public class Parser {
 
 
 
-    private Block parseBlock(Token... endTokens) {
+    private Block parseBlock(EnumSet<Token.TokenType> endTokens) {
         List<Statement> statements = new ArrayList<>();
-        List tokens = Arrays.asList(endTokens);
-        while (!_lexer.isEmpty() && !tokens.contains(current())) {
-            statements.add(parseStatement(values.get("EOL")));
+        while (!_lexer.isEmpty() && !currentIs(endTokens)) {
+            statements.add(parseStatement(STATEMENT_END));
         }
         return new Block(statements);
     }
 
-    private Block parseClassBlock(Token... endTokens) {
+    private Block parseClassBlock(EnumSet<Token.TokenType> endTokens) {
         List<Statement> statements = new ArrayList<>();
-        List tokens = Arrays.asList(endTokens);
-        while (!tokens.contains(current())) {
-            Statement statement = parseStatement(values.get("EOL"));
+        while (!currentIs(endTokens)) {
+            Statement statement = parseStatement(STATEMENT_END);
             assert statement instanceof Assignment;
             statements.add(statement);
         }
         return new Block(statements);
     }
 
-    private Statement parseStatement(Token... endTokens) {
+    private Statement parseStatement(EnumSet<Token.TokenType> endTokens) {
         Statement statement;
         if (current().isDirect()) {
             return parseDirect(endTokens);
-        } else if (currentIs("RETURN")) {
-            statement = parseReturn();
-        } else if (currentIs("DEFER")) {
+        } else if (currentIs(Token.TokenType.RETURN)) {
+            statement = parseReturn(endTokens);
+        } else if (currentIs(Token.TokenType.DEFER)) {
             statement = parseDefer(endTokens);
-        } else if (currentIs("PASS")) {
-            eat("PASS");
+        } else if (currentIs(Token.TokenType.PASS)) {
+            eat(Token.TokenType.PASS);
             statement = new Pass();
-        } else if (currentIs("CONTINUE")) {
-            eat("CONTINUE");
+        } else if (currentIs(Token.TokenType.CONTINUE)) {
+            eat(Token.TokenType.CONTINUE);
             statement = new Continue();
-        } else if (currentIs("BREAK")) {
-            eat("BREAK");
+        } else if (currentIs(Token.TokenType.BREAK)) {
+            eat(Token.TokenType.BREAK);
             statement = new Break();
-        } else if (currentIs("ANNOTATION")) {
+        } else if (currentIs(Token.TokenType.ANNOTATION)) {
             statement = parseAssignment(endTokens);
         } else {
             statement = parseExpression(true, endTokens);
         }
 
-        if (endTokens.length > 0)
+        if (!endTokens.isEmpty())
             eat(endTokens);
         return statement;
     }
 
-    private Return parseReturn(Token... endTokens) {
-        eat("RETURN");
+    private Return parseReturn(EnumSet<Token.TokenType> endTokens) {
+        eat(Token.TokenType.RETURN);
         Expression expression = parseExpression(endTokens);
         return new Return(expression);
     }
 
-    private Defer parseDefer(Token... endTokens) {
-        eat("DEFER");
+    private Defer parseDefer(EnumSet<Token.TokenType> endTokens) {
+        eat(Token.TokenType.DEFER);
         Expression expression = parseExpression(endTokens);
         return new Defer(expression);
     }
 
-    private Assignment parseAssignment(Token... endTokens) {
+    private Assignment parseAssignment(EnumSet<Token.TokenType> endTokens) {
         return parseAssignment(parseDeclare(false), endTokens);
     }
 
-    private Assignment parseAssignment(ASTNode var, Token... endTokens) {
+    private Assignment parseAssignment(ASTNode var, EnumSet<Token.TokenType> endTokens) {
         boolean cast = false;
-        if (currentIs("ASSIGN")) {
-            eat("ASSIGN");
-        } else if (currentIs("CAST_ASSIGN")) {
-            eat("CAST_ASSIGN");
+        if (currentIs(Token.TokenType.ASSIGN)) {
+            eat(Token.TokenType.ASSIGN);
+        } else if (currentIs(Token.TokenType.CAST_ASSIGN)) {
+            eat(Token.TokenType.CAST_ASSIGN);
             cast = true;
         }
 
@@ -214,7 +251,7 @@ public class Parser {
         return new Assignment(var, expression, cast);
     }
 
-    private List<Type> parseType(Token endToken) {
+    private List<Type> parseType(Token.TokenType endToken) {
         List<Type> types = new ArrayList<Type>();
 
         while(!currentIs(endToken)) {
@@ -222,7 +259,7 @@ public class Parser {
             /* Check if is a pointer */
             boolean isPointer = false;
             if (current().type() == Token.TokenType.MULTIPLY) {
-                eat("MULTIPLY");
+                eat(Token.TokenType.MULTIPLY);
                 isPointer = true;
             }
 
@@ -230,13 +267,7 @@ public class Parser {
             String typeString = current().type().toString();
 
             /* Check if is a container */
-            List<String> containerTypes = new ArrayList<String>() {{
-                add("ARR_OPEN"); add("ARR_OPEN"); add("ARR_OPEN");
-                add("SCOPE_OPEN"); add("SET_OPEN");
-                add("UNDIR_OPEN"); add("DIR_OPEN");
-            }};
-
-            if (containerTypes.contains(current().type().toString())) {
+            if (currentIs(CONTAINER_OPENS)) {
                 /* Take out the "_OPEN" part of type */
                 typeString = typeString.substring(typeString.length() - 5);
                 /* Convert between scope token and more definite map */
@@ -249,13 +280,7 @@ public class Parser {
             }
 
             /* Check if is a short hand container */
-            List<String> shortHandContainerTypes = new ArrayList<String>() {{
-                add("ARR_TYPE"); add("L_ARR_TYPE"); add("DL_ARR_TYPE");
-                add("UNDIR_TYPE"); add("DIR_TYPE"); add("MAP_TYPE");
-                add("SET_TYPE");
-            }};
-
-            if (shortHandContainerTypes.contains(current().type().toString())) {
+            if (currentIs(CONTAINER_TYPES)) {
                 typeString = typeString.substring(typeString.length() - 5);
                 /* A new container type with no internal types */
                 types.add(new ContainerType(isPointer, ContainerType.Container.valueOf(typeString), new ArrayList<>()));
@@ -264,12 +289,12 @@ public class Parser {
 
             /* Check if is a shorthand for graph */
             if (current().type() == Token.TokenType.DIR_TYPE) {
-                eat("DIR_GRAPH_TYPE");
+                eat(Token.TokenType.DIR_TYPE);
                 List<Type> containedType = new ArrayList<>();
                 types.add(new ContainerType(isPointer, ContainerType.Container.DIR, containedType));
                 continue;
             } else if (current().type() == Token.TokenType.UNDIR_TYPE) {
-                eat("UNDIR_GRAPH_TYPE");
+                eat(Token.TokenType.UNDIR_TYPE);
                 List<Type> containedType = new ArrayList<>();
                 types.add(new ContainerType(isPointer, ContainerType.Container.UNDIR, containedType));
                 continue;
@@ -282,7 +307,7 @@ public class Parser {
             eat(current());
 
             if(!currentIs(endToken)) {
-                eat("COMMA");
+                eat(Token.TokenType.COMMA);
             }
         }
 
@@ -290,32 +315,37 @@ public class Parser {
     }
 
     private ContainerType parseContainerType(String containerType, boolean isPointer) {
-        eat(values.get(containerType + "_OPEN"));
-        List<Type> containerTypes =  parseType(values.get(containerType + "_CLOSE"));
-        eat(values.get(containerType + "_CLOSE"));
+        Token.TokenType close = Token.TokenType.valueOf(containerType + "_CLOSE");
+        eat(Token.TokenType.valueOf(containerType + "_OPEN"));
+        List<Type> containerTypes =  parseType(close);
+        eat(close);
         return new ContainerType(isPointer, ContainerType.Container.valueOf(containerType), containerTypes);
     }
 
-    private ParamDefs parseParamDefs(Token endBlock) {
+    private ParamDefs parseParamDefs(Token.TokenType endBlock) {
         List<Assignment> paramDefs = new ArrayList<>();
-        while (!current().equals(endBlock)) {
-            paramDefs.add(parseAssignment(values.get("COMMA")));
-            eat("COMMA");
+        while (!currentIs(endBlock)) {
+            paramDefs.add(parseAssignment(COMMA_END));
+            eat(Token.TokenType.COMMA);
         }
         return new ParamDefs(paramDefs);
     }
 
     private Declare parseDeclare(Var var) {
-        eat("LESS_THAN");
-        List<Type> types = parseType(values.get("GREATER_THAN"));
-        eat("GREATER_THAN");
+        eat(Token.TokenType.LESS_THAN);
+        List<Type> types = parseType(Token.TokenType.GREATER_THAN);
+        eat(Token.TokenType.GREATER_THAN);
 
         return new Declare(new ArrayList<>(), var, types);
     }
 
     private ASTNode parseDeclare(boolean forceType) {
         List<Modifier> modifiers = new ArrayList<>();
-        while (current().isModifier()) {
+        while (currentIs(Token.TokenType.ANNOTATION) || current().isModifier()) {
+            /* A modifier may be written as an annotation, e.g. @pure */
+            if (currentIs(Token.TokenType.ANNOTATION)) {
+                eat(Token.TokenType.ANNOTATION);
+            }
             modifiers.add(new Modifier(current()));
             eat(current());
         }
@@ -324,10 +354,10 @@ public class Parser {
         eat(current());
 
         List<Type> types = new ArrayList<>();
-        if (currentIs("LESS_THAN") || forceType) {
-            eat("LESS_THAN");
-            types = parseType(values.get("GREATER_THAN"));
-            eat("GREATER_THAN");
+        if (currentIs(Token.TokenType.LESS_THAN) || forceType) {
+            eat(Token.TokenType.LESS_THAN);
+            types = parseType(Token.TokenType.GREATER_THAN);
+            eat(Token.TokenType.GREATER_THAN);
         } else {
             var = postFix(var);
         }
@@ -344,174 +374,85 @@ public class Parser {
      *  Strings of chained logic that includes operators, property calls, indexes, and references
      */
 
-    private static Token[] afterTokens = new Token[] {
-            values.get("ARR_OPEN"),
-            values.get("PERIOD"),
-            values.get("PAR_OPEN")
-    };
-
-    private Expression parseExpression(Token... endTokens) {
+    private Expression parseExpression(EnumSet<Token.TokenType> endTokens) {
         // TODO make sure expression isn't assignment when casting!
         return (Expression) parseExpression(false, endTokens);
     }
 
     /** Entry point for all expression parsing
      * */
-    private Statement parseExpression(boolean canBeAssignment, Token... endTokens) {
+    private Statement parseExpression(boolean canBeAssignment, EnumSet<Token.TokenType> endTokens) {
         Expression expression = parseTerm(endTokens);
-        Token current;
-        do {
-            if (currentIs("ASSIGN", "CAST_ASSIGN")) {
-                assert(canBeAssignment); // TODO raise error
-                return parseAssignment(expression, endTokens);
-            } else if (currentIs("LESS_THAN") && peek().isType() && expression instanceof Var) {
-                //Can only instantiate with a single identifier
-                assert(canBeAssignment); // TODO raise error
-                return parseAssignment(parseDeclare((Var) expression));
-            }
 
-            if (current().isOperator()) {
-                if (currentIs("TERNARY")) {
-                    eat("TERNARY");
-                    Expression first = parseExpression(values.get("COLON"));
-                    eat("COLON");
-                    Expression second = parseExpression(endTokens);
-                    expression = new TernaryOp(expression, first, second, values.get("TERNARY"));
-                } else {
-                    current = current();
-                    eat(current);
-                    expression = new BinaryOp(expression, parseTerm(endTokens), current);
-                }
-            }
-        } while (!currentIs(endTokens));
+        if (currentIs(Token.TokenType.LESS_THAN) && peek().isType() && expression instanceof Var) {
+            //Can only instantiate with a single identifier
+            assert(canBeAssignment); // TODO raise error
+            return parseAssignment(parseDeclare((Var) expression), endTokens);
+        }
+
+        expression = parseOperation(expression, Token.TokenType.LOOSEST, endTokens);
 
-        expression = parsePseudoBinary(expression);
+        if (currentIs(ASSIGNS)) {
+            assert(canBeAssignment); // TODO raise error
+            return parseAssignment(expression, endTokens);
+        }
         return expression;
     }
 
     /**
-     * Takes in a expression tree in a weave (a series of operations branching
-     * through the left side of the tree, such as one made initially by
-     * parseExpression). Applies operator precedence to the tree by shuffling
-     * nodes to make sure that higher precedence operators are lower in the
-     * tree, and therefore are executed first by the interpreter.
-     *
-     * Terms are leaves (at least in this abstraction - terms can contain their
-     * own expressions, but because they are bounded by parenthesis, they are
-     * automatically a higher precedence than anything in this expression,so we
-     * can ignore them as leaves. They can also contain unitary operators,
-     * which also have higher precedence.
+     * Parses the operators following LEFT, by precedence climbing. Operators are
+     * consumed for as long as they bind at least as tightly as LOOSEST; the
+     * right-hand side of each one takes in any operators after it that bind more
+     * tightly than it does, so higher precedence operators end up lower in the
+     * tree, and are executed first by the interpreter. Operators of the same
+     * precedence group to the left, except ternaries, which group to the right.
      *
      * Example -> -g + f + e**d * c**b + a ? x : y
      *
-     * Converts this (what I call a weave):
-     *
-     *                               ?
-     *                            /  |  \
-     *                           +   x   y
-     *                          / \
-     *                        **   a
-     *                        / \
-     *                      *    b
-     *                     / \
-     *                   **   c
-     *                  / \
-     *                 +   d
-     *                / \
-     *               +   e
-     *              / \
-     *             -   f
-     *            /
-     *           g
-     *
-     * Into this:
+     * Parses into:
      *
      *                  ?
      *               /  |  \
-     *              x   +   y
-     *                /   \
-     *               +    a
-     *             /   \
-     *           +      *
-     *         /  \    /  \
-     *        -    f  **   **
-     *       /       /  \ /  \
-     *      g       e  d  c   b
+     *              +   x   y
+     *            /   \
+     *           +     a
+     *         /   \
+     *        +      *
+     *       / \    /  \
+     *      -   f  **   **
+     *      |     / \   / \
+     *      g    e   d c   b
      *
+     * Terms are leaves (at least in this abstraction - terms can contain their
+     * own expressions, but because they are bounded by parenthesis, they are
+     * automatically a higher precedence than anything in this expression, so we
+     * can ignore them as leaves. They can also contain unitary operators,
+     * which also have higher precedence.
      *
-     * This works for unary, binary, and ternary operations. For unary, both
-     * left and right point to its only child, and for ternary operations,
-     * left and right are also unchanged, with center usually not cause for
-     * concern.
-     *
-     * *** MUTATIVE ***
-     *
-     * @param node Head of expression tree
+     * @param left The term the operators apply to
+     * @param loosest The highest precedence number of operator to consume
+     * @param endTokens Tokens that end the expression
      */
-    private Expression parsePseudoBinary(Expression node) {
-        if (!(node instanceof Op)) {
-            return node;
-        }
-
-        Op op = (Op) node;
-        Expression left = node;
-
-        /* Run down left side of tree (which here in the tree is only non-trivial side)
-         * until you hit a node with an equal to or lower precedence than the head node
-         */
-        do {
-            left = ((Op) left).left();
-        } while (left instanceof Op && !op.higherPrecedenceThan(left));
-
-        Op opLeft;
-        if (!(left instanceof Op)) {
-            return node;
-        } else {
-            opLeft = (Op) left;
-        }
-
-
-        /* If left has the same precedence as the root op,
-         * then op can stay at its relative position
-         *
-         * Point op's left child to left, point left's right child
-         * to op's left child, point op's parent's left child
-         * to left's right child, and recurse onto left's new right
-         * child
-         */
-        if (op.equalPrecedenceTo(opLeft)) {
-            ((Op) opLeft.parent()).setLeft(opLeft.right());
-
-            if (!(opLeft instanceof UnaryOp))
-                parsePseudoBinary(op.left());
-
-            opLeft.setRight(op.left());
-            op.setLeft(opLeft);
-        }
+    private Expression parseOperation(Expression left, int loosest, EnumSet<Token.TokenType> endTokens) {
+        while (currentIs(INFIX) && !currentIs(endTokens)) {
+            Token operator = current();
+            int precedence = operator.type().precedence();
+            if (precedence > loosest) {
+                break;
+            }
+            eat(operator);
 
-        /* If left has a lower precedence than root op,
-         * then left and op needs to switch
-         *
-         * Point op's parent's child (left or right) to left,
-         *
-         */
-        else {
-            if (op.parent() != null) {
-                if (((Op) op.parent()).left() == op) {
-                    ((Op) op.parent()).setLeft(opLeft);
-                } else {
-                    ((Op) op.parent()).setRight(opLeft);
-                }
+            if (operator.type() == Token.TokenType.TERNARY) {
+                Expression first = parseExpression(COLON_END);
+                eat(Token.TokenType.COLON);
+                Expression second = parseOperation(parseTerm(endTokens), precedence, endTokens);
+                left = new TernaryOp(left, first, second, operator);
+            } else {
+                Expression right = parseOperation(parseTerm(endTokens), precedence - 1, endTokens);
+                left = new BinaryOp(left, right, operator);
             }
-            ((Op) opLeft.parent()).setLeft(opLeft.right());
-            parsePseudoBinary(op);
-            opLeft.setRight(op);
-            op = opLeft;
         }
-
-        /* Recurse down the left side */
-        parsePseudoBinary(left);
-        return op;
+        return left;
     }
 
 
@@ -525,7 +466,7 @@ public class Parser {
      * @param endTokens A token to check for to see if the expression is finished
      * @return A term, which can later be combined with other terms
      */
-    private Expression parseTerm(Token... endTokens) {
+    private Expression parseTerm(EnumSet<Token.TokenType> endTokens) {
         /* Expression is over */
         if (currentIs(endTokens)) {
             return noop;
@@ -544,41 +485,41 @@ public class Parser {
         }
 
         /* Is a nested expression */
-        else if (currentIs(values.get("PAR_OPEN"))) {
-            eat("PAR_OPEN");
-            expression = parseExpression(values.get("PAR_CLOSE"));
-            eat("PAR_CLOSE");
+        else if (currentIs(Token.TokenType.PAR_OPEN)) {
+            eat(Token.TokenType.PAR_OPEN);
+            expression = parseExpression(PAREN_END);
+            eat(Token.TokenType.PAR_CLOSE);
         }
 
         /* Prefix unary operators */
-        else if (currentIs(values.get("MULTIPLY"))) {
-            eat("MULTIPLY");
-            expression = new UnaryOp(parseTerm(afterTokens), values.get("POINT"));
-        } else if (currentIs("SUBTRACT")) {
-            eat("SUBTRACT");
-            expression = new UnaryOp(parseTerm(afterTokens), values.get("SUBTRACT"));
-        } else if (currentIs("ADD")) {
-            eat("ADD");
+        else if (currentIs(Token.TokenType.MULTIPLY)) {
+            eat(Token.TokenType.MULTIPLY);
+            expression = new UnaryOp(parseTerm(AFTER_TERM), values.get("POINT"));
+        } else if (currentIs(Token.TokenType.SUBTRACT)) {
+            eat(Token.TokenType.SUBTRACT);
+            expression = new UnaryOp(parseTerm(AFTER_TERM), values.get("SUBTRACT"));
+        } else if (currentIs(Token.TokenType.ADD)) {
+            eat(Token.TokenType.ADD);
             return parseTerm(endTokens);
-        } else if (currentIs("L_NOT")) {
-            eat("L_NOT");
-            expression = new UnaryOp(parseTerm(afterTokens), values.get("L_NOT"));
-        } else if (currentIs("B_NOT")) {
-            eat("B_NOT");
-            expression = new UnaryOp(parseTerm(afterTokens), values.get("B_NOT"));
-        } else if (currentIs("INCREMENT")) {
-            eat("INCREMENT");
-            expression = new UnaryOp(parseTerm(afterTokens), values.get("INCREMENT"), Meta.PREFIX);
-        } else if (currentIs("DECREMENT")) {
-            eat("DECREMENT");
-            expression = new UnaryOp(parseTerm(afterTokens), values.get("DECREMENT"), Meta.PREFIX);
+        } else if (currentIs(Token.TokenType.L_NOT)) {
+            eat(Token.TokenType.L_NOT);
+            expression = new UnaryOp(parseTerm(AFTER_TERM), values.get("L_NOT"));
+        } else if (currentIs(Token.TokenType.B_NOT)) {
+            eat(Token.TokenType.B_NOT);
+            expression = new UnaryOp(parseTerm(AFTER_TERM), values.get("B_NOT"));
+        } else if (currentIs(Token.TokenType.INCREMENT)) {
+            eat(Token.TokenType.INCREMENT);
+            expression = new UnaryOp(parseTerm(AFTER_TERM), values.get("INCREMENT"), Meta.PREFIX);
+        } else if (currentIs(Token.TokenType.DECREMENT)) {
+            eat(Token.TokenType.DECREMENT);
+            expression = new UnaryOp(parseTerm(AFTER_TERM), values.get("DECREMENT"), Meta.PREFIX);
         }
 
         /* Creation expressions */
         else if (current().isConstruct()) {
             return parseConstruct();
         } else if (current().isContainer()) {
-            return (Container) parseContainer();
+            return (Expression) parseContainer();
         }
 
         /* Any term that has not already been returned can have after-effects (property
@@ -592,28 +533,28 @@ public class Parser {
      * @return A full term made up of expression and added postfix operations
      */
     private Expression postFix(Expression expression) {
-        if (currentIs("ARR_OPEN")) {
+        if (currentIs(Token.TokenType.ARR_OPEN)) {
             return postFix((Expression) parseIndex(expression));
-        } else if (currentIs("PERIOD")) {
+        } else if (currentIs(Token.TokenType.PERIOD)) {
             return postFix(parseProperty(expression, false));
-        } else if (currentIs("OPT_CHAIN")) {
+        } else if (currentIs(Token.TokenType.OPT_CHAIN)) {
             return postFix(parseProperty(expression, true));
-        } else if (currentIs("PAR_OPEN")) {
+        } else if (currentIs(Token.TokenType.PAR_OPEN)) {
             return parseCall(expression);
-        } else if (currentIs("INCREMENT")) {
-            eat("INCREMENT");
+        } else if (currentIs(Token.TokenType.INCREMENT)) {
+            eat(Token.TokenType.INCREMENT);
             return postFix(new UnaryOp(expression, values.get("INCREMENT"), Meta.POSTFIX));
-        } else if (currentIs("DECREMENT")) {
-            eat("DECREMENT");
+        } else if (currentIs(Token.TokenType.DECREMENT)) {
+            eat(Token.TokenType.DECREMENT);
             return postFix(new UnaryOp(expression, values.get("DECREMENT"), Meta.POSTFIX));
-        } else if (currentIs("DEREF")) {
-            eat("DEREF");
+        } else if (currentIs(Token.TokenType.DEREF)) {
+            eat(Token.TokenType.DEREF);
             return postFix(new UnaryOp(expression, values.get("DEREF")));
-        } else if (currentIs("TOTAL_REF")) {
-            eat("TOTAL_REF");
+        } else if (currentIs(Token.TokenType.TOTAL_REF)) {
+            eat(Token.TokenType.TOTAL_REF);
             return postFix(new UnaryOp(expression, values.get("TOTAL_REF")));
-        } else if (currentIs("ROUND")) {
-            eat("ROUND");
+        } else if (currentIs(Token.TokenType.ROUND)) {
+            eat(Token.TokenType.ROUND);
             if (current().isLiteral()) {
                 return new BinaryOp(expression, parseLiteral(), values.get("ROUND"));
             } else if (current().isVar()) {
@@ -626,47 +567,50 @@ public class Parser {
     }
 
     private ArrayOp parseIndex(Expression var) {
-        eat("ARR_OPEN");
-        Expression index = parseExpression(values.get("ARR_CLOSE"), values.get("COLON"));
+        eat(Token.TokenType.ARR_OPEN);
+        Expression index = parseExpression(INDEX_END);
 
-        if (currentIs("COLON")) {
-            eat("COLON");
-            Expression stop = parseExpression(values.get("ARR_CLOSE"), values.get("COLON"));
+        if (currentIs(Token.TokenType.COLON)) {
+            eat(Token.TokenType.COLON);
+            Expression stop = parseExpression(INDEX_END);
 
-            if (currentIs("COLON")) {
-                eat("COLON");
-                Expression step = parseExpression(values.get("ARR_CLOSE"));
+            if (currentIs(Token.TokenType.COLON)) {
+                eat(Token.TokenType.COLON);
+                Expression step = parseExpression(ARRAY_END);
                 return new Slice(var, index, stop, step);
             }
 
-            eat("ARR_CLOSE");
+            eat(Token.TokenType.ARR_CLOSE);
             return new Slice(var, index, stop, noop);
         }
 
-        eat("ARR_CLOSE");
+        eat(Token.TokenType.ARR_CLOSE);
         return new Index(var, index);
     }
 
     private Get parseProperty(Expression var, boolean optChain) {
-        eat("PERIOD");
+        eat(Token.TokenType.PERIOD);
         if (current().isVar()) {
             Var getVar = new Var(current());
             eat(current());
             return new Get(var, getVar, optChain);
         }
-        eat("PAR_OPEN");
-        Get get = new Get(var, parseExpression(values.get("PAR_CLOSE")), optChain);
-        eat("PAR_CLOSE");
+        eat(Token.TokenType.PAR_OPEN);
+        Get get = new Get(var, parseExpression(PAREN_END), optChain);
+        eat(Token.TokenType.PAR_CLOSE);
         return get;
     }
 
     private Call parseCall(Expression var) {
-        eat("PAR_OPEN");
+        eat(Token.TokenType.PAR_OPEN);
         List<Expression> expressions = new ArrayList<>();
-        while(!currentIs("PAR_CLOSE")) {
-            expressions.add(parseExpression(values.get("COMMA"), values.get("PAR_CLOSE")));
+        while(!currentIs(Token.TokenType.PAR_CLOSE)) {
+            expressions.add(parseExpression(ARGUMENT_END));
+            if (currentIs(Token.TokenType.COMMA)) {
+                eat(Token.TokenType.COMMA);
+            }
         }
-        eat("PAR_CLOSE");
+        eat(Token.TokenType.PAR_CLOSE);
         return new Call(new Params(expressions), var);
     }
 
@@ -695,10 +639,10 @@ public class Parser {
      */
 
 
-    private Direct parseDirect(Token... endTokens) {
+    private Direct parseDirect(EnumSet<Token.TokenType> endTokens) {
         if (current().type() == Token.TokenType.IF) {
             return parseIf(endTokens);
-        } else if (currentIs("LOOP")) {
+        } else if (currentIs(Token.TokenType.LOOP)) {
             return parseLoop();
         } else if (current().type() == Token.TokenType.SWITCH) {
             return parseSwitch();
@@ -710,35 +654,35 @@ public class Parser {
     }
 
     private Loop parseLoop() {
-        eat("LOOP");
+        eat(Token.TokenType.LOOP);
 
         //TODO
 
         List<Assignment> initClauses = new ArrayList<>();
-        while(!currentIs("COLON")) {
-            initClauses.add(parseAssignment(values.get("COLON"), values.get("COMMA"), values.get("PAR_CLOSE")));
-            if (currentIs("COMMA")) {
-                eat("COMMA");
-            } else if (currentIs("PAR_CLOSE")) {
+        while(!currentIs(Token.TokenType.COLON)) {
+            initClauses.add(parseAssignment(LOOP_INIT_END));
+            if (currentIs(Token.TokenType.COMMA)) {
+                eat(Token.TokenType.COMMA);
+            } else if (currentIs(Token.TokenType.PAR_CLOSE)) {
                 return parseLoopFinish(new ArrayList<Assignment>(), null, new ArrayList<Expression>());
             }
         }
-        eat("COLON");
+        eat(Token.TokenType.COLON);
 
         List<Expression> breakClauses = new ArrayList<>();
-        while(!currentIs("COLON")) {
-            breakClauses.add(parseExpression(values.get("COMMA"), values.get("COLON")));
-            if (currentIs("COMMA")) {
-                eat("COMMA");
+        while(!currentIs(Token.TokenType.COLON)) {
+            breakClauses.add(parseExpression(LOOP_BREAK_END));
+            if (currentIs(Token.TokenType.COMMA)) {
+                eat(Token.TokenType.COMMA);
             }
         }
-        eat("COLON");
+        eat(Token.TokenType.COLON);
 
         List<Expression> loopClauses = new ArrayList<>();
-        while(!currentIs("PAR_CLOSE")) {
-            loopClauses.add(parseExpression(values.get("COMMA"), values.get("PAR_CLOSE")));
-            if (currentIs("COMMA")) {
-                eat("COMMA");
+        while(!currentIs(Token.TokenType.DIRECT)) {
+            loopClauses.add(parseExpression(LOOP_CLAUSE_END));
+            if (currentIs(Token.TokenType.COMMA)) {
+                eat(Token.TokenType.COMMA);
             }
         }
 
@@ -747,41 +691,41 @@ public class Parser {
 
     private Loop parseLoopFinish(List<Assignment> initClauses, List<Expression> breakClauses, List<Expression> loopClauses) {
 
-        eat("DIRECT");
+        eat(Token.TokenType.DIRECT);
 
         DirectBody loopBlock;
-        if (currentIs("SCOPE_OPEN")) {
-            eat("SCOPE_OPEN");
-            loopBlock = parseBlock(values.get("SCOPE_CLOSE"));
-            eat("SCOPE_CLOSE");
+        if (currentIs(Token.TokenType.SCOPE_OPEN)) {
+            eat(Token.TokenType.SCOPE_OPEN);
+            loopBlock = parseBlock(SCOPE_END);
+            eat(Token.TokenType.SCOPE_CLOSE);
         } else {
-            loopBlock = parseStatement(values.get("EOL"));
+            loopBlock = parseStatement(STATEMENT_END);
         }
 
 
         DirectBody elseBlock = noop;
-        if (currentIs("ELSE")) {
-            eat("SCOPE_OPEN");
-            elseBlock = parseBlock(values.get("SCOPE_CLOSE"));
-            eat("SCOPE_CLOSE");
+        if (currentIs(Token.TokenType.ELSE)) {
+            eat(Token.TokenType.SCOPE_OPEN);
+            elseBlock = parseBlock(SCOPE_END);
+            eat(Token.TokenType.SCOPE_CLOSE);
         }
 
         return new Loop(initClauses, breakClauses, loopClauses, loopBlock, elseBlock);
     }
 
-    private If parseIf(Token... endTokens) {
-        eat("IF");
+    private If parseIf(EnumSet<Token.TokenType> endTokens) {
+        eat(Token.TokenType.IF);
 
-        Expression expression = parseExpression(values.get("PAR_CLOSE"));
+        Expression expression = parseExpression(PAREN_END);
 
-        eat("DIRECT");
+        eat(Token.TokenType.DIRECT);
 
         DirectBody block;
 
-        if (currentIs("SCOPE_OPEN")) {
-            eat("SCOPE_OPEN");
-            block = parseBlock(values.get("SCOPE_CLOSE"));
-            eat("SCOPE_CLOSE");
+        if (currentIs(Token.TokenType.SCOPE_OPEN)) {
+            eat(Token.TokenType.SCOPE_OPEN);
+            block = parseBlock(SCOPE_END);
+            eat(Token.TokenType.SCOPE_CLOSE);
         } else {
             block = parseStatement(endTokens);
         }
@@ -794,16 +738,16 @@ public class Parser {
         DirectBody elseBlock = null;
 
         /* Check if (an) else if(s), or just an else, exist */
-        if (currentIs("ELSE")) {
-            eat("ELSE");
+        if (currentIs(Token.TokenType.ELSE)) {
+            eat(Token.TokenType.ELSE);
 
-            if (currentIs("DIRECT")) {
+            if (currentIs(Token.TokenType.DIRECT)) {
                 /* If just an else */
-                eat("DIRECT");
+                eat(Token.TokenType.DIRECT);
 
-                eat("SCOPE_OPEN");
-                elseBlock = parseBlock(values.get("SCOPE_CLOSE"));
-                eat("SCOPE_CLOSE");
+                eat(Token.TokenType.SCOPE_OPEN);
+                elseBlock = parseBlock(SCOPE_END);
+                eat(Token.TokenType.SCOPE_CLOSE);
             } else {
                 /* If an else if */
                 If nextIf = parseIf(endTokens);
@@ -816,73 +760,73 @@ public class Parser {
     }
 
     private Direct parseSwitch() {
-        eat(values.get("SWITCH"));
+        eat(Token.TokenType.SWITCH);
 
-        Expression switchExpression = parseExpression(values.get("PAR_CLOSE"));
+        Expression switchExpression = parseExpression(PAREN_END);
 
-        eat("DIRECT");
+        eat(Token.TokenType.DIRECT);
 
-        eat("SCOPE_OPEN");
+        eat(Token.TokenType.SCOPE_OPEN);
 
         List<Case> cases = new ArrayList<>();
         Block defaultBlock = null;
         Block elseBlock = null;
 
-        while (!currentIs("SCOPE_CLOSE")) {
-            if (currentIs("CASE")) {
-                eat("CASE");
-                Expression caseExpression = parseExpression(values.get("COLON"));
-                eat("COLON");
-                Block caseBlock = parseBlock(values.get("CASE"), values.get("DEFAULT"));
+        while (!currentIs(Token.TokenType.SCOPE_CLOSE)) {
+            if (currentIs(Token.TokenType.CASE)) {
+                eat(Token.TokenType.CASE);
+                Expression caseExpression = parseExpression(COLON_END);
+                eat(Token.TokenType.COLON);
+                Block caseBlock = parseBlock(CASE_END);
 
                 Case newCase = new Case(caseExpression, caseBlock);
                 cases.add(newCase);
-            } else if (currentIs("DEFAULT")) {
-                eat("DEFAULT");
-                eat("COLON");
+            } else if (currentIs(Token.TokenType.DEFAULT)) {
+                eat(Token.TokenType.DEFAULT);
+                eat(Token.TokenType.COLON);
 
-                defaultBlock = parseBlock(values.get("SCOPE_CLOSE"));
+                defaultBlock = parseBlock(SCOPE_END);
             }
         }
 
-        eat("SCOPE_CLOSE");
+        eat(Token.TokenType.SCOPE_CLOSE);
 
-        if (currentIs("ELSE")) {
-            eat("SCOPE_OPEN");
-            elseBlock = parseBlock(values.get("SCOPE_CLOSE"));
-            eat("SCOPE_CLOSE");
+        if (currentIs(Token.TokenType.ELSE)) {
+            eat(Token.TokenType.SCOPE_OPEN);
+            elseBlock = parseBlock(SCOPE_END);
+            eat(Token.TokenType.SCOPE_CLOSE);
         }
 
         return new Switch(switchExpression, cases, defaultBlock, elseBlock);
     }
 
     private Try parseTry() {
-        eat("TRY");
+        eat(Token.TokenType.TRY);
 
-        eat("SCOPE_OPEN");
-        Block tryBlock = parseBlock(values.get("SCOPE_CLOSE"));
-        eat("SCOPE_CLOSE");
+        eat(Token.TokenType.SCOPE_OPEN);
+        Block tryBlock = parseBlock(SCOPE_END);
+        eat(Token.TokenType.SCOPE_CLOSE);
 
         Declare exception;
         Block catchBlock, elseBlock = null;
         List<Catch> catches = new ArrayList<>();
 
-        while (currentIs("CATCH")) {
-            eat("CATCH");
+        while (currentIs(Token.TokenType.CATCH)) {
+            eat(Token.TokenType.CATCH);
 
             exception = (Declare) parseDeclare(true);
 
-            eat("SCOPE_OPEN");
-            catchBlock = parseBlock(values.get("SCOPE_CLOSE"));
-            eat("SCOPE_CLOSE");
+            eat(Token.TokenType.SCOPE_OPEN);
+            catchBlock = parseBlock(SCOPE_END);
+            eat(Token.TokenType.SCOPE_CLOSE);
 
             catches.add(new Catch(exception, catchBlock));
         }
 
-        if (currentIs("ELSE")) {
-            eat("SCOPE_OPEN");
-            elseBlock = parseBlock(values.get("SCOPE_CLOSE"));
-            eat("SCOPE_CLOSE");
+        if (currentIs(Token.TokenType.ELSE)) {
+            eat(Token.TokenType.SCOPE_OPEN);
+            elseBlock = parseBlock(SCOPE_END);
+            eat(Token.TokenType.SCOPE_CLOSE);
         }
 
         return new Try(tryBlock, catches, elseBlock);
@@ -895,82 +839,82 @@ public class Parser {
      */
 
     private Construct parseConstruct() {
-        if (currentIs("FUNC")) {
+        if (currentIs(Token.TokenType.FUNC)) {
             return parseFuncDeclare();
-        } else if (currentIs("CLASS")) {
+        } else if (currentIs(Token.TokenType.CLASS)) {
             return parseClass();
-        } else if (currentIs("STRUCT")) {
+        } else if (currentIs(Token.TokenType.STRUCT)) {
             return parseStruct();
-        } else if (currentIs("INTERFACE")) {
+        } else if (currentIs(Token.TokenType.INTERFACE)) {
             return parseInterface();
-        } else if (currentIs("ENUM")) {
+        } else if (currentIs(Token.TokenType.ENUM)) {
             return parseEnum();
         }
         return null;
     }
 
     private Func parseFuncDeclare() {
-        eat("FUNC");
+        eat(Token.TokenType.FUNC);
 
-        eat("PAR_OPEN");
-        ParamDefs paramDefs = parseParamDefs(values.get("PAR_CLOSE"));
-        eat("PAR_CLOSE");
+        eat(Token.TokenType.PAR_OPEN);
+        ParamDefs paramDefs = parseParamDefs(Token.TokenType.PAR_CLOSE);
+        eat(Token.TokenType.PAR_CLOSE);
 
-        eat("DIRECT");
+        eat(Token.TokenType.DIRECT);
 
         ASTNode operations;
-        if (currentIs("SCOPE_OPEN")) {
-            eat("SCOPE_OPEN");
-            operations = parseBlock(values.get("SCOPE_CLOSE"));
-            eat("SCOPE_CLOSE");
+        if (currentIs(Token.TokenType.SCOPE_OPEN)) {
+            eat(Token.TokenType.SCOPE_OPEN);
+            operations = parseBlock(SCOPE_END);
+            eat(Token.TokenType.SCOPE_CLOSE);
         } else {
-            operations = parseExpression(values.get("EOL"));
+            operations = parseExpression(STATEMENT_END);
         }
 
         return new Func(paramDefs, operations);
     }
 
     private Construct constructHelper(boolean hasinstances) {
-        eat("PAR_OPEN");
+        eat(Token.TokenType.PAR_OPEN);
 
         List<Var> superclasses = new ArrayList<>();
-        while (!currentIs("COLON", "PAR_CLOSE")) {
+        while (!currentIs(INHERITANCE_END)) {
             superclasses.add(new Var(current()));
             eat(current());
-            eat("COMMA");
+            eat(Token.TokenType.COMMA);
         }
 
         List<Var> interfaces = new ArrayList<>();
-        if (currentIs("COLON")) {
-            eat("COLON");
-            while (!currentIs("COLON", "PAR_CLOSE")) {
+        if (currentIs(Token.TokenType.COLON)) {
+            eat(Token.TokenType.COLON);
+            while (!currentIs(INHERITANCE_END)) {
                 interfaces.add(new Var(current()));
                 eat(current());
-                eat("COMMA");
+                eat(Token.TokenType.COMMA);
             }
         }
-        eat("PAR_CLOSE");
+        eat(Token.TokenType.PAR_CLOSE);
 
-        eat("DIRECT");
+        eat(Token.TokenType.DIRECT);
 
-        eat("SCOPE_OPEN");
+        eat(Token.TokenType.SCOPE_OPEN);
 
         List<Call> instances = new ArrayList<>();
         if (hasinstances) {
-            while (!currentIs("EOL")) {
+            while (!currentIs(Token.TokenType.EOL)) {
                 Var var = new Var(current());
                 eat(current());
-                if (currentIs("PAR_OPEN")) {
+                if (currentIs(Token.TokenType.PAR_OPEN)) {
                     instances.add(parseCall(var));
                 } else {
                     instances.add(new Call(new Params(new ArrayList<>()), var));
                 }
             }
-            eat("EOL");
+            eat(Token.TokenType.EOL);
         }
 
-        Block block = parseClassBlock(values.get("SCOPE_CLOSE"));
-        eat("SCOPE_CLOSE");
+        Block block = parseClassBlock(SCOPE_END);
+        eat(Token.TokenType.SCOPE_CLOSE);
 
         if (hasinstances)
             return new Enum(instances, superclasses, interfaces, block);
@@ -979,38 +923,38 @@ public class Parser {
     }
 
     private Class parseClass() {
-        eat("CLASS");
+        eat(Token.TokenType.CLASS);
         return (Class) constructHelper(false);
     }
 
     private Struct parseStruct() {
-        eat("STRUCT");
+        eat(Token.TokenType.STRUCT);
         return (Struct) constructHelper(false);
     }
 
     private Interface parseInterface() {
-        eat("INTERFACE");
+        eat(Token.TokenType.INTERFACE);
 
-        eat("PAR_OPEN");
+        eat(Token.TokenType.PAR_OPEN);
         List<Var> interfaces = new ArrayList<>();
-        while (!currentIs("COLON", "PAR_CLOSE")) {
+        while (!currentIs(INHERITANCE_END)) {
             interfaces.add(new Var(current()));
             eat(current());
-            eat("COMMA");
+            eat(Token.TokenType.COMMA);
         }
-        eat("PAR_CLOSE");
+        eat(Token.TokenType.PAR_CLOSE);
 
-        eat("DIRECT");
+        eat(Token.TokenType.DIRECT);
 
-        eat("SCOPE_OPEN");
-        Block block = parseClassBlock(values.get("SCOPE_CLOSE"));
-        eat("SCOPE_CLOSE");
+        eat(Token.TokenType.SCOPE_OPEN);
+        Block block = parseClassBlock(SCOPE_END);
+        eat(Token.TokenType.SCOPE_CLOSE);
 
         return new Interface(interfaces, block);
     }
 
     private Enum parseEnum() {
-        eat("ENUM");
+        eat(Token.TokenType.ENUM);
         return (Enum) constructHelper(true);
     }
 
@@ -1021,107 +965,116 @@ public class Parser {
      */
 
     private ContainerCreation parseContainer() {
-        if (currentIs("ARR_OPEN")) {
+        if (currentIs(Token.TokenType.ARR_OPEN)) {
             return parseArrayList();
-        } else if (currentIs("L_ARR_OPEN")) {
+        } else if (currentIs(Token.TokenType.L_ARR_OPEN)) {
             return parseLinkedList();
-        } else if (currentIs("SCOPE_OPEN")) {
+        } else if (currentIs(Token.TokenType.SCOPE_OPEN)) {
             return parseMap();
-        } else if (currentIs("SET_OPEN")) {
+        } else if (currentIs(Token.TokenType.SET_OPEN)) {
             return parseSet();
-        } else if (currentIs("UNDIR_OPEN")) {
+        } else if (currentIs(Token.TokenType.UNDIR_OPEN)) {
             return parseUndirectedGraph();
-        } else if (currentIs("DIR_OPEN")) {
+        } else if (currentIs(Token.TokenType.DIR_OPEN)) {
             return parseDirectedGraph();
         }
 
-        if (currentIs("ARR_TYPE")) {
-            return new HArrayList(new ArrayList<>());
-        } else if (currentIs("L_ARR_TYPE")) {
-            return new HLinkedList(new ArrayList<>());
-        } else if (currentIs("MAP_TYPE")) {
-            return new HValueMap(new HashMap<>());
-        } else if (currentIs("SET_TYPE")) {
-            return new HSet(new ArrayList<>());
-        } else if (currentIs("UNDIR_TYPE")) {
-            return new HUndirectedGraph(new ArrayList<>(), new ArrayList<>());
-        } else if (currentIs("DIR_TYPE")) {
-            return new HDirectedGraph(new ArrayList<>(), new ArrayList<>());
+        /* An empty container is a single token */
+        ContainerCreation empty = null;
+        if (currentIs(Token.TokenType.ARR_TYPE)) {
+            empty = new HArrayList(new ArrayList<>());
+        } else if (currentIs(Token.TokenType.L_ARR_TYPE)) {
+            empty = new HLinkedList(new ArrayList<>());
+        } else if (currentIs(Token.TokenType.MAP_TYPE)) {
+            empty = new HValueMap(new HashMap<>());
+        } else if (currentIs(Token.TokenType.SET_TYPE)) {
+            empty = new HSet(new ArrayList<>());
+        } else if (currentIs(Token.TokenType.UNDIR_TYPE)) {
+            empty = new HUndirectedGraph(new ArrayList<>(), new ArrayList<>());
+        } else if (currentIs(Token.TokenType.DIR_TYPE)) {
+            empty = new HDirectedGraph(new ArrayList<>(), new ArrayList<>());
         }
 
-        return null;
+        if (empty != null) {
+            eat(current());
+        }
+        return empty;
     }
 
+    /**
+     * Parses the rest of a range, from the => after START up to and including
+     * the closing bracket. A missing start or step is left a NoOp, which the
+     * interpreter takes as 0 or 1.
+     */
     private Expression[] rangeHelper(Expression start) {
-        eat("DIRECT");
-        Expression stop = parseExpression(values.get("COLON"), values.get("ARR_CLOSE"));
-        if (currentIs("COLON")) {
-            Expression step = parseExpression(values.get("ARR_CLOSE"));
-            return new Expression[] {start, stop, step};
+        eat(Token.TokenType.DIRECT);
+        Expression stop = parseExpression(INDEX_END);
+        Expression step = noop;
+        if (currentIs(Token.TokenType.COLON)) {
+            eat(Token.TokenType.COLON);
+            step = parseExpression(ARRAY_END);
         }
-        return new Expression[] {start, stop, noop};
+        eat(Token.TokenType.ARR_CLOSE);
+        return new Expression[] {start, stop, step};
     }
 
-    private ContainerCreation parseArrayList() {
-        eat("ARR_OPEN");
+    /** Parses the rest of a list's items, after its FIRST, up to and including the closing bracket */
+    private List<Expression> listItems(Expression first) {
         List<Expression> items = new ArrayList<>();
+        if (first != noop) {
+            items.add(first);
+        }
+        while (currentIs(Token.TokenType.COMMA)) {
+            eat(Token.TokenType.COMMA);
+            Expression item = parseExpression(LIST_ITEM_END);
+            if (item != noop) {
+                items.add(item);
+            }
+        }
+        eat(Token.TokenType.ARR_CLOSE);
+        return items;
+    }
+
+    private ContainerCreation parseArrayList() {
+        eat(Token.TokenType.ARR_OPEN);
 
-        Expression start = parseExpression(values.get("COMMA"), values.get("ARR_CLOSE"), values.get("DIRECT"));
-        if (currentIs("DIRECT")) {
+        Expression start = parseExpression(LIST_START_END);
+        if (currentIs(Token.TokenType.DIRECT)) {
             Expression[] rangeValues = rangeHelper(start);
             return new ArrayListRange(rangeValues[0], rangeValues[1], rangeValues[2]);
-        } else if (currentIs("ARR_CLOSE")) {
-            return new HArrayList(items);
-        }
-
-        items.add(start);
-        while (!currentIs("ARR_CLOSE")) {
-            items.add(parseExpression(values.get("COMMA"), values.get("ARR_CLOSE")));
-            eat("COMMA");
         }
-        eat("ARR_CLOSE");
-        return new HArrayList(items);
+        return new HArrayList(listItems(start));
     }
 
     private ContainerCreation parseLinkedList() {
-        eat("L_ARR_OPEN");
-        List<Expression> items = new ArrayList<>();
+        eat(Token.TokenType.L_ARR_OPEN);
 
-        Expression start = parseExpression(values.get("COMMA"), values.get("ARR_CLOSE"), values.get("DIRECT"));
-        if (currentIs("DIRECT")) {
+        Expression start = parseExpression(LIST_START_END);
+        if (currentIs(Token.TokenType.DIRECT)) {
             Expression[] rangeValues = rangeHelper(start);
             return new LinkedListRange(rangeValues[0], rangeValues[1], rangeValues[2]);
-        } else if (currentIs("ARR_CLOSE")) {
-            return new HLinkedList(items);
         }
-
-        items.add(start);
-        while (!currentIs("ARR_CLOSE")) {
-            items.add(parseExpression(values.get("COMMA"), values.get("ARR_CLOSE")));
-            eat("COMMA");
-        }
-        eat("ARR_CLOSE");
-        return new HLinkedList(items);
+        return new HLinkedList(listItems(start));
     }
 
 
     private HSet parseSet() {
-        eat("SET_OPEN");
+        eat(Token.TokenType.SET_OPEN);
         List<Expression> items = new ArrayList<>();
-        while (!currentIs("SET_CLOSE")) {
-            items.add(parseExpression(values.get("COMMA"), values.get("SET_CLOSE")));
-            eat("COMMA");
+        while (!currentIs(Token.TokenType.SET_CLOSE)) {
+            items.add(parseExpression(SET_ITEM_END));
+            eat(Token.TokenType.COMMA);
         }
-        eat("SET_CLOSE");
+        eat(Token.TokenType.SET_CLOSE);
         return new HSet(items);
     }
 
     private HMap parseMap() {
-        eat("SCOPE_OPEN");
+        eat(Token.TokenType.SCOPE_OPEN);
 
-        Expression key = parseExpression(values.get("COLON"));
-        eat("COLON");
-        Expression val = parseExpression(values.get("COMMA"), values.get("SCOPE_CLOSE"));
+        Expression key = parseExpression(COLON_END);
+        eat(Token.TokenType.COLON);
+        Expression val = parseExpression(MAP_VALUE_END);
 
         if (key instanceof Var) {
             return parseObjectMap((Var) key, val);
@@ -1134,20 +1087,20 @@ public class Parser {
         Map<Var, Expression> items = new HashMap<>();
         items.put(firstKey, firstVal);
 
-        while (!currentIs("SCOPE_CLOSE")) {
-            Expression key = parseExpression(values.get("COLON"));
+        while (!currentIs(Token.TokenType.SCOPE_CLOSE)) {
+            Expression key = parseExpression(COLON_END);
             assert key instanceof Var;
 
-            eat("COLON");
+            eat(Token.TokenType.COLON);
 
-            Expression value = parseExpression(values.get("COMMA"), values.get("SCOPE_CLOSE"));
+            Expression value = parseExpression(MAP_VALUE_END);
             items.put((Var) key, value);
 
-            if (currentIs("COMMA"))
-                eat("COMMA");
+            if (currentIs(Token.TokenType.COMMA))
+                eat(Token.TokenType.COMMA);
         }
 
-        eat("SCOPE_CLOSE");
+        eat(Token.TokenType.SCOPE_CLOSE);
         return new HObjectMap(items);
     }
 
@@ -1155,75 +1108,73 @@ public class Parser {
         Map<Expression, Expression> items = new HashMap<>();
         items.put(firstKey, firstVal);
 
-        while (!currentIs("SCOPE_CLOSE")) {
-            Expression key = parseExpression(values.get("COLON"));
+        while (!currentIs(Token.TokenType.SCOPE_CLOSE)) {
+            Expression key = parseExpression(COLON_END);
 
-            eat("COLON");
+            eat(Token.TokenType.COLON);
 
-            Expression value = parseExpression(values.get("COMMA"), values.get("SCOPE_CLOSE"));
+            Expression value = parseExpression(MAP_VALUE_END);
             items.put(key, value);
 
-            if (currentIs("COMMA"))
-                eat("COMMA");
+            if (currentIs(Token.TokenType.COMMA))
+                eat(Token.TokenType.COMMA);
         }
 
-        eat("SCOPE_CLOSE");
+        eat(Token.TokenType.SCOPE_CLOSE);
         return new HValueMap(items);
     }
 
     private HDirectedGraph parseDirectedGraph() {
-        eat("DIR_OPEN");
+        eat(Token.TokenType.DIR_OPEN);
 
         List<Expression> nodes = new ArrayList<>();
-        while (!currentIs("EOL")) {
-            nodes.add(parseExpression(values.get("COMMA")));
-            eat("COMMA");
+        while (!currentIs(Token.TokenType.EOL)) {
+            nodes.add(parseExpression(COMMA_END));
+            eat(Token.TokenType.COMMA);
         }
-        eat("EOL");
+        eat(Token.TokenType.EOL);
 
         List<HDirectedGraph.HDirectedEdge> edges = new ArrayList<>();
-        while (!currentIs("DIR_CLOSE")) {
-            Expression first = parseExpression(values.get("DIR_EDGE"),
-                    values.get("DIR_2_EDGE"));
+        while (!currentIs(Token.TokenType.DIR_CLOSE)) {
+            Expression first = parseExpression(EDGE_START_END);
 
-            assert currentIs("DIR_EDGE") || currentIs("DIR_2_EDGE");
-            boolean doubleEdge = currentIs("DIR_EDGE");
+            assert currentIs(Token.TokenType.DIR_EDGE) || currentIs(Token.TokenType.DIR_2_EDGE);
+            boolean doubleEdge = currentIs(Token.TokenType.DIR_EDGE);
             eat(current());
 
-            Expression second = parseExpression(values.get("COMMA"), values.get("GRAPH_CLOSE"));
+            Expression second = parseExpression(DIR_EDGE_END);
 
             edges.add(new HDirectedGraph.HDirectedEdge(first, second, doubleEdge));
-            eat("COMMA");
+            eat(Token.TokenType.COMMA);
         }
 
-        eat("DIR_CLOSE");
+        eat(Token.TokenType.DIR_CLOSE);
         return new HDirectedGraph(nodes, edges);
     }
 
     private HUndirectedGraph parseUndirectedGraph() {
-        eat("UNDIR_OPEN");
+        eat(Token.TokenType.UNDIR_OPEN);
 
         List<Expression> nodes = new ArrayList<>();
-        while (!currentIs("EOL")) {
-            nodes.add(parseExpression(values.get("COMMA")));
-            eat("COMMA");
+        while (!currentIs(Token.TokenType.EOL)) {
+            nodes.add(parseExpression(COMMA_END));
+            eat(Token.TokenType.COMMA);
         }
-        eat("EOL");
+        eat(Token.TokenType.EOL);
 
         List<HGraph.HEdge> edges = new ArrayList<>();
-        while (!currentIs("DIR_CLOSE")) {
-            Expression first = parseExpression(values.get("DIR_EDGE"),
-                    values.get("DIR_2_EDGE"));
+        while (!currentIs(Token.TokenType.UNDIR_CLOSE)) {
+            Expression first = parseExpression(EDGE_START_END);
 
-            eat("MINUS");
+            eat(Token.TokenType.SUBTRACT);
 
-            Expression second = parseExpression(values.get("COMMA"), values.get("GRAPH_CLOSE"));
+            Expression second = parseExpression(UNDIR_EDGE_END);
 
             edges.add(new HGraph.HEdge(first, second));
-            eat("COMMA");
+            eat(Token.TokenType.COMMA);
         }
 
-        eat("UNDIR_CLOSE");
+        eat(Token.TokenType.UNDIR_CLOSE);
         return new HUndirectedGraph(nodes, edges);
     }
 
@@ -1239,8 +1190,13 @@ public class Parser {
         public Token token;
         ASTNode parent;
 
+        /** Makes this the parent of each of NODES, skipping absent (null) children */
         public void setParent(ASTNode... nodes) {
-            Arrays.asList(nodes).forEach(node -> node.parent = this);
+            Arrays.asList(nodes).forEach(node -> {
+                if (node != null) {
+                    node.parent = this;
+                }
+            });
         }
 
         public void setParent(List<? extends ASTNode>... nodes) {
@@ -1254,6 +1210,9 @@ public class Parser {
         public ASTNode parent() { return parent; }
 
         public abstract JSONObject toJSON();
+
+        /** Calls the method of VISITOR for this kind of node */
+        public abstract <R> R accept(ASTVisitor<R> visitor);
     }
 
     public interface DirectBody {}
@@ -1261,6 +1220,8 @@ public class Parser {
     /** A sequential list of statements */
     public static final class Block extends ASTNode implements DirectBody {
         public List<Statement> statements;
+        /** Number of variable slots the block's Frame needs, set by the Resolver */
+        public int frameSize;
 
         public Block(List<Statement> statements) {
             setParent(statements);
@@ -1269,6 +1230,11 @@ public class Parser {
             this.statements = statements;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitBlock(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1303,6 +1269,11 @@ public class Parser {
             this.token = values.get("ASSIGN");
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitAssignment(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1329,6 +1300,11 @@ public class Parser {
             this.type = type;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitDeclare(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1354,6 +1330,11 @@ public class Parser {
 
     /** An empty expression */
     public static final class NoOp extends Expression implements DirectBody {
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitNoOp(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1371,6 +1352,11 @@ public class Parser {
             this.token = values.get("CONTINUE");
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitContinue(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1386,6 +1372,11 @@ public class Parser {
             this.token = values.get("BREAK");
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitBreak(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1401,6 +1392,11 @@ public class Parser {
             this.token = values.get("PASS");
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitPass(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1421,6 +1417,11 @@ public class Parser {
             this.token = values.get("RETURN");
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitReturn(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1442,6 +1443,11 @@ public class Parser {
             this.token = values.get("DEFER");
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitDefer(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1456,12 +1462,21 @@ public class Parser {
     /** A variable identifier */
     public static final class Var extends Expression {
         public String value;
+        /** Frames up from the current one, and slot in that frame, where this
+         * variable lives; set by the Resolver, or -1 if it must be looked up
+         * by name */
+        public int depth = -1, slot = -1;
 
         Var(Token token) {
             this.token = token;
             this.value = token.value();
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitVar(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1482,6 +1497,11 @@ public class Parser {
             this.isPointer = isPointer;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitType(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1503,6 +1523,11 @@ public class Parser {
             this.types = types;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitContainerType(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1520,13 +1545,22 @@ public class Parser {
         enum Container { NONE, SET, LIST, MAP, DIR, UNDIR, OTHER }
     }
 
-    /** A @modifier that can be applied to a method, class, or variable */
+    /**
+     * A @modifier that can be applied to a method, class, or variable. A func
+     * marked @pure promises its result depends only on its arguments, and that
+     * calling it changes nothing, so calls to it can be moved (see Optimizer)
+     */
     public static final class Modifier extends ASTNode {
         Modifier(Token token) {
             assert token.isModifier();
             this.token = token;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitModifier(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1545,6 +1579,11 @@ public class Parser {
             this.parameters = parameters;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitParamDefs(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1569,6 +1608,11 @@ public class Parser {
             this.parameters = parameters;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitParams(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1601,6 +1645,11 @@ public class Parser {
             this.operations = operations;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitFunc(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1628,6 +1677,11 @@ public class Parser {
             this.token = values.get("CLASS");
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitClass(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1654,6 +1708,11 @@ public class Parser {
             super(superClasses, interfaces, block);
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitStruct(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1688,6 +1747,11 @@ public class Parser {
             this.token = values.get("INTERFACE");
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitInterface(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1721,6 +1785,11 @@ public class Parser {
             this.token = values.get("ENUM");
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitEnum(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1752,7 +1821,7 @@ public class Parser {
         public DirectBody elseBlock;
 
         protected Direct(DirectBody elseBlock) {
-            assert elseBlock instanceof Block || elseBlock instanceof Statement;
+            assert elseBlock == null || elseBlock instanceof Block || elseBlock instanceof Statement;
             this.elseBlock = elseBlock;
         }
     }
@@ -1762,6 +1831,8 @@ public class Parser {
         public List<Assignment> initClauses;
         public List<Expression> breakClauses, loopClauses;
         public DirectBody block;
+        /** Number of variable slots the loop's Frame needs, set by the Resolver */
+        public int frameSize;
 
         Loop(List<Assignment> initClauses, List<Expression> breakClauses,
                     List<Expression> loopClauses, DirectBody block, DirectBody elseBlock) {
@@ -1778,6 +1849,21 @@ public class Parser {
             this.elseBlock = elseBlock;
         }
 
+        /**
+         * Whether this is a for each loop, like loop elem = list :: => {...}, which
+         * has no break or loop clauses. Its first init clause gives the list; any
+         * after it were moved there by the Optimizer.
+         */
+        public boolean isForEach() {
+            return !initClauses.isEmpty() && loopClauses.isEmpty() &&
+                    (breakClauses == null || breakClauses.isEmpty());
+        }
+
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitLoop(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1819,6 +1905,11 @@ public class Parser {
             this.elseBlock = elseBlock;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitIf(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1846,6 +1937,11 @@ public class Parser {
             this.block = block;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitIfBlock(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1876,6 +1972,11 @@ public class Parser {
             this.elseBlock = elseBlock;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitSwitch(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1904,6 +2005,11 @@ public class Parser {
             this.block = block;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitCase(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1931,6 +2037,11 @@ public class Parser {
             this.elseBlock = elseBlock;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitTry(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1958,6 +2069,11 @@ public class Parser {
             this.block = block;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitCatch(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -1975,6 +2091,9 @@ public class Parser {
         public Params params;
         public Expression value;
 
+        /** Caches the method a call of the form object.method(...) finds on each type of object */
+        InlineCache cache;
+
         Call(Params params, Expression value) {
             setParent(params, value);
             this.token = values.get("PAR_OPEN");
@@ -1982,6 +2101,11 @@ public class Parser {
             this.value = value;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitCall(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2015,6 +2139,11 @@ public class Parser {
             this.token = values.get("ARR_TYPE");
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitArrayList(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2039,6 +2168,11 @@ public class Parser {
             this.token = values.get("L_ARR_TYPE");
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitLinkedList(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2072,6 +2206,11 @@ public class Parser {
             super(items);
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitValueMap(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2097,6 +2236,11 @@ public class Parser {
             super(items);
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitObjectMap(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2124,6 +2268,11 @@ public class Parser {
             this.token = values.get("SET_TYPE");
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitSet(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2160,6 +2309,11 @@ public class Parser {
                 this.token = values.get("SUBTRACT");
             }
 
+            @Override
+            public <R> R accept(ASTVisitor<R> visitor) {
+                return visitor.visitEdge(this);
+            }
+
             @Override
             public JSONObject toJSON() {
                 return new JSONObject() {{
@@ -2186,6 +2340,11 @@ public class Parser {
                 this.doubleEdge = doubleEdge;
             }
 
+            @Override
+            public <R> R accept(ASTVisitor<R> visitor) {
+                return visitor.visitDirectedEdge(this);
+            }
+
             @Override
             public JSONObject toJSON() {
                 return new JSONObject() {{
@@ -2198,6 +2357,11 @@ public class Parser {
             }
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitDirectedGraph(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2223,6 +2387,11 @@ public class Parser {
             super(nodes, edges, values.get("UNDIR_TYPE"));
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitUndirectedGraph(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2251,25 +2420,8 @@ public class Parser {
         abstract void setLeft(Expression expression);
         abstract void setRight(Expression expression);
 
-        /**
-         * Whether this has a higher operator precedence than op. If op is actually
-         * just a literal, return false.
-         * */
-        public boolean higherPrecedenceThan(Expression op) {
-            return op instanceof Op &&
-                    Token.operatorPrecedence.get(this.token.type()) <
-                    Token.operatorPrecedence.get(op.token.type());
-        }
-
-        /**
-         * Whether this has equal operator precedence than op. If op is actually
-         * just a literal, return false.
-         * */
-        public boolean equalPrecedenceTo(Expression op) {
-            return op instanceof Op &&
-                    Token.operatorPrecedence.get(this.token.type())
-                            .equals(Token.operatorPrecedence.get(op.token.type()));
-        }
+        /** What runs the operation, which specializes itself once the operation has run (see OperatorNode) */
+        OperatorNode node;
     }
 
     /** Meta information about operators that tokens cannot provide */
@@ -2296,6 +2448,16 @@ public class Parser {
             this.meta = meta;
         }
 
+        /** Whether this is ++ or --, which store their result back in the variable they are on */
+        public boolean isStep() {
+            return token.type() == Token.TokenType.INCREMENT || token.type() == Token.TokenType.DECREMENT;
+        }
+
+        /** Whether this gives the value its child had before it, as x++ does */
+        public boolean isPostfix() {
+            return meta == Meta.POSTFIX;
+        }
+
         @Override
         Expression right() {
             return child;
@@ -2321,6 +2483,11 @@ public class Parser {
             setParent(expression);
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitUnaryOp(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2357,6 +2524,11 @@ public class Parser {
 
         public Expression right() { return right; }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitBinaryOp(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2374,6 +2546,11 @@ public class Parser {
             super(left, right, token);
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitSetOp(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2397,6 +2574,11 @@ public class Parser {
 
         public Expression index() { return right; }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitIndex(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2421,6 +2603,11 @@ public class Parser {
 
         public Expression property() { return right; }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitGet(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2467,6 +2654,11 @@ public class Parser {
         public Expression right() { return right; }
 
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitTernaryOp(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2509,6 +2701,11 @@ public class Parser {
             super(start, stop, step);
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitArrayListRange(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2526,6 +2723,11 @@ public class Parser {
             super(start, stop, step);
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitLinkedListRange(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2581,6 +2783,11 @@ public class Parser {
             return right;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitQuaternaryOp(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2624,6 +2831,11 @@ public class Parser {
 
         void setStep(Expression step) { setRight(step); }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitSlice(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2647,6 +2859,11 @@ public class Parser {
             this.token = token;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitIntLiteral(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2663,6 +2880,11 @@ public class Parser {
             this.token = token;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitRealLiteral(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2679,6 +2901,11 @@ public class Parser {
             this.token = token;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitStringLiteral(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2696,6 +2923,11 @@ public class Parser {
             this.token = token;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitBooleanLiteral(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
@@ -2713,6 +2945,11 @@ public class Parser {
             this.token = token;
         }
 
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitNullLiteral(this);
+        }
+
         @Override
         public JSONObject toJSON() {
             return new JSONObject() {{
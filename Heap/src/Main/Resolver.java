@@ -0,0 +1,501 @@
+package Main;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A pass over the AST, run before interpreting, that works out where every
+ * variable lives. Each Parser.Var is given a (depth, slot) pair, where depth is
+ * how many Frames up from the current one the variable was defined and slot is
+ * its index in that Frame, and each Block and Loop is given the number of slots
+ * its Frame needs.
+ *
+ * The frames counted here have to line up exactly with the Frames the
+ * Interpreter creates at runtime: one per Block, one per Loop (for its
+ * clauses), and one per Func call (for its parameters). Anything the resolver
+ * can't place, such as names defined inside class bodies or built-ins, keeps a
+ * slot of -1 and is looked up by name instead.
+ *
+ * The tree is walked as an ASTVisitor, each visit returning nothing.
+ */
+public class Resolver implements ASTVisitor<Void> {
+
+    public Resolver() {
+        _frames = new ArrayDeque<>();
+        _free = new HashSet<>();
+    }
+
+    /** Entry method into the Resolver - resolves the program's outermost Block */
+    public void resolve(Parser.Block block) {
+        block.accept(this);
+    }
+
+    /** Names read by the resolved code that it doesn't define itself, so must be
+     * looked up by name at runtime (built-ins, or definitions from other modules) */
+    public Set<String> free() {
+        return _free;
+    }
+
+    /** The variables of a single Frame, mapped to their slots */
+    private static class FrameInfo {
+        /** Names in a barrier frame (a class body) are never given slots, and
+         * lookups don't see past it, as the class scope isn't a Frame */
+        final boolean barrier;
+        final Map<String, Integer> slots = new HashMap<>();
+
+        FrameInfo(boolean barrier) {
+            this.barrier = barrier;
+        }
+    }
+
+    private void push(boolean barrier) {
+        _frames.push(new FrameInfo(barrier));
+    }
+
+    private int pop() {
+        return _frames.pop().slots.size();
+    }
+
+    /** Gives VAR a slot in the current frame */
+    private void define(Parser.Var var) {
+        FrameInfo frame = _frames.peek();
+        if (frame == null || frame.barrier) {
+            return;
+        }
+        Integer slot = frame.slots.get(var.value);
+        if (slot == null) {
+            slot = frame.slots.size();
+            frame.slots.put(var.value, slot);
+        }
+        var.depth = 0;
+        var.slot = slot;
+    }
+
+    /**
+     * Points VAR to the nearest frame that defines it
+     * @return Whether the variable was found
+     */
+    private boolean bind(Parser.Var var) {
+        int depth = 0;
+        for (FrameInfo frame : _frames) {
+            if (frame.barrier) {
+                return false;
+            }
+            Integer slot = frame.slots.get(var.value);
+            if (slot != null) {
+                var.depth = depth;
+                var.slot = slot;
+                return true;
+            }
+            depth++;
+        }
+        return false;
+    }
+
+    /** Binds a variable being read, noting it as free if no frame defines it */
+    private void reference(Parser.Var var) {
+        if (!bind(var)) {
+            _free.add(var.value);
+        }
+    }
+
+    /** Binds a variable being assigned to, defining it locally if it doesn't exist yet */
+    private void assign(Parser.Var var) {
+        if (!bind(var)) {
+            define(var);
+        }
+    }
+
+    /** Resolves NODE, if there is one */
+    private void resolve(Parser.ASTNode node) {
+        if (node != null) {
+            node.accept(this);
+        }
+    }
+
+    private void resolve(List<? extends Parser.ASTNode> nodes) {
+        for (Parser.ASTNode node : nodes) {
+            resolve(node);
+        }
+    }
+
+
+    /** **************************** Statements **************************** **/
+
+    @Override
+    public Void visitBlock(Parser.Block block) {
+        push(false);
+        resolve(block.statements);
+        block.frameSize = pop();
+        return null;
+    }
+
+    @Override
+    public Void visitAssignment(Parser.Assignment assignment) {
+        /* The value is evaluated before the variable exists, so resolve it first */
+        resolve(assignment.value);
+
+        if (assignment.var instanceof Parser.Declare) {
+            define(((Parser.Declare) assignment.var).var);
+        } else if (assignment.var instanceof Parser.Var) {
+            assign((Parser.Var) assignment.var);
+        } else {
+            resolve(assignment.var);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitReturn(Parser.Return aReturn) {
+        resolve(aReturn.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitDefer(Parser.Defer defer) {
+        resolve(defer.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitVar(Parser.Var var) {
+        reference(var);
+        return null;
+    }
+
+    @Override
+    public Void visitCall(Parser.Call call) {
+        resolve(call.value);
+        resolve(call.params);
+        return null;
+    }
+
+    @Override
+    public Void visitParams(Parser.Params params) {
+        resolve(params.parameters);
+        return null;
+    }
+
+    /* Nothing in these refers to a variable in scope */
+
+    @Override
+    public Void visitNoOp(Parser.NoOp noOp) { return null; }
+
+    @Override
+    public Void visitContinue(Parser.Continue aContinue) { return null; }
+
+    @Override
+    public Void visitBreak(Parser.Break aBreak) { return null; }
+
+    @Override
+    public Void visitPass(Parser.Pass pass) { return null; }
+
+    @Override
+    public Void visitDeclare(Parser.Declare declare) { return null; }
+
+    @Override
+    public Void visitType(Parser.Type type) { return null; }
+
+    @Override
+    public Void visitContainerType(Parser.ContainerType containerType) { return null; }
+
+    @Override
+    public Void visitModifier(Parser.Modifier modifier) { return null; }
+
+    /** Parameters are defined by the Func they belong to (see visitFunc) */
+    @Override
+    public Void visitParamDefs(Parser.ParamDefs paramDefs) { return null; }
+
+
+    /** **************************** Directs **************************** **/
+
+    @Override
+    public Void visitLoop(Parser.Loop loop) {
+        push(false);
+        resolve(loop.initClauses);
+        if (loop.breakClauses != null) {
+            resolve(loop.breakClauses);
+        }
+        resolve(loop.loopClauses);
+        resolve((Parser.ASTNode) loop.block);
+        loop.frameSize = pop();
+
+        resolve((Parser.ASTNode) loop.elseBlock);
+        return null;
+    }
+
+    @Override
+    public Void visitIf(Parser.If anIf) {
+        resolve(anIf.ifblocks);
+        resolve((Parser.ASTNode) anIf.elseBlock);
+        return null;
+    }
+
+    @Override
+    public Void visitIfBlock(Parser.IfBlock ifBlock) {
+        resolve(ifBlock.condition);
+        resolve((Parser.ASTNode) ifBlock.block);
+        return null;
+    }
+
+    @Override
+    public Void visitSwitch(Parser.Switch aSwitch) {
+        resolve(aSwitch.expression);
+        resolve(aSwitch.cases);
+        resolve((Parser.ASTNode) aSwitch.defaultBlock);
+        resolve((Parser.ASTNode) aSwitch.elseBlock);
+        return null;
+    }
+
+    @Override
+    public Void visitCase(Parser.Case aCase) {
+        resolve(aCase.expression);
+        resolve((Parser.ASTNode) aCase.block);
+        return null;
+    }
+
+    @Override
+    public Void visitTry(Parser.Try aTry) {
+        resolve((Parser.ASTNode) aTry.block);
+        resolve(aTry.catchBlocks);
+        resolve((Parser.ASTNode) aTry.elseBlock);
+        return null;
+    }
+
+    @Override
+    public Void visitCatch(Parser.Catch aCatch) {
+        /* The caught exception is the first variable of the catch block */
+        if (aCatch.block instanceof Parser.Block) {
+            Parser.Block block = (Parser.Block) aCatch.block;
+            push(false);
+            define(aCatch.exception.var);
+            resolve(block.statements);
+            block.frameSize = pop();
+        } else {
+            resolve((Parser.ASTNode) aCatch.block);
+        }
+        return null;
+    }
+
+
+    /** **************************** Containers **************************** **/
+
+    @Override
+    public Void visitArrayList(Parser.HArrayList list) {
+        resolve(list.items);
+        return null;
+    }
+
+    @Override
+    public Void visitLinkedList(Parser.HLinkedList list) {
+        resolve(list.items);
+        return null;
+    }
+
+    @Override
+    public Void visitSet(Parser.HSet set) {
+        resolve(set.items);
+        return null;
+    }
+
+    @Override
+    public Void visitValueMap(Parser.HValueMap map) {
+        map.items.forEach((key, value) -> {
+            resolve(key);
+            resolve(value);
+        });
+        return null;
+    }
+
+    @Override
+    public Void visitObjectMap(Parser.HObjectMap map) {
+        /* Keys of an object map are attribute names */
+        map.items.values().forEach(this::resolve);
+        return null;
+    }
+
+    @Override
+    public Void visitDirectedGraph(Parser.HDirectedGraph graph) {
+        resolve(graph.nodes);
+        resolve(graph.edges);
+        return null;
+    }
+
+    @Override
+    public Void visitUndirectedGraph(Parser.HUndirectedGraph graph) {
+        resolve(graph.nodes);
+        resolve(graph.edges);
+        return null;
+    }
+
+    @Override
+    public Void visitEdge(Parser.HGraph.HEdge edge) {
+        resolve(edge.first);
+        resolve(edge.second);
+        return null;
+    }
+
+    @Override
+    public Void visitDirectedEdge(Parser.HDirectedGraph.HDirectedEdge edge) {
+        return visitEdge(edge);
+    }
+
+
+    /** **************************** Operations **************************** **/
+
+    @Override
+    public Void visitUnaryOp(Parser.UnaryOp op) {
+        resolve(op.child);
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryOp(Parser.BinaryOp op) {
+        resolve(op.left);
+        resolve(op.right);
+        return null;
+    }
+
+    @Override
+    public Void visitSetOp(Parser.SetOp op) {
+        return visitBinaryOp(op);
+    }
+
+    @Override
+    public Void visitIndex(Parser.Index op) {
+        return visitBinaryOp(op);
+    }
+
+    @Override
+    public Void visitGet(Parser.Get op) {
+        /* The property is a name on the object, not a variable in scope */
+        resolve(op.var());
+        return null;
+    }
+
+    @Override
+    public Void visitTernaryOp(Parser.TernaryOp op) {
+        resolve(op.left);
+        resolve(op.center);
+        resolve(op.right);
+        return null;
+    }
+
+    @Override
+    public Void visitArrayListRange(Parser.ArrayListRange range) {
+        return visitTernaryOp(range);
+    }
+
+    @Override
+    public Void visitLinkedListRange(Parser.LinkedListRange range) {
+        return visitTernaryOp(range);
+    }
+
+    @Override
+    public Void visitQuaternaryOp(Parser.QuaternaryOp op) {
+        resolve(op.left);
+        resolve(op.centerLeft);
+        resolve(op.centerRight);
+        resolve(op.right);
+        return null;
+    }
+
+    @Override
+    public Void visitSlice(Parser.Slice slice) {
+        return visitQuaternaryOp(slice);
+    }
+
+
+    /** **************************** Literals **************************** **/
+
+    @Override
+    public Void visitIntLiteral(Parser.IntLiteral literal) { return null; }
+
+    @Override
+    public Void visitRealLiteral(Parser.RealLiteral literal) { return null; }
+
+    @Override
+    public Void visitStringLiteral(Parser.StringLiteral literal) { return null; }
+
+    @Override
+    public Void visitBooleanLiteral(Parser.BooleanLiteral literal) { return null; }
+
+    @Override
+    public Void visitNullLiteral(Parser.NullLiteral literal) { return null; }
+
+
+    /** **************************** Constructs **************************** **/
+
+    @Override
+    public Void visitFunc(Parser.Func func) {
+        /* Defaults are evaluated once, in the scope the function is defined in */
+        for (Parser.Assignment parameter : func.paramDefs.parameters) {
+            resolve(parameter.value);
+        }
+
+        push(false);
+        for (Parser.Assignment parameter : func.paramDefs.parameters) {
+            if (parameter.var instanceof Parser.Declare) {
+                define(((Parser.Declare) parameter.var).var);
+            } else if (parameter.var instanceof Parser.Var) {
+                define((Parser.Var) parameter.var);
+            }
+        }
+
+        if (func.operations instanceof Parser.Block) {
+            resolve(func.operations);
+        } else {
+            /* Objects.Func wraps a lone expression in a Block of its own, which
+             * gets a (slotless) Frame at runtime, so count it here as well */
+            push(false);
+            resolve(func.operations);
+            pop();
+        }
+        pop();
+        return null;
+    }
+
+    @Override
+    public Void visitClass(Parser.Class aClass) {
+        resolveConstruct(aClass.superClasses, aClass.interfaces, aClass.block);
+        return null;
+    }
+
+    @Override
+    public Void visitStruct(Parser.Struct struct) {
+        return visitClass(struct);
+    }
+
+    @Override
+    public Void visitInterface(Parser.Interface anInterface) {
+        resolveConstruct(new ArrayList<>(), anInterface.interfaces, anInterface.block);
+        return null;
+    }
+
+    @Override
+    public Void visitEnum(Parser.Enum anEnum) {
+        resolve(anEnum.instances);
+        resolveConstruct(anEnum.superClasses, anEnum.interfaces, anEnum.block);
+        return null;
+    }
+
+    private void resolveConstruct(List<Parser.Var> superClasses, List<Parser.Var> interfaces,
+                                  Parser.Block block) {
+        superClasses.forEach(this::reference);
+        interfaces.forEach(this::reference);
+
+        /* Class bodies become attributes looked up by name, so block them off */
+        push(true);
+        resolve(block.statements);
+        block.frameSize = pop();
+    }
+
+    private Deque<FrameInfo> _frames;
+    private Set<String> _free;
+}
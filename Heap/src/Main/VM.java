@@ -0,0 +1,224 @@
+package Main;
+
+import java.io.BufferedReader;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import Helpers.*;
+import Objects.*;
+
+/**
+ * A register machine that runs Bytecode made by the Compiler. An alternative to
+ * walking the AST with the Interpreter; every instruction is dispatched by a
+ * single switch on its opcode.
+ */
+public class VM {
+    public static void run(BufferedReader text) {
+        var parser = new Parser(new Lexer(text));
+        var ast = (Parser.Block) parser.parse();
+        new Optimizer().optimize(ast);
+        new Resolver().resolve(ast);
+        execute(new Compiler().compile(ast), new Scope(null, Scope.Enclosing.MODULE));
+    }
+
+    /**
+     * Runs a module compiled with Compiler.compileModule in a Frame of its own in SCOPE
+     * @param frameSize The number of slots the module's outermost Block needs
+     * @return The Frame holding the module's top level variables, so that they
+     * can be linked into the modules loaded after it (see ModuleLoader)
+     */
+    static Frame doModule(Bytecode bytecode, int frameSize, Scope scope) {
+        var frame = new Frame(scope, frameSize, Scope.Enclosing.INNER);
+        execute(bytecode, frame);
+        return frame;
+    }
+
+    /**
+     * Runs BYTECODE to completion
+     * @param bytecode The compiled code
+     * @param scope The scope the code's outermost Frame is created in
+     * @return The value returned by the code, or null if it didn't return one
+     */
+    public static Any execute(Bytecode bytecode, Scope scope) {
+        final int[] code = bytecode.code;
+        final Object[] constants = bytecode.constants;
+        final Any[] r = new Any[bytecode.registers];
+        int pc = 0;
+
+        while (true) {
+            switch (code[pc]) {
+                case Bytecode.HALT:
+                    return NULL.getInstance();
+
+                case Bytecode.MOVE:
+                    r[code[pc + 1]] = r[code[pc + 2]];
+                    pc += 3;
+                    break;
+
+                case Bytecode.CONST:
+                    r[code[pc + 1]] = (Any) constants[code[pc + 2]];
+                    pc += 3;
+                    break;
+
+                case Bytecode.LOAD:
+                    r[code[pc + 1]] = orNull(((Frame) scope).get(code[pc + 2], code[pc + 3]));
+                    pc += 4;
+                    break;
+
+                case Bytecode.STORE:
+                    ((Frame) scope).set(code[pc + 2], code[pc + 3], r[code[pc + 1]]);
+                    pc += 4;
+                    break;
+
+                case Bytecode.LOAD_NAME:
+                    r[code[pc + 1]] = orNull(scope.get((Var) constants[code[pc + 2]], false));
+                    pc += 3;
+                    break;
+
+                case Bytecode.STORE_NAME:
+                    scope.set((Var) constants[code[pc + 2]], r[code[pc + 1]]);
+                    pc += 3;
+                    break;
+
+                case Bytecode.UNARY: {
+                    Any child = r[code[pc + 3]];
+                    r[code[pc + 1]] = ((InlineCache) constants[code[pc + 2]]).call(child, scope, child);
+                    pc += 4;
+                    break;
+                }
+
+                case Bytecode.BINARY: {
+                    Any left = r[code[pc + 3]];
+                    r[code[pc + 1]] = ((InlineCache) constants[code[pc + 2]]).call(left, scope,
+                            left, r[code[pc + 4]]);
+                    pc += 5;
+                    break;
+                }
+
+                case Bytecode.GET:
+                    r[code[pc + 1]] = orNull(r[code[pc + 2]].get((Var) constants[code[pc + 3]]));
+                    pc += 4;
+                    break;
+
+                case Bytecode.SET:
+                    r[code[pc + 1]].set((Var) constants[code[pc + 2]], r[code[pc + 3]]);
+                    pc += 4;
+                    break;
+
+                case Bytecode.INDEX: {
+                    Any object = r[code[pc + 2]];
+                    r[code[pc + 1]] = ((Func) object.get(Var.__index__)).call(object, r[code[pc + 3]]);
+                    pc += 4;
+                    break;
+                }
+
+                case Bytecode.CALL: {
+                    Any function = r[code[pc + 2]];
+                    if (!(function instanceof Func)) {
+                        throw new IllegalStateException(function.type().name() + " is not callable");
+                    }
+                    int first = code[pc + 3];
+                    r[code[pc + 1]] = ((Func) function).call(Arrays.copyOfRange(r, first, first + code[pc + 4]));
+                    pc += 5;
+                    break;
+                }
+
+                case Bytecode.INVOKE: {
+                    int first = code[pc + 3];
+                    Any receiver = r[first];
+                    r[code[pc + 1]] = ((InlineCache) constants[code[pc + 2]]).call(receiver, scope,
+                            Arrays.copyOfRange(r, first, first + code[pc + 4]));
+                    pc += 5;
+                    break;
+                }
+
+                case Bytecode.LIST: {
+                    int first = code[pc + 2];
+                    r[code[pc + 1]] = new HArrayList(Arrays.asList(r).subList(first, first + code[pc + 3]));
+                    pc += 4;
+                    break;
+                }
+
+                case Bytecode.LINKED_LIST: {
+                    int first = code[pc + 2];
+                    r[code[pc + 1]] = new HLinkedList(new LinkedList<>(
+                            Arrays.asList(r).subList(first, first + code[pc + 3])));
+                    pc += 4;
+                    break;
+                }
+
+                case Bytecode.RANGE:
+                    r[code[pc + 1]] = Interpreter.arrayListRange(r[code[pc + 2]], r[code[pc + 3]], r[code[pc + 4]]);
+                    pc += 5;
+                    break;
+
+                case Bytecode.LINKED_RANGE:
+                    r[code[pc + 1]] = Interpreter.linkedListRange(r[code[pc + 2]], r[code[pc + 3]], r[code[pc + 4]]);
+                    pc += 5;
+                    break;
+
+                case Bytecode.FUNC: {
+                    var function = (Bytecode.Function) constants[code[pc + 2]];
+                    r[code[pc + 1]] = new Func(function.definition, function.body, scope);
+                    pc += 3;
+                    break;
+                }
+
+                case Bytecode.JUMP:
+                    pc = code[pc + 1];
+                    break;
+
+                case Bytecode.JUMP_FALSE:
+                    pc = Bool.isTrue(r[code[pc + 1]]) ? pc + 3 : code[pc + 2];
+                    break;
+
+                case Bytecode.PUSH_FRAME:
+                    scope = new Frame(scope, code[pc + 1], Scope.Enclosing.INNER);
+                    pc += 2;
+                    break;
+
+                case Bytecode.POP_FRAME:
+                    scope = scope.parent();
+                    pc += 1;
+                    break;
+
+                case Bytecode.RETURN:
+                    return r[code[pc + 1]];
+
+                case Bytecode.EVAL:
+                    r[code[pc + 1]] = Interpreter.doExpression((Parser.Expression) constants[code[pc + 2]], scope);
+                    pc += 3;
+                    break;
+
+                case Bytecode.NEXT: {
+                    Any list = r[code[pc + 2]];
+                    if (!(list instanceof HList)) {
+                        pc = code[pc + 5];
+                        break;
+                    }
+                    int index = ((Int) r[code[pc + 3]]).forceInt();
+                    if (index >= ((HList) list).size()) {
+                        pc = code[pc + 4];
+                        break;
+                    }
+                    r[code[pc + 1]] = ((HList) list).get(index);
+                    r[code[pc + 3]] = Int.valueOf(index + 1);
+                    pc += 6;
+                    break;
+                }
+
+                case Bytecode.EXEC:
+                    Interpreter.doStatement((Parser.Statement) constants[code[pc + 1]], scope);
+                    pc += 2;
+                    break;
+
+                default:
+                    throw new IllegalStateException("Unknown opcode " + code[pc] + " at " + pc);
+            }
+        }
+    }
+
+    private static Any orNull(Any object) {
+        return object == null ? NULL.getInstance() : object;
+    }
+}
@@ -9,34 +9,52 @@ public abstract class Any {
 
     public Any() {
         _type = type;
-        _scope = new Scope(_classScope);
     }
 
+    /**
+     * The scope attributes and methods of this are looked up in. Until something
+     * is set on this instance, that is just the class scope shared by its type.
+     */
     public Scope scope() {
+        return _scope == null ? classScope() : _scope;
+    }
+
+    /** The scope shared by every instance of this type, which holds its methods */
+    protected Scope classScope() {
+        return _classScope;
+    }
+
+    /** The scope belonging to this instance alone, created the first time it is needed */
+    protected Scope instanceScope() {
+        if (_scope == null) {
+            _scope = new Scope(classScope());
+        }
         return _scope;
     }
 
+    /** Whether lookups on this go straight to the scope shared by its type, so
+     * the method found for one instance is the method for every instance */
+    public boolean sharesClassScope() {
+        return scope() == classScope();
+    }
+
     public Type type() { return _type; }
 
     public Any get(Var var) {
-        return _scope.get(var, false);
+        return scope().get(var, false);
     }
 
     public void set(Var var, Any value) {
-        _scope.set(var, value);
+        instanceScope().set(var, value);
     }
 
     public Any callMethod(Var methodName, boolean thisScope, Scope scope, Any... args) {
-        try {
-            var func = ((Func) scope().get(methodName, thisScope));
-            if (scope != null) {
-                func.setScope(scope);
-            }
-            return func.call(args);
-        } catch (ClassCastException cce) {
+        var func = scope().get(methodName, thisScope);
+        if (!(func instanceof Func)) {
             // TODO: Throw property is not a method error or something
             return NULL.getInstance();
         }
+        return ((Func) func).call(args);
     }
 
     public Str string() {
@@ -47,7 +65,92 @@ public abstract class Any {
         return Bool.TRUE;
     }
 
-    public boolean isNull() { return equals(NULL.getInstance()); }
+    public boolean isNull() { return this == NULL.getInstance(); }
+
+
+    /** **************************** Hashing **************************** **/
+
+    /**
+     * Whether O is the same value as this. Values that are compared by what they
+     * hold override this along with longHash(); anything else is equal to only
+     * itself, unless it or O has an __eq__ of its own, written in Heap (a struct
+     * with one, say), which is then called to decide.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Any)) return false;
+        return equalsByMethod((Any) o);
+    }
+
+    /** Made from longHash(), so two equal values always land in the same slot of an HMap */
+    @Override
+    public int hashCode() {
+        return Long.hashCode(longHash());
+    }
+
+    /**
+     * A 64 bit hash of this, the same for any two values that are equals(), and
+     * what __hash__ gives. Unless overridden, it is the hash of what this's own
+     * __hash__ returns if it has one written in Heap, and its identity otherwise.
+     * @throws UnsupportedOperationException If this has an __eq__ written in Heap
+     * but no __hash__, as no hash could be sure to agree with it
+     */
+    public long longHash() {
+        return hashByMethod();
+    }
+
+    /**
+     * Whether this's own __eq__ says it equals OTHER, or if this has none, whether
+     * OTHER's does, so that the two are asked the same way round whichever is first
+     */
+    protected final boolean equalsByMethod(Any other) {
+        Func eq = definedMethod(Var.__eq__);
+        if (eq != null) {
+            return Bool.isTrue(eq.call(this, other));
+        }
+        eq = other.definedMethod(Var.__eq__);
+        return eq != null && Bool.isTrue(eq.call(other, this));
+    }
+
+    /** The hash of what this's own __hash__ returns, or its identity hash if it has none */
+    protected final long hashByMethod() {
+        Func hash = definedMethod(Var.__hash__);
+        if (hash == null) {
+            if (definedMethod(Var.__eq__) != null) {
+                throw new UnsupportedOperationException("Can't hash a value with an __eq__ but no __hash__");
+            }
+            return System.identityHashCode(this);
+        }
+        Any result = hash.call(this);
+        return result == null ? System.identityHashCode(this) : result.longHash();
+    }
+
+    /**
+     * The method called NAME that this was given in Heap, or null if it has none.
+     * The built in types implement theirs in Java, and are never asked. Nor are
+     * Constructs, whose scopes hold the methods of what they make rather than
+     * their own, and which may have no scope at all (a built in Func).
+     */
+    private Func definedMethod(Var name) {
+        Scope scope = scope();
+        if (scope == null || scope == classScope() || this instanceof Construct) {
+            return null;
+        }
+        Any method = scope.get(name, false);
+        return method instanceof Func && ((Func) method).functional() == null ? (Func) method : null;
+    }
+
+    /**
+     * Scrambles the bits of H so each bit of the result depends on every bit
+     * of H (the finalizer of SplitMix64). For hashes built out of values, like
+     * numbers, whose low bits alone tell them apart poorly.
+     */
+    static long scramble(long h) {
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
 
     public static final Type type = new Type("ANY");
 }
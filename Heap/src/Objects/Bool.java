@@ -14,6 +14,22 @@ public class Bool extends Atom {
         _value = value;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Bool)) return false;
+        return value() == ((Bool) o).value();
+    }
+
+    @Override
+    public long longHash() {
+        return Boolean.hashCode(value());
+    }
+
+    private Int hash() {
+        return Int.valueOf(longHash());
+    }
+
     private Bool equal(Bool bool) {
         return valueOf(value() == bool.value());
     }
@@ -46,6 +62,7 @@ public class Bool extends Atom {
 
 
     private static final Scope _classScope = new Scope(null, Scope.Enclosing.CLASS) {{
+        set(Var.__hash__, new Func(f -> ((Bool) f[0]).hash()));
         set(Var.__eq__, new Func(f -> ((Bool) f[0]).equal((Bool) f[1])));
         set(Var.__and__, new Func(f -> ((Bool) f[0]).and((Bool) f[1])));
         set(Var.__or__, new Func(f -> ((Bool) f[0]).or((Bool) f[1])));
@@ -55,6 +72,11 @@ public class Bool extends Atom {
         set(Var.__bool__, new Func(f -> f[0].bool()));
     }};
 
+    @Override
+    protected Scope classScope() {
+        return _classScope;
+    }
+
 
     public static Bool valueOf(boolean bool) {
         return bool ? TRUE : FALSE;
@@ -65,8 +87,9 @@ public class Bool extends Atom {
     public static Bool TRUE = new Bool(true);
     public static Bool FALSE = new Bool(false);
 
-    private Scope _scope;
-
     public static final Type type = new Type("BOOL");
 
+    @Override
+    public Type type() { return type; }
+
 }
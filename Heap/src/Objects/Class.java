@@ -9,7 +9,19 @@ public class Class extends Type implements Construct {
         super(name);
         _superclasses = superclasses;
         _interfaces = interfaces;
-        _scope = new Scope(parentScope);
+        _scope = new Scope(parentScope, Scope.Enclosing.CLASS);
+    }
+
+    /** Classes (and structs) are compared and hashed by identity, not by name. The
+     * __eq__ and __hash__ in their scope are for their instances, not for them. */
+    @Override
+    public boolean equals(Object o) {
+        return this == o;
+    }
+
+    @Override
+    public long longHash() {
+        return System.identityHashCode(this);
     }
 
     public Any get(Var var) {
@@ -41,6 +41,12 @@ public class Func extends Any implements Construct {
         _parentScope = parentScope;
     }
 
+    /** A function whose body was compiled to BODY, which calls run on the VM */
+    public Func(Parser.Func funcDef, Bytecode body, Scope parentScope) {
+        this(funcDef, parentScope);
+        _body = body;
+    }
+
     public Func(Functional functional) {
         _functional = functional;
     }
@@ -50,22 +56,28 @@ public class Func extends Any implements Construct {
             return functional().run(arguments);
         }
 
-        var blockScope = new Scope(parentScope(), Scope.Enclosing.FUNC);
+        /* Parameters take the first slots of the call's Frame, in order (see Main.Resolver) */
+        var blockScope = new Frame(parentScope(), params().size(), Scope.Enclosing.FUNC);
 
         for (var i = 0; i < params().size(); i++) {
             if (arguments.length > i)
-                blockScope.set(params().get(i), arguments[i]);
+                blockScope.set(0, i, arguments[i]);
             else if (defaults().get(i) != null)
-                blockScope.set(params().get(i), defaults().get(i));
+                blockScope.set(0, i, defaults().get(i));
             else
                 return null; // TODO: throw Exception for missing arguments
         }
 
+        if (_body != null) {
+            return VM.execute(_body, blockScope);
+        }
         return Interpreter.doBlock(block(), blockScope);
     }
 
 
     private Parser.Block _block;
+    /** The compiled body, if this was made by compiled code */
+    private Bytecode _body;
     private Scope _scope, _parentScope;
     private List<Var> _params;
     private List<Any> _defaults;
@@ -79,8 +91,6 @@ public class Func extends Any implements Construct {
         return _scope;
     }
 
-    public void setScope(Scope scope) { _scope = scope; }
-
     public Scope parentScope() {
         return _parentScope;
     }
@@ -97,6 +107,20 @@ public class Func extends Any implements Construct {
 
     public static final Type type = new Type("FUNC");
 
+    @Override
+    public Type type() { return type; }
+
+    /** Funcs are compared and hashed by identity, and never by a method of their own */
+    @Override
+    public boolean equals(Object o) {
+        return this == o;
+    }
+
+    @Override
+    public long longHash() {
+        return System.identityHashCode(this);
+    }
+
 
     @FunctionalInterface
     interface Functional {
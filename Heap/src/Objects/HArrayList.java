@@ -7,11 +7,27 @@ import java.util.ListIterator;
 public class HArrayList extends HList {
 
     public HArrayList() {
-        _list = new ArrayList<>();
+        _list = new PackedList();
     }
 
-    public HArrayList(ArrayList<Any> list) {
-        super(list);
+    public HArrayList(List<Any> list) {
+        super(list instanceof PackedList ? list : new PackedList(list));
+    }
+
+    /**
+     * Tells the list its elements will be of type ELEMENTS, so an empty list can
+     * start out packed (see PackedList) rather than deciding on its first element
+     */
+    public void expect(Type elements) {
+        if (elements == Int.type) {
+            packed().expect(PackedList.Storage.LONG);
+        } else if (elements == Real.type) {
+            packed().expect(PackedList.Storage.DOUBLE);
+        }
+    }
+
+    private PackedList packed() {
+        return (PackedList) _list;
     }
 
     public static List<Any> getList() { return new ArrayList<>(); }
@@ -20,4 +36,7 @@ public class HArrayList extends HList {
 
     public static final Type type = new Type("ARRAYLIST");
 
+    @Override
+    public Type type() { return type; }
+
 }
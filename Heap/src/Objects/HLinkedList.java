@@ -20,4 +20,7 @@ public class HLinkedList extends HList {
 
     public static final Type type = new Type("LINKEDLIST");
 
+    @Override
+    public Type type() { return type; }
+
 }
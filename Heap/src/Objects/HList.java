@@ -3,10 +3,12 @@ package Objects;
 import Helpers.*;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.IntStream;
 
-public abstract class HList extends Container {
+public abstract class HList extends Container implements Iterable<Any> {
     public HList() {
         super();
         _list = new ArrayList<>();
@@ -17,10 +19,14 @@ public abstract class HList extends Container {
         _list = list;
     }
 
-    protected HList add(HList list) {
+    public HList add(HList list) {
         List<Any> retlist = getList();
-        retlist.addAll(list());
-        retlist.addAll(list.list());
+        for (Any item : this) {
+            retlist.add(item);
+        }
+        for (Any item : list) {
+            retlist.add(item);
+        }
         return createHList(retlist);
     }
 
@@ -32,14 +38,22 @@ public abstract class HList extends Container {
 
     protected HList multiply(Int amount) {
         List<Any> retList = getList();
-        IntStream.range(0, amount.forceInt())
-                .forEach(i -> retList.addAll(list()));
+        for (int i = 0; i < amount.forceInt(); i++) {
+            for (Any item : this) {
+                retList.add(item);
+            }
+        }
         return createHList(retList);
     }
 
     protected HList divide(Int amount) {
         assert size() % amount.forceInt() == 0;
-        return createHList(list().subList(0, size() / amount.forceInt()));
+        List<Any> retList = getList();
+        Iterator<Any> items = iterator();
+        for (int i = 0; i < size() / amount.forceInt(); i++) {
+            retList.add(items.next());
+        }
+        return createHList(retList);
     }
 
     protected HList shiftRight(Int amount) {
@@ -51,8 +65,9 @@ public abstract class HList extends Container {
         }
         IntStream.range(0, amount.forceInt())
                 .forEach(j -> retList.add(NULL.getInstance()));
+        Iterator<Any> items = iterator();
         for (int i = 0; i < size() - amount.forceInt(); i++) {
-            retList.add(list().get(i));
+            retList.add(items.next());
         }
         return createHList(retList);
     }
@@ -64,15 +79,19 @@ public abstract class HList extends Container {
                     .forEach(i -> retList.add(NULL.getInstance()));
             return createHList(retList);
         }
-        for (int i = amount.forceInt(); i < size(); i++) {
-            retList.add(list().get(i));
+        Iterator<Any> items = iterator();
+        for (int i = 0; i < amount.forceInt(); i++) {
+            items.next();
+        }
+        while (items.hasNext()) {
+            retList.add(items.next());
         }
         IntStream.range(0, amount.forceInt())
                 .forEach(j -> retList.add(NULL.getInstance()));
         return createHList(retList);
     }
 
-    protected Bool lessThan(HList list) {
+    public Bool lessThan(HList list) {
         for (int i = 0; size() > i && list.size() > i; i++) {
             if (Bool.compare(get(i), list.get(i)) == -1)
                 return Bool.TRUE;
@@ -80,7 +99,7 @@ public abstract class HList extends Container {
         return Bool.FALSE;
     }
 
-    protected Bool lessThanOrEqualTo(HList list) {
+    public Bool lessThanOrEqualTo(HList list) {
         for (int i = 0; size() > i && list.size() > i; i++) {
             if (Bool.compare(get(i), list.get(i)) < 1)
                 return Bool.TRUE;
@@ -88,7 +107,7 @@ public abstract class HList extends Container {
         return Bool.FALSE;
     }
 
-    protected Bool greaterThan(HList list) {
+    public Bool greaterThan(HList list) {
         for (int i = 0; size() > i && list.size() > i; i++) {
             if (Bool.compare(get(i), list.get(i)) == 1)
                 return Bool.TRUE;
@@ -96,7 +115,7 @@ public abstract class HList extends Container {
         return Bool.FALSE;
     }
 
-    protected Bool greaterThanOrEqualTo(HList list) {
+    public Bool greaterThanOrEqualTo(HList list) {
         for (int i = 0; size() > i && list.size() > i; i++) {
             if (Bool.compare(get(i), list.get(i)) > -1)
                 return Bool.TRUE;
@@ -104,17 +123,42 @@ public abstract class HList extends Container {
         return Bool.FALSE;
     }
 
-    protected Str hash() {
-        // TODO
-        return new Str("");
+    protected Int hash() {
+        return Int.valueOf(longHash());
     }
 
-    protected Bool equal(HList list) {
+    public Bool equal(HList list) {
+        return Bool.valueOf(equals(list));
+    }
+
+    /** Lists (and slices) are equal when they hold equal items in the same order */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof HList)) return false;
+        HList list = (HList) o;
         if (size() != list.size())
-            return Bool.FALSE;
-        
-        return Bool.valueOf(IntStream.range(0, size())
-                .allMatch(i -> Bool.compare(get(i), list.get(i)) == 0));
+            return false;
+
+        for (int i = 0; i < size(); i++) {
+            if (!Objects.equals(get(i), list.get(i)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Folds in the hash of each item in turn, so the same items in a different
+     * order hash differently. Lists can change, so this is worked out every time.
+     */
+    @Override
+    public long longHash() {
+        long hash = size();
+        for (int i = 0; i < size(); i++) {
+            Any item = get(i);
+            hash = hash * 31 + (item == null ? 0 : item.longHash());
+        }
+        return scramble(hash);
     }
 
     public Bool bool() {
@@ -143,6 +187,11 @@ public abstract class HList extends Container {
         set(Var.add, new Func(f -> ((HList) f[0]).add(f[1])));
     }};
 
+    @Override
+    protected Scope classScope() {
+        return _classScope;
+    }
+
     public static List<Any> getList() { return new ArrayList<>(); }
 
     public static HList createHList(List<Any> list) { return null; }
@@ -159,13 +208,21 @@ public abstract class HList extends Container {
     
     public int size() { return list().size(); }
 
+    /**
+     * The backing list, for changing the elements. Operations that only read
+     * go through get, size and iterator, which don't make a Range store its elements.
+     */
     public List<Any> list() {
         return _list;
     }
 
+    @Override
+    public Iterator<Any> iterator() {
+        return list().iterator();
+    }
+
     public Type containerTypes() { return _containerTypes; }
 
-    private Scope _scope;
     private Type _containerTypes;
     private Type _type;
     List<Any> _list;
@@ -2,69 +2,122 @@ package Objects;
 
 import Helpers.*;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
+/**
+ * A map that keeps its entries in the order they were added, so they can also
+ * be read by position. Backed by an OrderedTable.
+ */
 public class HMap extends Container {
-    public HMap(HashMap<Any, Any> _map) {
-        _map = _map;
+    public HMap(Map<Any, Any> map) {
+        this();
+        map.forEach(this::set);
     }
 
     public HMap() {
-        _map = new HashMap<>();
+        _table = new OrderedTable();
     }
 
     private HMap add(HMap map) {
         HMap newMap = new HMap();
-        for (Any key : keys())
-            newMap.set(key, index(key));
-        for (Any key : map.keys())
-            newMap.set(key, map.index(key));
+        for (int i = 0; i < size(); i++)
+            newMap.set(_table.key(i), _table.value(i));
+        for (int i = 0; i < map.size(); i++)
+            newMap.set(map._table.key(i), map._table.value(i));
         return newMap;
     }
 
 
 
     public Any index(Any any) {
-        return map().get(any);
+        return _table.get(any);
     }
 
     @Override
     public Any get(int index) {
-        return map().get(keys().get(index));
+        return _table.value(index);
     }
 
     public NULL set(Any key, Any val) {
-        if (map().containsKey(key))
-            keys().add(key);
-        map().put(key, val);
+        _table.put(key, val);
         return NULL.getInstance();
     }
 
     public NULL set(int index, Any key, Any val) {
-        if (map().containsKey(key))
-            keys().add(index, key);
-        map().put(key, val);
+        _table.put(index, key, val);
         return NULL.getInstance();
     }
 
+    public int size() {
+        return _table.size();
+    }
+
+    /** Maps are equal when they have the same keys with equal values, whatever their order */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof HMap)) return false;
+        HMap map = (HMap) o;
+        if (size() != map.size())
+            return false;
+
+        for (int i = 0; i < size(); i++) {
+            if (!Objects.equals(_table.value(i), map._table.get(_table.key(i))))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sums a hash of each entry, so the order they were added in doesn't change
+     * it. Maps can change, so this is worked out every time.
+     */
+    @Override
+    public long longHash() {
+        long hash = size();
+        for (int i = 0; i < size(); i++) {
+            Any value = _table.value(i);
+            hash += scramble(_table.key(i).longHash() ^ Long.rotateLeft(value == null ? 0 : value.longHash(), 32));
+        }
+        return scramble(hash);
+    }
+
+    private Int hash() {
+        return Int.valueOf(longHash());
+    }
+
+    private Bool equal(HMap map) {
+        return Bool.valueOf(equals(map));
+    }
+
     public static final Type type = new Type("MAP");
 
+    @Override
+    public Type type() { return type; }
+
     private static final Scope _classScope = new Scope(null, Scope.Enclosing.CLASS) {{
         set(Var.__add__, new Func(f -> ((HMap) f[0]).add((HMap) f[1])));
         set(Var.__index__, new Func(f -> ((HMap) f[0]).index((Any) f[1])));
+        set(Var.__hash__, new Func(f -> ((HMap) f[0]).hash()));
+        set(Var.__eq__, new Func(f -> ((HMap) f[0]).equal((HMap) f[1])));
         set(Var.add, new Func(f -> ((HMap) f[0]).set(f[1], f[2])));
     }};
 
-    public Map<Any, Any> map() {
-        return _map;
+    @Override
+    protected Scope classScope() {
+        return _classScope;
+    }
+
+    public OrderedTable table() {
+        return _table;
     }
 
-    public ArrayList<Any> keys() {
-        return _keys;
+    /** The keys, in the order they were added */
+    public List<Any> keys() {
+        return _table.keys();
     }
 
-    private ArrayList<Any> _keys;
-    private Map<Any, Any> _map;
+    private final OrderedTable _table;
 }
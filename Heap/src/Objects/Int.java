@@ -1,315 +1,444 @@
 package Objects;
 
 import java.math.BigInteger;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
-import java.util.function.BinaryOperator;
 
 import Main.*;
 import Helpers.*;
 
 public class Int extends Number {
 
-    public Int(Value value) {
+    private Int(Value value) {
         super();
         _value = value;
     }
 
     public Int(int value) {
-        super();
-        _value = reduceInt(value);
+        this(reduceInt(value));
     }
 
     public Int(long value) {
-        super();
-        _value = reduceLong(value);
+        this(reduceLong(value));
     }
 
     public Int(BigInteger value) {
-        super();
-        _value = reduceBig(value);
+        this(reduceBig(value));
     }
 
-    public Int(Parser.IntLiteral literal) {
-        super();
+    /**
+     * The Int for VALUE, shared with every other use of VALUE if it falls in
+     * the cached range. Prefer this to the constructors, as Ints are immutable.
+     */
+    public static Int valueOf(long value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return _cache[(int) (value - CACHE_LOW)];
+        }
+        return new Int(value);
+    }
+
+    public static Int valueOf(BigInteger value) {
+        return valueOf(reduceBig(value));
+    }
+
+    public static Int valueOf(Parser.IntLiteral literal) {
+        String text = literal.token.value();
         try {
-            int value = Integer.parseInt(literal.token.value());
-            if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
-                if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
-                    _value = new ByteVal((byte) value);
-                } else {
-                    _value = new ShortVal((short) value);
-                }
-            } else {
-                _value = new IntVal(value);
-            }
-        } catch (NumberFormatException ie) {
-            try {
-                long value = Long.parseLong(literal.token.value());
-                _value = new LongVal(value);
-            } catch (NumberFormatException le) {
-                BigInteger value = new BigInteger(literal.token.value());
-                _value = new BigVal(value);
+            return valueOf(Long.parseLong(text));
+        } catch (NumberFormatException nfe) {
+            return valueOf(new BigInteger(text));
+        }
+    }
+
+    private static Int valueOf(Value value) {
+        if (!(value instanceof BigVal)) {
+            long primitive = value.longValue();
+            if (primitive >= CACHE_LOW && primitive <= CACHE_HIGH) {
+                return _cache[(int) (primitive - CACHE_LOW)];
             }
         }
+        return new Int(value);
     }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof Int)) return false;
-        var anInt = (Int) o;
-        return false; // TODO
+        return compare(this, (Int) o) == 0;
     }
 
-
-    /** **************************************** OPERATIONS **************************************** **/
-    /** Operations that can be done between two Ints                                                 **/
+    /**
+     * Every width reduces to the narrowest that holds the value, so the same
+     * number hashes the same whatever it was computed as. The hash of a big
+     * value takes time in its length, so it is kept once worked out.
+     */
+    @Override
+    public long longHash() {
+        Value value = value();
+        return value instanceof BigVal ? ((BigVal) value).longHash() : scramble(value.longValue());
+    }
 
 
-    /** Helper function to convert two Ints to the larger datatype of the two */
-    private static void convertToLargest(Int first, Int second) {
-        if (first.value().size > second.value().size) {
-            second._value = first.value().convert(second.value());
-        } else if (first.value().size < second.value().size) {
-            first._value = second.value().convert(first.value());
-        }
+    /**
+     * Ints can't be given attributes: the same instance stands for every use of a
+     * cached value, so an attribute set on one 5 would show up on every 5 in the
+     * program (and stop it sharing the class scope the inline caches rely on)
+     */
+    @Override
+    public void set(Var var, Any value) {
+        throw new UnsupportedOperationException("Can't set " + var.name() + " on an int, as ints are immutable");
     }
 
 
-    private Int add(Int value) {
-        convertToLargest(this, value);
-        return doBinaryOp("%", this, value, true, false);
+    /** **************************************** OPERATIONS **************************************** **/
+    /** Operations that can be done between two Ints                                                 **/
+
+
+    public Int add(Int value) {
+        return doBinaryOp(Operator.ADD, this, value);
     }
 
-    private Int subtract(Int value) {
-        convertToLargest(this, value);
-        return doBinaryOp("%", this, value, true, true);
+    public Int subtract(Int value) {
+        return doBinaryOp(Operator.SUBTRACT, this, value);
     }
 
-    private Int multiply(Int value) {
-        convertToLargest(this, value);
-        return doBinaryOp("%", this, value, true, false);
+    public Int multiply(Int value) {
+        return doBinaryOp(Operator.MULTIPLY, this, value);
     }
 
-    private Number divide(Int divisor) {
-        convertToLargest(this, divisor);
-        return doBinaryOp("/", this, divisor, false, true);
+    public Number divide(Int divisor) {
+        return doBinaryOp(Operator.DIVIDE, this, divisor);
     }
 
-    private Int mod(Int divisor) {
-        convertToLargest(this, divisor);
-        return doBinaryOp("%", this, divisor, false, true);
+    public Int mod(Int divisor) {
+        return doBinaryOp(Operator.MOD, this, divisor);
     }
 
-    private Int floorDivide(Int divisor) {
-        convertToLargest(this, divisor);
-        return doBinaryOp("-/", this, divisor, false, true);
+    public Int floorDivide(Int divisor) {
+        return doBinaryOp(Operator.FLOOR_DIVIDE, this, divisor);
     }
 
-    private Int power(Int exponent) {
-        convertToLargest(this, exponent);
-        return doBinaryOp("**", this, exponent, true, false);
+    public Int power(Int exponent) {
+        return doBinaryOp(Operator.POWER, this, exponent);
     }
 
-    private Int round(Int to) {
-        convertToLargest(this, to);
-        return doBinaryOp("`2", this, to, true, true);
+    public Int round(Int to) {
+        return doBinaryOp(Operator.ROUND, this, to);
     }
 
-    private Int round() {
-        return doUnaryOp("`", this, true, true);
+    public Int round() {
+        return this;
     }
 
-    private Int bitAnd(Int value) {
-        convertToLargest(this, value);
-        return doBinaryOp("&", this, value, false, false);
+    public Int bitAnd(Int value) {
+        return doBinaryOp(Operator.BIT_AND, this, value);
     }
 
-    private Int bitOr(Int value) {
-        convertToLargest(this, value);
-        return doBinaryOp("|", this, value, false, false);
+    public Int bitOr(Int value) {
+        return doBinaryOp(Operator.BIT_OR, this, value);
     }
 
-    private Int bitNot() {
-        return doUnaryOp("~", this, false, false);
+    public Int bitNot() {
+        return doUnaryOp(Operator.BIT_NOT, this);
     }
 
-    private Int bitXor(Int value) {
-        convertToLargest(this, value);
-        return doBinaryOp("^", this, value, false, false);
+    public Int bitXor(Int value) {
+        return doBinaryOp(Operator.BIT_XOR, this, value);
     }
 
-    private Int increment() {
-        return doUnaryOp("++", this, true, true);
+    public Int increment() {
+        return doUnaryOp(Operator.INCREMENT, this);
     }
 
-    private Int decrement() {
-        return doUnaryOp("--", this, true, true);
+    public Int decrement() {
+        return doUnaryOp(Operator.DECREMENT, this);
     }
 
-    private Int negate() {
-        return doUnaryOp("u-", this, true, true);
+    public Int negate() {
+        return doUnaryOp(Operator.NEGATE, this);
     }
 
-    private Int shiftRight(Int amount) {
-        convertToLargest(this, amount);
-        return doBinaryOp(">>", this, amount, false, false);
+    public Int shiftRight(Int amount) {
+        return doBinaryOp(Operator.SHIFT_RIGHT, this, amount);
     }
 
-    private Int shiftLeft(Int amount) {
-        convertToLargest(this, amount);
-        return doBinaryOp("<<", this, amount, false, false);
+    public Int shiftLeft(Int amount) {
+        return doBinaryOp(Operator.SHIFT_LEFT, this, amount);
     }
 
-    private Bool lessThan(Int value) {
-        convertToLargest(this, value);
-        return doBooleanBinaryOp(">", this, value);
+    public Bool lessThan(Int value) {
+        return Bool.valueOf(compare(this, value) < 0);
     }
 
-    private Bool lessThanOrEqualTo(Int value) {
-        convertToLargest(this, value);
-        return doBooleanBinaryOp("<", this, value);
+    public Bool lessThanOrEqualTo(Int value) {
+        return Bool.valueOf(compare(this, value) <= 0);
     }
 
-    private Bool greaterThan(Int value) {
-        convertToLargest(this, value);
-        return doBooleanBinaryOp(">=", this, value);
+    public Bool greaterThan(Int value) {
+        return Bool.valueOf(compare(this, value) > 0);
     }
 
-    private Bool greaterThanOrEqualTo(Int value) {
-        convertToLargest(this, value);
-        return doBooleanBinaryOp("<=", this, value);
+    public Bool greaterThanOrEqualTo(Int value) {
+        return Bool.valueOf(compare(this, value) >= 0);
     }
 
     public Str string() {
         if (isBig()) {
             return new Str(bigValue().toString());
-        } else if (isLong()) {
-            return new Str(Long.toString(longValue()));
         }
-        return new Str(Integer.toString(value().value));
+        return new Str(Long.toString(value().longValue()));
     }
 
-    private Str hash() {
-        // TODO
-        return new Str("");
+    private Int hash() {
+        return valueOf(longHash());
     }
 
-    private Bool equal(Int value) {
-        // TODO
-        return Bool.valueOf(equals(value));
+    public Bool equal(Int value) {
+        return Bool.valueOf(compare(this, value) == 0);
     }
 
     public Bool bool() {
         if (isBig())
             return Bool.valueOf(!bigValue().equals(BigInteger.ZERO));
-        return Bool.valueOf(value().value == 0);
+        return Bool.valueOf(value().longValue() != 0);
     }
 
 
 
     /** ******************************************* DOERS ****************************************** **/
-    /** Performs the correct operation based on the datatypes of the arguments                       **/
-
-
-    private static Int doBinaryOp(String op, Int first, Int second, boolean overflow, boolean reducible) {
-        if (first.isByte())
-            return new Int(combineBytes(op, first.byteValue(), second.byteValue(), overflow));
-        if (first.isShort())
-            return new Int(combineShorts(op, first.shortValue(), second.shortValue(), overflow, reducible));
-        if (first.isInt())
-            return new Int(combineInts(op, first.intValue(), second.intValue(), overflow, reducible));
-        if (first.isLong())
-            return new Int(combineLongs(op, first.longValue(), second.longValue(), overflow, reducible));
-        else
-            return new Int(combineBigs(op, first.bigValue(), second.bigValue(), reducible));
-    }
-
-    private static Int doUnaryOp(String op, Int first, boolean overflow, boolean reducible) {
-        if (first.isByte())
-            return new Int(combineBytes(op, first.byteValue(), (byte) 0, overflow));
-        if (first.isShort())
-            return new Int(combineShorts(op, first.shortValue(), (short) 0, overflow, reducible));
-        if (first.isInt())
-            return new Int(combineInts(op, first.intValue(), 0, overflow, reducible));
-        if (first.isLong())
-            return new Int(combineLongs(op, first.longValue(), (long) 0, overflow, reducible));
-        else
-            return new Int(combineBigs(op, first.bigValue(), BigInteger.ZERO, reducible));
-    }
-
-    private static Bool doBooleanBinaryOp(String op, Int first, Int second) {
-        if (first.isByte())
-            return Bool.valueOf((boolean) _operations.get("byte").get(op).apply(first.byteValue(), second.byteValue()));
-        if (first.isShort())
-            return Bool.valueOf((boolean) _operations.get("byte").get(op).apply(first.shortValue(), second.shortValue()));
-        if (first.isInt())
-            return Bool.valueOf((boolean) _operations.get("byte").get(op).apply(first.intValue(), second.intValue()));
-        if (first.isLong())
-            return Bool.valueOf((boolean) _operations.get("byte").get(op).apply(first.longValue(), second.longValue()));
-        else
-            return Bool.valueOf((boolean) _operations.get("byte").get(op).apply(first.bigValue(), second.bigValue()));
-    }
-
-    private static Bool doBooleanUnaryOp(String op, Int first) {
-        if (first.isByte())
-            return Bool.valueOf((boolean) _operations.get("byte").get(op).apply(first.byteValue(), (byte) 0));
-        if (first.isShort())
-            return Bool.valueOf((boolean) _operations.get("byte").get(op).apply(first.shortValue(), (short) 0));
-        if (first.isInt())
-            return Bool.valueOf((boolean) _operations.get("byte").get(op).apply(first.intValue(), 0));
-        if (first.isLong())
-            return Bool.valueOf((boolean) _operations.get("byte").get(op).apply(first.longValue(), (long) 0));
-        else
-            return Bool.valueOf((boolean) _operations.get("byte").get(op).apply(first.bigValue(), BigInteger.ZERO));
+    /** Performs the operation at the width of the wider of the two arguments                        **/
+
+
+    /** The operations the combiners know how to do */
+    private enum Operator {
+        ADD, SUBTRACT, MULTIPLY, DIVIDE, MOD, FLOOR_DIVIDE, POWER, ROUND,
+        BIT_AND, BIT_OR, BIT_XOR, SHIFT_RIGHT, SHIFT_LEFT,
+        BIT_NOT, INCREMENT, DECREMENT, NEGATE
+    }
+
+    private static Int doBinaryOp(Operator op, Int first, Int second) {
+        Value a = first.value(), b = second.value();
+        if (a instanceof BigVal || b instanceof BigVal)
+            return valueOf(combineBigs(op, a.bigValue(), b.bigValue()));
+        if (a instanceof LongVal || b instanceof LongVal)
+            return valueOf(combineLongs(op, a.longValue(), b.longValue()));
+        return valueOf(combineInts(op, (int) a.longValue(), (int) b.longValue()));
+    }
+
+    private static Int doUnaryOp(Operator op, Int first) {
+        Value a = first.value();
+        if (a instanceof BigVal)
+            return valueOf(combineBigs(op, a.bigValue(), BigInteger.ZERO));
+        if (a instanceof LongVal)
+            return valueOf(combineLongs(op, a.longValue(), 0L));
+        return valueOf(combineInts(op, (int) a.longValue(), 0));
+    }
+
+    /** Compares two Ints numerically, whatever their widths */
+    private static int compare(Int first, Int second) {
+        Value a = first.value(), b = second.value();
+        if (a instanceof BigVal || b instanceof BigVal)
+            return a.bigValue().compareTo(b.bigValue());
+        return Long.compare(a.longValue(), b.longValue());
     }
 
 
 
     /** ***************************************** COMBINERS **************************************** **/
-    /** Perform the operations on two ints, then call reducers and handle overflow                   **/
+    /** Perform the operations on two ints, promoting to the next width only on overflow             **/
+
+
+    /** Bytes, shorts and ints are all combined as ints, done in long arithmetic where they could overflow */
+    private static Value combineInts(Operator op, int first, int second) {
+        switch (op) {
+            case ADD:
+                return reduceLong((long) first + second);
+            case SUBTRACT:
+                return reduceLong((long) first - second);
+            case MULTIPLY:
+                return reduceLong((long) first * second);
+            case DIVIDE:
+                return reduceLong((long) first / second);
+            case MOD:
+                return reduceInt(first % second);
+            case FLOOR_DIVIDE:
+                return reduceLong(Math.floorDiv((long) first, second));
+            case BIT_AND:
+                return reduceInt(first & second);
+            case BIT_OR:
+                return reduceInt(first | second);
+            case BIT_XOR:
+                return reduceInt(first ^ second);
+            case BIT_NOT:
+                return reduceInt(~first);
+            case INCREMENT:
+                return reduceLong((long) first + 1);
+            case DECREMENT:
+                return reduceLong((long) first - 1);
+            case NEGATE:
+                return reduceLong(-(long) first);
+            default:
+                return combineLongs(op, first, second);
+        }
+    }
 
+    private static Value combineLongs(Operator op, long first, long second) {
+        try {
+            switch (op) {
+                case ADD:
+                    return reduceLong(Math.addExact(first, second));
+                case SUBTRACT:
+                    return reduceLong(Math.subtractExact(first, second));
+                case MULTIPLY:
+                    return reduceLong(Math.multiplyExact(first, second));
+                case DIVIDE:
+                    checkDivision(first, second);
+                    return reduceLong(first / second);
+                case MOD:
+                    return reduceLong(first % second);
+                case FLOOR_DIVIDE:
+                    checkDivision(first, second);
+                    return reduceLong(Math.floorDiv(first, second));
+                case POWER:
+                    return reduceLong(power(first, second));
+                case ROUND:
+                    return reduceLong(round(first, second));
+                case BIT_AND:
+                    return reduceLong(first & second);
+                case BIT_OR:
+                    return reduceLong(first | second);
+                case BIT_XOR:
+                    return reduceLong(first ^ second);
+                case SHIFT_RIGHT:
+                    /* -Long.MIN_VALUE is still negative, so it shifts as far left as a long can say */
+                    return second < 0 ? combineLongs(Operator.SHIFT_LEFT, first,
+                                    second == Long.MIN_VALUE ? Long.MAX_VALUE : -second) :
+                            reduceLong(first >> Math.min(second, 63));
+                case SHIFT_LEFT:
+                    /* Shifting right by 63 or more leaves only the sign: 0 or -1 */
+                    return second < 0 ? reduceLong(first >> (second < -63 ? 63 : -second)) :
+                            reduceLong(shiftLeft(first, second));
+                case BIT_NOT:
+                    return reduceLong(~first);
+                case INCREMENT:
+                    return reduceLong(Math.incrementExact(first));
+                case DECREMENT:
+                    return reduceLong(Math.decrementExact(first));
+                case NEGATE:
+                    return reduceLong(Math.negateExact(first));
+                default:
+                    throw new IllegalArgumentException(op.name());
+            }
+        } catch (ArithmeticException ae) {
+            if (second == 0 && (op == Operator.DIVIDE || op == Operator.MOD || op == Operator.FLOOR_DIVIDE)) {
+                throw ae;
+            }
+            return combineBigs(op, BigInteger.valueOf(first), BigInteger.valueOf(second));
+        }
+    }
 
-    private static Value combineBytes(String op, byte first, byte second, boolean overflow) {
-        var result = (int) _operations.get("byte").get(op).apply(first, second);
-        if (overflow && result > Byte.MAX_VALUE || result < Byte.MIN_VALUE) {
-            return combineShorts(op, (short) first, (short) second, overflow, false);
+    private static Value combineBigs(Operator op, BigInteger first, BigInteger second) {
+        switch (op) {
+            case ADD:
+                return reduceBig(first.add(second));
+            case SUBTRACT:
+                return reduceBig(first.subtract(second));
+            case MULTIPLY:
+                return reduceBig(first.multiply(second));
+            case DIVIDE:
+                return reduceBig(first.divide(second));
+            case MOD:
+                return reduceBig(first.remainder(second));
+            case FLOOR_DIVIDE:
+                return reduceBig(floorDivide(first, second));
+            case POWER:
+                if (second.signum() < 0) {
+                    /* Only 1 and -1 have whole powers below zero, so any wider base is as good as 2 */
+                    long base = first.bitLength() < Long.SIZE ? first.longValue() : 2;
+                    return reduceLong(power(base, second.testBit(0) ? -1 : -2));
+                }
+                return reduceBig(first.pow(second.intValueExact()));
+            case ROUND:
+                if (second.signum() >= 0) {
+                    return reduceBig(first);
+                }
+                BigInteger unit = BigInteger.TEN.pow(second.negate().intValueExact());
+                return reduceBig(floorDivide(first.add(unit.shiftRight(1)), unit).multiply(unit));
+            case BIT_AND:
+                return reduceBig(first.and(second));
+            case BIT_OR:
+                return reduceBig(first.or(second));
+            case BIT_XOR:
+                return reduceBig(first.xor(second));
+            case SHIFT_RIGHT:
+                return reduceBig(first.shiftRight(second.intValueExact()));
+            case SHIFT_LEFT:
+                return reduceBig(first.shiftLeft(second.intValueExact()));
+            case BIT_NOT:
+                return reduceBig(first.not());
+            case INCREMENT:
+                return reduceBig(first.add(BigInteger.ONE));
+            case DECREMENT:
+                return reduceBig(first.subtract(BigInteger.ONE));
+            case NEGATE:
+                return reduceBig(first.negate());
+            default:
+                throw new IllegalArgumentException(op.name());
         }
-        return new ByteVal((byte) result);
     }
 
+    /** Throws if FIRST / SECOND doesn't fit in a long, so the division is redone as BigIntegers */
+    private static void checkDivision(long first, long second) {
+        if (first == Long.MIN_VALUE && second == -1) {
+            throw new ArithmeticException("long overflow");
+        }
+    }
 
-    private static Value combineShorts(String op, short first, short second, boolean overflow, boolean reducible) {
-        var result = (int) _operations.get("short").get(op).apply(first, second);
-        if (overflow && result > Short.MAX_VALUE || result < Short.MIN_VALUE) {
-            return combineInts(op, (int) first, (int) second, overflow, reducible);
-        } 
-        return reduceShort((short) result);
+    /** BASE to the power of EXPONENT by squaring, throwing on overflow */
+    private static long power(long base, long exponent) {
+        if (exponent < 0) {
+            if (base == 0) {
+                throw new ArithmeticException("/ by zero");
+            }
+            return base == 1 ? 1 : base == -1 ? (exponent % 2 == 0 ? 1 : -1) : 0;
+        }
+        long result = 1;
+        while (exponent > 0) {
+            if ((exponent & 1) == 1) {
+                result = Math.multiplyExact(result, base);
+            }
+            exponent >>= 1;
+            if (exponent > 0) {
+                base = Math.multiplyExact(base, base);
+            }
+        }
+        return result;
     }
 
-    private static Value combineInts(String op, int first, int second, boolean overflow, boolean reducible) {
-        try {
-            var result = (int) _operations.get("int").get(op).apply(first, second);
-            return reducible ? reduceInt(result) : new IntVal(result);
-        }  catch (ArithmeticException ae) {
-            return combineLongs(op, (long) first, (long) second, overflow, reducible);
+    /** VALUE rounded to PLACES decimal places; only negative places (tens, hundreds...) change an integer */
+    private static long round(long value, long places) {
+        if (places >= 0) {
+            return value;
         }
+        long unit = power(10, -places);
+        return Math.multiplyExact(Math.floorDiv(Math.addExact(value, unit / 2), unit), unit);
     }
 
-    private static Value combineLongs(String op, long first, long second, boolean overflow, boolean reducible) {
-        try {
-            var result = (long) _operations.get("long").get(op).apply(first, second);
-            return reducible ? reduceLong(result) : new LongVal(result);
-        }  catch (ArithmeticException ae) {
-            return combineBigs(op, BigInteger.valueOf(first), BigInteger.valueOf(second), reducible);
+    /** VALUE shifted left by AMOUNT, throwing if any bits are shifted out */
+    private static long shiftLeft(long value, long amount) {
+        if (value == 0) {
+            return 0;
+        }
+        if (amount >= Long.SIZE || (value << amount) >> amount != value) {
+            throw new ArithmeticException("long overflow");
         }
+        return value << amount;
     }
 
-    private static Value combineBigs(String op, BigInteger first, BigInteger second, boolean reducible) {
-        var result = (BigInteger) _operations.get("big").get(op).apply(first, second);
-        return reducible ? reduceBig(result) : new BigVal(result);
+    private static BigInteger floorDivide(BigInteger first, BigInteger second) {
+        BigInteger[] quotientAndRemainder = first.divideAndRemainder(second);
+        if (quotientAndRemainder[1].signum() != 0 && quotientAndRemainder[1].signum() != second.signum()) {
+            return quotientAndRemainder[0].subtract(BigInteger.ONE);
+        }
+        return quotientAndRemainder[0];
     }
 
 
@@ -337,11 +466,9 @@ public class Int extends Number {
     }
 
     private static Value reduceBig(BigInteger value) {
-        try {
-            return reduceLong(value.longValueExact());
-        } catch (ArithmeticException ae) {
-            return new BigVal(value);
-        }
+        if (value.bitLength() < Long.SIZE)
+            return reduceLong(value.longValue());
+        return new BigVal(value);
     }
 
 
@@ -386,15 +513,11 @@ public class Int extends Number {
 
 
     public long forceLong() {
-        if (isBig())
-            return bigValue().longValue();
-        return (long) value().value;
+        return value().longValue();
     }
 
     public int forceInt() {
-        if (isBig())
-            return bigValue().intValue();
-        return (int) value().value;
+        return (int) value().longValue();
     }
 
 
@@ -402,12 +525,8 @@ public class Int extends Number {
         return _value;
     }
 
-    public Scope scope() { return _scope; }
-
-    /** Holds the value for this Objects.Int */
-    private Value _value;
-
-    private Scope _scope;
+    /** Holds the value for this Objects.Int, which never changes */
+    private final Value _value;
 
 
     /** ************************************ STATIC DECLARATIONS ************************************ **/
@@ -427,7 +546,7 @@ public class Int extends Number {
         set(Var.__bitnot__, new Func(f -> ((Int) f[0]).bitNot()));
         set(Var.__bitxor__, new Func(f -> ((Int) f[0]).bitXor((Int) f[1])));
         set(Var.__incr__, new Func(f -> ((Int) f[0]).increment()));
-        set(Var.__decr__, new Func(f -> ((Int) f[0]).increment()));
+        set(Var.__decr__, new Func(f -> ((Int) f[0]).decrement()));
         set(Var.__neg__, new Func(f -> ((Int) f[0]).negate()));
         set(Var.__rshift__, new Func(f -> ((Int) f[0]).shiftRight((Int) f[1])));
         set(Var.__lshift__, new Func(f -> ((Int) f[0]).shiftLeft((Int) f[1])));
@@ -441,210 +560,122 @@ public class Int extends Number {
         set(Var.__bool__, new Func(f -> ((Int) f[0]).bool()));
     }};
 
+    @Override
+    protected Scope classScope() {
+        return _classScope;
+    }
+
     /** The type for this object, which all instances share */
     public static final Type type = new Type("INT");
 
+    @Override
+    public Type type() { return type; }
+
+    /** Bounds of the range of Ints that are cached, which can be set with
+     * the heap.int.cache.low and heap.int.cache.high system properties */
+    private static final long
+            CACHE_LOW = Long.getLong("heap.int.cache.low", -128),
+            CACHE_HIGH = Math.max(CACHE_LOW - 1, Long.getLong("heap.int.cache.high", 1024));
+
+    /** The shared instances of every Int from CACHE_LOW to CACHE_HIGH */
+    private static final Int[] _cache = new Int[(int) (CACHE_HIGH - CACHE_LOW + 1)];
+
+    static {
+        for (int i = 0; i < _cache.length; i++) {
+            _cache[i] = new Int(reduceLong(CACHE_LOW + i));
+        }
+    }
+
     /** Value classes; these are containers for the datatype that this Objects.Int uses */
     private static abstract class Value {
-        static int size = -1;
-        int value;
+        /** The value as a long, which for a BigVal may be truncated */
+        abstract long longValue();
 
-        abstract Value convert(Value val);
+        BigInteger bigValue() {
+            return BigInteger.valueOf(longValue());
+        }
     }
 
     /** A byte value, ranging from -128 to 127 (inclusive) */
     private static class ByteVal extends Value {
-        byte value;
-        static int size = 0;
+        final byte value;
 
         ByteVal(byte value) {
             this.value = value;
         }
 
-        Value convert(Value val) {
-            return new ByteVal((byte) val.value);
+        long longValue() {
+            return value;
         }
     }
 
     /** A short value, ranging from -32,768 to 32,767 (inclusive) */
     private static class ShortVal extends Value {
-        short value;
-        static int size = 1;
+        final short value;
 
         ShortVal(short value) {
             this.value = value;
         }
 
-        Value convert(Value val) {
-            return new ShortVal((short) val.value);
+        long longValue() {
+            return value;
         }
     }
 
     /** An int value, ranging from -2,147,483,648 to 2,147,483,647 (inclusive) */
     private static class IntVal extends Value {
-        int value;
-        static int size = 2;
+        final int value;
 
         IntVal(int value) {
             this.value = value;
         }
 
-        Value convert(Value val) {
-            return new IntVal((int) val.value);
+        long longValue() {
+            return value;
         }
     }
 
     /** A long value, ranging from -9,223,372,036,854,775,808 to 9,223,372,036,854,775,807 (inclusive) */
     private static class LongVal extends Value {
-        long value;
-        static int size = 3;
+        final long value;
 
         LongVal(long value) {
             this.value = value;
         }
 
-        Value convert(Value val) {
-            return new LongVal((long) val.value);
+        long longValue() {
+            return value;
         }
     }
 
     /** A big value, with no set range, but large memory use */
     private static class BigVal extends Value {
-        BigInteger value;
-        static int size = 4;
+        final BigInteger value;
 
         BigVal(BigInteger value) {
             this.value = value;
         }
 
-        Value convert(Value val) {
-            return new BigVal(BigInteger.valueOf(val.value));
+        long longValue() {
+            return value.longValue();
         }
-    }
 
+        @Override
+        BigInteger bigValue() {
+            return value;
+        }
 
-    /** Mapping between datatypes and operatiors to the corresponding operations to be done */
-    private static Map<String, Map<String, BinaryOperator>> _operations = new HashMap<>() {{
-        put("byte", new HashMap<>() {{
-            put("+", (a, b) -> (byte) a + (byte) b);
-            put("-", (a, b) -> (byte) a - (byte) b);
-            put("*", (a, b) -> (byte) a * (byte) b);
-            put("/", (a, b) -> (byte) a / (byte) b);
-            put("%", (a, b) -> (byte) a % (byte) b);
-            put("-/", (a, b) -> Math.floorDiv((int) a, (int) b));
-            put("**", (a, b) -> Math.pow((int) a, (int) b));
-            put("`", (a, b) -> Math.round((int) a));
-            put("`2", (a, b) -> Math.round((int) a * (int) b / (int) b));
-            put("&", (a, b) -> (byte) a & (byte) b);
-            put("|", (a, b) -> (byte) a | (byte) b);
-            put("~", (a, b) -> ~(byte) a);
-            put("^", (a, b) -> (byte) a ^ (byte) b);
-            put("++", (a, b) -> Math.incrementExact((int) a));
-            put("--", (a, b) -> Math.decrementExact((int) a));
-            put("u-", (a, b) -> -(byte) a);
-            put(">>", (a, b) -> (byte) a >> (int) b);
-            put("<<", (a, b) -> (byte) a << (int) b);
-            put(">", (a, b) -> (byte) a > (byte) b);
-            put("<", (a, b) -> (byte) a < (byte) b);
-            put(">=", (a, b) -> (byte) a >= (byte) b);
-            put("<=", (a, b) -> (byte) a <= (byte) b);
-        }});
-        put("short", new HashMap<>() {{
-            put("+", (a, b) -> (short) a + (short) b);
-            put("-", (a, b) -> (short) a - (short) b);
-            put("*", (a, b) -> (short) a * (short) b);
-            put("/", (a, b) -> (short) a / (short) b);
-            put("%", (a, b) -> (short) a % (short) b);
-            put("-/", (a, b) -> Math.floorDiv((int) a, (int) b));
-            put("**", (a, b) -> Math.pow((int) a, (int) b));
-            put("`", (a, b) -> Math.round((int) a));
-            put("`2", (a, b) -> Math.round((int) a * (int) b / (int) b));
-            put("&", (a, b) -> (short) a & (short) b);
-            put("|", (a, b) -> (short) a | (short) b);
-            put("~", (a, b) -> ~(short) a);
-            put("^", (a, b) -> (short) a ^ (short) b);
-            put("++", (a, b) -> Math.incrementExact((int) a));
-            put("--", (a, b) -> Math.decrementExact((int) a));
-            put("u-", (a, b) -> -(short) a);
-            put(">>", (a, b) -> (short) a >> (int) b);
-            put("<<", (a, b) -> (short) a << (int) b);
-            put(">", (a, b) -> (short) a > (short) b);
-            put("<", (a, b) -> (short) a < (short) b);
-            put(">=", (a, b) -> (short) a >= (short) b);
-            put("<=", (a, b) -> (short) a <= (short) b);
-        }});
-        put("int", new HashMap<>() {{
-            put("+", (a, b) -> Math.addExact((int) a, (int) b));
-            put("-", (a, b) -> Math.subtractExact((int) a, (int) b));
-            put("*", (a, b) -> Math.multiplyExact((int) a, (int) b));
-            put("/", (a, b) -> (int) a / (int) b);
-            put("%", (a, b) -> (int) a % (int) b);
-            put("-/", (a, b) -> Math.floorDiv((int) a, (int) b));
-            put("**", (a, b) -> Math.pow((int) a, (int) b));
-            put("`", (a, b) -> Math.round((int) a));
-            put("`2", (a, b) -> Math.round((int) a * (int) b / (int) b));
-            put("&", (a, b) -> (int) a & (int) b);
-            put("|", (a, b) -> (int) a | (int) b);
-            put("~", (a, b) -> ~(int) a);
-            put("^", (a, b) -> (int) a ^ (int) b);
-            put("++", (a, b) -> Math.incrementExact((int) a));
-            put("--", (a, b) -> Math.decrementExact((int) a));
-            put("u-", (a, b) -> -(int) a);
-            put(">>", (a, b) -> (int) a >> (int) b);
-            put("<<", (a, b) -> (int) a << (int) b);
-            put(">", (a, b) -> (int) a > (int) b);
-            put("<", (a, b) -> (int) a < (int) b);
-            put(">=", (a, b) -> (int) a >= (int) b);
-            put("<=", (a, b) -> (int) a <= (int) b);
-        }});
-        put("long", new HashMap<>() {{
-            put("+", (a, b) -> Math.addExact((long) a, (long) b));
-            put("-", (a, b) -> Math.subtractExact((long) a, (long) b));
-            put("*", (a, b) -> Math.multiplyExact((long) a, (long) b));
-            put("/", (a, b) -> (long) a / (long) b);
-            put("%", (a, b) -> (long) a % (long) b);
-            put("-/", (a, b) -> Math.floorDiv((long) a, (long) b));
-            put("**", (a, b) -> Math.pow((long) a, (long) b));
-            put("`", (a, b) -> Math.round((long) a));
-            put("`2", (a, b) -> Math.round((long) a * (long) b / (long) b));
-            put("&", (a, b) -> (long) a & (long) b);
-            put("|", (a, b) -> (long) a | (long) b);
-            put("~", (a, b) -> ~(long) a);
-            put("^", (a, b) -> (long) a ^ (long) b);
-            put("++", (a, b) -> Math.incrementExact((long) a));
-            put("--", (a, b) -> Math.decrementExact((long) a));
-            put("u-", (a, b) -> -(long) a);
-            put(">>", (a, b) -> (long) a >> (int) b);
-            put("<<", (a, b) -> (long) a << (int) b);
-            put(">", (a, b) -> (long) a > (long) b);
-            put("<", (a, b) -> (long) a < (long) b);
-            put(">=", (a, b) -> (long) a >= (long) b);
-            put("<=", (a, b) -> (long) a <= (long) b);
-        }});
-        put("big", new HashMap<>() {{ 
-            put("+", (a, b) -> ((BigInteger) a).add((BigInteger) b));
-            put("-", (a, b) -> ((BigInteger) a).subtract((BigInteger) b));
-            put("*", (a, b) -> ((BigInteger) a).multiply((BigInteger) b));
-            put("/", (a, b) -> ((BigInteger) a).divide((BigInteger) b));
-            put("%", (a, b) -> ((BigInteger) a).multiply((BigInteger) b));
-            put("-/", (a, b) -> ((BigInteger) a).divide((BigInteger) b));
-            put("**", (a, b) -> ((BigInteger) a).pow((int) b));
-            put("`", (a, b) -> a);
-            put("`2", (a, b) -> ((BigInteger) a).multiply((BigInteger) b).divide((BigInteger) b));
-            put("&", (a, b) -> ((BigInteger) a).and((BigInteger) b));
-            put("|", (a, b) -> ((BigInteger) a).or((BigInteger) b));
-            put("~", (a, b) -> ((BigInteger) a).not());
-            put("^", (a, b) -> ((BigInteger) a).xor((BigInteger) b));
-            put("++", (a, b) -> ((BigInteger) a).add(BigInteger.ONE));
-            put("--", (a, b) -> ((BigInteger) a).subtract(BigInteger.ONE));
-            put("u-", (a, b) -> ((BigInteger) a).negate());
-            put(">>", (a, b) -> ((BigInteger) a).shiftLeft((int) b));
-            put("<<", (a, b) -> ((BigInteger) a).shiftRight((int) b));
-            put(">", (a, b) -> ((BigInteger) a).compareTo((BigInteger) b) > 0);
-            put("<", (a, b) -> ((BigInteger) a).compareTo((BigInteger) b) < 0);
-            put(">=", (a, b) -> ((BigInteger) a).compareTo((BigInteger) b) >= 0);
-            put("<=", (a, b) -> ((BigInteger) a).compareTo((BigInteger) b) <= 0);
-        }});
-    }};
+        /** Worked out the first time it's needed and kept, as it reads every word of VALUE */
+        long longHash() {
+            if (!hashed) {
+                hash = scramble(value.hashCode() ^ (long) value.bitLength() << 32);
+                hashed = true;
+            }
+            return hash;
+        }
+
+        private long hash;
+        private boolean hashed;
+    }
 
 }
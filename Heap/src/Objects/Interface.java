@@ -10,6 +10,17 @@ public class Interface extends Type implements Construct {
         _scope = new Scope(parentScope, Scope.Enclosing.INTERFACE);
     }
 
+    /** Interfaces are compared and hashed by identity, like Classes, not by name */
+    @Override
+    public boolean equals(Object o) {
+        return this == o;
+    }
+
+    @Override
+    public long longHash() {
+        return System.identityHashCode(this);
+    }
+
     public List<Interface> interfaces() {
         return _interfaces;
     }
@@ -11,4 +11,7 @@ public class NULL extends Any {
     private NULL() {}
 
     public static final Type type = new Type("NULL");
+
+    @Override
+    public Type type() { return type; }
 }
@@ -0,0 +1,222 @@
+package Objects;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * The hash table behind an HMap, laid out like a CPython dict. The entries are
+ * kept in insertion order in dense parallel arrays of keys, values and hashes,
+ * so the entry at a position is an array read and walking the entries walks
+ * contiguous arrays. The hashing is done in a separate, sparse array of ints:
+ * each slot is either EMPTY or the position of an entry, and a key is found by
+ * probing from the slot its hash picks until a slot holding it, or an empty one.
+ *
+ * The index array is kept at most two thirds full, and doubled (and filled in
+ * again from the stored hashes, without rehashing any key) when it would be
+ * fuller. Keys are compared with equals() and hashed with hashCode().
+ */
+public class OrderedTable {
+
+    public OrderedTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /** A table that can hold CAPACITY entries before it has to grow */
+    public OrderedTable(int capacity) {
+        capacity = Math.max(capacity, 1);
+        _keys = new Any[capacity];
+        _values = new Any[capacity];
+        _hashes = new int[capacity];
+        _indices = emptyIndices(indexLength(capacity));
+    }
+
+    /** Number of entries */
+    public int size() {
+        return _size;
+    }
+
+    /** The value of KEY, or null if it has none */
+    public Any get(Any key) {
+        int slot = find(key, spread(Objects.hashCode(key)));
+        return _indices[slot] == EMPTY ? null : _values[_indices[slot]];
+    }
+
+    /** The position of the entry for KEY, or -1 if there is none */
+    public int indexOf(Any key) {
+        return _indices[find(key, spread(Objects.hashCode(key)))];
+    }
+
+    /** The key of the entry at POSITION */
+    public Any key(int position) {
+        Objects.checkIndex(position, _size);
+        return _keys[position];
+    }
+
+    /** The value of the entry at POSITION */
+    public Any value(int position) {
+        Objects.checkIndex(position, _size);
+        return _values[position];
+    }
+
+    /**
+     * Sets the value of KEY, adding an entry for it at the end if it doesn't have one
+     * @return The value KEY had, or null if it had none
+     */
+    public Any put(Any key, Any value) {
+        int hash = spread(Objects.hashCode(key));
+        int slot = find(key, hash);
+        int position = _indices[slot];
+        if (position != EMPTY) {
+            Any old = _values[position];
+            _values[position] = value;
+            return old;
+        }
+
+        if (_size == _keys.length) {
+            growEntries();
+        }
+        _keys[_size] = key;
+        _values[_size] = value;
+        _hashes[_size] = hash;
+        _indices[slot] = _size++;
+        if (_size * 3 >= _indices.length * 2) {
+            reindex(_indices.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Sets the value of KEY, adding an entry for it at POSITION (moving the
+     * entries from there on up by one) if it doesn't have one
+     * @return The value KEY had, or null if it had none
+     */
+    public Any put(int position, Any key, Any value) {
+        Objects.checkIndex(position, _size + 1);
+        int existing = indexOf(key);
+        if (existing != EMPTY) {
+            Any old = _values[existing];
+            _values[existing] = value;
+            return old;
+        }
+
+        if (_size == _keys.length) {
+            growEntries();
+        }
+        int moved = _size - position;
+        System.arraycopy(_keys, position, _keys, position + 1, moved);
+        System.arraycopy(_values, position, _values, position + 1, moved);
+        System.arraycopy(_hashes, position, _hashes, position + 1, moved);
+        _keys[position] = key;
+        _values[position] = value;
+        _hashes[position] = spread(Objects.hashCode(key));
+        _size++;
+        /* Every entry after POSITION has moved, so their slots all need updating */
+        reindex(_size * 3 >= _indices.length * 2 ? _indices.length * 2 : _indices.length);
+        return null;
+    }
+
+    /** The keys, in order, as a read-only list backed by the table */
+    public List<Any> keys() {
+        return new Column(true);
+    }
+
+    /** The values, in order, as a read-only list backed by the table */
+    public List<Any> values() {
+        return new Column(false);
+    }
+
+    /** A view of the keys or values, read through the table so it sees it grow */
+    private final class Column extends AbstractList<Any> implements RandomAccess {
+        Column(boolean keyColumn) {
+            _keyColumn = keyColumn;
+        }
+
+        @Override
+        public Any get(int index) {
+            return _keyColumn ? key(index) : value(index);
+        }
+
+        @Override
+        public int size() {
+            return _size;
+        }
+
+        private final boolean _keyColumn;
+    }
+
+
+    /** **************************** Probing **************************** **/
+
+    /** The slot of the index array that holds KEY, or the empty slot it would go in */
+    private int find(Any key, int hash) {
+        int mask = _indices.length - 1;
+        int slot = hash & mask;
+        int perturb = hash;
+        while (true) {
+            int position = _indices[slot];
+            if (position == EMPTY ||
+                    (_hashes[position] == hash && Objects.equals(_keys[position], key))) {
+                return slot;
+            }
+            /* Let the higher bits of the hash pick the next slot too, so keys
+             * whose hashes end the same don't all follow the same path */
+            perturb >>>= PERTURB_SHIFT;
+            slot = (slot * 5 + perturb + 1) & mask;
+        }
+    }
+
+    /** Rebuilds the index array at LENGTH slots from the stored hashes */
+    private void reindex(int length) {
+        _indices = emptyIndices(length);
+        int mask = length - 1;
+        for (int position = 0; position < _size; position++) {
+            int hash = _hashes[position];
+            int slot = hash & mask;
+            int perturb = hash;
+            while (_indices[slot] != EMPTY) {
+                perturb >>>= PERTURB_SHIFT;
+                slot = (slot * 5 + perturb + 1) & mask;
+            }
+            _indices[slot] = position;
+        }
+    }
+
+    private void growEntries() {
+        int capacity = _keys.length * 2;
+        _keys = Arrays.copyOf(_keys, capacity);
+        _values = Arrays.copyOf(_values, capacity);
+        _hashes = Arrays.copyOf(_hashes, capacity);
+    }
+
+    /** Mixes the high bits of a hashCode() into the low ones the mask keeps */
+    private static int spread(int hashCode) {
+        return hashCode ^ (hashCode >>> 16);
+    }
+
+    /** The number of index slots CAPACITY entries fit in under the load limit (a power of two) */
+    private static int indexLength(int capacity) {
+        int needed = capacity + capacity / 2 + 1;
+        return Math.max(MIN_INDICES, Integer.highestOneBit(needed - 1) << 1);
+    }
+
+    private static int[] emptyIndices(int length) {
+        int[] indices = new int[length];
+        Arrays.fill(indices, EMPTY);
+        return indices;
+    }
+
+    private static final int DEFAULT_CAPACITY = 8;
+    private static final int MIN_INDICES = 8;
+    private static final int PERTURB_SHIFT = 5;
+    /** An index slot that holds no entry */
+    private static final int EMPTY = -1;
+
+    private int[] _indices;
+    private Any[] _keys;
+    private Any[] _values;
+    private int[] _hashes;
+    private int _size;
+}
@@ -0,0 +1,295 @@
+package Objects;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * The list behind an HArrayList. While every element has the same simple type,
+ * the elements are packed into an array of primitives instead of being kept as
+ * objects: a byte[] while they are all Ints from -128 to 127, a long[] while they
+ * are all Ints that fit in a long, and a double[] while they are all Reals. Reads
+ * box elements back into Ints (mostly cached, see Int.valueOf) and Reals.
+ *
+ * The first element that doesn't fit widens a byte[] to a long[], and otherwise
+ * moves the list over to an Any[] for good.
+ */
+public class PackedList extends AbstractList<Any> implements RandomAccess {
+
+    /** The ways the elements can be stored */
+    public enum Storage {
+        BYTE, LONG, DOUBLE, ANY
+    }
+
+    public PackedList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PackedList(int capacity) {
+        _capacity = Math.max(capacity, 1);
+    }
+
+    public PackedList(Collection<? extends Any> items) {
+        this(items.size());
+        addAll(items);
+    }
+
+    /** How the elements are currently stored, or null if nothing has been added yet */
+    public Storage storage() {
+        return _storage;
+    }
+
+    /**
+     * Picks STORAGE for the elements ahead of time, as a typed declaration like
+     * ints<[int]> does. Only has an effect while the list is empty.
+     */
+    public void expect(Storage storage) {
+        if (_size == 0 && storage != null) {
+            allocate(storage, _capacity);
+        }
+    }
+
+    @Override
+    public int size() {
+        return _size;
+    }
+
+    @Override
+    public Any get(int index) {
+        checkIndex(index, _size);
+        switch (_storage) {
+            case BYTE:
+                return Int.valueOf(_bytes[index]);
+            case LONG:
+                return Int.valueOf(_longs[index]);
+            case DOUBLE:
+                return new Real(_doubles[index]);
+            default:
+                return _objects[index];
+        }
+    }
+
+    @Override
+    public Any set(int index, Any value) {
+        checkIndex(index, _size);
+        Any previous = get(index);
+        fit(value);
+        store(index, value);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Any value) {
+        checkIndex(index, _size + 1);
+        fit(value);
+        ensureCapacity(_size + 1);
+        if (index < _size) {
+            System.arraycopy(array(), index, array(), index + 1, _size - index);
+        }
+        store(index, value);
+        _size++;
+        modCount++;
+    }
+
+    /** Appends VALUE as an Int, without boxing it while the list is packed */
+    public void addLong(long value) {
+        if (_storage == null) {
+            allocate(value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE ? Storage.BYTE : Storage.LONG, _capacity);
+        } else if (_storage == Storage.BYTE && (value < Byte.MIN_VALUE || value > Byte.MAX_VALUE)) {
+            convert(Storage.LONG);
+        }
+
+        if (_storage == Storage.BYTE || _storage == Storage.LONG) {
+            ensureCapacity(_size + 1);
+            if (_storage == Storage.BYTE) {
+                _bytes[_size] = (byte) value;
+            } else {
+                _longs[_size] = value;
+            }
+            _size++;
+            modCount++;
+        } else {
+            add(Int.valueOf(value));
+        }
+    }
+
+    @Override
+    public Any remove(int index) {
+        checkIndex(index, _size);
+        Any previous = get(index);
+        System.arraycopy(array(), index + 1, array(), index, _size - index - 1);
+        _size--;
+        if (_storage == Storage.ANY) {
+            _objects[_size] = null;
+        }
+        modCount++;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        _storage = null;
+        _bytes = null;
+        _longs = null;
+        _doubles = null;
+        _objects = null;
+        _size = 0;
+        modCount++;
+    }
+
+
+    /** **************************** Storage **************************** **/
+
+    /** The storage that VALUE needs on its own */
+    private static Storage storageFor(Any value) {
+        if (value instanceof Int) {
+            Int anInt = (Int) value;
+            if (anInt.isByte()) {
+                return Storage.BYTE;
+            } else if (!anInt.isBig()) {
+                return Storage.LONG;
+            }
+        } else if (value instanceof Real) {
+            return Storage.DOUBLE;
+        }
+        return Storage.ANY;
+    }
+
+    /** Makes sure VALUE can be stored, widening the storage if it can't be yet */
+    private void fit(Any value) {
+        Storage needed = storageFor(value);
+        if (_storage == needed || _storage == Storage.ANY ||
+                (_storage == Storage.LONG && needed == Storage.BYTE)) {
+            return;
+        }
+
+        if (_storage == null) {
+            allocate(needed, _capacity);
+        } else if (_storage == Storage.BYTE && needed == Storage.LONG) {
+            convert(Storage.LONG);
+        } else {
+            convert(Storage.ANY);
+        }
+    }
+
+    private void store(int index, Any value) {
+        switch (_storage) {
+            case BYTE:
+                _bytes[index] = (byte) ((Int) value).forceLong();
+                break;
+            case LONG:
+                _longs[index] = ((Int) value).forceLong();
+                break;
+            case DOUBLE:
+                _doubles[index] = ((Real) value).value();
+                break;
+            default:
+                _objects[index] = value;
+        }
+    }
+
+    /** Moves every element over to STORAGE */
+    private void convert(Storage storage) {
+        int capacity = Math.max(capacity(), 1);
+        if (storage == Storage.LONG) {
+            long[] longs = new long[capacity];
+            for (int i = 0; i < _size; i++) {
+                longs[i] = _bytes[i];
+            }
+            _bytes = null;
+            _longs = longs;
+        } else {
+            Any[] objects = new Any[capacity];
+            for (int i = 0; i < _size; i++) {
+                objects[i] = get(i);
+            }
+            _bytes = null;
+            _longs = null;
+            _doubles = null;
+            _objects = objects;
+        }
+        _storage = storage;
+    }
+
+    private void allocate(Storage storage, int capacity) {
+        _storage = storage;
+        switch (storage) {
+            case BYTE:
+                _bytes = new byte[capacity];
+                break;
+            case LONG:
+                _longs = new long[capacity];
+                break;
+            case DOUBLE:
+                _doubles = new double[capacity];
+                break;
+            default:
+                _objects = new Any[capacity];
+        }
+    }
+
+    private void ensureCapacity(int minimum) {
+        int capacity = capacity();
+        if (minimum <= capacity) {
+            return;
+        }
+
+        int grown = Math.max(minimum, capacity + (capacity >> 1));
+        switch (_storage) {
+            case BYTE:
+                _bytes = Arrays.copyOf(_bytes, grown);
+                break;
+            case LONG:
+                _longs = Arrays.copyOf(_longs, grown);
+                break;
+            case DOUBLE:
+                _doubles = Arrays.copyOf(_doubles, grown);
+                break;
+            default:
+                _objects = Arrays.copyOf(_objects, grown);
+        }
+    }
+
+    private int capacity() {
+        switch (_storage) {
+            case BYTE:
+                return _bytes.length;
+            case LONG:
+                return _longs.length;
+            case DOUBLE:
+                return _doubles.length;
+            default:
+                return _objects.length;
+        }
+    }
+
+    /** The array currently holding the elements */
+    private Object array() {
+        switch (_storage) {
+            case BYTE:
+                return _bytes;
+            case LONG:
+                return _longs;
+            case DOUBLE:
+                return _doubles;
+            default:
+                return _objects;
+        }
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private static final int DEFAULT_CAPACITY = 10;
+
+    private Storage _storage;
+    private int _size, _capacity;
+    private byte[] _bytes;
+    private long[] _longs;
+    private double[] _doubles;
+    private Any[] _objects;
+}
@@ -9,21 +9,26 @@ public class Pointer extends Any {
         this._index = index;
 
         if (!value().isNull()) {
-            _scope.set(value().scope());
+            instanceScope().set(value().scope());
         }
     }
 
-    private static final Scope _classScope = new Scope(null) {{
+    private static final Scope _classScope = new Scope(null, Scope.Enclosing.CLASS) {{
         set(Var.__point__, new Func(f -> ((Pointer) f[0]).pointed()));
         set(Var.__total__, new Func(f -> ((Pointer) f[0]).container()));
         set(Var.__deref__, new Func(f -> ((Pointer) f[0]).value()));
     }};
 
     @Override
-    public void callMethod(Var methodName, boolean thisScope, Scope scope,  Any... args) {
+    protected Scope classScope() {
+        return _classScope;
+    }
+
+    @Override
+    public Any callMethod(Var methodName, boolean thisScope, Scope scope,  Any... args) {
         /* Because the first argument to the Func will be the instance itself, so dereference */
         args[0] = args[0] instanceof Pointer ? ((Pointer) args[0]).value() : args[0];
-        super.callMethod(methodName, thisScope, scope, args);
+        return super.callMethod(methodName, thisScope, scope, args);
     }
 
 
@@ -40,7 +45,7 @@ public class Pointer extends Any {
     public void setValue(Any value) {
         try {
             container().set(null, value); // TODO
-            scope().set(value.scope());
+            instanceScope().set(value.scope());
         } catch (IndexOutOfBoundsException ibe) {
             return;
         }
@@ -60,10 +65,12 @@ public class Pointer extends Any {
 
 
     private Container _container;
-    private Scope _scope;
     private int _index;
     private Pointed _pointed;
 
     public static final Type type = new Type("POINTER");
 
+    @Override
+    public Type type() { return type; }
+
 }
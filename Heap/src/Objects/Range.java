@@ -0,0 +1,118 @@
+package Objects;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The list made by a range like [start => stop : step] or -[start => stop : step].
+ * Its elements are worked out from the bounds as they are asked for, so a range
+ * takes the same memory however many elements it has.
+ *
+ * The elements are only stored once the range's backing list is handed out (see
+ * list()), which is how every change to a list is made. From then on the range
+ * acts just like the HArrayList or HLinkedList it stands in for.
+ */
+public class Range extends HList {
+
+    public Range(long start, long stop, long step, boolean linked) {
+        super(null);
+        if (step == 0) {
+            throw new IllegalArgumentException("Range step cannot be 0");
+        }
+
+        long count;
+        if (step > 0) {
+            count = stop > start ? (Math.subtractExact(stop, start) - 1) / step + 1 : 0;
+        } else {
+            count = start > stop ? (Math.subtractExact(start, stop) - 1) / -step + 1 : 0;
+        }
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Range has more than " + Integer.MAX_VALUE + " elements");
+        }
+
+        _start = start;
+        _step = step;
+        _size = (int) count;
+        _linked = linked;
+    }
+
+    @Override
+    public Any get(int index) {
+        if (_list != null) {
+            return _list.get(index);
+        }
+        if (index < 0 || index >= _size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + _size);
+        }
+        return Int.valueOf(_start + index * _step);
+    }
+
+    @Override
+    public int size() {
+        return _list != null ? _list.size() : _size;
+    }
+
+    /** The elements as a list that can be changed, storing them first if they haven't been yet */
+    @Override
+    public List<Any> list() {
+        if (_list == null) {
+            materialize();
+        }
+        return _list;
+    }
+
+    @Override
+    public Iterator<Any> iterator() {
+        if (_list != null) {
+            return _list.iterator();
+        }
+
+        return new Iterator<>() {
+            private int _index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return _index < _size;
+            }
+
+            @Override
+            public Any next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return Int.valueOf(_start + _index++ * _step);
+            }
+        };
+    }
+
+    /** Whether the elements have been stored, rather than being worked out from the bounds */
+    public boolean isMaterialized() {
+        return _list != null;
+    }
+
+    private void materialize() {
+        if (_linked) {
+            LinkedList<Any> list = new LinkedList<>();
+            for (int i = 0; i < _size; i++) {
+                list.add(Int.valueOf(_start + i * _step));
+            }
+            _list = list;
+        } else {
+            PackedList list = new PackedList(_size);
+            for (int i = 0; i < _size; i++) {
+                list.addLong(_start + i * _step);
+            }
+            _list = list;
+        }
+    }
+
+    private final long _start, _step;
+    private final int _size;
+    /** Whether this stands in for an HLinkedList rather than an HArrayList */
+    private final boolean _linked;
+
+    @Override
+    public Type type() { return _linked ? HLinkedList.type : HArrayList.type; }
+}
@@ -3,9 +3,56 @@ package Objects;
 import Main.*;
 import Helpers.*;
 
-public class Real extends Atom {
+public class Real extends Number {
+    public Real(double value) {
+        super();
+        _value = value;
+    }
+
     public Real(Parser.RealLiteral literal) {
+        this(Double.parseDouble(literal.token.value()));
+    }
+
+    /**
+     * Reals can't be given attributes, like Ints: a list of them keeps only their
+     * values (see PackedList), so an attribute set on one would be lost once it
+     * was put in a list
+     */
+    @Override
+    public void set(Var var, Any value) {
+        throw new UnsupportedOperationException("Can't set " + var.name() + " on a real, as reals are immutable");
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Real)) return false;
+        return Double.compare(value(), ((Real) o).value()) == 0;
+    }
+
+    /** Made from the bits of the value, so it agrees with equals() on -0.0 and NaN */
+    @Override
+    public long longHash() {
+        return scramble(Double.doubleToLongBits(value()));
     }
 
-    private static final Type type = new Type("REAL");
+    public Str string() {
+        return new Str(Double.toString(value()));
+    }
+
+    public Bool bool() {
+        return Bool.valueOf(value() != 0);
+    }
+
+    public double value() {
+        return _value;
+    }
+
+    /** Holds the value for this Objects.Real, which never changes */
+    private final double _value;
+
+    public static final Type type = new Type("REAL");
+
+    @Override
+    public Type type() { return type; }
 }
@@ -32,8 +32,16 @@ public class Slice extends HList {
         set(Var.add, new Func(f -> ((HList) f[0]).add(f[1])));
     }};
 
+    @Override
+    protected Scope classScope() {
+        return _classScope;
+    }
+
     public static final Type type = new Type("SLICE");
 
+    @Override
+    public Type type() { return type; }
+
 
     public Any get(int index) {
         return ((Pointer) list().get(index)).value();
@@ -41,7 +49,6 @@ public class Slice extends HList {
 
     public void set(int index, Any obj) { ((Pointer) list().get(index)).setValue(obj); }
 
-    private Scope _scope;
     private Type _containerTypes;
     private Type _type;
     private List<Pointer> _list;
@@ -5,15 +5,49 @@ import Helpers.*;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.util.ArrayDeque;
 import java.util.Base64;
+import java.util.Deque;
 import java.util.Objects;
 
+/**
+ * A string. Adding or multiplying Strs doesn't copy any chars: the result is a
+ * rope, a node that only points to the Strs it is made of (and how many times
+ * over, for a multiplication), so building up a Str piece by piece with += takes
+ * time in the number of pieces rather than the square of its length. The chars
+ * are copied out into a single String the first time anything needs them, such
+ * as value(), indexing or hashing, and kept from then on. The length is always
+ * known without flattening.
+ *
+ * Cutting a Str down (dividing, modding, shifting) doesn't copy either: the
+ * result is a view of the chars of the Str it was cut from, and the spaces a
+ * shift pads with are a rope of a single space repeated.
+ *
+ * __hash__ gives a fast 64 bit hash, which is also the Str's hashCode(), so Strs
+ * can be used as keys of an HMap. It is worked out once per Str and kept. For a
+ * cryptographic hash, there is digest(), a SHA-256.
+ */
 public class Str extends Atom {
+    /** The chars of this Str, or null if it is a rope that hasn't been flattened yet */
     private String _string;
-    private Scope _scope;
+    /** What an unflattened rope is made of: LEFT followed by RIGHT, or if RIGHT is
+     * null, LEFT repeated TIMES times, or if TIMES is 0, a view of the chars of
+     * LEFT from OFFSET on */
+    private Str _left, _right;
+    private long _times, _offset;
+    private final long _length;
+    /** The hash of the chars, once HASHED */
+    private long _hash;
+    private boolean _hashed;
 
     public String value() {
-        return _string;
+        String string = _string;
+        return string != null ? string : flatten();
+    }
+
+    /** Number of chars in this Str */
+    public long length() {
+        return _length;
     }
 
     @Override
@@ -21,96 +55,229 @@ public class Str extends Atom {
         if (this == o) return true;
         if (!(o instanceof Str)) return false;
         Str str = (Str) o;
+        if (_length != str._length || (_hashed && str._hashed && _hash != str._hash)) return false;
         return Objects.equals(value(), str.value());
     }
 
+    /** A 64 bit hash of the chars of this Str, worked out the first time it's needed and kept */
+    @Override
+    public long longHash() {
+        if (!_hashed) {
+            _hash = hash(value());
+            _hashed = true;
+        }
+        return _hash;
+    }
+
     public Str(String string) {
         super();
         _string = string;
+        _length = string.length();
     }
 
     public Str(Parser.StringLiteral string) {
+        this(string.token.value());
+    }
+
+    /** A rope of LEFT followed by RIGHT */
+    private Str(Str left, Str right) {
+        super();
+        _left = left;
+        _right = right;
+        _length = Math.addExact(left._length, right._length);
+    }
+
+    /** A rope of PART repeated TIMES times */
+    private Str(Str part, long times) {
         super();
-        _string = string.token.value();
+        _left = part;
+        _times = times;
+        _length = Math.multiplyExact(part._length, times);
     }
 
+    /** A view of LENGTH chars of BASE, from OFFSET on */
+    private Str(Str base, long offset, long length) {
+        super();
+        _left = base;
+        _offset = offset;
+        _length = length;
+    }
+
+    /** Ropes shorter than this are copied out straight away, as that costs less than a node */
+    private static final int FLAT_LENGTH = 64;
+
+    private static final Str SPACE = new Str(" ");
+
+    /** Copies the chars of this rope out into a String, and lets go of what it was made of */
+    private String flatten() {
+        if (_length > Integer.MAX_VALUE) {
+            throw new OutOfMemoryError("Str of " + _length + " chars is too long to hold");
+        }
+        var builder = new StringBuilder((int) _length);
+        /* A rope built by += is as deep as it has pieces, so walk it without recursing */
+        Deque<Str> parts = new ArrayDeque<>();
+        parts.push(this);
+        while (!parts.isEmpty()) {
+            Str part = parts.pop();
+            if (part._string != null) {
+                builder.append(part._string);
+            } else if (part._right != null) {
+                parts.push(part._right);
+                parts.push(part._left);
+            } else if (part._times == 0) {
+                builder.append(part._left.value(), (int) part._offset, (int) (part._offset + part._length));
+            } else {
+                String repeated = part._left.value();
+                for (long i = 0; i < part._times; i++) {
+                    builder.append(repeated);
+                }
+            }
+        }
+        _string = builder.toString();
+        _left = _right = null;
+        return _string;
+    }
 
-    private Str add(Str str) {
-        return new Str(value() + str.value());
+
+    public Str add(Str str) {
+        if (str._length == 0) {
+            return this;
+        } else if (_length == 0) {
+            return str;
+        } else if (_length + str._length <= FLAT_LENGTH && _string != null && str._string != null) {
+            return new Str(_string + str._string);
+        }
+        return new Str(this, str);
     }
 
     private Str multiply(Int times) {
-        var s = new StringBuilder();
-        for (int i = 0; i < times.forceLong(); i++) {
-            s.append(value());
+        return repeat(times.forceLong());
+    }
+
+    private Str repeat(long count) {
+        if (count <= 0 || _length == 0) {
+            return new Str("");
+        } else if (count == 1) {
+            return this;
+        } else if (count <= FLAT_LENGTH / _length) {
+            return new Str(value().repeat((int) count));
+        }
+        return new Str(this, count);
+    }
+
+    /**
+     * The chars of this Str from FROM up to TO, without copying them unless
+     * there are only a few
+     */
+    private Str slice(long from, long to) {
+        if (from < 0 || to > _length || from > to) {
+            throw new StringIndexOutOfBoundsException("begin " + from + ", end " + to + ", length " + _length);
+        }
+        if (from == 0 && to == _length) {
+            return this;
+        } else if (to - from <= FLAT_LENGTH && _string != null) {
+            return new Str(_string.substring((int) from, (int) to));
+        } else if (_string == null && _right == null && _times == 0) {
+            /* A view of a view is a view of what it views */
+            return new Str(_left, _offset + from, to - from);
         }
-        return new Str(s.toString());
+        return new Str(this, from, to - from);
+    }
+
+    /** COUNT spaces */
+    private static Str spaces(long count) {
+        if (count < 0) {
+            throw new NegativeArraySizeException(String.valueOf(count));
+        }
+        return SPACE.repeat(count);
     }
 
     private Str divide(Int times) {
-        var value = value();
-        assert value.length() % times.forceInt() == 0;
-        return new Str(value.substring(0, value.length()/times.forceInt()));
+        assert _length % times.forceInt() == 0;
+        return slice(0, _length / times.forceInt());
     }
 
     private Str mod(Int times) {
-        var value = value();
-        int len = value().length() % times.forceInt();
-        return new Str(value.substring(value.length() - len));
+        long len = _length % times.forceInt();
+        return slice(_length - len, _length);
     }
 
     private Str floorDivide(Int times) {
-        var value = value();
-        return new Str(value.substring(0, Math.floorDiv(value.length(), times.forceInt())));
+        return slice(0, Math.floorDiv(_length, times.forceInt()));
     }
 
     private Str shiftRight(Int amount) {
-        var strValue = value();
-        if (amount.forceInt() > strValue.length()) {
-            return new Str(new String(new char[strValue.length()]).replace("\0", " "));
+        if (amount.forceInt() > _length) {
+            return spaces(_length);
         }
 
-        return new Str(
-                new String(new char[amount.forceInt()]).replace("\0", " ") +
-                        strValue.substring(0, strValue.length() - amount.forceInt())
-        );
+        return spaces(amount.forceInt()).add(slice(0, _length - amount.forceInt()));
     }
 
     private Str shiftLeft(Int amount) {
-        var strValue = value();
-        if (amount.forceInt() > strValue.length()) {
-            return new Str(new String(new char[strValue.length()]).replace("\0", " "));
+        if (amount.forceInt() > _length) {
+            return spaces(_length);
         }
 
-        return new Str(
-                strValue.substring(strValue.length() - amount.forceInt(), strValue.length()) +
-                        new String(new char[amount.forceInt()]).replace("\0", " ")
-        );
+        return slice(_length - amount.forceInt(), _length).add(spaces(amount.forceInt()));
     }
 
-    private Bool lessThan(Str str) {
+    public Bool lessThan(Str str) {
         return Bool.FALSE; // TODO
     }
 
-    private Bool lessThanOrEqualTo(Str str) {
+    public Bool lessThanOrEqualTo(Str str) {
         return Bool.FALSE; // TODO
     }
 
-    private Bool greaterThan(Str str) {
+    public Bool greaterThan(Str str) {
         return Bool.FALSE; // TODO
     }
 
-    private Bool greaterThanOrEqualTo(Str str) {
+    public Bool greaterThanOrEqualTo(Str str) {
         return Bool.FALSE; // TODO
     }
 
-    private Int size() { return new Int(value().length()); }
+    private Int size() { return Int.valueOf(_length); }
 
     public Str string() {
         return this;
     }
 
-    private Str hash() {
+    private Int hash() {
+        return Int.valueOf(longHash());
+    }
+
+    /**
+     * A hash in the style of wyhash: the chars are read four at a time as a
+     * 64 bit word, and each word is folded in by multiplying it with the state
+     * into 128 bits and xoring the halves. Not for security - see digest()
+     */
+    private static long hash(String string) {
+        int length = string.length();
+        long state = SEED ^ length;
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            long word = string.charAt(i) | (long) string.charAt(i + 1) << 16 |
+                    (long) string.charAt(i + 2) << 32 | (long) string.charAt(i + 3) << 48;
+            state = mix(word ^ PRIME_1, state ^ PRIME_2);
+        }
+        long tail = 0;
+        for (; i < length; i++) {
+            tail = tail << 16 | string.charAt(i);
+        }
+        return mix(mix(tail ^ PRIME_1, state ^ PRIME_2), length ^ PRIME_3);
+    }
+
+    private static long mix(long a, long b) {
+        return Math.multiplyHigh(a, b) ^ (a * b);
+    }
+
+    private static final long SEED = 0x8ebc6af09c88c6e3L, PRIME_1 = 0xa0761d6478bd642fL,
+            PRIME_2 = 0xe7037ed1a0b428dbL, PRIME_3 = 0x589965cc75374cc3L;
+
+    /** The SHA-256 of the chars of this Str, in Base64 */
+    private Str digest() {
         try {
             var digest = MessageDigest.getInstance("SHA-256");
             var hash = digest.digest(value().getBytes(StandardCharsets.UTF_8));
@@ -121,12 +288,12 @@ public class Str extends Atom {
         }
     }
 
-    private Bool equal(Str str) {
+    public Bool equal(Str str) {
         return Bool.valueOf(equals(str));
     }
 
     public Bool bool() {
-        return Bool.valueOf(!value().isEmpty());
+        return Bool.valueOf(_length != 0);
     }
 
 
@@ -144,10 +311,19 @@ public class Str extends Atom {
         set(Var.__greatereq__, new Func(f -> ((Str) f[0]).greaterThanOrEqualTo((Str) f[1])));
         set(Var.__str__, new Func(f -> f[0].string()));
         set(Var.__hash__, new Func(f -> ((Str) f[0]).hash()));
+        set(Var.digest, new Func(f -> ((Str) f[0]).digest()));
         set(Var.__eq__, new Func(f -> ((Str) f[0]).equal((Str) f[1])));
         set(Var.__bool__, new Func(f -> f[0].bool()));
         set(Var.__size__, new Func(f -> ((Str) f[0]).size()));
     }};
 
+    @Override
+    protected Scope classScope() {
+        return _classScope;
+    }
+
     public static final Type type = new Type("STR");
+
+    @Override
+    public Type type() { return type; }
 }
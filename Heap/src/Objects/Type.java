@@ -14,7 +14,7 @@ public class Type extends Any {
     }
 
     @Override
-    public int hashCode() {
+    public long longHash() {
         return Objects.hash(_name);
     }
 
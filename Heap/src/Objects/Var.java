@@ -35,18 +35,22 @@ public class Var extends Any {
         _abstract = false;
     }
 
+    /**
+     * Vars are the keys of scopes, and a name means the same thing whatever type
+     * it was declared with, so only the name is compared: a method set under a
+     * Func-typed Var is found by a call site that only knows the name
+     */
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Var var = (Var) o;
-        return Objects.equals(_name, var._name) &&
-                Objects.equals(_type, var._type);
+        return Objects.equals(_name, var._name);
     }
 
     @Override
-    public int hashCode() {
-        return Objects.hash(_name, _type);
+    public long longHash() {
+        return Objects.hashCode(_name);
     }
 
     public static final Var
@@ -89,5 +93,6 @@ public class Var extends Any {
             __point__ = new Var("__point__", Func.type),         // Exposes pointer functionality for a pointer to this object
             __total__ = new Var("__total__", Func.type),         // Returns the underlying object of a pointer
 
-            add = new Var("add", Func.type);
+            add = new Var("add", Func.type),
+            digest = new Var("digest", Func.type);               // SHA-256 of a Str
 }